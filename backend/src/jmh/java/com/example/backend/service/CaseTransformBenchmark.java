@@ -0,0 +1,48 @@
+package com.example.backend.service;
+
+import com.example.backend.config.AppConfig;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Case search: turning a cms_case_folder DQL page into the case list and serializing it
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CaseTransformBenchmark {
+
+    @Param({ "100", "1000", "10000" })
+    int rows;
+
+    private CaseService caseService;
+    private Map<String, Object> response;
+    private Map<String, Object> result;
+
+    @Setup
+    public void setUp() {
+        caseService = new CaseService(new AppConfig(), null);
+        response = DctmPayloads.caseFeed(rows);
+        result = caseService.transformDQLResponse(response, 1, rows);
+    }
+
+    @Benchmark
+    public Map<String, Object> transform() {
+        return caseService.transformDQLResponse(response, 1, rows);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return DctmPayloads.OBJECT_MAPPER.writeValueAsBytes(result);
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * dctm-rest responses of a given size for the benchmarks. Every payload goes through JSON once,
+ * so the transforms see the same map and list implementations the gateway hands them.
+ */
+final class DctmPayloads {
+
+    static final String REPOSITORY_URL = "https://dctm.example.org/dctm-rest/repositories/CMS";
+
+    /**
+     * The object mapper Spring Boot configures for request and response bodies
+     */
+    static final ObjectMapper OBJECT_MAPPER = Jackson2ObjectMapperBuilder.json().build();
+
+    private DctmPayloads() {
+    }
+
+    static Map<String, Object> documentFeed(int rows) {
+        return parse(feed(rows, DctmPayloads::documentRow));
+    }
+
+    static Map<String, Object> caseFeed(int rows) {
+        return parse(feed(rows, DctmPayloads::caseRow));
+    }
+
+    static Map<String, Object> userProfileFeed(int rows) {
+        return parse(feed(rows, DctmPayloads::userProfileRow));
+    }
+
+    static Map<String, Object> groupFeed(int rows) {
+        return parse(feed(rows, i -> groupRow(i, 20)));
+    }
+
+    /**
+     * A single group resource with the given number of user members
+     */
+    static Map<String, Object> groupResource(int members) {
+        Map<String, Object> group = new LinkedHashMap<>();
+        group.put("name", "group");
+        group.put("type", "dm_group");
+        group.put("properties", groupRow(1, members));
+        group.put("links", links(REPOSITORY_URL + "/groups/grp_finance_01", "edit", "users", "groups", "delete"));
+        return parse(group);
+    }
+
+    /**
+     * Raw response body of a DQL page, as received from dctm-rest
+     */
+    static byte[] documentFeedBytes(int rows) {
+        return toBytes(feed(rows, DctmPayloads::documentRow));
+    }
+
+    static byte[] toBytes(Object value) {
+        try {
+            return OBJECT_MAPPER.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> parse(byte[] body) {
+        try {
+            return OBJECT_MAPPER.readValue(body, Map.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Map<String, Object> parse(Map<String, Object> value) {
+        return parse(toBytes(value));
+    }
+
+    private static Map<String, Object> feed(int rows, IntFunction<Map<String, Object>> row) {
+        List<Map<String, Object>> entries = new ArrayList<>(rows);
+        for (int i = 1; i <= rows; i++) {
+            Map<String, Object> properties = row.apply(i);
+            String href = REPOSITORY_URL + "/objects/" + properties.get("r_object_id");
+
+            Map<String, Object> content = new LinkedHashMap<>();
+            content.put("name", "object");
+            content.put("type", properties.get("r_object_type"));
+            content.put("properties", properties);
+            content.put("links", links(href, "edit", "delete", "canonical"));
+
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("id", href);
+            entry.put("title", properties.get("r_object_id"));
+            entry.put("updated", "2026-03-14T09:26:53.000+00:00");
+            entry.put("published", "2026-03-14T09:26:53.000+00:00");
+            entry.put("links", links(href, "edit"));
+            entry.put("content", content);
+            entries.add(entry);
+        }
+
+        Map<String, Object> feed = new LinkedHashMap<>();
+        feed.put("id", REPOSITORY_URL);
+        feed.put("title", "DQL query results");
+        feed.put("author", List.of(Map.of("name", "EMC Documentum")));
+        feed.put("updated", "2026-03-14T09:26:53.000+00:00");
+        feed.put("page", 1);
+        feed.put("items-per-page", rows);
+        feed.put("links", links(REPOSITORY_URL, "next"));
+        feed.put("entries", entries);
+        return feed;
+    }
+
+    private static List<Map<String, Object>> links(String href, String... rels) {
+        List<Map<String, Object>> links = new ArrayList<>();
+        links.add(Map.of("rel", "self", "href", href));
+        for (String rel : rels) {
+            links.add(Map.of("rel", rel, "href", href + "/" + rel));
+        }
+        return links;
+    }
+
+    private static Map<String, Object> documentRow(int i) {
+        Map<String, Object> row = baseRow("dm_document", "09", i);
+        row.put("object_name", "Board note " + i + ".pdf");
+        row.put("title", "Board note on loan restructuring, annexure " + i);
+        row.put("owner_name", "user" + (i % 500));
+        row.put("a_content_type", "pdf");
+        row.put("r_content_size", 180_000 + i * 37 % 900_000);
+        row.put("keywords", List.of("board", "restructuring", "FY" + (2020 + i % 7)));
+        return row;
+    }
+
+    private static Map<String, Object> caseRow(int i) {
+        Map<String, Object> row = baseRow("cms_case_folder", "0b", i);
+        row.put("object_name", String.format("CASE/2026/%05d", i));
+        row.put("subject", "Review of refinance proposal " + i);
+        row.put("ho_ro", i % 3 == 0 ? "HO" : "RO");
+        row.put("description", "Proposal received from the regional office for review and sanction");
+        row.put("department_name", "Credit");
+        row.put("functions", List.of("Credit", "Refinance"));
+        return row;
+    }
+
+    private static Map<String, Object> userProfileRow(int i) {
+        Map<String, Object> row = baseRow("cms_user_profile", "09", i);
+        row.put("object_name", "Officer Name " + i);
+        row.put("uin", String.format("UIN%06d", i));
+        row.put("department_name", "Finance");
+        row.put("user_grade", "G" + (i % 6 + 1));
+        row.put("designation", "Assistant General Manager");
+        row.put("user_email_address", "officer" + i + "@example.org");
+        row.put("user_login_name", "officer" + i);
+        row.put("primary_mobile_number", String.format("98%08d", i));
+        row.put("location", "Mumbai");
+        row.put("office_type", "HO");
+        row.put("is_active", i % 20 != 0);
+        row.put("hindi_user_name", "अधिकारी " + i);
+        row.put("hindi_designation", "सहायक महाप्रबंधक");
+        row.put("user_role", "user");
+        return row;
+    }
+
+    private static Map<String, Object> groupRow(int i, int members) {
+        Map<String, Object> row = baseRow("dm_group", "12", i);
+        List<String> users = new ArrayList<>(members);
+        for (int m = 0; m < members; m++) {
+            users.add("officer" + (i * 31 + m));
+        }
+        row.put("group_name", String.format("grp_finance_%02d", i));
+        row.put("description", "Finance department approvers, tier " + i % 4);
+        row.put("owner_name", "dmadmin");
+        row.put("users_names", users);
+        row.put("groups_names", List.of("grp_all_staff"));
+        return row;
+    }
+
+    private static Map<String, Object> baseRow(String type, String tag, int i) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("r_object_id", String.format("%s02cba0%08x", tag, 0x80000000L + i));
+        row.put("r_object_type", type);
+        row.put("r_creation_date", "2025-11-0" + (i % 9 + 1) + "T10:15:30.000+00:00");
+        row.put("r_modify_date", "2026-02-1" + (i % 9) + "T16:45:00.000+00:00");
+        return row;
+    }
+}
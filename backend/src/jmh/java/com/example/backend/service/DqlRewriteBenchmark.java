@@ -0,0 +1,50 @@
+package com.example.backend.service;
+
+import com.example.backend.config.AppConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rewriting of query console statements before they are sent: adding r_object_id to the select
+ * list and the RETURN_TOP hint.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DqlRewriteBenchmark {
+
+    private static final Map<String, String> STATEMENTS = Map.of(
+            "simple", "SELECT object_name, title FROM dm_document WHERE owner_name = 'dmadmin'",
+            "aggregate", "SELECT COUNT(*) FROM dm_document WHERE r_creation_date > DATE('2026-01-01', 'yyyy-mm-dd')",
+            "returnTop", "SELECT object_name FROM cms_case_folder ORDER BY r_creation_date DESC ENABLE(RETURN_TOP 50)",
+            "wide", "SELECT object_name, subject, ho_ro, description, department_name, functions, r_creation_date, "
+                    + "r_modify_date, owner_name, a_status, title, keywords FROM cms_case_folder "
+                    + "WHERE object_name LIKE '%2026%' AND department_name IN ('Credit', 'Finance', 'Legal') "
+                    + "ORDER BY r_creation_date DESC");
+
+    @Param({ "simple", "aggregate", "returnTop", "wide" })
+    String statement;
+
+    private QueryService queryService;
+    private String dql;
+
+    @Setup
+    public void setUp() {
+        queryService = new QueryService(null, null, null, null, null, new AppConfig());
+        dql = STATEMENTS.get(statement);
+    }
+
+    @Benchmark
+    public String rewrite() {
+        return queryService.addReturnTopHint(queryService.ensureRequiredColumns(dql), 10000);
+    }
+}
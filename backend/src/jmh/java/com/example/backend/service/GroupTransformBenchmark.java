@@ -0,0 +1,62 @@
+package com.example.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group administration: the group search page (groups with their actions) and the member list of
+ * one group, where {@code rows} is the number of groups or of members respectively
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GroupTransformBenchmark {
+
+    @Param({ "100", "1000", "10000" })
+    int rows;
+
+    private GroupService groupService;
+    private Map<String, Object> searchResponse;
+    private Map<String, Object> groupResponse;
+    private Map<String, Object> searchResult;
+    private Map<String, Object> members;
+
+    @Setup
+    public void setUp() {
+        groupService = new GroupService(null, null);
+        searchResponse = DctmPayloads.groupFeed(rows);
+        groupResponse = DctmPayloads.groupResource(rows);
+        searchResult = groupService.transformResponse(searchResponse, 1);
+        members = groupService.toMembers(groupResponse);
+    }
+
+    @Benchmark
+    public Map<String, Object> searchTransform() {
+        return groupService.transformResponse(searchResponse, 1);
+    }
+
+    @Benchmark
+    public Map<String, Object> membersTransform() {
+        return groupService.toMembers(groupResponse);
+    }
+
+    @Benchmark
+    public byte[] searchSerialize() throws JsonProcessingException {
+        return DctmPayloads.OBJECT_MAPPER.writeValueAsBytes(searchResult);
+    }
+
+    @Benchmark
+    public byte[] membersSerialize() throws JsonProcessingException {
+        return DctmPayloads.OBJECT_MAPPER.writeValueAsBytes(members);
+    }
+}
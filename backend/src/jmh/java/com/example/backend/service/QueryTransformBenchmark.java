@@ -0,0 +1,57 @@
+package com.example.backend.service;
+
+import com.example.backend.config.AppConfig;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query console page handling: parsing a DQL page body, turning it into column-ordered rows
+ * and serializing the rows for the browser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueryTransformBenchmark {
+
+    @Param({ "100", "1000", "10000" })
+    int rows;
+
+    private QueryService queryService;
+    private byte[] body;
+    private Map<String, Object> response;
+    private Map<String, Object> result;
+
+    @Setup
+    public void setUp() {
+        queryService = new QueryService(null, null, null, null, null, new AppConfig());
+        body = DctmPayloads.documentFeedBytes(rows);
+        response = DctmPayloads.parse(body);
+        result = queryService.transformPageResponse(response, new ArrayList<>());
+    }
+
+    @Benchmark
+    public Map<String, Object> parse() {
+        return DctmPayloads.parse(body);
+    }
+
+    @Benchmark
+    public Map<String, Object> transform() {
+        return queryService.transformPageResponse(response, new ArrayList<>());
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return DctmPayloads.OBJECT_MAPPER.writeValueAsBytes(result);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * User profile search: mapping cms_user_profile rows and serializing them
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserTransformBenchmark {
+
+    @Param({ "100", "1000", "10000" })
+    int rows;
+
+    private UserService userService;
+    private Map<String, Object> response;
+    private Map<String, Object> result;
+
+    @Setup
+    public void setUp() {
+        userService = new UserService(null, null, null);
+        response = DctmPayloads.userProfileFeed(rows);
+        result = userService.transformResponse(response, 1, rows);
+    }
+
+    @Benchmark
+    public Map<String, Object> transform() {
+        return userService.transformResponse(response, 1, rows);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return DctmPayloads.OBJECT_MAPPER.writeValueAsBytes(result);
+    }
+}
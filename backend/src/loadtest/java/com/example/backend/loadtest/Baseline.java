@@ -0,0 +1,72 @@
+package com.example.backend.loadtest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recorded p99 latencies per endpoint and the check of a run against them. An endpoint regresses
+ * when its p99 exceeds the baseline by more than the relative threshold and, so that millisecond
+ * noise on fast endpoints does not fail the build, by more than an absolute slack as well.
+ * Endpoints missing from the baseline, or with too few samples for a meaningful p99, are
+ * reported but never fail the check.
+ */
+final class Baseline {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final Map<String, Map<String, Object>> endpoints;
+
+    private Baseline(Map<String, Map<String, Object>> endpoints) {
+        this.endpoints = endpoints;
+    }
+
+    static Baseline read(Path file) throws IOException {
+        return new Baseline(OBJECT_MAPPER.readValue(file.toFile(), new TypeReference<>() { }));
+    }
+
+    static void write(Path file, List<EndpointStats> stats) throws IOException {
+        Map<String, Map<String, Object>> endpoints = new LinkedHashMap<>();
+        for (EndpointStats endpoint : stats) {
+            endpoints.put(endpoint.name, endpoint.summary());
+        }
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        OBJECT_MAPPER.writeValue(file.toFile(), endpoints);
+    }
+
+    /**
+     * Regression messages, empty when every endpoint is within its allowance
+     */
+    List<String> regressions(List<EndpointStats> stats, double threshold, double slackMillis, long minSamples) {
+        List<String> regressions = new ArrayList<>();
+        for (EndpointStats endpoint : stats) {
+            Map<String, Object> recorded = endpoints.get(endpoint.name);
+            if (recorded == null || endpoint.count() < minSamples) {
+                continue;
+            }
+            double baselineP99 = ((Number) recorded.get("p99Ms")).doubleValue();
+            double p99 = endpoint.percentileMillis(99);
+            double allowed = Math.max(baselineP99 * (1 + threshold), baselineP99 + slackMillis);
+            if (p99 > allowed) {
+                regressions.add(String.format("%s: p99 %.1f ms exceeds baseline %.1f ms (allowed %.1f ms)",
+                        endpoint.name, p99, baselineP99, allowed));
+            }
+        }
+        return regressions;
+    }
+
+    Double p99(String endpoint) {
+        Map<String, Object> recorded = endpoints.get(endpoint);
+        return recorded != null ? ((Number) recorded.get("p99Ms")).doubleValue() : null;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.backend.loadtest;
+
+import com.example.backend.fake.FakeDataset;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * One request class of the load mix: a name to report it under, its mean arrival rate and a
+ * generator of concrete requests. A generator may return null when it has nothing to send at
+ * that moment (e.g. no member to remove yet); the arrival is then skipped.
+ */
+final class Endpoint {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+
+    final String name;
+    final double ratePerSecond;
+    private final RequestFactory requests;
+
+    private Endpoint(String name, double ratePerSecond, RequestFactory requests) {
+        this.name = name;
+        this.ratePerSecond = ratePerSecond;
+        this.requests = requests;
+    }
+
+    HttpRequest next(String baseUrl, Random random) {
+        HttpRequest.Builder builder = requests.next(baseUrl, random);
+        return builder != null ? builder.timeout(REQUEST_TIMEOUT).build() : null;
+    }
+
+    /**
+     * The console's traffic mix against the given dataset, roughly as seen in production: case
+     * and profile searches dominate, group administration follows, ad-hoc DQL and membership
+     * changes are rare. Rates are per second and multiplied by {@code scale}.
+     */
+    @SuppressWarnings("unchecked")
+    static List<Endpoint> standardMix(FakeDataset dataset, double scale) {
+        List<String> caseNumbers = values(dataset.rows("cms_case_folder"), "object_name");
+        List<String> userNames = values(dataset.rows("dm_user"), "user_name");
+        List<String> groupNames = values(dataset.rows("dm_group"), "group_name");
+        List<String> caseIds = new ArrayList<>();
+        for (Map<String, Object> pkg : dataset.rows("dmi_package")) {
+            caseIds.addAll((List<String>) pkg.get("r_component_id"));
+        }
+        String[] departments = { "Finance", "Legal", "Operations", "Audit", "Credit", "IT" };
+        // Members added by the load, so removals only target memberships that exist
+        Queue<String[]> added = new ConcurrentLinkedQueue<>();
+
+        List<Endpoint> mix = new ArrayList<>();
+        mix.add(new Endpoint("cases-search", 12 * scale, (base, random) -> {
+            // Mostly a case number suffix, sometimes the first page without a filter
+            String caseNumber = pick(caseNumbers, random);
+            String filter = random.nextInt(5) == 0 ? "" : "&caseNumber=" + encode(caseNumber.substring(caseNumber.length() - 3));
+            return get(base + "/api/cases/search?page=1&size=20" + filter);
+        }));
+        mix.add(new Endpoint("users-profiles", 8 * scale, (base, random) ->
+                get(base + "/api/users/profiles?page=" + (1 + random.nextInt(3)) + "&size=50"
+                        + (random.nextBoolean() ? "&query=" + encode(departments[random.nextInt(departments.length)]) : ""))));
+        mix.add(new Endpoint("groups-search", 5 * scale, (base, random) ->
+                get(base + "/api/groups/search?page=1&size=10&groupName="
+                        + encode("grp_" + departments[random.nextInt(departments.length)].toLowerCase()))));
+        mix.add(new Endpoint("groups-details", 3 * scale, (base, random) ->
+                get(base + "/api/groups/" + encode(pick(groupNames, random)))));
+        mix.add(new Endpoint("groups-members", 6 * scale, (base, random) ->
+                get(base + "/api/groups/" + encode(pick(groupNames, random)) + "/members")));
+        mix.add(new Endpoint("workflows-case", 5 * scale, (base, random) ->
+                get(base + "/api/workflows/case/" + pick(caseIds, random))));
+        mix.add(new Endpoint("query-execute", 3 * scale, (base, random) -> {
+            String dql = switch (random.nextInt(3)) {
+                case 0 -> "SELECT object_name, department_name FROM cms_case_folder WHERE department_name = '"
+                        + departments[random.nextInt(departments.length)] + "'";
+                case 1 -> "SELECT user_name, user_address FROM dm_user WHERE user_state = 0";
+                default -> "SELECT r_object_id, object_name, r_runtime_state FROM dm_workflow ORDER BY r_creation_date DESC";
+            };
+            return post(base + "/api/query/execute", "{\"dql\":\"" + dql + "\",\"limit\":500}");
+        }));
+        mix.add(new Endpoint("groups-member-add", 0.5 * scale, (base, random) -> {
+            String groupName = pick(groupNames, random);
+            String userName = pick(userNames, random);
+            added.add(new String[] { groupName, userName });
+            return post(base + "/api/groups/" + encode(groupName) + "/members",
+                    "{\"memberName\":\"" + userName + "\",\"memberType\":\"user\"}");
+        }));
+        mix.add(new Endpoint("groups-member-remove", 0.5 * scale, (base, random) -> {
+            String[] membership = added.poll();
+            if (membership == null) {
+                return null;
+            }
+            return HttpRequest.newBuilder(URI.create(base + "/api/groups/" + encode(membership[0])
+                    + "/members/" + encode(membership[1]) + "?memberType=user")).DELETE();
+        }));
+        return mix;
+    }
+
+    private static List<String> values(List<Map<String, Object>> rows, String attribute) {
+        List<String> values = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            values.add((String) row.get(attribute));
+        }
+        return values;
+    }
+
+    private static String pick(List<String> values, Random random) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static HttpRequest.Builder get(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).GET();
+    }
+
+    private static HttpRequest.Builder post(String url, String json) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+    }
+
+    @FunctionalInterface
+    private interface RequestFactory {
+        HttpRequest.Builder next(String baseUrl, Random random);
+    }
+}
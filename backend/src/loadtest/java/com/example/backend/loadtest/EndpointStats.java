@@ -0,0 +1,95 @@
+package com.example.backend.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram and outcome counts of one endpoint. Latencies are recorded in microseconds
+ * from the time a request was scheduled to be sent, not from when it actually went out, so a
+ * backed-up client or server shows up in the percentiles instead of being hidden by it.
+ */
+final class EndpointStats {
+
+    private static final long MAX_LATENCY_US = TimeUnit.MINUTES.toMicros(5);
+
+    final String name;
+    private final Recorder recorder = new Recorder(MAX_LATENCY_US, 3);
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private Histogram histogram;
+    private double seconds;
+
+    EndpointStats(String name) {
+        this.name = name;
+    }
+
+    void record(long intendedStartNanos, long endNanos, boolean success) {
+        long latencyUs = Math.max(0, TimeUnit.NANOSECONDS.toMicros(endNanos - intendedStartNanos));
+        recorder.recordValue(Math.min(latencyUs, MAX_LATENCY_US));
+        (success ? successes : errors).increment();
+    }
+
+    /**
+     * Forget everything recorded so far, e.g. at the end of the warmup
+     */
+    void reset() {
+        recorder.reset();
+        successes.reset();
+        errors.reset();
+    }
+
+    /**
+     * Freeze the measurements taken over the given measurement period
+     */
+    void finish(double seconds) {
+        this.histogram = recorder.getIntervalHistogram();
+        this.seconds = seconds;
+    }
+
+    long count() {
+        return successes.sum() + errors.sum();
+    }
+
+    double throughput() {
+        return seconds > 0 ? count() / seconds : 0;
+    }
+
+    double errorRate() {
+        return count() > 0 ? (double) errors.sum() / count() : 0;
+    }
+
+    double percentileMillis(double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    Map<String, Object> summary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", count());
+        summary.put("errors", errors.sum());
+        summary.put("errorRate", round(errorRate()));
+        summary.put("throughput", round(throughput()));
+        summary.put("p50Ms", round(percentileMillis(50)));
+        summary.put("p90Ms", round(percentileMillis(90)));
+        summary.put("p99Ms", round(percentileMillis(99)));
+        summary.put("p999Ms", round(percentileMillis(99.9)));
+        summary.put("maxMs", round(histogram.getMaxValue() / 1000.0));
+        return summary;
+    }
+
+    /**
+     * Full percentile distribution in HdrHistogram's .hgrm format, in milliseconds
+     */
+    void writeDistribution(PrintStream out) {
+        histogram.outputPercentileDistribution(out, 1000.0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.backend.loadtest;
+
+import com.example.backend.BackendApplication;
+import com.example.backend.fake.FakeDataset;
+import com.example.backend.fake.FakeDctmServer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load test: starts a {@link FakeDctmServer}, starts the backend against it and drives
+ * the {@code /api/**} endpoints with the {@link Endpoint#standardMix standard mix}. Arrivals are
+ * open-model (Poisson, independent of how fast responses come back), so a slow backend builds up
+ * a queue and higher percentiles instead of quietly lowering the offered load.
+ * <p>
+ * Per endpoint the run reports throughput, error rate and HDR latency percentiles (console,
+ * {@code report.json} and one {@code .hgrm} distribution per endpoint in the report directory)
+ * and compares p99 against the recorded {@link Baseline}; the process exits with 1 when any
+ * endpoint regressed. Options, all {@code name=value} with an optional leading {@code --}:
+ * <ul>
+ * <li>{@code duration}, {@code warmup}: measured and warmup seconds (60, 15)</li>
+ * <li>{@code rate-scale}: multiplier of the mix's arrival rates (1.0, about 43 requests/s)</li>
+ * <li>{@code latency-ms}, {@code jitter-ms}, {@code error-rate}: fake repository behaviour (20, 10, 0)</li>
+ * <li>{@code cases}, {@code users}, {@code groups}, {@code seed}: fake dataset (2000, 1000, 100, 42)</li>
+ * <li>{@code baseline}: baseline file (src/loadtest/baseline.json); {@code record-baseline} overwrites it
+ * with this run's results instead of checking against it</li>
+ * <li>{@code threshold}, {@code slack-ms}: allowed p99 regression, relative and absolute (0.25, 5)</li>
+ * <li>{@code min-samples}: endpoints with fewer requests in the run are not checked (100)</li>
+ * <li>{@code report-dir}: where reports are written (target/load-test)</li>
+ * </ul>
+ * Options starting with {@code spring.}, {@code server.}, {@code dctm.} or {@code app.} are passed
+ * to the backend, e.g. {@code --spring.threads.virtual.enabled=true} to compare configurations.
+ */
+public final class LoadTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static final int MAX_OUTSTANDING = 5000;
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        Map<String, Object> backendProperties = new LinkedHashMap<>();
+        for (String arg : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            String value = option.length > 1 ? option[1] : "true";
+            if (option[0].matches("(spring|server|dctm|app)\\..+")) {
+                backendProperties.put(option[0], value);
+            } else {
+                options.put(option[0], value);
+            }
+        }
+        System.exit(run(options, backendProperties));
+    }
+
+    private static int run(Map<String, String> options, Map<String, Object> backendProperties) throws Exception {
+        FakeDataset dataset = FakeDataset.generate(
+                Integer.parseInt(options.getOrDefault("cases", "2000")),
+                Integer.parseInt(options.getOrDefault("users", "1000")),
+                Integer.parseInt(options.getOrDefault("groups", "100")),
+                Long.parseLong(options.getOrDefault("seed", "42")));
+        double scale = Double.parseDouble(options.getOrDefault("rate-scale", "1.0"));
+        List<Endpoint> mix = Endpoint.standardMix(dataset, scale);
+        Path reportDir = Path.of(options.getOrDefault("report-dir", "target/load-test"));
+        Path baselineFile = Path.of(options.getOrDefault("baseline", "src/loadtest/baseline.json"));
+
+        try (FakeDctmServer dctm = new FakeDctmServer(dataset)
+                .latency(Duration.ofMillis(Long.parseLong(options.getOrDefault("latency-ms", "20"))))
+                .jitter(Duration.ofMillis(Long.parseLong(options.getOrDefault("jitter-ms", "10"))))
+                .errorRate(Double.parseDouble(options.getOrDefault("error-rate", "0")))
+                .start()) {
+            Map<String, Object> properties = new LinkedHashMap<>();
+            properties.put("server.port", 0);
+            properties.put("dctm.rest.url", dctm.url());
+            properties.put("logging.level.root", "WARN");
+            properties.putAll(backendProperties);
+
+            List<EndpointStats> stats;
+            // As command line arguments, so they override application.properties
+            String[] arguments = properties.entrySet().stream()
+                    .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                    .toArray(String[]::new);
+            try (ConfigurableApplicationContext backend = new SpringApplicationBuilder(BackendApplication.class)
+                    .run(arguments)) {
+                String baseUrl = "http://localhost:" + backend.getEnvironment().getProperty("local.server.port");
+                System.out.printf("Backend at %s, fake dctm-rest at %s%n", baseUrl, dctm.url());
+                stats = drive(mix, baseUrl,
+                        Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "15"))),
+                        Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "60"))),
+                        Long.parseLong(options.getOrDefault("seed", "42")));
+            }
+
+            Baseline baseline = Files.exists(baselineFile) ? Baseline.read(baselineFile) : null;
+            report(stats, baseline, reportDir);
+
+            if (Boolean.parseBoolean(options.getOrDefault("record-baseline", "false"))) {
+                Baseline.write(baselineFile, stats);
+                System.out.println("Recorded baseline " + baselineFile);
+                return 0;
+            }
+            if (baseline == null) {
+                System.out.println("No baseline at " + baselineFile + ", record one with --record-baseline");
+                return 0;
+            }
+            List<String> regressions = baseline.regressions(stats,
+                    Double.parseDouble(options.getOrDefault("threshold", "0.25")),
+                    Double.parseDouble(options.getOrDefault("slack-ms", "5")),
+                    Long.parseLong(options.getOrDefault("min-samples", "100")));
+            regressions.forEach(regression -> System.out.println("REGRESSION " + regression));
+            return regressions.isEmpty() ? 0 : 1;
+        }
+    }
+
+    /**
+     * Send Poisson arrivals of every endpoint for warmup plus duration, then wait for the
+     * outstanding responses. Only the measured period ends up in the returned stats.
+     */
+    private static List<EndpointStats> drive(List<Endpoint> mix, String baseUrl, Duration warmup, Duration duration,
+                                             long seed) throws InterruptedException {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(executor)
+                .build();
+        Random random = new Random(seed);
+        AtomicInteger outstanding = new AtomicInteger();
+
+        List<EndpointStats> stats = new ArrayList<>();
+        PriorityQueue<Arrival> arrivals = new PriorityQueue<>((a, b) -> Long.compare(a.at, b.at));
+        long start = System.nanoTime();
+        for (Endpoint endpoint : mix) {
+            EndpointStats endpointStats = new EndpointStats(endpoint.name);
+            stats.add(endpointStats);
+            if (endpoint.ratePerSecond > 0) {
+                arrivals.add(new Arrival(start + gap(endpoint, random), endpoint, endpointStats));
+            }
+        }
+
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        boolean measuring = false;
+        while (!arrivals.isEmpty() && arrivals.peek().at < end) {
+            Arrival arrival = arrivals.poll();
+            long wait = arrival.at - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (!measuring && arrival.at >= measureFrom) {
+                stats.forEach(EndpointStats::reset);
+                measuring = true;
+            }
+            arrivals.add(new Arrival(arrival.at + gap(arrival.endpoint, random), arrival.endpoint, arrival.stats));
+
+            HttpRequest request = arrival.endpoint.next(baseUrl, random);
+            if (request == null) {
+                continue;
+            }
+            if (outstanding.incrementAndGet() > MAX_OUTSTANDING) {
+                // The backend has stopped keeping up; count the arrival as failed rather than queue without bound
+                outstanding.decrementAndGet();
+                arrival.stats.record(arrival.at, System.nanoTime(), false);
+                continue;
+            }
+            long intendedStart = arrival.at;
+            client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                    .whenComplete((response, error) -> {
+                        arrival.stats.record(intendedStart, System.nanoTime(), error == null && succeeded(response));
+                        outstanding.decrementAndGet();
+                    });
+        }
+
+        long drainUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (outstanding.get() > 0 && System.nanoTime() < drainUntil) {
+            Thread.sleep(50);
+        }
+        double seconds = duration.toNanos() / 1e9;
+        stats.forEach(endpoint -> endpoint.finish(seconds));
+        executor.shutdownNow();
+        return stats;
+    }
+
+    private static long gap(Endpoint endpoint, Random random) {
+        // Exponentially distributed inter-arrival time of a Poisson process
+        double seconds = -Math.log(1 - random.nextDouble()) / endpoint.ratePerSecond;
+        return (long) (seconds * 1e9);
+    }
+
+    /**
+     * The API answers most failures with 200 and an {@code error} field, so both count as errors
+     */
+    private static boolean succeeded(HttpResponse<byte[]> response) {
+        if (response.statusCode() >= 400) {
+            return false;
+        }
+        try {
+            JsonNode body = OBJECT_MAPPER.readTree(response.body());
+            return body == null || !body.has("error");
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void report(List<EndpointStats> stats, Baseline baseline, Path reportDir) throws IOException {
+        Files.createDirectories(reportDir);
+        Map<String, Object> report = new LinkedHashMap<>();
+        System.out.printf("%n%-22s %8s %9s %8s %9s %9s %9s %9s %9s %12s%n", "endpoint", "count", "req/s",
+                "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "baseline p99");
+        for (EndpointStats endpoint : stats) {
+            Map<String, Object> summary = endpoint.summary();
+            report.put(endpoint.name, summary);
+            Double baselineP99 = baseline != null ? baseline.p99(endpoint.name) : null;
+            System.out.printf("%-22s %8d %9.2f %7.2f%% %9.1f %9.1f %9.1f %9.1f %9.1f %12s%n", endpoint.name,
+                    endpoint.count(), endpoint.throughput(), endpoint.errorRate() * 100, summary.get("p50Ms"),
+                    summary.get("p90Ms"), summary.get("p99Ms"), summary.get("p999Ms"), summary.get("maxMs"),
+                    baselineP99 != null ? String.format("%.1f", baselineP99) : "-");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(reportDir.resolve(endpoint.name + ".hgrm")))) {
+                endpoint.writeDistribution(out);
+            }
+        }
+        OBJECT_MAPPER.writeValue(reportDir.resolve("report.json").toFile(), report);
+        System.out.println("\nReports written to " + reportDir.toAbsolutePath());
+    }
+
+    private record Arrival(long at, Endpoint endpoint, EndpointStats stats) {
+    }
+}
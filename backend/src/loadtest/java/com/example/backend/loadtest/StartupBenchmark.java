@@ -0,0 +1,218 @@
+package com.example.backend.loadtest;
+
+import com.example.backend.fake.FakeDctmServer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.jar.JarFile;
+
+/**
+ * Startup and first-request latency of the backend in each way it can be built: plain jar, AOT
+ * processed, started from a CDS archive, both, and as a native image. Every run starts a fresh
+ * process against a {@link FakeDctmServer} and measures the time until /actuator/health answers,
+ * the latency of the first and of a second case search, and the resident memory afterwards.
+ * <p>
+ * Modes whose artifacts were not built are skipped, so build what should be compared first, e.g.
+ * {@code mvn -Paot,cds,startup-benchmark -DskipTests verify} (add native on a GraalVM JDK).
+ * Options, all {@code name=value}:
+ * <ul>
+ * <li>{@code runs}: starts per mode (5); medians are reported</li>
+ * <li>{@code modes}: comma-separated subset of jvm, aot, cds, aot-cds, native (all available)</li>
+ * <li>{@code jar}, {@code cds-dir}, {@code native}: artifact locations (target/...)</li>
+ * <li>{@code report-dir}: where report.json and the process logs go (target/startup-benchmark)</li>
+ * </ul>
+ */
+public final class StartupBenchmark {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static final Duration START_TIMEOUT = Duration.ofSeconds(120);
+    private static final String FIRST_REQUEST = "/api/cases/search?page=1&size=20";
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "true");
+        }
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        Path jar = Path.of(options.getOrDefault("jar", "target/backend-0.0.1-SNAPSHOT.jar"));
+        Path cdsDir = Path.of(options.getOrDefault("cds-dir", "target/cds"));
+        Path nativeImage = Path.of(options.getOrDefault("native", "target/backend"));
+        Path reportDir = Path.of(options.getOrDefault("report-dir", "target/startup-benchmark"));
+        Files.createDirectories(reportDir);
+
+        Map<String, List<String>> modes = modes(jar, cdsDir, nativeImage);
+        if (options.containsKey("modes")) {
+            modes.keySet().retainAll(Arrays.asList(options.get("modes").split(",")));
+        }
+        if (modes.isEmpty()) {
+            System.out.println("Nothing to compare: build the jar first (mvn -DskipTests package)");
+            System.exit(1);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        try (FakeDctmServer dctm = new FakeDctmServer().start()) {
+            System.out.printf("%n%-8s %5s %12s %16s %15s %9s%n", "mode", "runs", "ready ms", "first req ms",
+                    "second req ms", "RSS MB");
+            for (Map.Entry<String, List<String>> mode : modes.entrySet()) {
+                List<Run> results = new ArrayList<>();
+                for (int i = 1; i <= runs; i++) {
+                    results.add(run(mode.getValue(), dctm.url(), reportDir.resolve(mode.getKey() + "-" + i + ".log")));
+                }
+                Map<String, Object> summary = new LinkedHashMap<>();
+                summary.put("command", mode.getValue());
+                summary.put("runs", runs);
+                summary.put("readyMs", median(results, Run::readyMs));
+                summary.put("firstRequestMs", median(results, Run::firstRequestMs));
+                summary.put("secondRequestMs", median(results, Run::secondRequestMs));
+                summary.put("rssMb", median(results, Run::rssMb));
+                report.put(mode.getKey(), summary);
+                System.out.printf("%-8s %5d %12.0f %16.1f %15.1f %9.0f%n", mode.getKey(), runs, summary.get("readyMs"),
+                        summary.get("firstRequestMs"), summary.get("secondRequestMs"), summary.get("rssMb"));
+            }
+        }
+        OBJECT_MAPPER.writeValue(reportDir.resolve("report.json").toFile(), report);
+        System.out.println("\nReport written to " + reportDir.toAbsolutePath());
+    }
+
+    /**
+     * Launch commands of the modes whose artifacts exist, without the application arguments
+     */
+    private static Map<String, List<String>> modes(Path jar, Path cdsDir, Path nativeImage) throws IOException {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        Map<String, List<String>> modes = new LinkedHashMap<>();
+        if (Files.exists(jar)) {
+            modes.put("jvm", List.of(java, "-jar", jar.toString()));
+            if (isAotProcessed(jar)) {
+                modes.put("aot", List.of(java, "-Dspring.aot.enabled=true", "-jar", jar.toString()));
+            }
+        }
+        Path archive = cdsDir.resolve("application.jsa");
+        Path extractedJar = cdsDir.resolve(jar.getFileName());
+        if (Files.exists(archive) && Files.exists(extractedJar)) {
+            modes.put("cds", List.of(java, "-XX:SharedArchiveFile=" + archive, "-Xlog:cds=off", "-jar",
+                    extractedJar.toString()));
+            if (isAotProcessed(extractedJar)) {
+                modes.put("aot-cds", List.of(java, "-XX:SharedArchiveFile=" + archive, "-Xlog:cds=off",
+                        "-Dspring.aot.enabled=true", "-jar", extractedJar.toString()));
+            }
+        }
+        if (Files.isExecutable(nativeImage)) {
+            modes.put("native", List.of(nativeImage.toString()));
+        }
+        return modes;
+    }
+
+    private static boolean isAotProcessed(Path jar) throws IOException {
+        try (JarFile jarFile = new JarFile(jar.toFile())) {
+            return jarFile.stream().anyMatch(entry -> entry.getName().endsWith("__ApplicationContextInitializer.class"));
+        }
+    }
+
+    private static Run run(List<String> command, String dctmUrl, Path log) throws Exception {
+        int port = freePort();
+        List<String> arguments = new ArrayList<>(command);
+        arguments.add("--server.port=" + port);
+        arguments.add("--dctm.rest.url=" + dctmUrl);
+        arguments.add("--logging.level.root=WARN");
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        String base = "http://localhost:" + port;
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(arguments)
+                .directory(log.getParent().toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        try {
+            long deadline = start + START_TIMEOUT.toNanos();
+            while (!isUp(client, base)) {
+                if (!process.isAlive() || System.nanoTime() > deadline) {
+                    throw new IllegalStateException("Backend did not start, see " + log.toAbsolutePath());
+                }
+                Thread.sleep(5);
+            }
+            double readyMs = (System.nanoTime() - start) / 1e6;
+            double firstRequestMs = timeRequest(client, base + FIRST_REQUEST);
+            double secondRequestMs = timeRequest(client, base + FIRST_REQUEST);
+            return new Run(readyMs, firstRequestMs, secondRequestMs, rssMb(process.pid()));
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static boolean isUp(HttpClient client, String base) throws InterruptedException {
+        try {
+            HttpResponse<Void> response = client.send(HttpRequest.newBuilder(URI.create(base + "/actuator/health")).build(),
+                    HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() == 200;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static double timeRequest(HttpClient client, String url) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(URI.create(url)).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET " + url + " answered " + response.statusCode());
+        }
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    /**
+     * Resident set size from /proc, 0 where it is not available
+     */
+    private static double rssMb(long pid) {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/" + pid + "/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("\\D", "")) / 1024.0;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Not on Linux
+        }
+        return 0;
+    }
+
+    private static double median(List<Run> runs, ToDoubleFunction<Run> metric) {
+        double[] values = runs.stream().mapToDouble(metric).sorted().toArray();
+        int middle = values.length / 2;
+        double median = values.length % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2;
+        return Math.round(median * 10) / 10.0;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private record Run(double readyMs, double firstRequestMs, double secondRequestMs, double rssMb) {
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.backend.cluster;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * /actuator/cluster shows this node, the peers it knows and which of them are alive
+ */
+@Component
+@Endpoint(id = "cluster")
+public class ClusterEndpoint {
+
+    private final ClusterNode clusterNode;
+
+    public ClusterEndpoint(ClusterNode clusterNode) {
+        this.clusterNode = clusterNode;
+    }
+
+    @ReadOperation
+    public Map<String, Object> cluster() {
+        return clusterNode.status();
+    }
+}
@@ -0,0 +1,552 @@
+package com.example.backend.cluster;
+
+import com.example.backend.config.AppConfig;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.SocketException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This backend node's membership in the embedded cache cluster (app.cluster.*). Nodes find each
+ * other through a static peer list, multicast announcements or both, and talk over a small HTTP
+ * protocol on the cluster port: peers copy entries of each other's {@link ClusterRegion regions}
+ * and replay invalidations. There is no cache server; every node keeps its own caches and the
+ * cluster only saves the repository calls another node already made.
+ * <p>
+ * With app.cluster.secret set, every request, response and announcement is signed and unsigned
+ * traffic is refused. Invalidations are best effort: a node that is unreachable while one is sent
+ * misses it, which the caches tolerate because object and group entries are revalidated against
+ * the repository on every read and query results expire.
+ */
+@Component
+@Slf4j
+public class ClusterNode {
+
+    static final String TIMESTAMP_HEADER = "X-Cluster-Timestamp";
+    static final String SIGNATURE_HEADER = "X-Cluster-Signature";
+    private static final String CONTEXT = "/cluster/";
+    private static final int MAX_ANNOUNCEMENT = 1024;
+
+    private final AppConfig.ClusterConfig config;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final ClusterSigner signer;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, ClusterRegion> regions = new ConcurrentHashMap<>();
+    private final Map<String, Peer> peers = new ConcurrentHashMap<>();
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private HttpClient client;
+    private ScheduledExecutorService heartbeats;
+    private MulticastSocket multicastSocket;
+    private InetSocketAddress multicastGroup;
+    private volatile String address;
+
+    public ClusterNode(AppConfig appConfig, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.config = appConfig.getCluster();
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.signer = new ClusterSigner(config.getSecret());
+
+        Gauge.builder("cluster.peers", this, node -> node.alivePeers().size())
+                .description("Peers of this node that answered within the peer timeout")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        if (!signer.isEnabled()) {
+            log.warn("Cluster traffic is not authenticated; set app.cluster.secret unless the cluster port is private");
+        }
+        try {
+            server = HttpServer.create(new InetSocketAddress(config.getBindAddress(), config.getPort()), 50);
+            serverExecutor = Executors.newFixedThreadPool(4, daemonThreads("cluster-server-"));
+            server.setExecutor(serverExecutor);
+            server.createContext(CONTEXT, this::handle);
+            server.start();
+
+            String host = config.getAdvertiseAddress() != null && !config.getAdvertiseAddress().isBlank()
+                    ? config.getAdvertiseAddress()
+                    : InetAddress.getLocalHost().getHostAddress();
+            address = host + ":" + server.getAddress().getPort();
+
+            client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofMillis(config.getHeartbeatIntervalMs()))
+                    .build();
+            for (String peer : config.getPeers()) {
+                if (!peer.isBlank()) {
+                    peers.put(peer.trim(), new Peer(peer.trim(), true));
+                }
+            }
+            if (config.getMulticastGroup() != null && !config.getMulticastGroup().isBlank()) {
+                openMulticast();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open cluster port " + config.getBindAddress() + ":"
+                    + config.getPort() + ": " + e.getMessage(), e);
+        }
+
+        heartbeats = Executors.newSingleThreadScheduledExecutor(daemonThreads("cluster-heartbeat-"));
+        // One round before the application takes traffic, so caches can already warm up from peers
+        try {
+            heartbeat().get(config.getHeartbeatIntervalMs(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            log.debug("Not all cluster peers answered the first heartbeat");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        heartbeats.scheduleWithFixedDelay(this::heartbeat, config.getHeartbeatIntervalMs(),
+                config.getHeartbeatIntervalMs(), TimeUnit.MILLISECONDS);
+        log.info("Cluster node {} of '{}' at {}, {} alive of {} static peers{}", nodeId, config.getName(), address,
+                alivePeers().size(), config.getPeers().size(),
+                multicastGroup != null ? ", multicast discovery on " + multicastGroup : "");
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (heartbeats != null) {
+            heartbeats.shutdownNow();
+        }
+        if (multicastSocket != null) {
+            multicastSocket.close();
+        }
+        if (server != null) {
+            server.stop(0);
+            serverExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Register a local cache with the cluster
+     *
+     * @param type       kind of data, e.g. responses, queries or directory
+     * @param repository repository the cached data comes from
+     */
+    public ClusterRegion region(String type, String repository, ClusterRegion.Local local) {
+        ClusterRegion region = new ClusterRegion(this, type, repository, local);
+        if (regions.putIfAbsent(regionPath(type, repository), region) != null) {
+            throw new IllegalStateException("Cluster region " + type + " of " + repository + " is registered twice");
+        }
+        return region;
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * Membership as seen by this node, for the cluster actuator endpoint
+     */
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", config.isEnabled());
+        status.put("cluster", config.getName());
+        status.put("node", nodeId);
+        status.put("address", address);
+        status.put("authenticated", signer.isEnabled());
+        List<Map<String, Object>> peerList = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Peer peer : peers.values()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("address", peer.address);
+            entry.put("node", peer.nodeId);
+            entry.put("discovery", peer.configured ? "static" : "multicast");
+            entry.put("self", peer.self);
+            entry.put("alive", isAlive(peer, now));
+            entry.put("lastSeenMsAgo", peer.lastSeen > 0 ? now - peer.lastSeen : null);
+            peerList.add(entry);
+        }
+        status.put("peers", peerList);
+        status.put("regions", new ArrayList<>(regions.keySet()));
+        return status;
+    }
+
+    // ---- peer calls ----
+
+    <T> T fetch(ClusterRegion region, String key, Class<T> entryType) {
+        List<Peer> alive = alivePeers();
+        if (alive.isEmpty()) {
+            return null;
+        }
+        String target = CONTEXT + "regions/" + regionPath(region.type(), region.repository()) + "?key=" + encode(key);
+        CompletableFuture<byte[]> first = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(alive.size());
+        for (Peer peer : alive) {
+            client.sendAsync(request(peer, "GET", target, null), HttpResponse.BodyHandlers.ofByteArray())
+                    .whenComplete((response, error) -> {
+                        if (error == null && response.statusCode() == 200 && verified(response, target)) {
+                            first.complete(response.body());
+                        } else if (pending.decrementAndGet() == 0) {
+                            first.complete(null);
+                        }
+                    });
+        }
+
+        byte[] body = null;
+        try {
+            body = first.get(config.getFetchTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            log.debug("No peer answered for {} in {}", key, region.type());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        T entry = null;
+        if (body != null) {
+            try {
+                entry = objectMapper.readValue(body, entryType);
+            } catch (IOException e) {
+                log.warn("Unreadable {} entry from a peer: {}", region.type(), e.getMessage());
+            }
+        }
+        meterRegistry.counter("cluster.fetches", "region", region.type(), "repository", region.repository(),
+                "result", entry != null ? "hit" : "miss").increment();
+        return entry;
+    }
+
+    void invalidate(ClusterRegion region, List<String> keys, boolean all) {
+        List<Peer> alive = alivePeers();
+        if (alive.isEmpty()) {
+            return;
+        }
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("node", nodeId);
+        message.put("all", all);
+        message.put("keys", keys);
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(message);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write invalidation", e);
+        }
+        String target = CONTEXT + "regions/" + regionPath(region.type(), region.repository()) + "/invalidations";
+        for (Peer peer : alive) {
+            client.sendAsync(request(peer, "POST", target, body), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (error != null || response.statusCode() != 204) {
+                            log.debug("Peer {} did not take an invalidation of {}: {}", peer.address, region.type(),
+                                    error != null ? error.getMessage() : "HTTP " + response.statusCode());
+                        }
+                    });
+        }
+        meterRegistry.counter("cluster.invalidations", "region", region.type(), "repository", region.repository(),
+                "direction", "sent").increment(alive.size());
+    }
+
+    private HttpRequest request(Peer peer, String method, String target, byte[] body) {
+        long timestamp = System.currentTimeMillis();
+        return HttpRequest.newBuilder(URI.create("http://" + peer.address + target))
+                .timeout(Duration.ofMillis(Math.max(config.getFetchTimeoutMs(), config.getHeartbeatIntervalMs())))
+                .header(TIMESTAMP_HEADER, Long.toString(timestamp))
+                .header(SIGNATURE_HEADER, signer.sign(timestamp, method + " " + target, body))
+                .method(method, body != null ? HttpRequest.BodyPublishers.ofByteArray(body) : HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+
+    private boolean verified(HttpResponse<byte[]> response, String target) {
+        boolean valid = signer.verify(response.headers().firstValue(TIMESTAMP_HEADER).orElse(null),
+                response.headers().firstValue(SIGNATURE_HEADER).orElse(null),
+                "RESPONSE " + target + " " + response.statusCode(), response.body());
+        if (!valid) {
+            log.warn("Dropped a response with an invalid signature from {}", response.uri().getAuthority());
+        }
+        return valid;
+    }
+
+    // ---- membership ----
+
+    private CompletableFuture<Void> heartbeat() {
+        announce();
+        long now = System.currentTimeMillis();
+        List<CompletableFuture<?>> pings = new ArrayList<>();
+        for (Peer peer : peers.values()) {
+            if (peer.configured) {
+                pings.add(ping(peer));
+            } else if (now - peer.lastSeen > 10 * config.getPeerTimeoutMs()) {
+                // Discovered peers that stopped announcing are forgotten eventually
+                peers.remove(peer.address, peer);
+            }
+        }
+        return CompletableFuture.allOf(pings.toArray(CompletableFuture[]::new));
+    }
+
+    private CompletableFuture<?> ping(Peer peer) {
+        String target = CONTEXT + "ping";
+        return client.sendAsync(request(peer, "GET", target, null), HttpResponse.BodyHandlers.ofByteArray())
+                .thenAccept(response -> {
+                    if (response.statusCode() != 200 || !verified(response, target)) {
+                        return;
+                    }
+                    try {
+                        Map<String, String> identity = objectMapper.readValue(response.body(), new TypeReference<>() { });
+                        if (!config.getName().equals(identity.get("cluster"))) {
+                            return;
+                        }
+                        seen(peer, identity.get("node"));
+                    } catch (IOException e) {
+                        log.debug("Unreadable ping answer from {}", peer.address);
+                    }
+                })
+                .exceptionally(error -> null);
+    }
+
+    private void seen(Peer peer, String node) {
+        boolean wasAlive = isAlive(peer, System.currentTimeMillis());
+        peer.nodeId = node;
+        peer.self = nodeId.equals(node);
+        peer.lastSeen = System.currentTimeMillis();
+        if (!wasAlive && !peer.self) {
+            log.info("Cluster peer {} at {} joined", node, peer.address);
+        }
+    }
+
+    /**
+     * Reachable peers, one per node even if it is known under several addresses
+     */
+    private List<Peer> alivePeers() {
+        long now = System.currentTimeMillis();
+        Set<String> nodes = new HashSet<>();
+        List<Peer> alive = new ArrayList<>();
+        for (Peer peer : peers.values()) {
+            if (isAlive(peer, now) && nodes.add(peer.nodeId)) {
+                alive.add(peer);
+            }
+        }
+        return alive;
+    }
+
+    private boolean isAlive(Peer peer, long now) {
+        return !peer.self && peer.nodeId != null && now - peer.lastSeen <= config.getPeerTimeoutMs();
+    }
+
+    private void openMulticast() throws IOException {
+        multicastGroup = new InetSocketAddress(InetAddress.getByName(config.getMulticastGroup()), config.getMulticastPort());
+        multicastSocket = new MulticastSocket(config.getMulticastPort());
+        multicastSocket.joinGroup(multicastGroup, null);
+        Thread listener = daemonThreads("cluster-multicast-").newThread(this::listen);
+        listener.start();
+    }
+
+    /**
+     * Announce this node to the multicast group: a signature line followed by the announcement
+     */
+    private void announce() {
+        if (multicastSocket == null) {
+            return;
+        }
+        try {
+            long timestamp = System.currentTimeMillis();
+            Map<String, Object> announcement = new LinkedHashMap<>();
+            announcement.put("cluster", config.getName());
+            announcement.put("node", nodeId);
+            announcement.put("address", address);
+            announcement.put("timestamp", timestamp);
+            byte[] body = objectMapper.writeValueAsBytes(announcement);
+            byte[] signature = (signer.sign(timestamp, "ANNOUNCE", body) + "\n").getBytes(StandardCharsets.UTF_8);
+            byte[] datagram = new byte[signature.length + body.length];
+            System.arraycopy(signature, 0, datagram, 0, signature.length);
+            System.arraycopy(body, 0, datagram, signature.length, body.length);
+            multicastSocket.send(new DatagramPacket(datagram, datagram.length, multicastGroup));
+        } catch (IOException e) {
+            log.debug("Cannot announce this node on {}: {}", multicastGroup, e.getMessage());
+        }
+    }
+
+    private void listen() {
+        byte[] buffer = new byte[MAX_ANNOUNCEMENT];
+        while (!multicastSocket.isClosed()) {
+            try {
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                multicastSocket.receive(packet);
+                onAnnouncement(new String(packet.getData(), packet.getOffset(), packet.getLength(), StandardCharsets.UTF_8));
+            } catch (SocketException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                log.debug("Ignored a malformed cluster announcement: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void onAnnouncement(String datagram) throws IOException {
+        int newline = datagram.indexOf('\n');
+        if (newline < 0) {
+            return;
+        }
+        byte[] body = datagram.substring(newline + 1).getBytes(StandardCharsets.UTF_8);
+        Map<String, Object> announcement = objectMapper.readValue(body, new TypeReference<>() { });
+        if (!config.getName().equals(announcement.get("cluster")) || nodeId.equals(announcement.get("node"))) {
+            return;
+        }
+        if (!signer.verify(String.valueOf(announcement.get("timestamp")), datagram.substring(0, newline), "ANNOUNCE", body)) {
+            log.warn("Dropped a cluster announcement with an invalid signature for {}", announcement.get("address"));
+            return;
+        }
+        String peerAddress = String.valueOf(announcement.get("address"));
+        seen(peers.computeIfAbsent(peerAddress, key -> new Peer(key, false)), String.valueOf(announcement.get("node")));
+    }
+
+    // ---- serving peers ----
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String target = exchange.getRequestURI().getRawPath()
+                    + (exchange.getRequestURI().getRawQuery() != null ? "?" + exchange.getRequestURI().getRawQuery() : "");
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            if (!signer.verify(exchange.getRequestHeaders().getFirst(TIMESTAMP_HEADER),
+                    exchange.getRequestHeaders().getFirst(SIGNATURE_HEADER),
+                    exchange.getRequestMethod() + " " + target, body)) {
+                log.warn("Refused an unsigned cluster request from {}", exchange.getRemoteAddress());
+                respond(exchange, target, 403, null);
+                return;
+            }
+
+            String[] path = exchange.getRequestURI().getRawPath().substring(CONTEXT.length()).split("/");
+            if (path.length == 1 && path[0].equals("ping")) {
+                Map<String, String> identity = new LinkedHashMap<>();
+                identity.put("cluster", config.getName());
+                identity.put("node", nodeId);
+                respond(exchange, target, 200, objectMapper.writeValueAsBytes(identity));
+                return;
+            }
+            ClusterRegion region = path.length >= 3 && path[0].equals("regions")
+                    ? regions.get(path[1] + "/" + path[2])
+                    : null;
+            if (region == null) {
+                respond(exchange, target, 404, null);
+            } else if (path.length == 3 && exchange.getRequestMethod().equals("GET")) {
+                String key = queryParameter(exchange, "key");
+                Object entry = key != null ? region.local().lookup(key) : null;
+                respond(exchange, target, entry != null ? 200 : 404, entry != null ? objectMapper.writeValueAsBytes(entry) : null);
+            } else if (path.length == 4 && path[3].equals("invalidations") && exchange.getRequestMethod().equals("POST")) {
+                applyInvalidation(region, body);
+                respond(exchange, target, 204, null);
+            } else {
+                respond(exchange, target, 404, null);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to answer cluster request {}: {}", exchange.getRequestURI(), e.getMessage());
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void applyInvalidation(ClusterRegion region, byte[] body) throws IOException {
+        Map<String, Object> message = objectMapper.readValue(body, new TypeReference<>() { });
+        if (Boolean.TRUE.equals(message.get("all"))) {
+            region.local().evictAll();
+        } else {
+            for (String key : (List<String>) message.getOrDefault("keys", List.of())) {
+                region.local().evict(key);
+            }
+        }
+        meterRegistry.counter("cluster.invalidations", "region", region.type(), "repository", region.repository(),
+                "direction", "received").increment();
+        log.debug("Applied invalidation of {} from node {}", region.type(), message.get("node"));
+    }
+
+    private void respond(HttpExchange exchange, String target, int status, byte[] body) throws IOException {
+        long timestamp = System.currentTimeMillis();
+        exchange.getResponseHeaders().set(TIMESTAMP_HEADER, Long.toString(timestamp));
+        exchange.getResponseHeaders().set(SIGNATURE_HEADER,
+                signer.sign(timestamp, "RESPONSE " + target + " " + status, body != null ? body : new byte[0]));
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static String queryParameter(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0 && pair.substring(0, separator).equals(name)) {
+                return URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static String regionPath(String type, String repository) {
+        return encode(type) + "/" + encode(repository);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * A known peer address; the node behind it is learned from its ping answers or announcements
+     */
+    private static final class Peer {
+
+        private final String address;
+        private final boolean configured;
+        private volatile String nodeId;
+        private volatile long lastSeen;
+        private volatile boolean self;
+
+        private Peer(String address, boolean configured) {
+            this.address = address;
+            this.configured = configured;
+        }
+    }
+}
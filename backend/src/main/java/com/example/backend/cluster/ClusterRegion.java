@@ -0,0 +1,79 @@
+package com.example.backend.cluster;
+
+import java.util.List;
+
+/**
+ * One local cache as part of the cluster tier. Peers can copy its entries, a local miss can be
+ * filled from a peer's copy, and invalidations are replayed on every peer. Peers only answer from
+ * what they already hold, so a fetch never turns into a repository call on another node.
+ * Regions are named by the kind of data and the repository it came from. While clustering is
+ * disabled or no peer is reachable, fetches miss and invalidations stay local.
+ */
+public final class ClusterRegion {
+
+    /**
+     * The local cache behind a region
+     */
+    public interface Local {
+
+        /**
+         * Entry peers may copy, or null if there is none
+         */
+        Object lookup(String key);
+
+        /**
+         * Drop an entry a peer invalidated
+         */
+        void evict(String key);
+
+        /**
+         * Drop every entry after a peer invalidated the whole region
+         */
+        void evictAll();
+    }
+
+    private final ClusterNode node;
+    private final String type;
+    private final String repository;
+    private final Local local;
+
+    ClusterRegion(ClusterNode node, String type, String repository, Local local) {
+        this.node = node;
+        this.type = type;
+        this.repository = repository;
+        this.local = local;
+    }
+
+    public String type() {
+        return type;
+    }
+
+    public String repository() {
+        return repository;
+    }
+
+    Local local() {
+        return local;
+    }
+
+    /**
+     * A peer's copy of an entry, or null if no peer answers with one in time
+     */
+    public <T> T fetch(String key, Class<T> entryType) {
+        return node.fetch(this, key, entryType);
+    }
+
+    /**
+     * Drop an entry on every peer; the caller drops its own copy
+     */
+    public void invalidate(String key) {
+        node.invalidate(this, List.of(key), false);
+    }
+
+    /**
+     * Drop every entry of the region on every peer; the caller drops its own copies
+     */
+    public void invalidateAll() {
+        node.invalidate(this, List.of(), true);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.backend.cluster;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * HMAC-SHA256 signatures of cluster messages under the shared secret. A signature covers a
+ * timestamp, a subject naming what is signed (request line, response status, announcement) and
+ * the body; messages older or newer than the allowed clock skew are refused, which bounds replays.
+ * Without a secret nothing is signed and every message is accepted.
+ */
+final class ClusterSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final long MAX_CLOCK_SKEW_MS = 30000;
+
+    private final SecretKeySpec key;
+
+    ClusterSigner(String secret) {
+        this.key = secret != null && !secret.isBlank()
+                ? new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM)
+                : null;
+    }
+
+    boolean isEnabled() {
+        return key != null;
+    }
+
+    /**
+     * Signature of a message, empty when no secret is configured
+     */
+    String sign(long timestamp, String subject, byte[] body) {
+        if (key == null) {
+            return "";
+        }
+        return Base64.getEncoder().encodeToString(mac(timestamp, subject, body));
+    }
+
+    boolean verify(String timestamp, String signature, String subject, byte[] body) {
+        if (key == null) {
+            return true;
+        }
+        if (timestamp == null || signature == null) {
+            return false;
+        }
+        try {
+            long sent = Long.parseLong(timestamp);
+            if (Math.abs(System.currentTimeMillis() - sent) > MAX_CLOCK_SKEW_MS) {
+                return false;
+            }
+            return MessageDigest.isEqual(mac(sent, subject, body), Base64.getDecoder().decode(signature));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private byte[] mac(long timestamp, String subject, byte[] body) {
+        try {
+            // Mac instances are not thread-safe and cheap to create
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            mac.update((timestamp + "\n" + subject + "\n").getBytes(StandardCharsets.UTF_8));
+            if (body != null) {
+                mac.update(body);
+            }
+            return mac.doFinal();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot sign cluster message", e);
+        }
+    }
+}
@@ -2,14 +2,31 @@ package com.example.backend.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import com.example.backend.gateway.OperationClass;
 import lombok.Data;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
 @Configuration
 @ConfigurationProperties(prefix = "app")
 @Data
 public class AppConfig {
     private CasesConfig cases = new CasesConfig();
     private WorkflowConfig workflow = new WorkflowConfig();
+    private CacheConfig cache = new CacheConfig();
+    private UsersConfig users = new UsersConfig();
+    private DirectoryConfig directory = new DirectoryConfig();
+    private ImpersonationConfig impersonation = new ImpersonationConfig();
+    private SessionConfig session = new SessionConfig();
+    private TracingConfig tracing = new TracingConfig();
+    private ResilienceConfig resilience = new ResilienceConfig();
+    private HedgingConfig hedging = new HedgingConfig();
+    private QueryConfig query = new QueryConfig();
+    private PagingConfig paging = new PagingConfig();
+    private ClusterConfig cluster = new ClusterConfig();
 
     @Data
     public static class CasesConfig {
@@ -22,5 +39,394 @@ public class AppConfig {
     @Data
     public static class WorkflowConfig {
         private String processes;
+
+        /**
+         * Workflows of a case whose details are fetched at the same time; each takes three
+         * query-class calls, so keep three times this well below app.resilience.max-concurrent.query
+         */
+        private int detailConcurrency = 3;
+    }
+
+    @Data
+    public static class CacheConfig {
+        /**
+         * Whether group and object reads are cached and revalidated with conditional requests
+         */
+        private boolean enabled = true;
+
+        /**
+         * Maximum number of cached DCTM responses (least recently used are evicted first)
+         */
+        private int maxEntries = 2000;
+
+        /**
+         * Whether identical concurrent reads (same request and credentials) share one dctm-rest call
+         */
+        private boolean coalesceReads = true;
+    }
+
+    @Data
+    public static class UsersConfig {
+        /**
+         * Maximum number of profile PATCH requests in flight during a bulk import
+         */
+        private int importConcurrency = 4;
+
+        /**
+         * Maximum number of users per set-based dm_user lookup/UPDATE statement
+         */
+        private int syncBatchSize = 100;
+
+        private StatusSyncConfig statusSync = new StatusSyncConfig();
+    }
+
+    @Data
+    public static class StatusSyncConfig {
+        /**
+         * Append-only journal holding dm_user status changes that have not been synced yet
+         */
+        private String journalPath = "data/dm-user-status-sync.journal";
+
+        /**
+         * Delay between write-behind flushes of pending dm_user status changes
+         */
+        private long flushIntervalMs = 2000;
+
+        /**
+         * Backoff before the first retry of a failed sync, doubled on every further failure
+         */
+        private long initialBackoffMs = 5000;
+
+        private long maxBackoffMs = 300000;
+
+        /**
+         * Failed syncs of a change before it is moved to the dead-letter log instead of retried again
+         */
+        private int maxAttempts = 10;
+
+        /**
+         * Append-only log of changes given up on after max-attempts, for manual follow-up
+         */
+        private String deadLetterPath = "data/dm-user-status-sync.dead-letter";
+    }
+
+    @Data
+    public static class DirectoryConfig {
+        /**
+         * Delay between r_modify_date delta refreshes of the dm_user snapshot
+         */
+        private long refreshIntervalMs = 60000;
+
+        /**
+         * Interval for a full snapshot rebuild, which also drops users deleted from the repository
+         */
+        private long fullRebuildIntervalMs = 21600000;
+
+        /**
+         * Seconds the delta query reaches back before the last seen r_modify_date
+         */
+        private long deltaOverlapSeconds = 300;
+
+        private int pageSize = 500;
+
+        /**
+         * Users returned by a directory search that does not ask for a page size
+         */
+        private int searchPageSize = 20;
+
+        /**
+         * Largest page of users a directory search may ask for
+         */
+        private int maxSearchPageSize = 200;
+    }
+
+    @Data
+    public static class ImpersonationConfig {
+        /**
+         * Lifetime of tickets issued by the generateUserLoginTicket method
+         */
+        private long ticketLifetimeSeconds = 600;
+
+        /**
+         * A cached ticket is no longer handed out this many seconds before it expires
+         */
+        private long expirySafetyMarginSeconds = 60;
+
+        /**
+         * Maximum number of users with a cached ticket (least recently used are evicted first)
+         */
+        private int maxCachedTickets = 500;
+    }
+
+    @Data
+    public static class SessionConfig {
+        /**
+         * Absolute lifetime of a login session
+         */
+        private long ttlMinutes = 480;
+
+        /**
+         * Sessions not used for this long are ended
+         */
+        private long idleTimeoutMinutes = 30;
+
+        /**
+         * Maximum number of live sessions (least recently used are evicted first)
+         */
+        private int maxSessions = 10000;
+
+        /**
+         * Concurrent login-ticket renewals for live sessions
+         */
+        private int renewConcurrency = 4;
+    }
+
+    @Data
+    public static class TracingConfig {
+        /**
+         * Traces whose root span took at least this long are kept for /actuator/slowtraces
+         */
+        private long slowThresholdMs = 1000;
+
+        /**
+         * Number of slow traces kept (oldest are dropped first)
+         */
+        private int maxSlowTraces = 200;
+
+        /**
+         * Traces still waiting for their root span; bounds memory when roots are lost
+         */
+        private int maxPendingTraces = 1000;
+
+        /**
+         * In virtual-thread mode, report virtual threads blocked while pinned for at least this long
+         */
+        private long pinnedThresholdMs = 20;
+    }
+
+    @Data
+    public static class ResilienceConfig {
+        /**
+         * Concurrent dctm-rest calls per operation class; keep the sum well below the
+         * Tomcat worker count so endpoints that don't call dctm-rest always get a thread
+         */
+        private Map<OperationClass, Integer> maxConcurrent = new EnumMap<>(Map.of(
+                OperationClass.QUERY, 20,
+                OperationClass.CONSOLE, 10,
+                OperationClass.WORKFLOW, 10,
+                OperationClass.GROUP, 10,
+                OperationClass.USER, 10,
+                OperationClass.AUTH, 5));
+
+        /**
+         * How long a call waits for a free slot before it is refused
+         */
+        private long bulkheadWaitMs = 200;
+
+        /**
+         * Number of recent calls per operation class the failure rate is computed over
+         */
+        private int windowSize = 20;
+
+        /**
+         * Calls needed in the window before the breaker may open
+         */
+        private int minimumCalls = 10;
+
+        /**
+         * Failure rate (percent of unreachable, timed out or 5xx calls) that opens the breaker
+         */
+        private int failureRateThreshold = 50;
+
+        /**
+         * How long an open breaker refuses calls before letting a probe through
+         */
+        private long openDurationMs = 30000;
+
+        /**
+         * Answer object and group reads with the last cached copy while dctm-rest is unavailable
+         */
+        private boolean serveStaleOnFailure = true;
+    }
+
+    @Data
+    public static class HedgingConfig {
+        /**
+         * Whether slow DQL page and object reads are hedged with a duplicate request
+         */
+        private boolean enabled = false;
+
+        /**
+         * Hedges allowed, as a percentage of hedgeable reads
+         */
+        private int budgetPercent = 5;
+
+        /**
+         * Hedge delay used until enough latencies were observed to derive the p95
+         */
+        private long initialDelayMs = 1000;
+
+        /**
+         * Lower bound of the adaptive (p95) hedge delay
+         */
+        private long minDelayMs = 50;
+
+        /**
+         * Successful calls observed before the p95 replaces the initial delay
+         */
+        private int minSamples = 50;
+
+        /**
+         * Threads running hedgeable reads and their hedges; reads run on the caller's thread when all are busy
+         */
+        private int maxThreads = 64;
+    }
+
+    @Data
+    public static class QueryConfig {
+        /**
+         * Result pages of an ad-hoc DQL query requested concurrently once the first page shows more follow
+         */
+        private int pagePrefetch = 4;
+
+        /**
+         * How long the result of an ad-hoc SELECT is reused for the same user, query and limit; 0 disables reuse
+         */
+        private long resultCacheTtlMs = 0;
+
+        /**
+         * Maximum number of cached query results per repository (least recently used are evicted first)
+         */
+        private int resultCacheMaxEntries = 200;
+
+        /**
+         * Ad-hoc queries each user may start per minute on average; 0 disables the per-user limit
+         */
+        private int userRatePerMinute = 30;
+
+        /**
+         * Queries a user may start back to back before the per-minute rate applies
+         */
+        private int userBurst = 10;
+
+        /**
+         * Result pages of ad-hoc queries fetched from dctm-rest at the same time, over all users;
+         * keep it at or below app.resilience.max-concurrent.console so queued pages wait here,
+         * round-robin, rather than being refused by the bulkhead. 0 disables the cap
+         */
+        private int maxConcurrentPages = 8;
+
+        /**
+         * How long a page waits in the queue for a free slot before its query is refused
+         */
+        private long queueTimeoutMs = 2000;
+
+        /**
+         * Pages waiting for a slot beyond which further queries are refused at once
+         */
+        private int maxQueuedPages = 50;
+    }
+
+    @Data
+    public static class PagingConfig {
+        /**
+         * Whether items-per-page of DQL result pages is tuned per query fingerprint from the row
+         * sizes and page latencies seen so far
+         */
+        private boolean adaptive = true;
+
+        /**
+         * Items per page for a query whose fingerprint has not been seen yet
+         */
+        private int initialPageSize = 100;
+
+        /**
+         * Fewest items per page the tuning goes down to
+         */
+        private int minPageSize = 10;
+
+        /**
+         * Most items per page the tuning goes up to; keep it at or below the items-per-page
+         * limit of dctm-rest. A lower limit enforced by the server is detected and respected
+         */
+        private int maxPageSize = 1000;
+
+        /**
+         * Response size a page should stay within
+         */
+        private int pageByteBudget = 512 * 1024;
+
+        /**
+         * Time a page should be received within
+         */
+        private long pageLatencyBudgetMs = 300;
+
+        /**
+         * Query fingerprints whose statistics are kept (least recently used are dropped first)
+         */
+        private int maxTrackedQueries = 500;
+    }
+
+    @Data
+    public static class ClusterConfig {
+        /**
+         * Whether backend nodes share cached responses, query results and directory snapshots with
+         * each other and replicate invalidations
+         */
+        private boolean enabled = false;
+
+        /**
+         * Name of the cluster; nodes ignore peers that announce another one
+         */
+        private String name = "backend";
+
+        /**
+         * Address the cluster port listens on. Peers exchange cached repository data, so keep it
+         * on a private interface
+         */
+        private String bindAddress = "0.0.0.0";
+
+        /**
+         * Address announced to peers over multicast; the local host address if not set
+         */
+        private String advertiseAddress;
+
+        /**
+         * Port peers fetch entries and send invalidations to; 0 picks a free port
+         */
+        private int port = 7800;
+
+        /**
+         * Static peers as host:port; may list this node too, so every node can share one list
+         */
+        private List<String> peers = new ArrayList<>();
+
+        /**
+         * Multicast group nodes announce themselves on, e.g. 239.255.42.99; not set disables multicast discovery
+         */
+        private String multicastGroup;
+
+        private int multicastPort = 45588;
+
+        /**
+         * Interval of peer pings and multicast announcements
+         */
+        private long heartbeatIntervalMs = 2000;
+
+        /**
+         * A peer not heard from for this long is left out until it answers again
+         */
+        private long peerTimeoutMs = 6000;
+
+        /**
+         * How long a cache miss waits for peers before going to the repository
+         */
+        private long fetchTimeoutMs = 150;
+
+        /**
+         * Shared secret all peer traffic is signed with (HMAC-SHA256); without it any host that
+         * reaches the cluster port can read and poison cached entries
+         */
+        private String secret;
     }
 }
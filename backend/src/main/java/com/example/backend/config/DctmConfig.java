@@ -1,9 +1,16 @@
 package com.example.backend.config;
 
+import com.example.backend.gateway.OperationClass;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 import lombok.Data;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
 @Configuration
 @ConfigurationProperties(prefix = "dctm.rest")
 @Data
@@ -16,4 +23,73 @@ public class DctmConfig {
     // Privileged service account for elevated operations
     private String serviceUsername;
     private String servicePassword;
+
+    // BASIC sends username/password with every request, TICKET reuses cached login tickets
+    // for regular operations (the service account always uses tickets)
+    private AuthMode authMode = AuthMode.BASIC;
+
+    // Login ticket lifetime assumed when the server does not report an expiry
+    private Duration ticketLifetime = Duration.ofMinutes(10);
+
+    // Login tickets are renewed in the background this long before they expire
+    private Duration ticketRenewBefore = Duration.ofMinutes(2);
+
+    // HTTP timeouts for dctm-rest calls; a read timeout counts as a failure for the circuit breaker
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    private Duration readTimeout = Duration.ofSeconds(60);
+
+    // Repositories requests can be routed to, e.g. UAT and production docbases side by side.
+    // When empty, the single repository above is the only one; otherwise the repository above
+    // is the default and must be one of them. Settings left out of an entry are inherited.
+    private List<Repository> repositories = new ArrayList<>();
+
+    /**
+     * The configured repositories with inherited settings filled in; a single entry when no
+     * repository list is configured
+     */
+    public List<Repository> resolveRepositories() {
+        List<Repository> configured = repositories.isEmpty() ? List.of(new Repository()) : repositories;
+        List<Repository> resolved = new ArrayList<>();
+        for (Repository entry : configured) {
+            Repository repository = new Repository();
+            repository.setName(entry.getName() != null ? entry.getName() : this.repository);
+            repository.setUrl(entry.getUrl() != null ? entry.getUrl() : url);
+            repository.setUsername(entry.getUsername() != null ? entry.getUsername() : username);
+            repository.setPassword(entry.getUsername() != null ? entry.getPassword() : password);
+            repository.setServiceUsername(entry.getServiceUsername() != null ? entry.getServiceUsername() : serviceUsername);
+            repository.setServicePassword(entry.getServiceUsername() != null ? entry.getServicePassword() : servicePassword);
+            repository.setConnectTimeout(entry.getConnectTimeout() != null ? entry.getConnectTimeout() : connectTimeout);
+            repository.setReadTimeout(entry.getReadTimeout() != null ? entry.getReadTimeout() : readTimeout);
+            repository.setMaxConcurrent(new EnumMap<>(OperationClass.class));
+            repository.getMaxConcurrent().putAll(entry.getMaxConcurrent());
+            resolved.add(repository);
+        }
+        return resolved;
+    }
+
+    @Data
+    public static class Repository {
+        private String name;
+
+        // dctm-rest base URL serving this repository
+        private String url;
+
+        // Credentials; a password is only inherited together with its username
+        private String username;
+        private String password;
+        private String serviceUsername;
+        private String servicePassword;
+
+        private Duration connectTimeout;
+        private Duration readTimeout;
+
+        // Concurrent calls per operation class against this repository, overriding
+        // app.resilience.max-concurrent; each repository has its own slots and breakers
+        private Map<OperationClass, Integer> maxConcurrent = new EnumMap<>(OperationClass.class);
+    }
+
+    public enum AuthMode {
+        BASIC,
+        TICKET
+    }
 }
@@ -0,0 +1,34 @@
+package com.example.backend.config;
+
+import com.example.backend.gateway.DctmUnavailableException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers requests whose dctm-rest call was refused, because its operation class has an open
+ * circuit breaker or a full bulkhead, with 503 Service Unavailable and a Retry-After header
+ * instead of a generic 500, so clients know the refusal is temporary and when to try again.
+ */
+@RestControllerAdvice
+public class DctmUnavailableAdvice {
+
+    @ExceptionHandler(DctmUnavailableException.class)
+    public ResponseEntity<Map<String, Object>> unavailable(DctmUnavailableException e) {
+        long retryAfterSeconds = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(e.getRetryAfterMillis() + 999));
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", false);
+        result.put("error", e.getMessage());
+        result.put("reason", e.getErrorCode());
+        result.put("retryAfterSeconds", retryAfterSeconds);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(result);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.backend.config;
+
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    // Coalescing metrics are tagged per DQL fingerprint; ad-hoc queries from the query
+    // console must not grow the registry without bound
+    private static final int MAX_COALESCED_KEYS = 200;
+
+    @Bean
+    public MeterFilter coalescedKeyLimit() {
+        return MeterFilter.maximumAllowableTags("dctm.gateway.coalesced", "key", MAX_COALESCED_KEYS,
+                MeterFilter.deny());
+    }
+}
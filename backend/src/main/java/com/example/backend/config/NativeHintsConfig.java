@@ -0,0 +1,53 @@
+package com.example.backend.config;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.boot.context.properties.bind.BindableRuntimeHintsRegistrar;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.util.ClassUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+/**
+ * Reflection hints for a GraalVM native image (mvn -Pnative native:compile), which only keeps
+ * the reflective access it is told about. Controllers, beans and their injection points are
+ * covered by Spring's AOT processing; these hints add what it cannot see:
+ * <ul>
+ * <li>the nested settings classes of the @ConfigurationProperties beans, bound by setter</li>
+ * <li>the records cached entries travel between cluster nodes as, read and written by Jackson</li>
+ * <li>the map and list types dctm-rest JSON is read into, since responses are handled as
+ * {@code Map<String, Object>} rather than typed DTOs</li>
+ * </ul>
+ */
+@Configuration
+@ImportRuntimeHints(NativeHintsConfig.Hints.class)
+public class NativeHintsConfig {
+
+    static final String[] JSON_RECORDS = {
+            "com.example.backend.gateway.ConditionalResponseCache$Entry",
+            "com.example.backend.service.QueryResultCache$Entry",
+            "com.example.backend.service.UserDirectoryService$SharedSnapshot"
+    };
+
+    static class Hints implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            BindableRuntimeHintsRegistrar.forTypes(AppConfig.class, DctmConfig.class).registerHints(hints, classLoader);
+
+            BindingReflectionHintsRegistrar bindingHints = new BindingReflectionHintsRegistrar();
+            for (String type : JSON_RECORDS) {
+                bindingHints.registerReflectionHints(hints.reflection(), ClassUtils.resolveClassName(type, classLoader));
+            }
+
+            for (Class<?> type : new Class<?>[] { LinkedHashMap.class, HashMap.class, ArrayList.class }) {
+                hints.reflection().registerType(type, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.backend.config;
+
+import com.example.backend.gateway.RequestProfile;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Adds the waterfall of a profiled request to its response: as a "profile" entry of JSON object
+ * responses and as a Server-Timing header on every response.
+ */
+@ControllerAdvice
+public class ProfileResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        RequestProfile profile = RequestProfile.current();
+        if (profile == null) {
+            return body;
+        }
+
+        response.getHeaders().add("Server-Timing", profile.toServerTiming());
+        if (body instanceof Map) {
+            Map<String, Object> profiled = new LinkedHashMap<>((Map<String, Object>) body);
+            profiled.put("profile", profile.toWaterfall());
+            return profiled;
+        }
+        return body;
+    }
+}
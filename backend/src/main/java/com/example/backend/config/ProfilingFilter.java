@@ -0,0 +1,38 @@
+package com.example.backend.config;
+
+import com.example.backend.gateway.RequestProfile;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Profiles API requests that ask for it with ?profile=true or an "X-Profile: true" header.
+ * The dctm-rest calls of a profiled request are collected in a {@link RequestProfile} and
+ * returned as a waterfall by {@link ProfileResponseAdvice}; other requests are untouched.
+ */
+public class ProfilingFilter extends OncePerRequestFilter {
+
+    public static final String PROFILE_HEADER = "X-Profile";
+    public static final String PROFILE_PARAM = "profile";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!"true".equalsIgnoreCase(request.getParameter(PROFILE_PARAM))
+                && !"true".equalsIgnoreCase(request.getHeader(PROFILE_HEADER))) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        RequestProfile.bind(new RequestProfile());
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RequestProfile.clear();
+        }
+    }
+}
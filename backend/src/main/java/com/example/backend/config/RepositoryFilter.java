@@ -0,0 +1,76 @@
+package com.example.backend.config;
+
+import com.example.backend.gateway.DctmRepositories;
+import com.example.backend.service.DctmSession;
+import com.example.backend.service.RepositoryContext;
+import com.example.backend.service.SessionContext;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Routes an API request to the repository named by its "repository" parameter (or the
+ * X-Dctm-Repository header); requests naming none go to the default repository. Unknown
+ * repositories are rejected with 400, and so is a repository other than the one a logged-in
+ * session belongs to, since the session's ticket is only valid there. Runs after the session
+ * filter.
+ */
+public class RepositoryFilter extends OncePerRequestFilter {
+
+    public static final String REPOSITORY_PARAMETER = "repository";
+    public static final String REPOSITORY_HEADER = "X-Dctm-Repository";
+
+    private final DctmRepositories repositories;
+
+    public RepositoryFilter(DctmRepositories repositories) {
+        this.repositories = repositories;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return "OPTIONS".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String repository = request.getParameter(REPOSITORY_PARAMETER);
+        if (repository == null || repository.isBlank()) {
+            repository = request.getHeader(REPOSITORY_HEADER);
+        }
+        if (repository == null || repository.isBlank()) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        repository = repository.trim();
+        DctmSession session = SessionContext.current();
+        if (!repositories.contains(repository)) {
+            reject(response, "Unknown repository '" + repository + "', available: " + repositories.names());
+            return;
+        }
+        if (session != null && !session.getRepository().equals(repository)) {
+            reject(response, "The session belongs to repository '" + session.getRepository()
+                    + "', log in to '" + repository + "' to use it");
+            return;
+        }
+
+        RepositoryContext.bind(repository);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RepositoryContext.clear();
+        }
+    }
+
+    private static void reject(HttpServletResponse response, String message) throws IOException {
+        response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"success\":false,\"error\":\"" + message.replace("\"", "'") + "\"}");
+    }
+}
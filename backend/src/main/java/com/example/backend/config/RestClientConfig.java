@@ -1,22 +1,88 @@
 package com.example.backend.config;
 
+import com.example.backend.service.DctmAuthService;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.client.support.HttpRequestWrapper;
 import org.springframework.web.client.RestClient;
 
 import javax.net.ssl.*;
 import java.io.IOException;
 import java.net.HttpURLConnection;
+import java.net.Socket;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
 
 @Configuration
 public class RestClientConfig {
 
     @Bean
-    public RestClient.Builder restClientBuilder() {
+    public RestClient.Builder restClientBuilder(ObjectProvider<DctmAuthService> dctmAuthService, DctmConfig dctmConfig) {
         return RestClient.builder()
-                .requestFactory(new TrustAllRequestFactory());
+                .requestFactory(requestFactory(dctmConfig.getConnectTimeout(), dctmConfig.getReadTimeout()))
+                .requestInterceptor(new TicketRetryInterceptor(dctmAuthService));
+    }
+
+    /**
+     * Request factory for dctm-rest calls with the given timeouts, accepting any server certificate
+     */
+    public static ClientHttpRequestFactory requestFactory(Duration connectTimeout, Duration readTimeout) {
+        TrustAllRequestFactory requestFactory = new TrustAllRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeout);
+        requestFactory.setReadTimeout(readTimeout);
+        return requestFactory;
+    }
+
+    // Retries a request once with fresh credentials when the repository rejects a login ticket,
+    // or fails it with DctmSessionExpiredException when the ticket was a session's
+    static class TicketRetryInterceptor implements ClientHttpRequestInterceptor {
+
+        private final ObjectProvider<DctmAuthService> dctmAuthService;
+
+        TicketRetryInterceptor(ObjectProvider<DctmAuthService> dctmAuthService) {
+            this.dctmAuthService = dctmAuthService;
+        }
+
+        @Override
+        public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+                throws IOException {
+            ClientHttpResponse response = execution.execute(request, body);
+
+            String authHeader = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+            if (response.getStatusCode().value() != 401 || authHeader == null || !authHeader.startsWith("DmTicket ")) {
+                return response;
+            }
+            String retryHeader;
+            try {
+                retryHeader = dctmAuthService.getObject().onAuthRejected(authHeader);
+            } catch (RuntimeException e) {
+                // The rejected ticket belonged to a session, which has been ended
+                response.close();
+                throw e;
+            }
+            if (retryHeader == null) {
+                return response;
+            }
+            response.close();
+
+            HttpHeaders retryHeaders = new HttpHeaders();
+            retryHeaders.putAll(request.getHeaders());
+            retryHeaders.set(HttpHeaders.AUTHORIZATION, retryHeader);
+            return execution.execute(new HttpRequestWrapper(request) {
+                @Override
+                public HttpHeaders getHeaders() {
+                    return retryHeaders;
+                }
+            }, body);
+        }
     }
 
     // Custom RequestFactory to bypass SSL verification
@@ -31,27 +97,47 @@ public class RestClientConfig {
         }
 
         private SSLSocketFactory trustAllSslSocketFactory() {
-            try {
-                TrustManager[] trustAllCerts = new TrustManager[] {
-                        new X509TrustManager() {
-                            public X509Certificate[] getAcceptedIssuers() {
-                                return null;
-                            }
+            return trustAllSslContext().getSocketFactory();
+        }
+    }
+
+    /**
+     * TLS context accepting any server certificate, as used by all dctm-rest clients
+     */
+    public static SSLContext trustAllSslContext() {
+        try {
+            // An extended trust manager, so the JDK HttpClient does not add its own hostname check either
+            TrustManager[] trustAllCerts = new TrustManager[] {
+                    new X509ExtendedTrustManager() {
+                        public X509Certificate[] getAcceptedIssuers() {
+                            return new X509Certificate[0];
+                        }
 
-                            public void checkClientTrusted(X509Certificate[] certs, String authType) {
-                            }
+                        public void checkClientTrusted(X509Certificate[] certs, String authType) {
+                        }
 
-                            public void checkServerTrusted(X509Certificate[] certs, String authType) {
-                            }
+                        public void checkServerTrusted(X509Certificate[] certs, String authType) {
                         }
-                };
 
-                SSLContext sc = SSLContext.getInstance("TLS");
-                sc.init(null, trustAllCerts, new java.security.SecureRandom());
-                return sc.getSocketFactory();
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to create trust-all SSL socket factory", e);
-            }
+                        public void checkClientTrusted(X509Certificate[] certs, String authType, Socket socket) {
+                        }
+
+                        public void checkServerTrusted(X509Certificate[] certs, String authType, Socket socket) {
+                        }
+
+                        public void checkClientTrusted(X509Certificate[] certs, String authType, SSLEngine engine) {
+                        }
+
+                        public void checkServerTrusted(X509Certificate[] certs, String authType, SSLEngine engine) {
+                        }
+                    }
+            };
+
+            SSLContext sc = SSLContext.getInstance("TLS");
+            sc.init(null, trustAllCerts, new java.security.SecureRandom());
+            return sc;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to create trust-all SSL context", e);
         }
     }
 }
@@ -0,0 +1,28 @@
+package com.example.backend.config;
+
+import com.example.backend.gateway.DctmSessionExpiredException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Answers requests whose session ended because the repository rejected its login ticket like
+ * requests with an expired session token, with 401 and "sessionExpired", so the frontend asks
+ * the user to log in again instead of showing a generic error.
+ */
+@RestControllerAdvice
+public class SessionExpiredAdvice {
+
+    @ExceptionHandler(DctmSessionExpiredException.class)
+    public ResponseEntity<Map<String, Object>> sessionExpired(DctmSessionExpiredException e) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", false);
+        result.put("sessionExpired", true);
+        result.put("error", "Session expired or invalid, please log in again");
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(result);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.backend.config;
+
+import com.example.backend.service.DctmSession;
+import com.example.backend.service.SessionContext;
+import com.example.backend.service.SessionStore;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Binds the session identified by the X-Session-Token header (or an "Authorization: Bearer" token)
+ * to the request, so DCTM calls run as the logged-in user. Requests without a token keep running
+ * as the configured account; a token that is unknown or expired is rejected with 401.
+ */
+public class SessionFilter extends OncePerRequestFilter {
+
+    public static final String SESSION_HEADER = "X-Session-Token";
+
+    // Same origins the controllers allow, so the frontend can read the 401
+    private static final List<String> FRONTEND_ORIGINS = List.of("http://localhost:5173", "http://localhost:5174");
+
+    private final SessionStore sessionStore;
+
+    public SessionFilter(SessionStore sessionStore) {
+        this.sessionStore = sessionStore;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return "OPTIONS".equals(request.getMethod())
+                || request.getRequestURI().endsWith("/api/auth/login");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String token = resolveToken(request);
+        if (token == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        DctmSession session = sessionStore.get(token);
+        if (session == null) {
+            String origin = request.getHeader(HttpHeaders.ORIGIN);
+            if (origin != null && FRONTEND_ORIGINS.contains(origin)) {
+                response.setHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, origin);
+            }
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"success\":false,\"sessionExpired\":true,"
+                    + "\"error\":\"Session expired or invalid, please log in again\"}");
+            return;
+        }
+
+        SessionContext.bind(session);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            SessionContext.clear();
+        }
+    }
+
+    public static String resolveToken(HttpServletRequest request) {
+        String token = request.getHeader(SESSION_HEADER);
+        if (token == null) {
+            String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+            if (authorization != null && authorization.startsWith("Bearer ")) {
+                token = authorization.substring("Bearer ".length());
+            }
+        }
+        return token != null && !token.isBlank() ? token.trim() : null;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.backend.config;
+
+import com.example.backend.gateway.DctmRepositories;
+import com.example.backend.service.SessionStore;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+
+@Configuration
+public class WebConfig {
+
+    /**
+     * Emit ETags on group and user reads and answer matching If-None-Match with 304 Not Modified,
+     * so repeat views from the browser skip the response payload
+     */
+    @Bean
+    public FilterRegistrationBean<ShallowEtagHeaderFilter> etagFilter() {
+        FilterRegistrationBean<ShallowEtagHeaderFilter> registration =
+                new FilterRegistrationBean<>(new ShallowEtagHeaderFilter());
+        registration.addUrlPatterns("/api/groups/*", "/api/users/*");
+        registration.setName("etagFilter");
+        return registration;
+    }
+
+    /**
+     * Bind the logged-in user's session to API requests that carry a session token
+     */
+    @Bean
+    public FilterRegistrationBean<SessionFilter> sessionFilter(SessionStore sessionStore) {
+        FilterRegistrationBean<SessionFilter> registration = new FilterRegistrationBean<>(new SessionFilter(sessionStore));
+        registration.addUrlPatterns("/api/*");
+        registration.setName("sessionFilter");
+        registration.setOrder(1);
+        return registration;
+    }
+
+    /**
+     * Route API requests that name a repository to it; ordered after the session filter so a
+     * request cannot leave its session's repository
+     */
+    @Bean
+    public FilterRegistrationBean<RepositoryFilter> repositoryFilter(DctmRepositories repositories) {
+        FilterRegistrationBean<RepositoryFilter> registration =
+                new FilterRegistrationBean<>(new RepositoryFilter(repositories));
+        registration.addUrlPatterns("/api/*");
+        registration.setName("repositoryFilter");
+        registration.setOrder(2);
+        return registration;
+    }
+
+    /**
+     * Collect a waterfall of dctm-rest calls for API requests that ask for profiling
+     */
+    @Bean
+    public FilterRegistrationBean<ProfilingFilter> profilingFilter() {
+        FilterRegistrationBean<ProfilingFilter> registration = new FilterRegistrationBean<>(new ProfilingFilter());
+        registration.addUrlPatterns("/api/*");
+        registration.setName("profilingFilter");
+        return registration;
+    }
+}
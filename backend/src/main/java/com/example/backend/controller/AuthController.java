@@ -1,16 +1,26 @@
 package com.example.backend.controller;
 
-import com.example.backend.config.DctmConfig;
+import com.example.backend.config.SessionFilter;
 import com.example.backend.dto.AuthResponse;
 import com.example.backend.dto.LoginRequest;
+import com.example.backend.gateway.DctmException;
+import com.example.backend.gateway.DctmRepositories;
+import com.example.backend.gateway.DctmRepository;
+import com.example.backend.gateway.DctmSessionExpiredException;
+import com.example.backend.gateway.DctmUnavailableException;
 import com.example.backend.service.AuthService;
 import com.example.backend.service.DctmAuthService;
+import com.example.backend.service.DctmSession;
+import com.example.backend.service.ImpersonationTicketService;
+import com.example.backend.service.SessionContext;
+import com.example.backend.service.SessionStore;
+import com.example.backend.service.UserDirectoryService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.RestClient;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -22,18 +32,24 @@ import java.util.Map;
 public class AuthController {
 
     private final AuthService authService;
-    private final DctmConfig dctmConfig;
+    private final DctmRepositories repositories;
     private final DctmAuthService dctmAuthService;
-    private final RestClient restClient;
+    private final UserDirectoryService userDirectoryService;
+    private final ImpersonationTicketService impersonationTicketService;
+    private final SessionStore sessionStore;
 
     public AuthController(AuthService authService,
-                         DctmConfig dctmConfig,
+                         DctmRepositories repositories,
                          DctmAuthService dctmAuthService,
-                         RestClient.Builder restClientBuilder) {
+                         UserDirectoryService userDirectoryService,
+                         ImpersonationTicketService impersonationTicketService,
+                         SessionStore sessionStore) {
         this.authService = authService;
-        this.dctmConfig = dctmConfig;
+        this.repositories = repositories;
         this.dctmAuthService = dctmAuthService;
-        this.restClient = restClientBuilder.build();
+        this.userDirectoryService = userDirectoryService;
+        this.impersonationTicketService = impersonationTicketService;
+        this.sessionStore = sessionStore;
     }
 
     @PostMapping("/login")
@@ -46,6 +62,16 @@ public class AuthController {
         }
     }
 
+    /**
+     * End the session of the current user
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<Map<String, Object>> logout(HttpServletRequest request) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", sessionStore.invalidate(SessionFilter.resolveToken(request)));
+        return ResponseEntity.ok(result);
+    }
+
     /**
      * Get login ticket for current configured user using DQL
      */
@@ -67,74 +93,21 @@ public class AuthController {
         try {
             // Determine target user
             String targetUser = (username == null || username.isEmpty())
-                ? dctmConfig.getUsername()
+                ? repositories.current().config().getUsername()
                 : username;
 
             log.info("Support team requesting login ticket for user: {}", targetUser);
 
-            // Call custom Documentum method: generateUserLoginTicket
-            // This method must be created by Documentum Administrator
-            String methodDql = "EXECUTE generateUserLoginTicket WITH user_name='" +
-                              targetUser.replace("'", "''") + "'";
-
-            String baseUrl = dctmConfig.getUrl() + "/repositories/" + dctmConfig.getRepository();
-
-            // Use service account (SUPERUSER) to execute the method
-            @SuppressWarnings("unchecked")
-            Map<String, Object> response = restClient.get()
-                    .uri(baseUrl + "?dql={dql}&inline=true", methodDql)
-                    .header("Authorization", dctmAuthService.getUserAuthHeader())
-                    .header("Accept", "application/vnd.emc.documentum+json")
-                    .retrieve()
-                    .body(Map.class);
-
-            if (response != null && response.containsKey("entries")) {
-                @SuppressWarnings("unchecked")
-                java.util.List<Map<String, Object>> entries =
-                    (java.util.List<Map<String, Object>>) response.get("entries");
-
-                if (!entries.isEmpty()) {
-                    Map<String, Object> entry = entries.get(0);
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> content = (Map<String, Object>) entry.get("content");
-
-                    if (content != null && content.containsKey("properties")) {
-                        @SuppressWarnings("unchecked")
-                        Map<String, Object> props = (Map<String, Object>) content.get("properties");
-
-                        // The method returns the ticket as the result
-                        String loginTicket = (String) props.get("result");
-
-                        if (loginTicket != null && !loginTicket.isEmpty() &&
-                            !loginTicket.startsWith("ERROR:")) {
-                            result.put("success", true);
-                            result.put("username", targetUser);
-                            result.put("loginTicket", loginTicket);
-                            result.put("message", "Login ticket generated successfully (valid for 10 minutes)");
-                            result.put("expiresIn", "10 minutes");
-                            log.info("Successfully generated login ticket for user: {}", targetUser);
-                        } else {
-                            result.put("success", false);
-                            result.put("error", loginTicket != null ? loginTicket : "Failed to generate login ticket");
-                        }
-                    } else {
-                        result.put("success", false);
-                        result.put("error", "No result returned from method");
-                    }
-                } else {
-                    result.put("success", false);
-                    result.put("error", "Method execution returned no results");
-                }
-            } else {
-                result.put("success", false);
-                result.put("error", "Custom method 'generateUserLoginTicket' not found. Please contact Documentum Administrator to create this method.");
-            }
+            result = impersonationTicketService.getLoginTicket(targetUser);
 
+        } catch (DctmUnavailableException | DctmSessionExpiredException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error generating login ticket via custom method: {}", e.getMessage(), e);
             result.put("success", false);
 
-            if (e.getMessage() != null && e.getMessage().contains("NOT_FOUND")) {
+            if ((e instanceof DctmException && ((DctmException) e).isNotFound())
+                    || (e.getMessage() != null && e.getMessage().contains("NOT_FOUND"))) {
                 result.put("error", "Custom method 'generateUserLoginTicket' not found in Documentum. Please contact administrator.");
             } else {
                 result.put("error", "Failed to generate login ticket: " + e.getMessage());
@@ -146,72 +119,69 @@ public class AuthController {
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * Discard the cached login ticket of a user so the next request generates a fresh one
+     */
+    @DeleteMapping("/login-ticket/{username}")
+    public ResponseEntity<Map<String, Object>> invalidateLoginTicket(@PathVariable String username) {
+        impersonationTicketService.invalidate(username);
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("username", username);
+        return ResponseEntity.ok(result);
+    }
+
     /**
      * Get current authenticated user info
      */
     @GetMapping("/current-user")
     public ResponseEntity<Map<String, Object>> getCurrentUser() {
         Map<String, Object> result = new HashMap<>();
-        result.put("username", dctmConfig.getUsername());
-        result.put("repository", dctmConfig.getRepository());
+        DctmSession session = SessionContext.current();
+        if (session != null) {
+            result.put("username", session.getUsername());
+            result.put("repository", session.getRepository());
+            result.put("sessionExpiresAt", session.getExpiresAt().toString());
+        } else {
+            DctmRepository repository = repositories.current();
+            result.put("username", repository.config().getUsername());
+            result.put("repository", repository.name());
+        }
         result.put("serviceAccountConfigured", dctmAuthService.isServiceAccountConfigured());
         return ResponseEntity.ok(result);
     }
 
     /**
-     * Get list of all users for dropdown selection
+     * Repositories the backend can route to; any API request selects one with the
+     * "repository" parameter, otherwise the default (or the session's) is used
+     */
+    @GetMapping("/repositories")
+    public ResponseEntity<Map<String, Object>> getRepositories() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("repositories", repositories.names());
+        result.put("default", repositories.defaultRepository().name());
+        result.put("current", repositories.current().name());
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * Get list of active users for dropdown selection
      * Support team can select which user to impersonate
+     * Served from the in-memory directory snapshot, optionally filtered and paged
      */
     @GetMapping("/users")
-    public ResponseEntity<Map<String, Object>> getUsers() {
+    public ResponseEntity<Map<String, Object>> getUsers(
+            @RequestParam(required = false) String query,
+            @RequestParam(defaultValue = "1") int page,
+            @RequestParam(required = false) Integer size) {
         Map<String, Object> result = new HashMap<>();
 
         try {
-            // Query dm_user for all active users
-            String dql = "SELECT user_name, user_address, user_privileges " +
-                        "FROM dm_user " +
-                        "WHERE user_state = 0 " + // 0 = active
-                        "ORDER BY user_name " +
-                        "ENABLE(RETURN_TOP 1000)";
-
-            String baseUrl = dctmConfig.getUrl() + "/repositories/" + dctmConfig.getRepository();
-
-            @SuppressWarnings("unchecked")
-            Map<String, Object> response = restClient.get()
-                    .uri(baseUrl + "?dql={dql}&inline=true", dql)
-                    .header("Authorization", dctmAuthService.getUserAuthHeader())
-                    .header("Accept", "application/vnd.emc.documentum+json")
-                    .retrieve()
-                    .body(Map.class);
-
-            java.util.List<Map<String, Object>> users = new java.util.ArrayList<>();
-
-            if (response != null && response.containsKey("entries")) {
-                @SuppressWarnings("unchecked")
-                java.util.List<Map<String, Object>> entries =
-                    (java.util.List<Map<String, Object>>) response.get("entries");
-
-                for (Map<String, Object> entry : entries) {
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> content = (Map<String, Object>) entry.get("content");
-
-                    if (content != null && content.containsKey("properties")) {
-                        @SuppressWarnings("unchecked")
-                        Map<String, Object> props = (Map<String, Object>) content.get("properties");
-
-                        Map<String, Object> user = new HashMap<>();
-                        user.put("username", props.get("user_name"));
-                        user.put("email", props.get("user_address"));
-                        user.put("isSuperuser", (Integer)props.get("user_privileges") == 16);
-                        users.add(user);
-                    }
-                }
-            }
-
+            result.putAll(userDirectoryService.searchUsers(query, page, size));
             result.put("success", true);
-            result.put("users", users);
-            result.put("count", users.size());
 
+        } catch (DctmUnavailableException | DctmSessionExpiredException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error fetching users: {}", e.getMessage());
             result.put("success", false);
@@ -1,13 +1,20 @@
 package com.example.backend.controller;
 
+import com.example.backend.service.QueryRejectedException;
 import com.example.backend.service.QueryService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/query")
-@CrossOrigin(origins = { "http://localhost:5173", "http://localhost:5174" })
+@CrossOrigin(origins = { "http://localhost:5173", "http://localhost:5174" }, exposedHeaders = HttpHeaders.RETRY_AFTER)
 public class QueryController {
 
     private final QueryService queryService;
@@ -17,12 +24,28 @@ public class QueryController {
     }
 
     /**
-     * Execute a DQL query with optional limit
+     * Execute a DQL query with optional limit.
+     * Answers 429 with Retry-After when the user's query rate or the shared query capacity is exhausted.
+     * Console calls refused by dctm-rest's circuit breaker or bulkhead become 503 with Retry-After
+     * through {@link com.example.backend.config.DctmUnavailableAdvice}.
      */
     @PostMapping("/execute")
-    public Map<String, Object> executeQuery(@RequestBody Map<String, Object> request) {
+    public ResponseEntity<Map<String, Object>> executeQuery(@RequestBody Map<String, Object> request) {
         String dql = (String) request.get("dql");
         Integer limit = request.get("limit") != null ? ((Number) request.get("limit")).intValue() : 10000;
-        return queryService.executeQuery(dql, limit);
+        try {
+            return ResponseEntity.ok(queryService.executeQuery(dql, limit));
+        } catch (QueryRejectedException e) {
+            long retryAfterSeconds = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(e.getRetryAfterMillis() + 999));
+            Map<String, Object> result = new HashMap<>();
+            result.put("rows", new ArrayList<>());
+            result.put("columns", new ArrayList<>());
+            result.put("error", e.getMessage());
+            result.put("reason", e.getReason());
+            result.put("retryAfterSeconds", retryAfterSeconds);
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                    .body(result);
+        }
     }
 }
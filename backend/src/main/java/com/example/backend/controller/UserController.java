@@ -1,8 +1,10 @@
 package com.example.backend.controller;
 
+import com.example.backend.service.UserImportService;
 import com.example.backend.service.UserService;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
 import java.util.Map;
 
 @RestController
@@ -11,9 +13,11 @@ import java.util.Map;
 public class UserController {
 
     private final UserService userService;
+    private final UserImportService userImportService;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, UserImportService userImportService) {
         this.userService = userService;
+        this.userImportService = userImportService;
     }
 
     /**
@@ -36,4 +40,15 @@ public class UserController {
             @RequestBody Map<String, Object> properties) {
         return userService.updateUserProfile(objectId, properties);
     }
+
+    /**
+     * Bulk import user profile changes from a CSV file or JSON array.
+     * Each row needs r_object_id plus the properties to change; returns a per-row report.
+     */
+    @PostMapping("/profiles/import")
+    public Map<String, Object> importUserProfiles(
+            @RequestHeader(value = "Content-Type", defaultValue = "application/json") String contentType,
+            InputStream body) {
+        return userImportService.importProfiles(body, contentType);
+    }
 }
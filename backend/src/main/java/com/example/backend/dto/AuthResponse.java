@@ -10,6 +10,7 @@ public class AuthResponse {
     private String repository;
     private Map<String, Object> userDetails;
     private String message;
+    private String sessionToken;
 
     public static AuthResponse success(String username, String repository, Map<String, Object> userDetails) {
         AuthResponse response = new AuthResponse();
@@ -0,0 +1,150 @@
+package com.example.backend.gateway;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Count-based circuit breaker.
+ * Outcomes of the last {@code windowSize} calls are kept; once at least {@code minimumCalls}
+ * were seen and the failure rate reaches the threshold, the breaker opens and calls are refused
+ * for {@code openMillis}. After that a single probe call is let through (half-open): its success
+ * closes the breaker, its failure opens it again.
+ */
+final class CircuitBreaker {
+
+    enum State {
+        CLOSED,
+        HALF_OPEN,
+        OPEN
+    }
+
+    private final int failureRateThreshold;
+    private final int minimumCalls;
+    private final long openMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final boolean[] outcomes;
+    private int next;
+    private int calls;
+    private int failures;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean probing;
+
+    CircuitBreaker(int windowSize, int minimumCalls, int failureRateThreshold, long openMillis) {
+        this.outcomes = new boolean[Math.max(windowSize, 1)];
+        this.minimumCalls = Math.max(minimumCalls, 1);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Whether a call may be made now; a permitted call must report its outcome
+     */
+    boolean tryAcquire() {
+        lock.lock();
+        try {
+            if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+                state = State.HALF_OPEN;
+                probing = false;
+            }
+            if (state == State.HALF_OPEN) {
+                if (probing) {
+                    return false;
+                }
+                probing = true;
+                return true;
+            }
+            return state == State.CLOSED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void onSuccess() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) {
+                reset(State.CLOSED);
+            } else {
+                record(false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void onFailure() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) {
+                open();
+                return;
+            }
+            record(true);
+            if (state == State.CLOSED && calls >= minimumCalls && failures * 100 >= failureRateThreshold * calls) {
+                open();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Give back a permitted call that was never made
+     */
+    void cancel() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) {
+                probing = false;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    State getState() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Milliseconds until an open breaker lets a probe call through, 0 when not open
+     */
+    long retryAfterMillis() {
+        lock.lock();
+        try {
+            return state == State.OPEN ? Math.max(openMillis - (System.currentTimeMillis() - openedAt), 0) : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void record(boolean failure) {
+        if (calls == outcomes.length) {
+            failures -= outcomes[next] ? 1 : 0;
+        } else {
+            calls++;
+        }
+        outcomes[next] = failure;
+        failures += failure ? 1 : 0;
+        next = (next + 1) % outcomes.length;
+    }
+
+    private void open() {
+        reset(State.OPEN);
+        openedAt = System.currentTimeMillis();
+    }
+
+    private void reset(State newState) {
+        state = newState;
+        probing = false;
+        next = 0;
+        calls = 0;
+        failures = 0;
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.backend.gateway;
+
+import com.example.backend.cluster.ClusterNode;
+import com.example.backend.cluster.ClusterRegion;
+import com.example.backend.config.AppConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestClient;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Revalidating cache for DCTM REST resources that rarely change (groups, objects).
+ * Responses are stored together with their validators and every read is sent upstream
+ * as a conditional GET, so a "304 Not Modified" costs no payload transfer.
+ * Since every read is still revalidated with the caller's credentials, a cached body is
+ * never served without the repository confirming it is current, except through
+ * {@link #stale(String, String)} as a degraded answer while the repository is unavailable.
+ * A stale copy is only handed to a principal the repository has served or confirmed it to, as
+ * a copy read with one user's ticket may hold objects another user is not allowed to see.
+ * Each repository has its own cache, so one docbase's traffic cannot evict another's entries.
+ * With clustering enabled a miss first copies a peer's entry, so the read goes out conditional
+ * and usually costs a 304, and invalidations after writes reach every node.
+ */
+@Slf4j
+public class ConditionalResponseCache {
+
+    private final boolean enabled;
+    // Guards the access-ordered map; a lock rather than a monitor so virtual threads never pin on it
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Stored> entries;
+    private final ClusterRegion cluster;
+
+    ConditionalResponseCache(AppConfig.CacheConfig config, ClusterNode clusterNode, String repository) {
+        int maxEntries = config.getMaxEntries();
+        this.enabled = config.isEnabled();
+        // Access-ordered map gives us LRU eviction once maxEntries is reached
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Stored> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.cluster = clusterNode.region("responses", repository, new ClusterRegion.Local() {
+            @Override
+            public Object lookup(String url) {
+                Stored stored = stored(url);
+                return stored != null ? stored.entry() : null;
+            }
+
+            @Override
+            public void evict(String url) {
+                remove(url);
+            }
+
+            @Override
+            public void evictAll() {
+                clear();
+            }
+        });
+    }
+
+    /**
+     * Fetch a resource, revalidating any cached copy with If-None-Match / If-Modified-Since.
+     *
+     * @param principal the account the Authorization header belongs to, see {@link #revalidate(String, String)}
+     * @param parser    turns a fresh response body into the resource map
+     */
+    public Map<String, Object> get(RestClient restClient, String url, String authHeader, String principal,
+                                   Function<byte[], Map<String, Object>> parser) {
+        Revalidation revalidation = revalidate(url, principal);
+
+        ResponseEntity<byte[]> response = restClient.get()
+                .uri(url)
+                .header("Authorization", authHeader)
+                .headers(headers -> revalidation.headers().forEach(headers::set))
+                .retrieve()
+                .toEntity(byte[].class);
+
+        return revalidation.complete(response.getStatusCode().value(), response.getHeaders().getETag(),
+                response.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED), response.getBody(), parser);
+    }
+
+    /**
+     * Start a conditional read of a resource. The cached copy the validators are taken from is
+     * held until the response arrives, so a 304 is answered with that copy even if the entry was
+     * evicted or invalidated in the meantime. Lets clients other than RestClient issue conditional reads.
+     *
+     * @param principal the account the read is sent as (not its credentials, which rotate); the
+     *                  copy becomes available to it through {@link #stale(String, String)}
+     */
+    public Revalidation revalidate(String url, String principal) {
+        return new Revalidation(url, principal, enabled ? entryOrPeerCopy(url) : null);
+    }
+
+    /**
+     * A conditional read in flight: the request headers to send and the resolution of its response
+     */
+    public final class Revalidation {
+
+        private final String url;
+        private final String principal;
+        private final Entry cached;
+
+        private Revalidation(String url, String principal, Entry cached) {
+            this.url = url;
+            this.principal = principal;
+            this.cached = cached;
+        }
+
+        /**
+         * If-None-Match / If-Modified-Since headers for the cached copy, empty if none is cached
+         */
+        public Map<String, String> headers() {
+            Map<String, String> headers = new LinkedHashMap<>();
+            if (cached != null && cached.etag() != null) {
+                headers.put(HttpHeaders.IF_NONE_MATCH, cached.etag());
+            }
+            if (cached != null && cached.lastModified() != null) {
+                headers.put(HttpHeaders.IF_MODIFIED_SINCE, cached.lastModified());
+            }
+            return headers;
+        }
+
+        /**
+         * Resolve the response: the cached copy on 304 Not Modified, otherwise the parsed body,
+         * which is cached with its validators. Either way the result is read-only, as it is
+         * shared with later reads.
+         *
+         * @param parser turns a fresh response body into the resource map
+         */
+        public Map<String, Object> complete(int status, String etag, String lastModified, byte[] responseBody,
+                                            Function<byte[], Map<String, Object>> parser) {
+            if (status == HttpStatus.NOT_MODIFIED.value()) {
+                if (cached == null) {
+                    // Only a request carrying our validators can be answered with 304
+                    throw new IllegalStateException("304 Not Modified for an unconditional read of " + url);
+                }
+                log.debug("Resource not modified (version {}), serving cached copy: {}", cached.version(), url);
+                lock.lock();
+                try {
+                    Stored stored = entries.get(url);
+                    if (stored != null && stored.entry() == cached) {
+                        stored.readers().add(principal);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                return cached.body();
+            }
+
+            Map<String, Object> body = parser.apply(responseBody);
+            if (body == null) {
+                return null;
+            }
+            body = Collections.unmodifiableMap(body);
+
+            if (enabled && (etag != null || lastModified != null)) {
+                Stored stored = new Stored(new Entry(etag, lastModified, versionOf(body), body));
+                stored.readers().add(principal);
+                lock.lock();
+                try {
+                    entries.put(url, stored);
+                } finally {
+                    lock.unlock();
+                }
+            } else {
+                remove(url);
+            }
+            return body;
+        }
+    }
+
+    /**
+     * Last known copy of a resource without revalidating it, or null if none is cached that the
+     * repository served or confirmed to this principal
+     */
+    public Map<String, Object> stale(String url, String principal) {
+        Stored stored = enabled ? stored(url) : null;
+        return stored != null && stored.readers().contains(principal) ? stored.entry().body() : null;
+    }
+
+    /**
+     * Drop a cached resource, e.g. after it has been modified through this backend
+     */
+    public void invalidate(String url) {
+        if (remove(url) != null) {
+            log.debug("Invalidated cached resource: {}", url);
+        }
+        cluster.invalidate(url);
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Stored stored(String url) {
+        lock.lock();
+        try {
+            return entries.get(url);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The cached entry, else a copy of a peer's entry, which is only served once the repository
+     * confirms it with a 304 to this caller
+     */
+    private Entry entryOrPeerCopy(String url) {
+        Stored cached = stored(url);
+        if (cached != null) {
+            return cached.entry();
+        }
+        Entry copy = cluster.fetch(url, Entry.class);
+        if (copy == null || copy.body() == null || (copy.etag() == null && copy.lastModified() == null)) {
+            return null;
+        }
+        Entry entry = new Entry(copy.etag(), copy.lastModified(), copy.version(), Collections.unmodifiableMap(copy.body()));
+        lock.lock();
+        try {
+            Stored stored = entries.putIfAbsent(url, new Stored(entry));
+            return stored != null ? stored.entry() : entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Stored remove(String url) {
+        lock.lock();
+        try {
+            return entries.remove(url);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Repository-side version of an object (r_modify_date / i_vstamp), kept for diagnostics
+     */
+    @SuppressWarnings("unchecked")
+    private String versionOf(Map<String, Object> body) {
+        Object props = body.get("properties");
+        if (!(props instanceof Map)) {
+            return null;
+        }
+        Map<String, Object> properties = (Map<String, Object>) props;
+        return properties.get("r_modify_date") + "/" + properties.get("i_vstamp");
+    }
+
+    /**
+     * What peers copy: the body with its validators, but not who may see it
+     */
+    private record Entry(String etag, String lastModified, String version, Map<String, Object> body) {
+    }
+
+    /**
+     * A cached entry with the principals it was served or confirmed to, which alone get it as a stale copy
+     */
+    private record Stored(Entry entry, Set<String> readers) {
+
+        Stored(Entry entry) {
+            this(entry, ConcurrentHashMap.newKeySet());
+        }
+    }
+}
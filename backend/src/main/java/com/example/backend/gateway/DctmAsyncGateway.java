@@ -0,0 +1,269 @@
+package com.example.backend.gateway;
+
+import com.example.backend.config.RestClientConfig;
+import com.example.backend.service.DctmAuthService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Non-blocking counterpart of {@link DctmGateway} for fan-out reads, built on the JDK HttpClient.
+ * Requests are sent without holding a thread while dctm-rest works on them, so a caller can
+ * start several reads and wait once for all of them.
+ * <p>
+ * Calls go through the same {@link GatewayCalls} bookkeeping (operation guard, metrics, request
+ * profile, tracing) and fail with the same {@link DctmException}s as the blocking gateway; object
+ * and group reads are conditional against the repository's {@link ConditionalResponseCache}.
+ * Each repository has its own HttpClient and with it its own connection pool. Reads are not
+ * coalesced or hedged: fan-out callers already issue distinct reads concurrently.
+ */
+@Component
+public class DctmAsyncGateway {
+
+    private final DctmGateway dctmGateway;
+    private final ObjectProvider<DctmAuthService> dctmAuthService;
+    private final GatewayCalls calls;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService executor;
+    private final Map<String, HttpClient> httpClients = new HashMap<>();
+
+    public DctmAsyncGateway(DctmRepositories repositories, DctmGateway dctmGateway,
+                            ObjectProvider<DctmAuthService> dctmAuthService, GatewayCalls calls,
+                            ObjectMapper objectMapper, DctmThreads dctmThreads) {
+        this.dctmGateway = dctmGateway;
+        this.dctmAuthService = dctmAuthService;
+        this.calls = calls;
+        this.objectMapper = objectMapper;
+        // Runs response handling (parsing, bookkeeping); the HTTP exchange itself holds no thread
+        this.executor = Executors.newCachedThreadPool(dctmThreads.factory("dctm-async-"));
+        for (DctmRepository repository : repositories.all()) {
+            httpClients.put(repository.name(), HttpClient.newBuilder()
+                    .connectTimeout(repository.config().getConnectTimeout())
+                    .sslContext(RestClientConfig.trustAllSslContext())
+                    .executor(executor)
+                    .build());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Wait for a read started by this gateway, rethrowing its {@link DctmException} as is
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for dctm-rest", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // ---- DQL ----
+
+    /**
+     * Fetch one page of a DQL query
+     */
+    public CompletableFuture<Map<String, Object>> query(String dql, int itemsPerPage, int page) {
+        return page(DctmOperation.DQL_PAGE, dql, itemsPerPage, page);
+    }
+
+    /**
+     * Fetch one page of an ad-hoc query from the query console
+     */
+    public CompletableFuture<Map<String, Object>> consoleQuery(String dql, int itemsPerPage, int page) {
+        return page(DctmOperation.CONSOLE_PAGE, dql, itemsPerPage, page);
+    }
+
+    private CompletableFuture<Map<String, Object>> page(DctmOperation operation, String dql, int itemsPerPage,
+                                                        int page) {
+        DctmRepository repository = dctmGateway.repository();
+        String url = repository.url()
+                + "?dql=" + URLEncoder.encode(dql, StandardCharsets.UTF_8)
+                + "&items-per-page=" + itemsPerPage + "&page=" + page + "&inline=true";
+        return send(operation, repository, dql, page, HttpRequest.newBuilder(URI.create(url)).GET(),
+                dctmGateway.authHeader(DctmGateway.Auth.USER), (call, response) -> calls.parse(call, response.body()));
+    }
+
+    // ---- Objects and groups ----
+
+    /**
+     * Fetch an object, revalidating a cached copy with a conditional request
+     */
+    public CompletableFuture<Map<String, Object>> getObject(String objectId) {
+        DctmRepository repository = dctmGateway.repository();
+        return conditionalGet(DctmOperation.OBJECT_GET, repository, objectId, repository.objectUrl(objectId));
+    }
+
+    /**
+     * Fetch a group, revalidating a cached copy with a conditional request
+     */
+    public CompletableFuture<Map<String, Object>> getGroup(String groupName) {
+        DctmRepository repository = dctmGateway.repository();
+        return conditionalGet(DctmOperation.GROUP_GET, repository, groupName, repository.groupUrl(groupName));
+    }
+
+    /**
+     * Add a user or group to a group by posting an href reference to the member
+     *
+     * @param memberType "user" or "group"
+     */
+    public CompletableFuture<Void> addGroupMember(String groupName, String memberType, String memberName) {
+        DctmRepository repository = dctmGateway.repository();
+        String collection = "user".equalsIgnoreCase(memberType) ? "users" : "groups";
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("href", repository.url() + "/" + collection + "/" + memberName);
+
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(repository.groupUrl(groupName) + "/" + collection))
+                .header(HttpHeaders.CONTENT_TYPE, DctmGateway.DCTM_JSON)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+        return send(DctmOperation.MEMBERSHIP_ADD, repository, groupName, 0, request,
+                dctmGateway.authHeader(DctmGateway.Auth.USER), (call, response) -> null)
+                .thenRun(() -> repository.cache().invalidate(repository.groupUrl(groupName)));
+    }
+
+    /**
+     * Remove a user or group from a group
+     *
+     * @param memberType "user" or "group"
+     */
+    public CompletableFuture<Void> removeGroupMember(String groupName, String memberType, String memberName) {
+        DctmRepository repository = dctmGateway.repository();
+        String collection = "user".equalsIgnoreCase(memberType) ? "users" : "groups";
+        HttpRequest.Builder request = HttpRequest.newBuilder(
+                URI.create(repository.groupUrl(groupName) + "/" + collection + "/" + memberName)).DELETE();
+        return send(DctmOperation.MEMBERSHIP_REMOVE, repository, groupName, 0, request,
+                dctmGateway.authHeader(DctmGateway.Auth.USER), (call, response) -> null)
+                .thenRun(() -> repository.cache().invalidate(repository.groupUrl(groupName)));
+    }
+
+    // ---- Authentication ----
+
+    /**
+     * Request a login ticket for the account identified by the given Authorization header
+     */
+    public CompletableFuture<Map<String, Object>> createLoginTicket(String repositoryName, String authHeader) {
+        DctmRepository repository = dctmGateway.repository(repositoryName);
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(repository.url() + "/login-tickets"))
+                .POST(HttpRequest.BodyPublishers.noBody());
+        return send(DctmOperation.LOGIN_TICKET, repository, null, 0, request, authHeader,
+                (call, response) -> calls.parse(call, response.body()));
+    }
+
+    private CompletableFuture<Map<String, Object>> conditionalGet(DctmOperation operation, DctmRepository repository,
+                                                                  String target, String url) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url)).GET();
+        ConditionalResponseCache.Revalidation revalidation = repository.cache().revalidate(url,
+                dctmGateway.userPrincipal());
+        revalidation.headers().forEach(request::header);
+        return send(operation, repository, target, 0, request,
+                dctmGateway.authHeader(DctmGateway.Auth.USER), (call, response) -> {
+                    Map<String, Object> body = revalidation.complete(response.statusCode(),
+                            response.headers().firstValue(HttpHeaders.ETAG).orElse(null),
+                            response.headers().firstValue(HttpHeaders.LAST_MODIFIED).orElse(null),
+                            response.body(), fresh -> calls.parse(call, fresh));
+                    call.notModified();
+                    return body;
+                });
+    }
+
+    /**
+     * Send a request under {@link GatewayCalls} bookkeeping. The call is started on the caller's
+     * thread, so it joins the caller's request profile and tracing span; error statuses and I/O
+     * failures complete the future with a {@link DctmException}. Cancelling the returned future
+     * only discards the response: the call still ends, releasing its guard permit, once it arrives.
+     */
+    private <T> CompletableFuture<T> send(DctmOperation operation, DctmRepository repository, String target, int page,
+                                          HttpRequest.Builder request, String authHeader,
+                                          ResponseHandler<T> handler) {
+        GatewayCalls.Call call;
+        try {
+            call = calls.begin(operation, repository, target, page);
+        } catch (DctmException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        request.timeout(repository.config().getReadTimeout())
+                .header(HttpHeaders.ACCEPT, DctmGateway.DCTM_JSON)
+                .header(HttpHeaders.AUTHORIZATION, authHeader);
+
+        HttpClient httpClient = httpClients.get(repository.name());
+        return httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray())
+                .thenCompose(response -> retryRejectedTicket(httpClient, response, request, authHeader))
+                .handle((response, error) -> {
+                    try {
+                        if (error != null) {
+                            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                    ? error.getCause() : error;
+                            if (cause instanceof DctmSessionExpiredException) {
+                                throw call.failed((DctmSessionExpiredException) cause);
+                            }
+                            String message = cause.getMessage() != null ? cause.getMessage() : cause.toString();
+                            throw call.failed(new DctmException(operation, 0, null,
+                                    "Repository not reachable: " + message, cause));
+                        }
+                        if (response.statusCode() >= 400) {
+                            throw call.failed(DctmException.from(operation, response.statusCode(), response.body()));
+                        }
+                        return handler.handle(call, response);
+                    } finally {
+                        call.end();
+                    }
+                })
+                .copy();
+    }
+
+    /**
+     * Retry once with fresh credentials when the repository rejects one of our login tickets,
+     * like the blocking client's ticket retry interceptor
+     */
+    private CompletableFuture<HttpResponse<byte[]>> retryRejectedTicket(HttpClient httpClient,
+                                                                        HttpResponse<byte[]> response,
+                                                                        HttpRequest.Builder request,
+                                                                        String authHeader) {
+        if (response.statusCode() != 401 || authHeader == null || !authHeader.startsWith("DmTicket ")) {
+            return CompletableFuture.completedFuture(response);
+        }
+        String retryHeader = dctmAuthService.getObject().onAuthRejected(authHeader);
+        if (retryHeader == null) {
+            return CompletableFuture.completedFuture(response);
+        }
+        return httpClient.sendAsync(request.copy().setHeader(HttpHeaders.AUTHORIZATION, retryHeader).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    @FunctionalInterface
+    private interface ResponseHandler<T> {
+        T handle(GatewayCalls.Call call, HttpResponse<byte[]> response);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.backend.gateway;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.util.Map;
+
+/**
+ * A dctm-rest call failed. Carries the operation, the HTTP status (0 when the repository
+ * could not be reached) and the error code and message reported by Documentum, if any.
+ */
+public class DctmException extends RuntimeException {
+
+    private static final ObjectMapper ERROR_READER = new ObjectMapper();
+
+    private final DctmOperation operation;
+    private final int status;
+    private final String errorCode;
+
+    public DctmException(DctmOperation operation, int status, String errorCode, String message, Throwable cause) {
+        super(message, cause);
+        this.operation = operation;
+        this.status = status;
+        this.errorCode = errorCode;
+    }
+
+    /**
+     * Map an error response, using the Documentum error body ({"status", "code", "message"}) when present
+     */
+    static DctmException from(DctmOperation operation, RestClientResponseException e) {
+        return from(operation, e.getStatusCode().value(), e.getStatusText(), e.getResponseBodyAsByteArray(), e);
+    }
+
+    /**
+     * Map an error response received by a client other than RestClient
+     */
+    static DctmException from(DctmOperation operation, int status, byte[] body) {
+        HttpStatus httpStatus = HttpStatus.resolve(status);
+        return from(operation, status, httpStatus != null ? httpStatus.getReasonPhrase() : "", body, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static DctmException from(DctmOperation operation, int status, String statusText, byte[] body,
+                                      Throwable cause) {
+        String errorCode = null;
+        String message = null;
+        try {
+            Map<String, Object> error = body != null && body.length > 0 ? ERROR_READER.readValue(body, Map.class) : null;
+            if (error != null) {
+                errorCode = error.get("code") != null ? error.get("code").toString() : null;
+                message = error.get("message") != null ? error.get("message").toString() : null;
+            }
+        } catch (Exception ignored) {
+            // Not a JSON error body, fall back to the status text
+        }
+
+        StringBuilder text = new StringBuilder().append(status).append(' ').append(statusText);
+        if (errorCode != null) {
+            text.append(" [").append(errorCode).append(']');
+        }
+        if (message != null) {
+            text.append(": ").append(message);
+        }
+        return new DctmException(operation, status, errorCode, text.toString(), cause);
+    }
+
+    public DctmOperation getOperation() {
+        return operation;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    public boolean isUnauthorized() {
+        return status == 401;
+    }
+
+    public boolean isForbidden() {
+        return status == 403;
+    }
+
+    public boolean isNotFound() {
+        return status == 404;
+    }
+
+    /**
+     * Whether the repository could not answer (unreachable, timed out, 5xx, or the call was refused)
+     */
+    public boolean isUnavailable() {
+        return status == 0 || status >= 500;
+    }
+}
@@ -0,0 +1,424 @@
+package com.example.backend.gateway;
+
+import com.example.backend.config.AppConfig;
+import com.example.backend.service.DctmAuthService;
+import com.example.backend.service.DctmSession;
+import com.example.backend.service.SessionContext;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.tracing.Tracer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Single entry point for all dctm-rest traffic.
+ * Routes every call to the current {@link DctmRepositories repository} and owns the URL templates, the Documentum media type headers, the choice between
+ * user and service credentials, the conditional response cache and error mapping to
+ * {@link DctmException}. Every call is metered, profiled and traced by {@link GatewayCalls} and runs
+ * under the bulkhead and circuit breaker of its {@link OperationClass}. Identical concurrent reads sent with
+ * the same credentials share one upstream call, and slow DQL and object reads can be hedged.
+ * Clients, bulkheads, breakers and cached responses are kept per repository.
+ */
+@Component
+@Slf4j
+public class DctmGateway {
+
+    public static final String DCTM_JSON = "application/vnd.emc.documentum+json";
+    private static final MediaType DCTM_JSON_TYPE = MediaType.valueOf(DCTM_JSON);
+
+    private static final String DQL = "?dql={dql}&inline=true";
+    private static final String DQL_FIRST_PAGE = "?dql={dql}&items-per-page={itemsPerPage}&inline=true";
+    private static final String DQL_PAGE = "?dql={dql}&items-per-page={itemsPerPage}&page={page}&inline=true";
+    private static final String COLLECTION_PAGE = "?items-per-page={itemsPerPage}&page={page}&inline=true";
+    private static final String FILTERED_COLLECTION_PAGE = COLLECTION_PAGE + "&filter={filter}";
+
+    /**
+     * Credentials a request is sent with
+     */
+    public enum Auth {
+        /** The logged-in session user, or the configured user */
+        USER,
+        /** The service account, for privileged operations */
+        SERVICE
+    }
+
+    private final DctmRepositories repositories;
+    private final ObjectProvider<DctmAuthService> dctmAuthService;
+    private final GatewayCalls calls;
+    private final boolean serveStale;
+    private final SingleFlight singleFlight;
+    private final boolean coalesceReads;
+    private final Hedger hedger;
+    private final MeterRegistry meterRegistry;
+
+    public DctmGateway(DctmRepositories repositories, ObjectProvider<DctmAuthService> dctmAuthService,
+                       GatewayCalls calls, AppConfig appConfig, MeterRegistry meterRegistry, DctmThreads dctmThreads) {
+        this.repositories = repositories;
+        this.dctmAuthService = dctmAuthService;
+        this.calls = calls;
+        this.serveStale = appConfig.getResilience().isServeStaleOnFailure();
+        this.singleFlight = new SingleFlight(meterRegistry);
+        this.coalesceReads = appConfig.getCache().isCoalesceReads();
+        this.meterRegistry = meterRegistry;
+        this.hedger = new Hedger(appConfig.getHedging(), meterRegistry, calls.tracer(), dctmThreads.factory("dctm-hedge-"),
+                EnumSet.of(DctmOperation.DQL_PAGE, DctmOperation.OBJECT_GET));
+
+        Gauge.builder("dctm.gateway.coalesced.keys", singleFlight, SingleFlight::size)
+                .description("Distinct reads in flight that other callers can join")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hedger.shutdown();
+    }
+
+    /**
+     * Repository the current call goes to
+     */
+    DctmRepository repository() {
+        return repositories.current();
+    }
+
+    DctmRepository repository(String name) {
+        return repositories.get(name);
+    }
+
+    String authHeader(Auth auth) {
+        return auth == Auth.SERVICE
+                ? dctmAuthService.getObject().getServiceAuthHeader()
+                : dctmAuthService.getObject().getUserAuthHeader();
+    }
+
+    /**
+     * Who {@link Auth#USER} calls run as: the session user, or "" for the configured user.
+     * Scopes cached copies to an account rather than to its tickets, which rotate.
+     */
+    String userPrincipal() {
+        DctmSession session = SessionContext.current();
+        return session != null ? session.getUsername() : "";
+    }
+
+    // ---- DQL ----
+
+    /**
+     * Fetch one page of a DQL query
+     */
+    public Map<String, Object> query(String dql, int itemsPerPage, int page) {
+        return page(DctmOperation.DQL_PAGE, dql, itemsPerPage, page);
+    }
+
+    /**
+     * Fetch one page of an ad-hoc query from the query console, under the console's own
+     * bulkhead and circuit breaker
+     */
+    public Map<String, Object> consoleQuery(String dql, int itemsPerPage, int page) {
+        return page(DctmOperation.CONSOLE_PAGE, dql, itemsPerPage, page);
+    }
+
+    private Map<String, Object> page(DctmOperation operation, String dql, int itemsPerPage, int page) {
+        DctmRepository repository = repositories.current();
+        String authHeader = authHeader(Auth.USER);
+        return read(operation, repository, authHeader, dql, itemsPerPage + "/" + page,
+                () -> hedger.execute(operation, () -> fetch(operation, repository, dql, page,
+                        () -> repository.restClient().get()
+                                .uri(repository.url() + DQL_PAGE, dql, itemsPerPage, page)
+                                .header(HttpHeaders.AUTHORIZATION, authHeader)
+                                .retrieve()
+                                .body(byte[].class))));
+    }
+
+    /**
+     * Fetch the first page of a DQL query
+     */
+    public Map<String, Object> query(String dql, int itemsPerPage) {
+        DctmRepository repository = repositories.current();
+        String authHeader = authHeader(Auth.USER);
+        return read(DctmOperation.DQL_PAGE, repository, authHeader, dql, itemsPerPage + "/first",
+                () -> hedger.execute(DctmOperation.DQL_PAGE, () -> fetch(DctmOperation.DQL_PAGE, repository, dql, 1,
+                        () -> repository.restClient().get()
+                                .uri(repository.url() + DQL_FIRST_PAGE, dql, itemsPerPage)
+                                .header(HttpHeaders.AUTHORIZATION, authHeader)
+                                .retrieve()
+                                .body(byte[].class))));
+    }
+
+    /**
+     * Run a DQL statement that changes the repository or executes a server method
+     * (UPDATE, EXECUTE ...) and return the result entries
+     */
+    public Map<String, Object> execute(String dql) {
+        DctmRepository repository = repositories.current();
+        return fetch(DctmOperation.DQL_EXECUTE, repository, dql, 0, () -> repository.restClient().get()
+                .uri(repository.url() + DQL, dql)
+                .header(HttpHeaders.AUTHORIZATION, authHeader(Auth.USER))
+                .retrieve()
+                .body(byte[].class));
+    }
+
+    // ---- Objects ----
+
+    /**
+     * Fetch an object, revalidating a cached copy with a conditional request.
+     * While the repository is unavailable the last cached copy is returned, if there is one.
+     */
+    public Map<String, Object> getObject(String objectId) {
+        DctmRepository repository = repositories.current();
+        String url = repository.objectUrl(objectId);
+        String authHeader = authHeader(Auth.USER);
+        String principal = userPrincipal();
+        return withStaleFallback(DctmOperation.OBJECT_GET, repository, url, principal,
+                () -> read(DctmOperation.OBJECT_GET, repository, authHeader, url, "",
+                        () -> hedger.execute(DctmOperation.OBJECT_GET,
+                                () -> call(DctmOperation.OBJECT_GET, repository, objectId, 0,
+                                        call -> revalidate(repository, url, authHeader, principal, call)))));
+    }
+
+    /**
+     * Update object properties (POST with PATCH override) and drop the cached copy
+     */
+    public Map<String, Object> updateObject(String objectId, Map<String, Object> properties) {
+        DctmRepository repository = repositories.current();
+        String url = repository.objectUrl(objectId);
+        Map<String, Object> body = new HashMap<>();
+        body.put("properties", properties);
+
+        Map<String, Object> updated = fetch(DctmOperation.OBJECT_UPDATE, repository, objectId, 0,
+                () -> repository.restClient().post()
+                        .uri(url)
+                        .header(HttpHeaders.AUTHORIZATION, authHeader(Auth.USER))
+                        .header("X-Method-Override", "PATCH")
+                        .contentType(DCTM_JSON_TYPE)
+                        .body(body)
+                        .retrieve()
+                        .body(byte[].class));
+        repository.cache().invalidate(url);
+        return updated;
+    }
+
+    // ---- Groups ----
+
+    /**
+     * Fetch a page of the groups collection
+     *
+     * @param filter dctm-rest filter expression, or null for all groups; sent encoded as a query parameter
+     */
+    public Map<String, Object> listGroups(String filter, int page, int itemsPerPage) {
+        return listCollection(DctmOperation.GROUP_LIST, "/groups", filter, page, itemsPerPage);
+    }
+
+    /**
+     * Fetch a group, revalidating a cached copy with a conditional request.
+     * While the repository is unavailable the last cached copy is returned, if there is one.
+     */
+    public Map<String, Object> getGroup(String groupName) {
+        DctmRepository repository = repositories.current();
+        String url = repository.groupUrl(groupName);
+        String authHeader = authHeader(Auth.USER);
+        String principal = userPrincipal();
+        return withStaleFallback(DctmOperation.GROUP_GET, repository, url, principal,
+                () -> read(DctmOperation.GROUP_GET, repository, authHeader, url, "",
+                        () -> call(DctmOperation.GROUP_GET, repository, groupName, 0,
+                                call -> revalidate(repository, url, authHeader, principal, call))));
+    }
+
+    /**
+     * Add a user or group to a group by posting an href reference to the member
+     *
+     * @param memberType "user" or "group"
+     */
+    public void addGroupMember(String groupName, String memberType, String memberName) {
+        DctmRepository repository = repositories.current();
+        String collection = "user".equalsIgnoreCase(memberType) ? "users" : "groups";
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("href", repository.url() + "/" + collection + "/" + memberName);
+
+        call(DctmOperation.MEMBERSHIP_ADD, repository, groupName, 0, call -> repository.restClient().post()
+                .uri(repository.groupUrl(groupName) + "/" + collection)
+                .header(HttpHeaders.AUTHORIZATION, authHeader(Auth.USER))
+                .contentType(DCTM_JSON_TYPE)
+                .body(payload)
+                .retrieve()
+                .toBodilessEntity());
+        repository.cache().invalidate(repository.groupUrl(groupName));
+    }
+
+    /**
+     * Remove a user or group from a group
+     *
+     * @param memberType "user" or "group"
+     */
+    public void removeGroupMember(String groupName, String memberType, String memberName) {
+        DctmRepository repository = repositories.current();
+        String collection = "user".equalsIgnoreCase(memberType) ? "users" : "groups";
+
+        call(DctmOperation.MEMBERSHIP_REMOVE, repository, groupName, 0, call -> repository.restClient().delete()
+                .uri(repository.groupUrl(groupName) + "/" + collection + "/" + memberName)
+                .header(HttpHeaders.AUTHORIZATION, authHeader(Auth.USER))
+                .retrieve()
+                .toBodilessEntity());
+        repository.cache().invalidate(repository.groupUrl(groupName));
+    }
+
+    // ---- Workflows ----
+
+    /**
+     * Fetch a page of the workflows collection
+     *
+     * @param filter dctm-rest filter expression, or null for all workflows; sent encoded as a query parameter
+     */
+    public Map<String, Object> listWorkflows(String filter, int page, int itemsPerPage) {
+        return listCollection(DctmOperation.WORKFLOW_LIST, "/workflows", filter, page, itemsPerPage);
+    }
+
+    private Map<String, Object> listCollection(DctmOperation operation, String collection, String filter, int page,
+                                               int itemsPerPage) {
+        DctmRepository repository = repositories.current();
+        String authHeader = authHeader(Auth.USER);
+        String target = filter != null ? filter : "";
+        // Template variables are encoded, so quotes, '%', '&' or braces in the filter reach dctm-rest intact
+        String template = repository.url() + collection + (filter != null ? FILTERED_COLLECTION_PAGE : COLLECTION_PAGE);
+        Object[] variables = filter != null
+                ? new Object[] { itemsPerPage, page, filter }
+                : new Object[] { itemsPerPage, page };
+        return read(operation, repository, authHeader, target, itemsPerPage + "/" + page,
+                () -> fetch(operation, repository, target, page, () -> repository.restClient().get()
+                        .uri(template, variables)
+                        .header(HttpHeaders.AUTHORIZATION, authHeader)
+                        .retrieve()
+                        .body(byte[].class)));
+    }
+
+    /**
+     * Trigger a workflow action (restart, activity retry ...) and drop the cached workflow object
+     *
+     * @param action path below the workflow resource, e.g. "restart"
+     */
+    public Map<String, Object> workflowAction(String workflowId, String action, Auth auth) {
+        DctmRepository repository = repositories.current();
+        Map<String, Object> response = fetch(DctmOperation.WORKFLOW_ACTION, repository, action, 0,
+                () -> repository.restClient().post()
+                        .uri(repository.url() + "/workflows/" + workflowId + "/" + action)
+                        .header(HttpHeaders.AUTHORIZATION, authHeader(auth))
+                        .retrieve()
+                        .body(byte[].class));
+        repository.cache().invalidate(repository.objectUrl(workflowId));
+        return response;
+    }
+
+    // ---- Authentication ----
+
+    /**
+     * Fetch the user the given credentials belong to, used to verify a login
+     *
+     * @throws IllegalArgumentException if the repository is not configured
+     */
+    public Map<String, Object> currentUser(String repositoryName, String authHeader) {
+        DctmRepository repository = repositories.get(repositoryName);
+        return fetch(DctmOperation.CURRENT_USER, repository, null, 0, () -> repository.restClient().get()
+                .uri(repository.url() + "/currentuser")
+                .header(HttpHeaders.AUTHORIZATION, authHeader)
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .retrieve()
+                .body(byte[].class));
+    }
+
+    /**
+     * Request a login ticket for the account identified by the given Authorization header
+     */
+    public Map<String, Object> createLoginTicket(String repositoryName, String authHeader) {
+        DctmRepository repository = repositories.get(repositoryName);
+        return fetch(DctmOperation.LOGIN_TICKET, repository, null, 0, () -> repository.restClient().post()
+                .uri(repository.url() + "/login-tickets")
+                .header(HttpHeaders.AUTHORIZATION, authHeader)
+                .retrieve()
+                .body(byte[].class));
+    }
+
+    /**
+     * Revalidate a cached resource; a response without a fresh body means 304 Not Modified
+     */
+    private Map<String, Object> revalidate(DctmRepository repository, String url, String authHeader,
+                                           String principal, GatewayCalls.Call call) {
+        Map<String, Object> body = repository.cache().get(repository.restClient(), url, authHeader, principal,
+                fresh -> calls.parse(call, fresh));
+        call.notModified();
+        return body;
+    }
+
+    /**
+     * Idempotent read, joining an identical read (same target and credentials) already in flight.
+     * DQL reads are reported per fingerprint, other reads per operation.
+     */
+    private Map<String, Object> read(DctmOperation operation, DctmRepository repository, String authHeader,
+                                     String target, String variant, Supplier<Map<String, Object>> request) {
+        if (!coalesceReads) {
+            return request.get();
+        }
+        String key = operation.getTag() + '\n' + repository.name() + '\n' + target + '\n' + variant + '\n' + authHeader;
+        String keyTag = operation.isDqlPage() ? DqlFingerprint.idOf(target) : operation.getTag();
+        return singleFlight.execute(operation, key, keyTag, request);
+    }
+
+    /**
+     * Degraded read: answer with the last cached copy when the repository is unavailable,
+     * provided it was read as the same principal
+     */
+    private Map<String, Object> withStaleFallback(DctmOperation operation, DctmRepository repository, String url,
+                                                  String principal, Supplier<Map<String, Object>> read) {
+        try {
+            return read.get();
+        } catch (DctmException e) {
+            Map<String, Object> stale = serveStale && e.isUnavailable()
+                    ? repository.cache().stale(url, principal) : null;
+            if (stale == null) {
+                throw e;
+            }
+            meterRegistry.counter("dctm.gateway.fallbacks", "operation", operation.getTag(),
+                    "repository", repository.name()).increment();
+            log.warn("Serving cached copy of {} while dctm-rest is unavailable: {}", url, e.getMessage());
+            return stale;
+        }
+    }
+
+    /**
+     * Run a call returning a JSON body, see {@link #call}
+     */
+    private Map<String, Object> fetch(DctmOperation operation, DctmRepository repository, String target, int page,
+                                      Supplier<byte[]> request) {
+        return call(operation, repository, target, page, call -> calls.parse(call, request.get()));
+    }
+
+    /**
+     * Run a call under {@link GatewayCalls} bookkeeping (permit, timer, profile, tracing span)
+     * and map failures to {@link DctmException}. Calls refused by the {@link OperationGuard} fail
+     * with {@link DctmUnavailableException} without reaching dctm-rest.
+     */
+    private <T> T call(DctmOperation operation, DctmRepository repository, String target, int page,
+                       Function<GatewayCalls.Call, T> request) {
+        GatewayCalls.Call call = calls.begin(operation, repository, target, page);
+        try (Tracer.SpanInScope ignored = call.inScope()) {
+            return request.apply(call);
+        } catch (RestClientResponseException e) {
+            throw call.failed(DctmException.from(operation, e));
+        } catch (DctmSessionExpiredException e) {
+            throw call.failed(e);
+        } catch (ResourceAccessException e) {
+            throw call.failed(new DctmException(operation, 0, null, "Repository not reachable: " + e.getMessage(), e));
+        } finally {
+            call.end();
+        }
+    }
+}
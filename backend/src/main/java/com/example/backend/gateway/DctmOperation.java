@@ -0,0 +1,61 @@
+package com.example.backend.gateway;
+
+/**
+ * Kinds of calls made to dctm-rest. Every request through {@link DctmGateway} is tagged with one,
+ * so timing, caching and retries can be applied per operation, and concurrency limits
+ * per {@link OperationClass}.
+ */
+public enum DctmOperation {
+
+    DQL_PAGE("dql.page", true, OperationClass.QUERY),
+    CONSOLE_PAGE("console.page", true, OperationClass.CONSOLE),
+    DQL_EXECUTE("dql.execute", false, OperationClass.QUERY),
+    OBJECT_GET("object.get", true, OperationClass.QUERY),
+    OBJECT_UPDATE("object.update", false, OperationClass.USER),
+    GROUP_LIST("group.list", true, OperationClass.GROUP),
+    GROUP_GET("group.get", true, OperationClass.GROUP),
+    MEMBERSHIP_ADD("membership.add", false, OperationClass.GROUP),
+    MEMBERSHIP_REMOVE("membership.remove", false, OperationClass.GROUP),
+    WORKFLOW_LIST("workflow.list", true, OperationClass.WORKFLOW),
+    WORKFLOW_ACTION("workflow.action", false, OperationClass.WORKFLOW),
+    LOGIN_TICKET("login.ticket", false, OperationClass.AUTH),
+    CURRENT_USER("current.user", true, OperationClass.AUTH);
+
+    private final String tag;
+    private final boolean idempotent;
+    private final OperationClass operationClass;
+
+    DctmOperation(String tag, boolean idempotent, OperationClass operationClass) {
+        this.tag = tag;
+        this.idempotent = idempotent;
+        this.operationClass = operationClass;
+    }
+
+    /**
+     * Name used in metric tags and log messages
+     */
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * Whether the call can safely be repeated (reads), as opposed to changes in the repository
+     */
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+
+    /**
+     * Whether the call reads a page of a DQL result, whether for a feature or the query console
+     */
+    public boolean isDqlPage() {
+        return this == DQL_PAGE || this == CONSOLE_PAGE;
+    }
+
+    /**
+     * Bulkhead and circuit breaker the call runs under
+     */
+    public OperationClass getOperationClass() {
+        return operationClass;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.backend.gateway;
+
+import com.example.backend.cluster.ClusterNode;
+import com.example.backend.config.AppConfig;
+import com.example.backend.config.DctmConfig;
+import com.example.backend.config.RestClientConfig;
+import com.example.backend.service.DctmSession;
+import com.example.backend.service.RepositoryContext;
+import com.example.backend.service.SessionContext;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The configured repositories and the routing of each call to one of them. A call goes to the
+ * repository of the logged-in session, else to the one the request asked for
+ * ({@link RepositoryContext}), else to the default repository.
+ */
+@Component
+public class DctmRepositories {
+
+    private final Map<String, DctmRepository> repositories = new LinkedHashMap<>();
+    private final DctmRepository defaultRepository;
+
+    public DctmRepositories(DctmConfig dctmConfig, AppConfig appConfig, MeterRegistry meterRegistry,
+                            RestClient.Builder restClientBuilder, ClusterNode clusterNode) {
+        for (DctmConfig.Repository config : dctmConfig.resolveRepositories()) {
+            RestClient restClient = restClientBuilder.clone()
+                    .requestFactory(RestClientConfig.requestFactory(config.getConnectTimeout(), config.getReadTimeout()))
+                    .defaultHeader(HttpHeaders.ACCEPT, DctmGateway.DCTM_JSON)
+                    .build();
+            OperationGuard guard = new OperationGuard(config.getName(), appConfig.getResilience(),
+                    config.getMaxConcurrent(), meterRegistry);
+            ConditionalResponseCache cache = new ConditionalResponseCache(appConfig.getCache(), clusterNode, config.getName());
+            if (repositories.putIfAbsent(config.getName(), new DctmRepository(config, restClient, guard, cache)) != null) {
+                throw new IllegalStateException("Repository '" + config.getName() + "' is configured twice");
+            }
+            Gauge.builder("dctm.gateway.cache.entries", cache, ConditionalResponseCache::size)
+                    .description("Cached group and object responses")
+                    .tag("repository", config.getName())
+                    .register(meterRegistry);
+        }
+        this.defaultRepository = repositories.get(dctmConfig.getRepository());
+        if (defaultRepository == null) {
+            throw new IllegalStateException("Default repository '" + dctmConfig.getRepository()
+                    + "' is not one of the configured repositories " + repositories.keySet());
+        }
+    }
+
+    /**
+     * Repository the current call goes to
+     */
+    public DctmRepository current() {
+        DctmSession session = SessionContext.current();
+        String name = session != null ? session.getRepository() : RepositoryContext.current();
+        return name != null ? get(name) : defaultRepository;
+    }
+
+    /**
+     * @throws IllegalArgumentException if no such repository is configured
+     */
+    public DctmRepository get(String name) {
+        DctmRepository repository = repositories.get(name);
+        if (repository == null) {
+            throw new IllegalArgumentException("Unknown repository '" + name + "'");
+        }
+        return repository;
+    }
+
+    public boolean contains(String name) {
+        return repositories.containsKey(name);
+    }
+
+    public DctmRepository defaultRepository() {
+        return defaultRepository;
+    }
+
+    public Collection<DctmRepository> all() {
+        return Collections.unmodifiableCollection(repositories.values());
+    }
+
+    public List<String> names() {
+        return new ArrayList<>(repositories.keySet());
+    }
+}
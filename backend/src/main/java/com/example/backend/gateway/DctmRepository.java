@@ -0,0 +1,71 @@
+package com.example.backend.gateway;
+
+import com.example.backend.config.DctmConfig;
+import org.springframework.web.client.RestClient;
+
+/**
+ * One repository (docbase) the gateway routes to, with everything that is kept apart per
+ * repository: its REST client and timeouts, the {@link OperationGuard} bulkheads and circuit
+ * breakers, and the {@link ConditionalResponseCache}.
+ */
+public final class DctmRepository {
+
+    private final DctmConfig.Repository config;
+    private final String url;
+    private final RestClient restClient;
+    private final OperationGuard guard;
+    private final ConditionalResponseCache cache;
+
+    DctmRepository(DctmConfig.Repository config, RestClient restClient, OperationGuard guard,
+                   ConditionalResponseCache cache) {
+        this.config = config;
+        this.url = config.getUrl() + "/repositories/" + config.getName();
+        this.restClient = restClient;
+        this.guard = guard;
+        this.cache = cache;
+    }
+
+    public String name() {
+        return config.getName();
+    }
+
+    /**
+     * Settings of this repository, with inherited values filled in
+     */
+    public DctmConfig.Repository config() {
+        return config;
+    }
+
+    /**
+     * URL of the repository resource; DQL is sent here
+     */
+    public String url() {
+        return url;
+    }
+
+    /**
+     * URL of an object resource, also the key it is cached under
+     */
+    public String objectUrl(String objectId) {
+        return url + "/objects/" + objectId;
+    }
+
+    /**
+     * URL of a group resource, also the key it is cached under
+     */
+    public String groupUrl(String groupName) {
+        return url + "/groups/" + groupName;
+    }
+
+    RestClient restClient() {
+        return restClient;
+    }
+
+    OperationGuard guard() {
+        return guard;
+    }
+
+    ConditionalResponseCache cache() {
+        return cache;
+    }
+}
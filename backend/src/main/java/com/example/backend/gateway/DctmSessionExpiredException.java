@@ -0,0 +1,13 @@
+package com.example.backend.gateway;
+
+/**
+ * The repository rejected the login ticket of a logged-in user's session. The session has been
+ * ended, as its ticket cannot be replaced without the user's password; reported as 401 so the
+ * frontend sends the user back to the login page.
+ */
+public class DctmSessionExpiredException extends DctmException {
+
+    public DctmSessionExpiredException(String message) {
+        super(null, 401, "SESSION_EXPIRED", message, null);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.backend.gateway;
+
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads for work that blocks on dctm-rest outside the request thread (fan-out, hedges,
+ * bulk imports, ticket renewal). With spring.threads.virtual.enabled on Java 21+ these are
+ * virtual threads, like the Tomcat request threads, so waiting on the repository no longer
+ * ties up a platform thread; otherwise they are named daemon platform threads.
+ * Executors built on these factories still bound their concurrency where the repository needs it.
+ */
+@Component
+public class DctmThreads {
+
+    private final boolean virtual;
+
+    public DctmThreads(Environment environment) {
+        this.virtual = Threading.VIRTUAL.isActive(environment);
+    }
+
+    /**
+     * Whether the application runs in virtual-thread mode
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Thread factory naming threads {@code prefix + n}
+     */
+    public ThreadFactory factory(String prefix) {
+        if (virtual) {
+            return new VirtualThreadTaskExecutor(prefix).getVirtualThreadFactory();
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.backend.gateway;
+
+/**
+ * A dctm-rest call was refused before it was sent, because its operation class has an open
+ * circuit breaker or no free bulkhead slot. Reported as 503 with the time to wait before retrying.
+ */
+public class DctmUnavailableException extends DctmException {
+
+    private final long retryAfterMillis;
+
+    public DctmUnavailableException(DctmOperation operation, String reason, String message, long retryAfterMillis) {
+        super(operation, 503, reason, message, null);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.backend.gateway;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Shape of a DQL statement with its literal values removed, so queries that differ only in
+ * the values they filter on (case number, object ID, dates ...) share one fingerprint.
+ */
+public final class DqlFingerprint {
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int MAX_LENGTH = 200;
+
+    private DqlFingerprint() {
+    }
+
+    /**
+     * Normalised statement: literals replaced by '?', IN lists collapsed, whitespace and case folded
+     */
+    public static String of(String dql) {
+        if (dql == null) {
+            return null;
+        }
+        String normalized = STRING_LITERAL.matcher(dql).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = IN_LIST.matcher(normalized).replaceAll("(?)");
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ").trim().toLowerCase(Locale.ROOT);
+        return normalized.length() > MAX_LENGTH ? normalized.substring(0, MAX_LENGTH) : normalized;
+    }
+
+    /**
+     * Short stable identifier of the fingerprint, for tags and keys
+     */
+    public static String idOf(String dql) {
+        String fingerprint = of(dql);
+        return fingerprint != null ? Integer.toHexString(fingerprint.hashCode()) : null;
+    }
+}
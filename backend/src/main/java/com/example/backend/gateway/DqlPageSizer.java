@@ -0,0 +1,161 @@
+package com.example.backend.gateway;
+
+import com.example.backend.config.AppConfig;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Items-per-page for DQL result pages, tuned per repository and {@link DqlFingerprint}.
+ * Every DQL page received reports its rows, bytes and latency; the next page size is the one
+ * that, at the smoothed bytes and milliseconds per row seen so far, fits both the page byte and
+ * the page latency budget (app.paging.*). Narrow, fast queries thus move to fewer, larger pages,
+ * wide or slow ones to smaller pages, so a large result needs fewer round trips without any
+ * single page growing past the byte budget. A page size limit enforced by dctm-rest (a page
+ * returning fewer rows than asked for while announcing a next page) is remembered per repository.
+ */
+@Component
+public class DqlPageSizer {
+
+    // Weight of the newest observation in the smoothed per-row figures
+    private static final double SMOOTHING = 0.3;
+    // Largest step up from the current estimate per observation, against one-off fast pages
+    private static final int MAX_GROWTH = 4;
+
+    private final AppConfig.PagingConfig config;
+    private final DctmRepositories repositories;
+    private final MeterRegistry meterRegistry;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Stats> stats;
+    private final Map<String, Integer> serverLimits = new HashMap<>();
+
+    public DqlPageSizer(AppConfig appConfig, DctmRepositories repositories, MeterRegistry meterRegistry) {
+        this.config = appConfig.getPaging();
+        this.repositories = repositories;
+        this.meterRegistry = meterRegistry;
+        int maxTracked = config.getMaxTrackedQueries();
+        this.stats = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, DqlPageSizer.Stats> eldest) {
+                return size() > maxTracked;
+            }
+        };
+        Gauge.builder("dctm.paging.tracked", this, DqlPageSizer::tracked)
+                .description("DQL fingerprints with page size statistics")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Items per page to fetch a query of the current repository with, at most {@code wanted}
+     * (the rows actually needed) and never below 1
+     */
+    public int pageSize(String dql, int wanted) {
+        if (!config.isAdaptive()) {
+            return Math.max(1, Math.min(config.getInitialPageSize(), wanted));
+        }
+        String repository = repositories.current().name();
+        int size;
+        lock.lock();
+        try {
+            Stats queryStats = stats.get(key(repository, dql));
+            size = queryStats != null ? queryStats.size : config.getInitialPageSize();
+            size = Math.min(size, serverLimits.getOrDefault(repository, Integer.MAX_VALUE));
+        } finally {
+            lock.unlock();
+        }
+        size = Math.max(1, Math.min(size, wanted));
+        DistributionSummary.builder("dctm.paging.page.size")
+                .description("Items per page DQL pages are requested with")
+                .tag("repository", repository)
+                .register(meterRegistry)
+                .record(size);
+        return size;
+    }
+
+    /**
+     * A DQL page arrived: {@code rows} entries in {@code bytes} after {@code nanos}
+     */
+    void observe(String repository, String dql, int rows, long bytes, long nanos) {
+        if (!config.isAdaptive() || rows <= 0 || dql == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            stats.computeIfAbsent(key(repository, dql), k -> new Stats(config.getInitialPageSize()))
+                    .observe(config, rows, (double) bytes / rows, nanos / 1e6 / rows);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Report a page of the current repository asked for with {@code requested} items that came
+     * back with {@code received} rows; a short page followed by more means dctm-rest caps the page size
+     */
+    public void checkServerLimit(int requested, int received, boolean hasNext) {
+        if (!hasNext || received <= 0 || received >= requested) {
+            return;
+        }
+        lock.lock();
+        try {
+            serverLimits.merge(repositories.current().name(), received, Math::min);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int tracked() {
+        lock.lock();
+        try {
+            return stats.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String key(String repository, String dql) {
+        return repository + '\n' + DqlFingerprint.of(dql);
+    }
+
+    private static final class Stats {
+
+        private double bytesPerRow = -1;
+        private double msPerRow = -1;
+        private int size;
+
+        private Stats(int size) {
+            this.size = size;
+        }
+
+        private void observe(AppConfig.PagingConfig config, int rows, double pageBytesPerRow, double pageMsPerRow) {
+            bytesPerRow = bytesPerRow < 0 ? pageBytesPerRow : bytesPerRow + SMOOTHING * (pageBytesPerRow - bytesPerRow);
+            // The fixed cost of a page dominates short pages (the last one, small limits), which
+            // would make rows look slow; their latency says little about a full page
+            if (msPerRow < 0 || rows * 2 >= size) {
+                msPerRow = msPerRow < 0 ? pageMsPerRow : msPerRow + SMOOTHING * (pageMsPerRow - msPerRow);
+            }
+
+            double byBytes = config.getPageByteBudget() / Math.max(bytesPerRow, 1);
+            // Per-row latency includes the fixed cost of a page, so the size settles where a
+            // page takes about the budget
+            double byLatency = config.getPageLatencyBudgetMs() / Math.max(msPerRow, 0.001);
+            long target = (long) Math.min(Math.min(byBytes, byLatency), (double) size * MAX_GROWTH);
+            size = (int) Math.max(config.getMinPageSize(), Math.min(round(target), config.getMaxPageSize()));
+        }
+
+        /**
+         * Round down to a multiple of 10 (50 from 100 on), so nearby estimates share a page size
+         * and identical reads keep coalescing
+         */
+        private static long round(long size) {
+            int step = size >= 100 ? 50 : 10;
+            return size >= step ? size / step * step : size;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.backend.gateway;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bookkeeping of dctm-rest calls, shared by the blocking {@link DctmGateway} and the
+ * non-blocking {@link DctmAsyncGateway}: the repository's {@link OperationGuard} permit, in-flight
+ * gauges, request timers (tagged by operation, outcome and repository), response byte and row counters,
+ * the request profile entry and the tracing span of each call. Received DQL pages also feed the
+ * {@link DqlPageSizer}.
+ */
+@Component
+class GatewayCalls {
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Tracer tracer;
+    private final DqlPageSizer pageSizer;
+
+    // Requests currently waiting for dctm-rest, per repository and operation
+    private final Map<String, Map<DctmOperation, AtomicInteger>> inFlight = new HashMap<>();
+
+    GatewayCalls(DctmRepositories repositories, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                 ObjectProvider<Tracer> tracer, DqlPageSizer pageSizer) {
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.tracer = tracer.getIfAvailable(() -> Tracer.NOOP);
+        this.pageSizer = pageSizer;
+
+        for (String repository : repositories.names()) {
+            Map<DctmOperation, AtomicInteger> active = new EnumMap<>(DctmOperation.class);
+            inFlight.put(repository, active);
+            for (DctmOperation operation : DctmOperation.values()) {
+                AtomicInteger count = new AtomicInteger();
+                active.put(operation, count);
+                Gauge.builder("dctm.gateway.requests.active", count, AtomicInteger::get)
+                        .description("dctm-rest requests in flight")
+                        .tag("operation", operation.getTag())
+                        .tag("repository", repository)
+                        .register(meterRegistry);
+            }
+        }
+    }
+
+    Tracer tracer() {
+        return tracer;
+    }
+
+    /**
+     * Start a call: take a permit from the {@link OperationGuard} (failing with
+     * {@link DctmUnavailableException} when refused), add it to the current request profile and
+     * start its tracing span as a child of the current one. DQL statements are tagged on the
+     * span by fingerprint, never with their literal values.
+     */
+    Call begin(DctmOperation operation, DctmRepository repository, String target, int page) {
+        OperationGuard.Permit permit = repository.guard().acquire(operation);
+        RequestProfile profile = RequestProfile.current();
+        RequestProfile.Call profileCall = profile != null ? profile.start(operation, target, page) : null;
+
+        Span span = tracer.nextSpan()
+                .name("dctm " + operation.getTag())
+                .tag("dctm.operation", operation.getTag())
+                .tag("dctm.repository", repository.name());
+        if (target != null) {
+            boolean dql = operation.isDqlPage() || operation == DctmOperation.DQL_EXECUTE;
+            span.tag(dql ? "dctm.dql.fingerprint" : "dctm.target", dql ? DqlFingerprint.of(target) : target);
+        }
+        if (page > 0) {
+            span.tag("dctm.page", page);
+        }
+        AtomicInteger active = inFlight.get(repository.name()).get(operation);
+        active.incrementAndGet();
+        return new Call(operation, repository.name(), target, active, permit, profileCall, span.start());
+    }
+
+    /**
+     * Parse a response body, counting the bytes received and the result rows (collection entries)
+     */
+    @SuppressWarnings("unchecked")
+    Map<String, Object> parse(Call call, byte[] body) {
+        if (call.profileCall != null) {
+            call.profileCall.received(200, body != null ? body.length : 0);
+        }
+        if (body == null || body.length == 0) {
+            return null;
+        }
+        meterRegistry.counter("dctm.gateway.response.bytes",
+                "operation", call.operation.getTag(), "repository", call.repository).increment(body.length);
+        call.span.tag("dctm.response.bytes", body.length);
+
+        Map<String, Object> response;
+        try {
+            response = objectMapper.readValue(body, Map.class);
+        } catch (IOException e) {
+            throw new DctmException(call.operation, 200, null, "Invalid response from repository: " + e.getMessage(), e);
+        }
+        if (response != null && response.get("entries") instanceof List) {
+            int rows = ((List<?>) response.get("entries")).size();
+            meterRegistry.counter("dctm.gateway.rows",
+                    "operation", call.operation.getTag(), "repository", call.repository).increment(rows);
+            call.span.tag("dctm.rows", rows);
+            if (call.operation.isDqlPage()) {
+                pageSizer.observe(call.repository, call.target, rows, body.length, System.nanoTime() - call.startNanos);
+            }
+        }
+        return response;
+    }
+
+    /**
+     * One dctm-rest call. Report a failure at most once, then end it exactly once.
+     */
+    final class Call {
+
+        private final DctmOperation operation;
+        private final String repository;
+        private final String target;
+        private final AtomicInteger active;
+        private final OperationGuard.Permit permit;
+        private final RequestProfile.Call profileCall;
+        private final Span span;
+        private final long startNanos = System.nanoTime();
+        private volatile String outcome = "success";
+        private volatile int status = 200;
+
+        private Call(DctmOperation operation, String repository, String target, AtomicInteger active,
+                     OperationGuard.Permit permit, RequestProfile.Call profileCall, Span span) {
+            this.operation = operation;
+            this.repository = repository;
+            this.target = target;
+            this.active = active;
+            this.permit = permit;
+            this.profileCall = profileCall;
+            this.span = span;
+        }
+
+        DctmOperation operation() {
+            return operation;
+        }
+
+        /**
+         * Make the call's span current on this thread, e.g. while the blocking client runs it
+         */
+        Tracer.SpanInScope inScope() {
+            return tracer.withSpan(span);
+        }
+
+        /**
+         * The repository confirmed a cached copy (304 Not Modified)
+         */
+        void notModified() {
+            if (profileCall != null) {
+                profileCall.received(304, 0);
+            }
+        }
+
+        /**
+         * Record a failed call; returns the exception for the caller to throw
+         */
+        DctmException failed(DctmException failure) {
+            int failedStatus = failure.getStatus();
+            outcome = failedStatus == 0 ? "io_error" : failedStatus < 500 ? "client_error" : "server_error";
+            status = failedStatus;
+            span.error(failure);
+            return failure;
+        }
+
+        void end() {
+            permit.release("io_error".equals(outcome) || "server_error".equals(outcome));
+            active.decrementAndGet();
+            Timer.builder("dctm.gateway.requests")
+                    .description("dctm-rest request duration")
+                    .tag("operation", operation.getTag())
+                    .tag("outcome", outcome)
+                    .tag("repository", repository)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            if (profileCall != null) {
+                profileCall.end(status);
+            }
+            span.tag("dctm.outcome", outcome).tag("http.status_code", status).end();
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.backend.gateway;
+
+import com.example.backend.config.AppConfig;
+import com.example.backend.service.RepositoryContext;
+import com.example.backend.service.SessionContext;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Hedged reads: when an idempotent read has not answered within the recently observed p95
+ * latency of its operation, a duplicate request is sent and whichever succeeds first is used.
+ * Hedges are limited to a percentage of reads (token budget) so a slow repository is never hit
+ * with double the load. The losing attempt runs to completion and its result is discarded.
+ */
+@Slf4j
+final class Hedger {
+
+    private static final int SAMPLES = 512;
+    private static final int RECOMPUTE_EVERY = 32;
+    // Budget is kept in thousandths of a hedge; at most this many hedges can be saved up
+    private static final long MAX_TOKENS = 10_000;
+
+    private final AppConfig.HedgingConfig config;
+    private final MeterRegistry meterRegistry;
+    private final Tracer tracer;
+    private final ThreadPoolExecutor executor;
+    private final Map<DctmOperation, LatencyWindow> latencies = new EnumMap<>(DctmOperation.class);
+    private final AtomicLong tokens = new AtomicLong(MAX_TOKENS);
+
+    /**
+     * @param operations reads that may be hedged; all must be idempotent
+     */
+    Hedger(AppConfig.HedgingConfig config, MeterRegistry meterRegistry, Tracer tracer, ThreadFactory threadFactory,
+           Set<DctmOperation> operations) {
+        this.config = config;
+        this.meterRegistry = meterRegistry;
+        this.tracer = tracer;
+        this.executor = new ThreadPoolExecutor(config.getMaxThreads(), config.getMaxThreads(),
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(config.getMaxThreads()), threadFactory);
+        this.executor.allowCoreThreadTimeOut(true);
+
+        for (DctmOperation operation : operations) {
+            if (!operation.isIdempotent()) {
+                throw new IllegalArgumentException("Cannot hedge " + operation.getTag() + ", it is not idempotent");
+            }
+            LatencyWindow window = new LatencyWindow();
+            latencies.put(operation, window);
+            Gauge.builder("dctm.gateway.hedge.threshold", window, LatencyWindow::thresholdMillis)
+                    .description("Delay after which a read is hedged (observed p95)")
+                    .baseUnit("milliseconds")
+                    .tag("operation", operation.getTag())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Run a read, hedging it when hedging is enabled and the read is slow. Hedge outcomes are
+     * counted as sent, won (the hedge answered first), lost, failed (both attempts) or skipped (no budget).
+     */
+    <T> T execute(DctmOperation operation, Supplier<T> attempt) {
+        LatencyWindow window = latencies.get(operation);
+        if (!config.isEnabled() || window == null) {
+            return attempt.get();
+        }
+        tokens.accumulateAndGet(config.getBudgetPercent() * 10L, (current, add) -> Math.min(current + add, MAX_TOKENS));
+
+        CompletableFuture<T> primary;
+        try {
+            primary = submit(window, attempt);
+        } catch (RejectedExecutionException e) {
+            return attempt.get();
+        }
+
+        try {
+            return primary.get(window.thresholdMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Slower than usual, hedge below
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for dctm-rest", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+
+        if (tokens.getAndUpdate(current -> current >= 1000 ? current - 1000 : current) < 1000) {
+            count(operation, "skipped");
+            return await(primary);
+        }
+        CompletableFuture<T> hedge;
+        try {
+            hedge = submit(window, attempt);
+        } catch (RejectedExecutionException e) {
+            count(operation, "skipped");
+            return await(primary);
+        }
+        count(operation, "sent");
+        log.debug("Hedging slow {} call after {} ms", operation.getTag(), window.thresholdMillis());
+
+        Winner<T> winner;
+        try {
+            winner = await(firstSuccess(primary, hedge));
+        } catch (RuntimeException e) {
+            count(operation, "failed");
+            throw e;
+        }
+        count(operation, winner.hedge() ? "won" : "lost");
+        return winner.result();
+    }
+
+    private <T> CompletableFuture<T> submit(LatencyWindow window, Supplier<T> attempt) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Span parent = tracer.currentSpan();
+        executor.execute(SessionContext.wrap(RepositoryContext.wrap(RequestProfile.wrap(() -> {
+            long start = System.nanoTime();
+            try (Tracer.SpanInScope ignored = tracer.withSpan(parent)) {
+                T result = attempt.get();
+                window.record(System.nanoTime() - start);
+                future.complete(result);
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }))));
+        return future;
+    }
+
+    /**
+     * First attempt that succeeds; fails only when both attempts failed (with the primary's error)
+     */
+    private static <T> CompletableFuture<Winner<T>> firstSuccess(CompletableFuture<T> primary,
+                                                                 CompletableFuture<T> hedge) {
+        CompletableFuture<Winner<T>> first = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        primary.whenComplete((result, error) -> {
+            if (error == null) {
+                first.complete(new Winner<>(result, false));
+            } else if (failures.incrementAndGet() == 2) {
+                first.completeExceptionally(error);
+            }
+        });
+        hedge.whenComplete((result, error) -> {
+            if (error == null) {
+                first.complete(new Winner<>(result, true));
+            } else if (failures.incrementAndGet() == 2) {
+                primary.whenComplete((ignored, primaryError) -> first.completeExceptionally(primaryError));
+            }
+        });
+        return first;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for dctm-rest", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static RuntimeException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    private void count(DctmOperation operation, String result) {
+        meterRegistry.counter("dctm.gateway.hedges", "operation", operation.getTag(), "result", result).increment();
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private record Winner<T>(T result, boolean hedge) {
+    }
+
+    /**
+     * Recent successful call durations of one operation and the hedge delay derived from them
+     */
+    private final class LatencyWindow {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final long[] samples = new long[SAMPLES];
+        private int next;
+        private int count;
+        private int sinceRecompute;
+        private volatile long thresholdMillis = config.getInitialDelayMs();
+
+        void record(long nanos) {
+            lock.lock();
+            try {
+                samples[next] = nanos;
+                next = (next + 1) % samples.length;
+                count = Math.min(count + 1, samples.length);
+                if (++sinceRecompute >= RECOMPUTE_EVERY && count >= config.getMinSamples()) {
+                    sinceRecompute = 0;
+                    long[] sorted = Arrays.copyOf(samples, count);
+                    Arrays.sort(sorted);
+                    long p95 = sorted[Math.min((int) Math.ceil(count * 0.95) - 1, count - 1)];
+                    thresholdMillis = Math.max(TimeUnit.NANOSECONDS.toMillis(p95), config.getMinDelayMs());
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long thresholdMillis() {
+            return thresholdMillis;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.backend.gateway;
+
+import java.util.Locale;
+
+/**
+ * Groups of {@link DctmOperation}s that share a bulkhead and a circuit breaker, so a slow or
+ * failing kind of call (e.g. heavy DQL) cannot take the other features down with it.
+ * Ad-hoc DQL from the query console is a class of its own, apart from the searches and object
+ * reads of the other features.
+ */
+public enum OperationClass {
+
+    QUERY,
+    CONSOLE,
+    WORKFLOW,
+    GROUP,
+    USER,
+    AUTH;
+
+    /**
+     * Name used in metric tags, configuration keys and log messages
+     */
+    public String getTag() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.backend.gateway;
+
+import com.example.backend.config.AppConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulkhead and circuit breaker per {@link OperationClass} of one repository.
+ * Each class may only hold a bounded number of request threads inside dctm-rest calls, so a
+ * slow class fails fast instead of tying up every Tomcat worker; and a class whose calls keep
+ * failing (unreachable repository, timeouts, 5xx) is refused outright until a probe succeeds.
+ * Client errors (4xx) are answers from a healthy repository and never open a breaker.
+ * Every repository has its own guard, so load on or an outage of one docbase leaves the
+ * others' slots and breakers alone.
+ */
+@Slf4j
+public class OperationGuard {
+
+    private final String repository;
+    private final AppConfig.ResilienceConfig config;
+    private final MeterRegistry meterRegistry;
+    private final Map<OperationClass, Semaphore> bulkheads = new EnumMap<>(OperationClass.class);
+    private final Map<OperationClass, CircuitBreaker> breakers = new EnumMap<>(OperationClass.class);
+
+    /**
+     * @param maxConcurrent slots per operation class overriding the resilience configuration
+     */
+    OperationGuard(String repository, AppConfig.ResilienceConfig config, Map<OperationClass, Integer> maxConcurrent,
+                   MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.config = config;
+        this.meterRegistry = meterRegistry;
+
+        for (OperationClass operationClass : OperationClass.values()) {
+            Semaphore bulkhead = new Semaphore(maxConcurrent.getOrDefault(operationClass,
+                    config.getMaxConcurrent().getOrDefault(operationClass, 10)));
+            CircuitBreaker breaker = new CircuitBreaker(config.getWindowSize(), config.getMinimumCalls(),
+                    config.getFailureRateThreshold(), config.getOpenDurationMs());
+            bulkheads.put(operationClass, bulkhead);
+            breakers.put(operationClass, breaker);
+
+            Gauge.builder("dctm.gateway.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                    .description("Free dctm-rest call slots")
+                    .tag("class", operationClass.getTag())
+                    .tag("repository", repository)
+                    .register(meterRegistry);
+            Gauge.builder("dctm.gateway.circuit.state", breaker, b -> b.getState().ordinal())
+                    .description("Circuit breaker state: 0 closed, 1 half-open, 2 open")
+                    .tag("class", operationClass.getTag())
+                    .tag("repository", repository)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Take a slot for a call, waiting briefly for one to free up.
+     *
+     * @throws DctmUnavailableException when the circuit is open or the bulkhead stays full
+     */
+    public Permit acquire(DctmOperation operation) {
+        OperationClass operationClass = operation.getOperationClass();
+        CircuitBreaker breaker = breakers.get(operationClass);
+        if (!breaker.tryAcquire()) {
+            throw reject(operation, "circuit_open", "circuit open, retry in "
+                    + TimeUnit.MILLISECONDS.toSeconds(breaker.retryAfterMillis() + 999) + "s",
+                    breaker.retryAfterMillis());
+        }
+
+        Semaphore bulkhead = bulkheads.get(operationClass);
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(config.getBulkheadWaitMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            // Nothing was called, so a half-open probe slot must not stay taken
+            breaker.cancel();
+            throw reject(operation, "bulkhead_full", "too many concurrent calls", config.getBulkheadWaitMs());
+        }
+        return new Permit(bulkhead, breaker);
+    }
+
+    private DctmUnavailableException reject(DctmOperation operation, String reason, String detail, long retryAfterMillis) {
+        meterRegistry.counter("dctm.gateway.rejected", "class", operation.getOperationClass().getTag(),
+                "reason", reason, "repository", repository).increment();
+        log.warn("Refused {} call to dctm-rest ({}): {}", operation.getTag(), repository, detail);
+        return new DctmUnavailableException(operation, reason,
+                "dctm-rest " + operation.getOperationClass().getTag() + " calls are unavailable (" + detail + ")",
+                retryAfterMillis);
+    }
+
+    /**
+     * A bulkhead slot held for one call. Report the outcome once, then release the slot.
+     */
+    public static final class Permit {
+
+        private final Semaphore bulkhead;
+        private final CircuitBreaker breaker;
+        private boolean released;
+
+        private Permit(Semaphore bulkhead, CircuitBreaker breaker) {
+            this.bulkhead = bulkhead;
+            this.breaker = breaker;
+        }
+
+        /**
+         * Release the slot; a failed call counts towards opening the breaker
+         */
+        public void release(boolean failed) {
+            if (released) {
+                return;
+            }
+            released = true;
+            bulkhead.release();
+            if (failed) {
+                breaker.onFailure();
+            } else {
+                breaker.onSuccess();
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.backend.gateway;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Opt-in profile of one API request: every dctm-rest call made while it is bound records its
+ * start and end offset, status and response size. Nothing is allocated unless a request asked
+ * for profiling, because the gateway only records when {@link #current()} is not null.
+ */
+public final class RequestProfile {
+
+    private static final ThreadLocal<RequestProfile> CURRENT = new ThreadLocal<>();
+    private static final int MAX_TARGET_LENGTH = 120;
+
+    private final long startNanos = System.nanoTime();
+    private final ConcurrentLinkedQueue<Call> calls = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Profile bound to the current thread, or null when the request is not profiled
+     */
+    public static RequestProfile current() {
+        return CURRENT.get();
+    }
+
+    public static void bind(RequestProfile profile) {
+        CURRENT.set(profile);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Wrap a task so calls it makes on another thread are recorded in the caller's profile
+     */
+    public static Runnable wrap(Runnable task) {
+        RequestProfile profile = CURRENT.get();
+        if (profile == null) {
+            return task;
+        }
+        return () -> {
+            RequestProfile previous = CURRENT.get();
+            CURRENT.set(profile);
+            try {
+                task.run();
+            } finally {
+                if (previous != null) {
+                    CURRENT.set(previous);
+                } else {
+                    CURRENT.remove();
+                }
+            }
+        };
+    }
+
+    Call start(DctmOperation operation, String target, int page) {
+        Call call = new Call(operation, target, page, System.nanoTime());
+        calls.add(call);
+        return call;
+    }
+
+    /**
+     * Milliseconds since the request started
+     */
+    public double elapsedMillis() {
+        return toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Compact waterfall of the recorded calls, in start order
+     */
+    public Map<String, Object> toWaterfall() {
+        List<Map<String, Object>> waterfall = new ArrayList<>();
+        double dctmMillis = 0;
+        for (Call call : calls) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("op", call.operation.getTag());
+            if (call.target != null) {
+                entry.put("target", call.target.length() > MAX_TARGET_LENGTH
+                        ? call.target.substring(0, MAX_TARGET_LENGTH) + "..." : call.target);
+            }
+            if (call.page > 0) {
+                entry.put("page", call.page);
+            }
+            entry.put("start", toMillis(call.startNanos - startNanos));
+            if (call.endNanos != 0) {
+                entry.put("end", toMillis(call.endNanos - startNanos));
+                dctmMillis += toMillis(call.endNanos - call.startNanos);
+            }
+            entry.put("status", call.status);
+            entry.put("bytes", call.bytes);
+            waterfall.add(entry);
+        }
+
+        Map<String, Object> profile = new LinkedHashMap<>();
+        profile.put("totalMs", elapsedMillis());
+        profile.put("dctmMs", Math.round(dctmMillis * 10) / 10.0);
+        profile.put("calls", waterfall);
+        return profile;
+    }
+
+    /**
+     * Server-Timing header value, so the numbers also show up in browser dev tools
+     */
+    public String toServerTiming() {
+        double dctmMillis = 0;
+        int count = 0;
+        for (Call call : calls) {
+            if (call.endNanos != 0) {
+                dctmMillis += toMillis(call.endNanos - call.startNanos);
+            }
+            count++;
+        }
+        return "dctm;dur=" + Math.round(dctmMillis * 10) / 10.0 + ";desc=\"" + count + " calls\", total;dur="
+                + elapsedMillis();
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 100_000.0) / 10.0;
+    }
+
+    /**
+     * One dctm-rest call within the profiled request
+     */
+    static final class Call {
+        private final DctmOperation operation;
+        private final String target;
+        private final int page;
+        private final long startNanos;
+        private volatile long endNanos;
+        private volatile int status;
+        private volatile long bytes;
+
+        private Call(DctmOperation operation, String target, int page, long startNanos) {
+            this.operation = operation;
+            this.target = target;
+            this.page = page;
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * A response of the given size was received (the first one recorded wins)
+         */
+        void received(int status, long bytes) {
+            if (this.status == 0) {
+                this.status = status;
+                this.bytes = bytes;
+            }
+        }
+
+        /**
+         * The call finished; keeps the status of a received body, otherwise uses the given one
+         */
+        void end(int status) {
+            if (this.status == 0) {
+                this.status = status;
+            }
+            this.endNanos = System.nanoTime();
+        }
+    }
+}
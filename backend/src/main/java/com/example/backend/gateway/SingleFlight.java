@@ -0,0 +1,64 @@
+package com.example.backend.gateway;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical concurrent reads: the first caller for a key makes the upstream call,
+ * callers arriving while it is in flight wait for it and get the same result (or exception).
+ * Nothing is kept once the call completes, so this never serves stale data.
+ * Results are shared between threads and must be treated as read-only.
+ */
+final class SingleFlight {
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    SingleFlight(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @param key    identifies identical requests, including the credentials they are sent with
+     * @param keyTag low-cardinality name of the key for metrics (e.g. the DQL fingerprint ID)
+     */
+    @SuppressWarnings("unchecked")
+    <T> T execute(DctmOperation operation, String key, String keyTag, Supplier<T> call) {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, mine);
+        if (leader != null) {
+            count(operation, keyTag, "joined");
+            try {
+                return (T) leader.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        count(operation, keyTag, "leader");
+        try {
+            T result = call.get();
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    int size() {
+        return inFlight.size();
+    }
+
+    private void count(DctmOperation operation, String keyTag, String role) {
+        meterRegistry.counter("dctm.gateway.coalesced",
+                "operation", operation.getTag(), "key", keyTag, "role", role).increment();
+    }
+}
@@ -1,15 +1,14 @@
 package com.example.backend.service;
 
-import com.example.backend.config.DctmConfig;
 import com.example.backend.dto.AuthResponse;
 import com.example.backend.dto.LoginRequest;
+import com.example.backend.gateway.DctmException;
+import com.example.backend.gateway.DctmGateway;
+import com.example.backend.gateway.DctmRepositories;
+import com.example.backend.gateway.DctmUnavailableException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestClient;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
@@ -20,13 +19,19 @@ import java.util.Map;
 @Slf4j
 public class AuthService {
 
-    private final DctmConfig dctmConfig;
-    private final RestClient.Builder restClientBuilder;
+    private final DctmGateway dctmGateway;
+    private final DctmRepositories repositories;
+    private final DctmAuthService dctmAuthService;
+    private final SessionStore sessionStore;
 
     public AuthResponse authenticate(LoginRequest request) {
         String repoName = (request.getRepository() != null && !request.getRepository().isEmpty())
                 ? request.getRepository()
-                : dctmConfig.getRepository();
+                : repositories.current().name();
+        if (!repositories.contains(repoName)) {
+            log.warn("Login attempt against unknown repository '{}'", repoName);
+            return AuthResponse.failure("Unknown repository: " + repoName);
+        }
 
         // Use credentials from request if provided, otherwise fallback to config
         // (service account)
@@ -35,37 +40,50 @@ public class AuthService {
 
         if (username == null || username.isBlank()) {
             // Logic for service account login if needed, though usually user logs in
-            username = dctmConfig.getUsername();
-            password = dctmConfig.getPassword();
+            username = repositories.get(repoName).config().getUsername();
+            password = repositories.get(repoName).config().getPassword();
         }
 
         String authHeader = "Basic " + Base64.getEncoder().encodeToString(
                 (username + ":" + password).getBytes(StandardCharsets.UTF_8));
 
-        String url = dctmConfig.getUrl() + "/repositories/" + repoName + "/currentuser";
-
         log.info("Authenticating user '{}' against repository '{}'", username, repoName);
 
         try {
-            RestClient restClient = restClientBuilder.build();
-            Map<String, Object> result = restClient.get()
-                    .uri(url)
-                    .header(HttpHeaders.AUTHORIZATION, authHeader)
-                    .accept(MediaType.APPLICATION_JSON) // Request JSON
-                    .retrieve()
-                    .body(Map.class);
+            Map<String, Object> result = dctmGateway.currentUser(repoName, authHeader);
 
-            return AuthResponse.success(username, repoName, result);
+            AuthResponse response = AuthResponse.success(username, repoName, result);
+            response.setSessionToken(createSession(username, repoName, authHeader));
+            return response;
 
-        } catch (HttpClientErrorException.Unauthorized e) {
-            log.warn("Authentication failed for user '{}': Unauthorized", username);
-            return AuthResponse.failure("Invalid credentials");
-        } catch (HttpClientErrorException.Forbidden e) {
-            log.warn("Authentication failed for user '{}': Forbidden", username);
-            return AuthResponse.failure("Access denied");
+        } catch (DctmUnavailableException e) {
+            throw e;
+        } catch (DctmException e) {
+            if (e.isUnauthorized()) {
+                log.warn("Authentication failed for user '{}': Unauthorized", username);
+                return AuthResponse.failure("Invalid credentials");
+            }
+            if (e.isForbidden()) {
+                log.warn("Authentication failed for user '{}': Forbidden", username);
+                return AuthResponse.failure("Access denied");
+            }
+            log.error("Error during authentication for user '{}'", username, e);
+            return AuthResponse.failure("System error during authentication: " + e.getMessage());
         } catch (Exception e) {
             log.error("Error during authentication for user '{}'", username, e);
             return AuthResponse.failure("System error during authentication: " + e.getMessage());
         }
     }
+
+    /**
+     * Exchange the verified credentials for a login ticket and bind it to a new session,
+     * so later requests run as this user without sending the password again. Without a ticket
+     * the login fails: a login without a session would have its requests run as the configured account.
+     *
+     * @return the session token
+     */
+    private String createSession(String username, String repoName, String authHeader) {
+        LoginTicketManager.LoginTicket ticket = dctmAuthService.requestLoginTicket(repoName, authHeader);
+        return sessionStore.create(username, repoName, ticket).getId();
+    }
 }
@@ -1,16 +1,14 @@
 package com.example.backend.service;
 
 import com.example.backend.config.AppConfig;
-import com.example.backend.config.DctmConfig;
+import com.example.backend.gateway.DctmSessionExpiredException;
+import com.example.backend.gateway.DctmUnavailableException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClient;
 
-import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -19,21 +17,12 @@ import java.util.Map;
 @Slf4j
 public class CaseService {
 
-    private final DctmConfig dctmConfig;
     private final AppConfig appConfig;
-    private final RestClient restClient;
+    private final DqlPager dqlPager;
 
-    public CaseService(DctmConfig dctmConfig, AppConfig appConfig, RestClient.Builder restClientBuilder) {
-        this.dctmConfig = dctmConfig;
+    public CaseService(AppConfig appConfig, DqlPager dqlPager) {
         this.appConfig = appConfig;
-        this.restClient = restClientBuilder.build();
-    }
-
-    private String getAuthHeader() {
-        String username = dctmConfig.getUsername();
-        String password = dctmConfig.getPassword();
-        return "Basic " + Base64.getEncoder().encodeToString(
-                (username + ":" + password).getBytes(StandardCharsets.UTF_8));
+        this.dqlPager = dqlPager;
     }
 
     /**
@@ -85,6 +74,8 @@ public class CaseService {
 
             return executeCaseDQL(dql, page, itemsPerPage);
 
+        } catch (DctmUnavailableException | DctmSessionExpiredException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error in searchCases", e);
             Map<String, Object> errorResult = new HashMap<>();
@@ -99,26 +90,20 @@ public class CaseService {
 
     /**
      * Execute a DQL query for cases and return paginated results.
-     * Uses Documentum REST API with DQL parameter.
+     * Uses Documentum REST API with DQL parameter; large pages are read in smaller dctm-rest
+     * pages by the {@link DqlPager}.
      */
     @SuppressWarnings("unchecked")
     private Map<String, Object> executeCaseDQL(String dql, int page, int itemsPerPage) {
         try {
-            String baseUrl = dctmConfig.getUrl() + "/repositories/" + dctmConfig.getRepository();
-
             log.debug("Executing DQL: {}", dql);
 
-            // Use URI templates for proper encoding (RestClient handles encoding)
-            Map<String, Object> response = restClient.get()
-                    .uri(baseUrl + "?dql={dql}&items-per-page={itemsPerPage}&page={page}&inline=true",
-                         dql, itemsPerPage, page)
-                    .header("Authorization", getAuthHeader())
-                    .header("Accept", "application/vnd.emc.documentum+json")
-                    .retrieve()
-                    .body(Map.class);
+            Map<String, Object> response = dqlPager.query(dql, itemsPerPage, page);
 
             return transformDQLResponse(response, page, itemsPerPage);
 
+        } catch (DctmUnavailableException | DctmSessionExpiredException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error executing case DQL", e);
             throw new RuntimeException("Failed to execute DQL query: " + e.getMessage(), e);
@@ -130,7 +115,7 @@ public class CaseService {
      * Extracts cases from entries and preserves pagination metadata.
      */
     @SuppressWarnings("unchecked")
-    private Map<String, Object> transformDQLResponse(Map<String, Object> response, int page, int itemsPerPage) {
+    Map<String, Object> transformDQLResponse(Map<String, Object> response, int page, int itemsPerPage) {
         Map<String, Object> result = new HashMap<>();
 
         if (response == null) {
@@ -1,13 +1,19 @@
 package com.example.backend.service;
 
 import com.example.backend.config.DctmConfig;
+import com.example.backend.gateway.DctmGateway;
+import com.example.backend.gateway.DctmRepositories;
+import com.example.backend.gateway.DctmRepository;
+import com.example.backend.gateway.DctmSessionExpiredException;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClient;
 
 import java.nio.charset.StandardCharsets;
-import java.time.LocalDateTime;
 import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.function.Function;
 
@@ -16,91 +22,138 @@ import java.util.function.Function;
 public class DctmAuthService {
 
     private final DctmConfig dctmConfig;
-    private final RestClient restClient;
+    private final DctmGateway dctmGateway;
+    private final DctmRepositories repositories;
+    // Looked up lazily, the session store renews tickets through this service
+    private final ObjectProvider<SessionStore> sessionStore;
 
-    // Cache for service account login ticket
-    private String serviceLoginTicket;
-    private LocalDateTime serviceTicketExpiry;
+    // Configured accounts and their login tickets, per repository
+    private final Map<String, Accounts> accounts = new LinkedHashMap<>();
 
-    public DctmAuthService(DctmConfig dctmConfig, RestClient.Builder restClientBuilder) {
+    public DctmAuthService(DctmConfig dctmConfig, DctmGateway dctmGateway, DctmRepositories repositories,
+                           ObjectProvider<SessionStore> sessionStore) {
         this.dctmConfig = dctmConfig;
-        this.restClient = restClientBuilder.build();
+        this.dctmGateway = dctmGateway;
+        this.repositories = repositories;
+        this.sessionStore = sessionStore;
+        for (DctmRepository repository : repositories.all()) {
+            accounts.put(repository.name(), new Accounts(repository.config()));
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        accounts.values().forEach(Accounts::shutdown);
+    }
+
+    private static String basicAuthHeader(String username, String password) {
+        return "Basic " + Base64.getEncoder().encodeToString(
+                (username + ":" + password).getBytes(StandardCharsets.UTF_8));
     }
 
     /**
-     * Get Basic Auth header for regular user operations
+     * Get auth header for regular user operations
+     * Requests made within a logged-in session run as the session's user with its ticket.
+     * Otherwise the configured user is used: in ticket auth mode with a cached login ticket,
+     * so the repository authenticates the password once per ticket lifetime instead of on
+     * every request; Basic auth is used until the first ticket has been obtained
      */
     public String getUserAuthHeader() {
-        String username = dctmConfig.getUsername();
-        String password = dctmConfig.getPassword();
-        return "Basic " + Base64.getEncoder().encodeToString(
-                (username + ":" + password).getBytes(StandardCharsets.UTF_8));
+        DctmSession session = SessionContext.current();
+        if (session != null) {
+            return session.getAuthHeader();
+        }
+        Accounts current = current();
+        if (current.userTicketManager != null) {
+            String ticketHeader = current.userTicketManager.currentAuthHeader();
+            if (ticketHeader != null) {
+                return ticketHeader;
+            }
+        }
+        return current.userBasicAuthHeader;
     }
 
     /**
      * Get auth header for privileged operations using service account
-     * Uses login ticket for better performance
+     * Uses login ticket for better performance; never blocks on ticket acquisition
+     * and falls back to Basic auth while no valid ticket is available
      */
     public String getServiceAuthHeader() {
         // If service account not configured, fall back to regular user
-        if (dctmConfig.getServiceUsername() == null ||
-            dctmConfig.getServiceUsername().isEmpty()) {
+        if (!isServiceAccountConfigured()) {
             log.warn("Service account not configured, using regular user credentials");
             return getUserAuthHeader();
         }
 
-        return "DmTicket " + getServiceLoginTicket();
+        Accounts current = current();
+        String ticketHeader = current.serviceTicketManager.currentAuthHeader();
+        if (ticketHeader == null) {
+            log.debug("No service account login ticket available yet, using Basic auth");
+            return current.serviceBasicAuthHeader;
+        }
+        return ticketHeader;
     }
 
     /**
-     * Get Basic Auth header for service account (used to obtain login ticket)
+     * Called when the repository rejected a request with 401. If the request used one of our
+     * login tickets, the ticket is discarded, a new one is requested in the background and the
+     * Basic header for the same account is returned so the request can be retried right away.
+     * A rejected session ticket cannot be replaced without the user's password, so its session is ended.
+     *
+     * @return header to retry with, or null if the rejected header was not one of our tickets
+     * @throws DctmSessionExpiredException if the rejected header was the ticket of a session
      */
-    private String getServiceBasicAuthHeader() {
-        String username = dctmConfig.getServiceUsername();
-        String password = dctmConfig.getServicePassword();
-        return "Basic " + Base64.getEncoder().encodeToString(
-                (username + ":" + password).getBytes(StandardCharsets.UTF_8));
+    public String onAuthRejected(String rejectedAuthHeader) {
+        for (Map.Entry<String, Accounts> entry : accounts.entrySet()) {
+            Accounts repository = entry.getValue();
+            if (repository.userTicketManager != null && repository.userTicketManager.issued(rejectedAuthHeader)) {
+                log.warn("User login ticket rejected by repository {}, logging in again", entry.getKey());
+                repository.userTicketManager.invalidate(null);
+                repository.userTicketManager.refreshAsync();
+                return repository.userBasicAuthHeader;
+            }
+            if (repository.serviceTicketManager.issued(rejectedAuthHeader)) {
+                log.warn("Service account login ticket rejected by repository {}, logging in again", entry.getKey());
+                repository.serviceTicketManager.invalidate(null);
+                repository.serviceTicketManager.refreshAsync();
+                return repository.serviceBasicAuthHeader;
+            }
+        }
+        DctmSession session = sessionStore.getObject().endRejected(rejectedAuthHeader);
+        if (session != null) {
+            throw new DctmSessionExpiredException("Login ticket of the session of user '" + session.getUsername()
+                    + "' was rejected by repository " + session.getRepository());
+        }
+        return null;
     }
 
     /**
-     * Get login ticket for privileged service account
-     * Tickets are cached and reused until expiry
+     * Request a new login ticket for the account identified by the given Authorization header
+     * (Basic credentials, or a still valid ticket of the same user)
      */
-    private String getServiceLoginTicket() {
-        // Return cached ticket if still valid
-        if (serviceLoginTicket != null &&
-                serviceTicketExpiry != null &&
-                LocalDateTime.now().isBefore(serviceTicketExpiry)) {
-            return serviceLoginTicket;
+    public LoginTicketManager.LoginTicket requestLoginTicket(String repository, String authHeader) {
+        Map<String, Object> response = dctmGateway.createLoginTicket(repository, authHeader);
+
+        if (response == null) {
+            throw new RuntimeException("Failed to obtain login ticket");
         }
+        return LoginTicketManager.fromResponse(response, dctmConfig.getTicketLifetime());
+    }
 
-        // Get new login ticket
-        String url = dctmConfig.getUrl() + "/repositories/" +
-                dctmConfig.getRepository() + "/login-tickets";
-
-        try {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> response = restClient.post()
-                    .uri(url)
-                    .header("Authorization", getServiceBasicAuthHeader())
-                    .header("Accept", "application/vnd.emc.documentum+json")
-                    .retrieve()
-                    .body(Map.class);
-
-            if (response != null && response.containsKey("id")) {
-                serviceLoginTicket = (String) response.get("id");
-                // Cache ticket for 9 minutes (they typically expire in 10 minutes)
-                serviceTicketExpiry = LocalDateTime.now().plusMinutes(9);
-                log.info("Obtained service account login ticket (expires at {})", serviceTicketExpiry);
-                return serviceLoginTicket;
+    /**
+     * Obtain login tickets at startup and renew them before they expire,
+     * so requests always find a valid ticket
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${dctm.rest.ticket-renew-check-ms:30000}")
+    public void renewTickets() {
+        for (Accounts repository : accounts.values()) {
+            if (repository.userTicketManager != null) {
+                repository.userTicketManager.renewIfDue();
+            }
+            if (repository.serviceAccountConfigured()) {
+                repository.serviceTicketManager.renewIfDue();
             }
-        } catch (Exception e) {
-            log.error("Failed to obtain service account login ticket: {}", e.getMessage());
-            // Fall back to basic auth
-            return getServiceBasicAuthHeader();
         }
-
-        throw new RuntimeException("Failed to obtain service account login ticket");
     }
 
     /**
@@ -121,16 +174,59 @@ public class DctmAuthService {
      * Clear cached login ticket (useful for testing or forced refresh)
      */
     public void clearServiceTicketCache() {
-        serviceLoginTicket = null;
-        serviceTicketExpiry = null;
+        accounts.values().forEach(repository -> repository.serviceTicketManager.invalidate(null));
         log.info("Service account login ticket cache cleared");
     }
 
     /**
-     * Check if service account is configured
+     * Check if service account is configured for the current repository
      */
     public boolean isServiceAccountConfigured() {
-        return dctmConfig.getServiceUsername() != null &&
-                !dctmConfig.getServiceUsername().isEmpty();
+        return current().serviceAccountConfigured();
+    }
+
+    private Accounts current() {
+        return accounts.get(repositories.current().name());
+    }
+
+    /**
+     * Configured user and service account of one repository with their login tickets,
+     * renewed in the background ahead of expiry. The user ticket manager is only used in
+     * ticket auth mode.
+     */
+    private final class Accounts {
+
+        private final DctmConfig.Repository config;
+
+        // Basic headers are computed once, credentials do not change at runtime
+        private final String userBasicAuthHeader;
+        private final String serviceBasicAuthHeader;
+
+        private final LoginTicketManager userTicketManager;
+        private final LoginTicketManager serviceTicketManager;
+
+        Accounts(DctmConfig.Repository config) {
+            this.config = config;
+            this.userBasicAuthHeader = basicAuthHeader(config.getUsername(), config.getPassword());
+            this.serviceBasicAuthHeader = basicAuthHeader(config.getServiceUsername(), config.getServicePassword());
+            String suffix = repositories.all().size() > 1 ? " (" + config.getName() + ")" : "";
+            this.userTicketManager = dctmConfig.getAuthMode() == DctmConfig.AuthMode.TICKET
+                    ? new LoginTicketManager("user" + suffix,
+                            () -> requestLoginTicket(config.getName(), userBasicAuthHeader), dctmConfig.getTicketRenewBefore())
+                    : null;
+            this.serviceTicketManager = new LoginTicketManager("service account" + suffix,
+                    () -> requestLoginTicket(config.getName(), serviceBasicAuthHeader), dctmConfig.getTicketRenewBefore());
+        }
+
+        boolean serviceAccountConfigured() {
+            return config.getServiceUsername() != null && !config.getServiceUsername().isEmpty();
+        }
+
+        void shutdown() {
+            if (userTicketManager != null) {
+                userTicketManager.shutdown();
+            }
+            serviceTicketManager.shutdown();
+        }
     }
 }
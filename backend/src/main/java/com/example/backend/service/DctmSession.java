@@ -0,0 +1,78 @@
+package com.example.backend.service;
+
+import java.time.Instant;
+
+/**
+ * Server-side session of a logged-in user, bound to the user's Documentum login ticket.
+ * Requests carrying the session token run as this user with the ticket instead of the
+ * configured account, so the password is only sent to the repository once, at login.
+ */
+public class DctmSession {
+
+    private final String id;
+    private final String username;
+    private final String repository;
+    private final Instant createdAt;
+    private final Instant expiresAt;
+
+    private volatile LoginTicketManager.LoginTicket ticket;
+    private volatile long lastAccessMillis;
+
+    DctmSession(String id, String username, String repository, LoginTicketManager.LoginTicket ticket,
+                Instant createdAt, Instant expiresAt) {
+        this.id = id;
+        this.username = username;
+        this.repository = repository;
+        this.ticket = ticket;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+        this.lastAccessMillis = createdAt.toEpochMilli();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getRepository() {
+        return repository;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public Instant getLastAccess() {
+        return Instant.ofEpochMilli(lastAccessMillis);
+    }
+
+    /**
+     * Precomputed "DmTicket ..." Authorization header of the session's current ticket
+     */
+    public String getAuthHeader() {
+        return ticket.authHeader();
+    }
+
+    LoginTicketManager.LoginTicket getTicket() {
+        return ticket;
+    }
+
+    void setTicket(LoginTicketManager.LoginTicket ticket) {
+        this.ticket = ticket;
+    }
+
+    long getLastAccessMillis() {
+        return lastAccessMillis;
+    }
+
+    void touch(long nowMillis) {
+        lastAccessMillis = nowMillis;
+    }
+}
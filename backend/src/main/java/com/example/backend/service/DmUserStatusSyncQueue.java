@@ -0,0 +1,491 @@
+package com.example.backend.service;
+
+import com.example.backend.config.AppConfig;
+import com.example.backend.gateway.DctmGateway;
+import com.example.backend.gateway.DctmRepositories;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind queue that syncs cms_user_profile.is_active changes to dm_user.user_state.
+ * Changes are appended to a local journal before the caller returns, so they survive restarts;
+ * repeated toggles of the same profile coalesce into the latest value, and pending changes are
+ * flushed in batches with set-based UPDATE statements, retrying failed batches with backoff.
+ * A change that still fails after app.users.status-sync.max-attempts is moved to a dead-letter
+ * log rather than retried forever. Each change belongs to the repository it was made in and is
+ * synced to that repository.
+ */
+@Service
+@Slf4j
+public class DmUserStatusSyncQueue {
+
+    private final DctmGateway dctmGateway;
+    private final DctmRepositories repositories;
+    private final AppConfig.UsersConfig usersConfig;
+    private final Path journalPath;
+    private final Path deadLetterPath;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, PendingChange> pending = new LinkedHashMap<>();
+    private FileChannel journal;
+    private BufferedWriter journalWriter;
+    private long sequence;
+
+    private final Counter syncedCounter;
+    private final Counter failureCounter;
+    private final Counter skippedCounter;
+    private final Counter coalescedCounter;
+    private final Counter deadLetteredCounter;
+    private final Timer flushTimer;
+
+    public DmUserStatusSyncQueue(DctmGateway dctmGateway, DctmRepositories repositories, AppConfig appConfig,
+                                 MeterRegistry meterRegistry) {
+        this.dctmGateway = dctmGateway;
+        this.repositories = repositories;
+        this.usersConfig = appConfig.getUsers();
+        this.journalPath = Paths.get(usersConfig.getStatusSync().getJournalPath());
+        this.deadLetterPath = Paths.get(usersConfig.getStatusSync().getDeadLetterPath());
+
+        this.syncedCounter = meterRegistry.counter("dctm.user.status.sync.synced");
+        this.failureCounter = meterRegistry.counter("dctm.user.status.sync.failures");
+        this.skippedCounter = meterRegistry.counter("dctm.user.status.sync.skipped");
+        this.coalescedCounter = meterRegistry.counter("dctm.user.status.sync.coalesced");
+        this.deadLetteredCounter = meterRegistry.counter("dctm.user.status.sync.dead_lettered");
+        this.flushTimer = meterRegistry.timer("dctm.user.status.sync.flush");
+        Gauge.builder("dctm.user.status.sync.pending", this, DmUserStatusSyncQueue::pendingCount)
+                .register(meterRegistry);
+        Gauge.builder("dctm.user.status.sync.lag", this, DmUserStatusSyncQueue::lagSeconds)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Replay the journal so changes accepted before a restart are still synced
+     */
+    @PostConstruct
+    void open() throws IOException {
+        if (journalPath.getParent() != null) {
+            Files.createDirectories(journalPath.getParent());
+        }
+        if (Files.exists(journalPath)) {
+            for (String line : Files.readAllLines(journalPath, StandardCharsets.UTF_8)) {
+                String[] fields = line.split("\t");
+                if (fields.length != 3 && fields.length != 4) {
+                    continue;
+                }
+                // Lines written before changes were tracked per repository belong to the default one
+                String repository = fields.length == 4 ? fields[3] : repositories.defaultRepository().name();
+                if (!repositories.contains(repository)) {
+                    log.warn("Dropping dm_user status change of profile {} for unknown repository {}",
+                            fields[0], repository);
+                    continue;
+                }
+                long enqueuedAt = Long.parseLong(fields[2]);
+                String key = key(repository, fields[0]);
+                PendingChange previous = pending.get(key);
+                pending.put(key, new PendingChange(repository, fields[0], "1".equals(fields[1]), ++sequence,
+                        previous != null ? previous.enqueuedAt() : enqueuedAt, 0, 0));
+            }
+            if (!pending.isEmpty()) {
+                log.info("Recovered {} pending dm_user status changes from {}", pending.size(), journalPath);
+            }
+        }
+        rewriteJournal();
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        lock.lock();
+        try {
+            if (journalWriter != null) {
+                journalWriter.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queue a dm_user status change for a cms_user_profile of the current repository.
+     * Returns once the change is durably journaled; the repository update happens asynchronously.
+     */
+    public void enqueue(String profileId, boolean isActive) {
+        enqueueAll(Map.of(profileId, isActive));
+    }
+
+    /**
+     * Queue several dm_user status changes with a single journal sync
+     *
+     * @param activeByProfileId desired is_active value keyed by cms_user_profile r_object_id
+     */
+    public void enqueueAll(Map<String, Boolean> activeByProfileId) {
+        if (activeByProfileId.isEmpty()) {
+            return;
+        }
+        String repository = repositories.current().name();
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            for (Map.Entry<String, Boolean> entry : activeByProfileId.entrySet()) {
+                PendingChange change = new PendingChange(repository, entry.getKey(), entry.getValue(), ++sequence,
+                        now, 0, 0);
+                journalWriter.write(change.journalLine());
+                journalWriter.newLine();
+
+                PendingChange previous = pending.remove(change.key());
+                if (previous != null) {
+                    coalescedCounter.increment();
+                    change = change.enqueuedAt(previous.enqueuedAt());
+                }
+                pending.put(change.key(), change);
+            }
+            journalWriter.flush();
+            journal.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to journal dm_user status change", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sync due changes to dm_user in batches, each repository's changes to that repository.
+     * Successful changes and changes of profiles that no longer resolve to a dm_user are removed
+     * from the journal, failed ones are retried with exponential backoff until they run out of
+     * attempts and are dead-lettered.
+     */
+    @Scheduled(fixedDelayString = "${app.users.status-sync.flush-interval-ms:2000}")
+    public void flush() {
+        Map<String, PendingChange> due = new LinkedHashMap<>();
+        long now = System.currentTimeMillis();
+        int maxBatch = usersConfig.getSyncBatchSize() * 10;
+
+        lock.lock();
+        try {
+            for (Map.Entry<String, PendingChange> entry : pending.entrySet()) {
+                if (entry.getValue().nextAttemptAt() <= now) {
+                    due.put(entry.getKey(), entry.getValue());
+                    if (due.size() >= maxBatch) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+
+        Map<String, Map<String, Boolean>> activeByProfileIdByRepository = new LinkedHashMap<>();
+        due.values().forEach(change -> activeByProfileIdByRepository
+                .computeIfAbsent(change.repository(), k -> new LinkedHashMap<>())
+                .put(change.profileId(), change.active()));
+
+        // Keys of the due changes to retry, and of those dropped as unresolvable
+        Set<String> failed = new HashSet<>();
+        Set<String> skipped = new HashSet<>();
+        long start = System.nanoTime();
+        try {
+            activeByProfileIdByRepository.forEach((repository, activeByProfileId) ->
+                    RepositoryContext.runIn(repository, () -> {
+                        SyncOutcome outcome;
+                        try {
+                            outcome = syncDmUserStatuses(activeByProfileId);
+                        } catch (Exception e) {
+                            log.warn("dm_user status sync failed for {} profiles of {}, will retry: {}",
+                                    activeByProfileId.size(), repository, e.getMessage());
+                            outcome = new SyncOutcome(activeByProfileId.keySet(), Set.of());
+                        }
+                        outcome.failed().forEach(profileId -> failed.add(key(repository, profileId)));
+                        outcome.skipped().forEach(profileId -> skipped.add(key(repository, profileId)));
+                    }));
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        List<PendingChange> exhausted = new ArrayList<>();
+        lock.lock();
+        try {
+            for (Map.Entry<String, PendingChange> entry : due.entrySet()) {
+                PendingChange current = pending.get(entry.getKey());
+                if (current == null || current.sequence() != entry.getValue().sequence()) {
+                    continue; // Re-queued while we were syncing, the newer value is flushed next time
+                }
+                if (failed.contains(entry.getKey())) {
+                    failureCounter.increment();
+                    PendingChange retry = current.retryLater(now, usersConfig.getStatusSync());
+                    if (retry.attempts() >= usersConfig.getStatusSync().getMaxAttempts()) {
+                        exhausted.add(retry);
+                    } else {
+                        pending.put(entry.getKey(), retry);
+                    }
+                } else if (skipped.contains(entry.getKey())) {
+                    skippedCounter.increment();
+                    pending.remove(entry.getKey());
+                } else {
+                    syncedCounter.increment();
+                    pending.remove(entry.getKey());
+                }
+            }
+            // Dead-lettered before they leave the journal, so a crash in between cannot lose them
+            deadLetter(exhausted);
+            exhausted.forEach(change -> pending.remove(change.key()));
+            rewriteJournal();
+        } catch (IOException e) {
+            log.error("Failed to compact dm_user status journal {}", journalPath, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int pendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Age of the oldest change that has not reached dm_user yet
+     */
+    public double lagSeconds() {
+        lock.lock();
+        try {
+            long oldest = pending.values().stream().mapToLong(PendingChange::enqueuedAt).min()
+                    .orElse(System.currentTimeMillis());
+            return (System.currentTimeMillis() - oldest) / 1000.0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replace the journal with the changes that are still pending (caller holds the lock).
+     * The new file is synced before it is renamed over the old one, and the directory after,
+     * so a crash leaves either journal complete and the rename itself durable.
+     */
+    private void rewriteJournal() throws IOException {
+        if (journalWriter != null) {
+            journalWriter.close();
+        }
+        Path compacted = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+        StringBuilder lines = new StringBuilder();
+        pending.values().forEach(change -> lines.append(change.journalLine()).append(System.lineSeparator()));
+        write(compacted, lines.toString(),
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        Files.move(compacted, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(journalPath);
+
+        journal = FileChannel.open(journalPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        journalWriter = new BufferedWriter(Channels.newWriter(journal, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Append changes that ran out of attempts to the dead-letter log: the journal line, the
+     * number of attempts and when it was given up on (caller holds the lock)
+     */
+    private void deadLetter(List<PendingChange> changes) throws IOException {
+        if (changes.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        StringBuilder lines = new StringBuilder();
+        for (PendingChange change : changes) {
+            lines.append(change.journalLine()).append('\t').append(change.attempts()).append('\t').append(now)
+                    .append(System.lineSeparator());
+            log.error("Giving up on the dm_user status change of profile {} in {} after {} attempts, see {}",
+                    change.profileId(), change.repository(), change.attempts(), deadLetterPath);
+        }
+        if (deadLetterPath.getParent() != null) {
+            Files.createDirectories(deadLetterPath.getParent());
+        }
+        write(deadLetterPath, lines.toString(),
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        deadLetteredCounter.increment(changes.size());
+    }
+
+    /**
+     * Write text to a file and sync it to disk
+     */
+    private static void write(Path path, String text, StandardOpenOption... options) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(text);
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Sync the directory holding a file, making a rename into it durable. Not every platform can
+     * open a directory (e.g. Windows), there the rename is left to the file system.
+     */
+    private static void forceDirectory(Path file) {
+        Path directory = file.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("Cannot sync directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    /**
+     * Sync dm_user.user_state for a set of profiles using set-based DQL.
+     * Login names are resolved with one IN lookup per batch, and each batch of users
+     * sharing the target state is updated with a single UPDATE ... WHERE user_name IN (...).
+     *
+     * @param activeByProfileId desired is_active value keyed by cms_user_profile r_object_id
+     * @return profile IDs whose lookup or dm_user UPDATE failed, and those without a login name to sync
+     */
+    @SuppressWarnings("unchecked")
+    SyncOutcome syncDmUserStatuses(Map<String, Boolean> activeByProfileId) {
+        Set<String> failed = new HashSet<>();
+        Set<String> unresolved = new HashSet<>(activeByProfileId.keySet());
+        int batchSize = usersConfig.getSyncBatchSize();
+        List<String> profileIds = new ArrayList<>(activeByProfileId.keySet());
+
+        // Resolve user_login_name for every profile, one IN lookup per batch
+        Map<Integer, Map<String, String>> profileIdByLoginNameByState = new HashMap<>();
+        for (int i = 0; i < profileIds.size(); i += batchSize) {
+            List<String> batch = profileIds.subList(i, Math.min(i + batchSize, profileIds.size()));
+            String dql = "SELECT r_object_id, user_login_name FROM cms_user_profile WHERE r_object_id IN ("
+                    + toDqlList(batch) + ")";
+            Map<String, Object> response = dctmGateway.query(dql, batch.size());
+
+            List<Map<String, Object>> entries = response != null
+                    ? (List<Map<String, Object>>) response.get("entries") : null;
+            if (entries == null) {
+                log.warn("dm_user status sync: no profile lookup result for {} profiles, will retry", batch.size());
+                failed.addAll(batch);
+                unresolved.removeAll(batch);
+                continue;
+            }
+            for (Map<String, Object> entry : entries) {
+                Map<String, Object> content = (Map<String, Object>) entry.get("content");
+                Map<String, Object> props = content != null ? (Map<String, Object>) content.get("properties") : null;
+                if (props == null) {
+                    continue;
+                }
+                String profileId = (String) props.get("r_object_id");
+                String loginName = (String) props.get("user_login_name");
+                Boolean isActive = activeByProfileId.get(profileId);
+                if (loginName != null && !loginName.isBlank() && isActive != null) {
+                    unresolved.remove(profileId);
+                    int userState = isActive ? 0 : 1; // 0=Active, 1=Inactive
+                    profileIdByLoginNameByState.computeIfAbsent(userState, k -> new LinkedHashMap<>())
+                            .put(loginName, profileId);
+                }
+            }
+        }
+
+        // Update dm_user, one statement per target state and batch
+        for (Map.Entry<Integer, Map<String, String>> entry : profileIdByLoginNameByState.entrySet()) {
+            int userState = entry.getKey();
+            List<String> loginNames = new ArrayList<>(entry.getValue().keySet());
+            for (int i = 0; i < loginNames.size(); i += batchSize) {
+                List<String> batch = loginNames.subList(i, Math.min(i + batchSize, loginNames.size()));
+                String updateDql = "UPDATE dm_user OBJECTS SET user_state = " + userState
+                        + " WHERE user_name IN (" + toDqlList(batch) + ")";
+                log.info("Syncing dm_user status for {} users: user_state={}", batch.size(), userState);
+                if (!executeDqlUpdate(updateDql)) {
+                    batch.forEach(loginName -> failed.add(entry.getValue().get(loginName)));
+                }
+            }
+        }
+        if (!unresolved.isEmpty()) {
+            log.warn("dm_user status sync skipped {} profiles that were not found or have no user_login_name: {}",
+                    unresolved.size(), unresolved);
+        }
+        return new SyncOutcome(failed, unresolved);
+    }
+
+    private static String key(String repository, String profileId) {
+        return repository + '\t' + profileId;
+    }
+
+    private static String toDqlList(List<String> values) {
+        StringBuilder list = new StringBuilder();
+        for (String value : values) {
+            if (list.length() > 0) {
+                list.append(", ");
+            }
+            list.append('\'').append(value.replace("'", "''")).append('\'');
+        }
+        return list.toString();
+    }
+
+    private boolean executeDqlUpdate(String dql) {
+        try {
+            // Sending DQL update via GET (standard simplified REST DQL execution)
+            dctmGateway.execute(dql);
+            return true;
+        } catch (Exception e) {
+            log.error("Error executing DQL update: " + dql, e);
+            return false;
+        }
+    }
+
+    /**
+     * Profile IDs to retry, and profile IDs dropped because they do not resolve to a dm_user
+     */
+    record SyncOutcome(Set<String> failed, Set<String> skipped) {
+    }
+
+    private record PendingChange(String repository, String profileId, boolean active, long sequence,
+                                 long enqueuedAt, int attempts, long nextAttemptAt) {
+
+        String key() {
+            return DmUserStatusSyncQueue.key(repository, profileId);
+        }
+
+        /**
+         * Profile ID, is_active, enqueue time and repository, tab-separated
+         */
+        String journalLine() {
+            return profileId + "\t" + (active ? "1" : "0") + "\t" + enqueuedAt + "\t" + repository;
+        }
+
+        PendingChange enqueuedAt(long since) {
+            return new PendingChange(repository, profileId, active, sequence, since, attempts, nextAttemptAt);
+        }
+
+        PendingChange retryLater(long now, AppConfig.StatusSyncConfig config) {
+            long backoff = Math.min(config.getMaxBackoffMs(),
+                    config.getInitialBackoffMs() * (1L << Math.min(attempts, 20)));
+            return new PendingChange(repository, profileId, active, sequence, enqueuedAt, attempts + 1, now + backoff);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.backend.service;
+
+import com.example.backend.config.AppConfig;
+import com.example.backend.gateway.DctmAsyncGateway;
+import com.example.backend.gateway.DctmGateway;
+import com.example.backend.gateway.DqlPageSizer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reads one page of a client-paginated DQL result, as case and user search request them (page n
+ * of itemsPerPage rows). Pages the {@link DqlPageSizer} considers too large for one dctm-rest
+ * call of the query, by row size or latency, are fetched as several smaller dctm-rest pages, up
+ * to app.query.page-prefetch at a time, and joined again; other pages go to dctm-rest as asked.
+ * A page size limit of dctm-rest is detected the same way. Either way the result has the shape
+ * of a dctm-rest collection: entries and a next link.
+ */
+@Component
+@Slf4j
+public class DqlPager {
+
+    private final DctmGateway dctmGateway;
+    private final DctmAsyncGateway dctmAsyncGateway;
+    private final DqlPageSizer pageSizer;
+    private final int pagePrefetch;
+
+    public DqlPager(DctmGateway dctmGateway, DctmAsyncGateway dctmAsyncGateway, DqlPageSizer pageSizer,
+                    AppConfig appConfig) {
+        this.dctmGateway = dctmGateway;
+        this.dctmAsyncGateway = dctmAsyncGateway;
+        this.pageSizer = pageSizer;
+        this.pagePrefetch = Math.max(1, appConfig.getQuery().getPagePrefetch());
+    }
+
+    public Map<String, Object> query(String dql, int itemsPerPage, int page) {
+        int chunk = pageSizer.pageSize(dql, itemsPerPage);
+        if (chunk >= itemsPerPage) {
+            Map<String, Object> response = dctmGateway.query(dql, itemsPerPage, page);
+            int rows = entriesOf(response).size();
+            if (rows == 0 || rows >= itemsPerPage || !hasNext(response)) {
+                return response;
+            }
+            // dctm-rest capped the page size, so it numbered its pages by a smaller size
+            pageSizer.checkServerLimit(itemsPerPage, rows, true);
+            chunk = rows;
+        }
+        chunk = aligned(itemsPerPage, chunk);
+
+        // Rows [from, to) of the result, read from dctm-rest pages of chunk rows starting at row offset
+        long from = (long) (page - 1) * itemsPerPage;
+        long to = from + itemsPerPage;
+        int next = (int) (from / chunk) + 1;
+        int last = (int) ((to - 1) / chunk) + 1;
+        long offset = (long) (next - 1) * chunk;
+        log.debug("Reading page {} of {} rows as dctm-rest pages {}-{} of {} rows", page, itemsPerPage, next, last, chunk);
+
+        List<Map<String, Object>> entries = new ArrayList<>();
+        boolean more = true;
+        while (more && next <= last) {
+            int window = Math.min(pagePrefetch, last - next + 1);
+            List<CompletableFuture<Map<String, Object>>> pages = new ArrayList<>(window);
+            for (int i = 0; i < window; i++) {
+                pages.add(dctmAsyncGateway.query(dql, chunk, next + i));
+            }
+            for (CompletableFuture<Map<String, Object>> pending : pages) {
+                if (!more) {
+                    pending.cancel(false);
+                    continue;
+                }
+                Map<String, Object> response = DctmAsyncGateway.join(pending);
+                List<Map<String, Object>> rows = entriesOf(response);
+                more = hasNext(response);
+                if (more && !rows.isEmpty() && rows.size() < chunk) {
+                    // dctm-rest caps the page size below the chunk, so the offsets don't hold;
+                    // start over within the limit now known
+                    pageSizer.checkServerLimit(chunk, rows.size(), true);
+                    pages.forEach(other -> other.cancel(false));
+                    return query(dql, itemsPerPage, page);
+                }
+                entries.addAll(rows);
+                next++;
+            }
+        }
+
+        int start = (int) Math.min(from - offset, entries.size());
+        int end = (int) Math.min(to - offset, entries.size());
+        Map<String, Object> result = new HashMap<>();
+        result.put("entries", new ArrayList<>(entries.subList(start, end)));
+        result.put("links", entries.size() > end || more ? List.of(Map.of("rel", "next")) : List.of());
+        return result;
+    }
+
+    /**
+     * A chunk size dividing the page size, so chunks line up with the page, unless that would
+     * halve the chunk; unaligned chunks read a few rows around the page that are dropped
+     */
+    static int aligned(int itemsPerPage, int chunk) {
+        for (int size = chunk; size * 2 >= chunk; size--) {
+            if (itemsPerPage % size == 0) {
+                return size;
+            }
+        }
+        return chunk;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> entriesOf(Map<String, Object> response) {
+        Object entries = response != null ? response.get("entries") : null;
+        return entries instanceof List ? (List<Map<String, Object>>) entries : List.of();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean hasNext(Map<String, Object> response) {
+        List<Map<String, Object>> links = response != null ? (List<Map<String, Object>>) response.get("links") : null;
+        return links != null && links.stream().anyMatch(link -> "next".equals(link.get("rel")));
+    }
+}
@@ -1,30 +1,23 @@
 package com.example.backend.service;
 
-import com.example.backend.config.DctmConfig;
+import com.example.backend.gateway.DctmGateway;
+import com.example.backend.gateway.DctmSessionExpiredException;
+import com.example.backend.gateway.DctmUnavailableException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClient;
 
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 @Service
 @Slf4j
 public class GroupService {
 
-    private final DctmConfig dctmConfig;
-    private final RestClient restClient;
+    private final DctmGateway dctmGateway;
+    private final QueryResultCache queryResultCache;
 
-    public GroupService(DctmConfig dctmConfig, RestClient.Builder restClientBuilder) {
-        this.dctmConfig = dctmConfig;
-        this.restClient = restClientBuilder.build();
-    }
-
-    private String getAuthHeader() {
-        String username = dctmConfig.getUsername();
-        String password = dctmConfig.getPassword();
-        return "Basic " + Base64.getEncoder().encodeToString(
-                (username + ":" + password).getBytes(StandardCharsets.UTF_8));
+    public GroupService(DctmGateway dctmGateway, QueryResultCache queryResultCache) {
+        this.dctmGateway = dctmGateway;
+        this.queryResultCache = queryResultCache;
     }
 
     /**
@@ -34,31 +27,15 @@ public class GroupService {
     @SuppressWarnings("unchecked")
     public Map<String, Object> searchGroups(String groupName, int page, int itemsPerPage) {
 
-        String baseUrl = dctmConfig.getUrl() + "/repositories/" + dctmConfig.getRepository() + "/groups";
-
-        // Build URL with proper query parameters
-        StringBuilder urlBuilder = new StringBuilder(baseUrl);
-        urlBuilder.append("?items-per-page=").append(itemsPerPage);
-        urlBuilder.append("&page=").append(page);
-        urlBuilder.append("&inline=true");
-
-        // If group name filter is provided, add it as a filter parameter
+        // If group name filter is provided, add it as a filter parameter (encoded by the gateway)
+        String filter = null;
         if (groupName != null && !groupName.isBlank()) {
-            // Use proper filter syntax for DCTM REST API
-            String filterValue = "group_name like '" + groupName.trim() + "%'";
-            urlBuilder.append("&filter=").append(java.net.URLEncoder.encode(filterValue, StandardCharsets.UTF_8));
+            filter = "group_name like '" + groupName.trim().replace("'", "''") + "%'";
         }
-
-        String fullUrl = urlBuilder.toString();
-        log.info("Fetching groups from URL: {}", fullUrl);
+        log.info("Fetching groups page {} ({} per page) with filter: {}", page, itemsPerPage, filter);
 
         try {
-            Map<String, Object> response = restClient.get()
-                    .uri(fullUrl)
-                    .header("Authorization", getAuthHeader())
-                    .header("Accept", "application/vnd.emc.documentum+json")
-                    .retrieve()
-                    .body(Map.class);
+            Map<String, Object> response = dctmGateway.listGroups(filter, page, itemsPerPage);
 
             log.info("Groups API response received with {} entries",
                 response != null && response.containsKey("entries") ?
@@ -66,6 +43,8 @@ public class GroupService {
 
             return transformResponse(response, page);
 
+        } catch (DctmUnavailableException | DctmSessionExpiredException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error fetching groups from REST API: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to fetch groups: " + e.getMessage());
@@ -73,7 +52,7 @@ public class GroupService {
     }
 
     @SuppressWarnings("unchecked")
-    private Map<String, Object> transformResponse(Map<String, Object> response, int page) {
+    Map<String, Object> transformResponse(Map<String, Object> response, int page) {
         Map<String, Object> result = new HashMap<>();
 
         if (response == null) {
@@ -144,18 +123,10 @@ public class GroupService {
      */
     @SuppressWarnings("unchecked")
     public Map<String, Object> getGroupDetails(String groupName) {
-        String url = dctmConfig.getUrl() + "/repositories/" + dctmConfig.getRepository()
-                + "/groups/" + groupName;
-
         log.info("Fetching group details for: {}", groupName);
 
         try {
-            Map<String, Object> response = restClient.get()
-                    .uri(url)
-                    .header("Authorization", getAuthHeader())
-                    .header("Accept", "application/vnd.emc.documentum+json")
-                    .retrieve()
-                    .body(Map.class);
+            Map<String, Object> response = dctmGateway.getGroup(groupName);
 
             Map<String, Object> result = new HashMap<>();
 
@@ -191,6 +162,8 @@ public class GroupService {
 
             return result;
 
+        } catch (DctmUnavailableException | DctmSessionExpiredException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error fetching group details for '{}': {}", groupName, e.getMessage(), e);
             throw new RuntimeException("Failed to fetch group details: " + e.getMessage());
@@ -200,119 +173,89 @@ public class GroupService {
     /**
      * Get all members of a group
      */
-    @SuppressWarnings("unchecked")
     public Map<String, Object> getGroupMembers(String groupName) {
-        String url = dctmConfig.getUrl() + "/repositories/" + dctmConfig.getRepository()
-                + "/groups/" + groupName;
-
         log.info("Fetching members for group: {}", groupName);
 
         try {
-            Map<String, Object> response = restClient.get()
-                    .uri(url)
-                    .header("Authorization", getAuthHeader())
-                    .header("Accept", "application/vnd.emc.documentum+json")
-                    .retrieve()
-                    .body(Map.class);
+            return toMembers(dctmGateway.getGroup(groupName));
+        } catch (DctmUnavailableException | DctmSessionExpiredException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error fetching members for group '{}': {}", groupName, e.getMessage(), e);
+            throw new RuntimeException("Failed to fetch group members: " + e.getMessage());
+        }
+    }
 
-            Map<String, Object> result = new HashMap<>();
+    /**
+     * User and group members of a group resource
+     */
+    @SuppressWarnings("unchecked")
+    Map<String, Object> toMembers(Map<String, Object> response) {
+        Map<String, Object> result = new HashMap<>();
 
-            if (response != null) {
-                Map<String, Object> props = (Map<String, Object>) response.get("properties");
-                if (props != null) {
-                    Object usersNames = props.get("users_names");
-                    Object groupsNames = props.get("groups_names");
-
-                    List<Map<String, String>> users = new ArrayList<>();
-                    List<Map<String, String>> groups = new ArrayList<>();
-
-                    // Process user members
-                    if (usersNames instanceof List) {
-                        for (Object name : (List<?>) usersNames) {
-                            if (name != null && !name.toString().trim().isEmpty()) {
-                                Map<String, String> user = new HashMap<>();
-                                user.put("name", name.toString());
-                                user.put("type", "user");
-                                users.add(user);
-                            }
+        if (response != null) {
+            Map<String, Object> props = (Map<String, Object>) response.get("properties");
+            if (props != null) {
+                Object usersNames = props.get("users_names");
+                Object groupsNames = props.get("groups_names");
+
+                List<Map<String, String>> users = new ArrayList<>();
+                List<Map<String, String>> groups = new ArrayList<>();
+
+                // Process user members
+                if (usersNames instanceof List) {
+                    for (Object name : (List<?>) usersNames) {
+                        if (name != null && !name.toString().trim().isEmpty()) {
+                            Map<String, String> user = new HashMap<>();
+                            user.put("name", name.toString());
+                            user.put("type", "user");
+                            users.add(user);
                         }
-                    } else if (usersNames != null && !usersNames.toString().trim().isEmpty()) {
-                        Map<String, String> user = new HashMap<>();
-                        user.put("name", usersNames.toString());
-                        user.put("type", "user");
-                        users.add(user);
                     }
+                } else if (usersNames != null && !usersNames.toString().trim().isEmpty()) {
+                    Map<String, String> user = new HashMap<>();
+                    user.put("name", usersNames.toString());
+                    user.put("type", "user");
+                    users.add(user);
+                }
 
-                    // Process group members
-                    if (groupsNames instanceof List) {
-                        for (Object name : (List<?>) groupsNames) {
-                            if (name != null && !name.toString().trim().isEmpty()) {
-                                Map<String, String> group = new HashMap<>();
-                                group.put("name", name.toString());
-                                group.put("type", "group");
-                                groups.add(group);
-                            }
+                // Process group members
+                if (groupsNames instanceof List) {
+                    for (Object name : (List<?>) groupsNames) {
+                        if (name != null && !name.toString().trim().isEmpty()) {
+                            Map<String, String> group = new HashMap<>();
+                            group.put("name", name.toString());
+                            group.put("type", "group");
+                            groups.add(group);
                         }
-                    } else if (groupsNames != null && !groupsNames.toString().trim().isEmpty()) {
-                        Map<String, String> group = new HashMap<>();
-                        group.put("name", groupsNames.toString());
-                        group.put("type", "group");
-                        groups.add(group);
                     }
-
-                    result.put("users", users);
-                    result.put("groups", groups);
-                    result.put("totalCount", users.size() + groups.size());
+                } else if (groupsNames != null && !groupsNames.toString().trim().isEmpty()) {
+                    Map<String, String> group = new HashMap<>();
+                    group.put("name", groupsNames.toString());
+                    group.put("type", "group");
+                    groups.add(group);
                 }
-            }
-
-            return result;
 
-        } catch (Exception e) {
-            log.error("Error fetching members for group '{}': {}", groupName, e.getMessage(), e);
-            throw new RuntimeException("Failed to fetch group members: " + e.getMessage());
+                result.put("users", users);
+                result.put("groups", groups);
+                result.put("totalCount", users.size() + groups.size());
+            }
         }
+
+        return result;
     }
 
     /**
      * Add a member to a group using DCTM REST API
      * The API expects a simple href reference to the user/group resource
      */
-    @SuppressWarnings("unchecked")
     public Map<String, Object> addMember(String groupName, String memberName, String memberType, String memberSrc) {
         log.info("Adding {} '{}' to group '{}'", memberType, memberName, groupName);
 
         try {
-            // Build the endpoint URL for adding to group
-            String addUrl;
-            String memberHref;
-
-            String baseUrl = dctmConfig.getUrl() + "/repositories/" + dctmConfig.getRepository();
-
-            if ("user".equalsIgnoreCase(memberType)) {
-                addUrl = baseUrl + "/groups/" + groupName + "/users";
-                memberHref = baseUrl + "/users/" + memberName;
-            } else {
-                addUrl = baseUrl + "/groups/" + groupName + "/groups";
-                memberHref = baseUrl + "/groups/" + memberName;
-            }
-
-            // The payload is simply an href reference to the member
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("href", memberHref);
-
-            log.info("Adding member via POST to: {}", addUrl);
-            log.info("Payload: {}", payload);
-
-            // Post the href reference to add the member
-            restClient.post()
-                    .uri(addUrl)
-                    .header("Authorization", getAuthHeader())
-                    .header("Content-Type", "application/vnd.emc.documentum+json")
-                    .header("Accept", "application/vnd.emc.documentum+json")
-                    .body(payload)
-                    .retrieve()
-                    .toBodilessEntity();
+            // Post an href reference to the member to the group's users/groups collection
+            dctmGateway.addGroupMember(groupName, memberType, memberName);
+            queryResultCache.invalidate();
 
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
@@ -321,6 +264,8 @@ public class GroupService {
             log.info("Successfully added {} '{}' to group '{}'", memberType, memberName, groupName);
             return result;
 
+        } catch (DctmUnavailableException | DctmSessionExpiredException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error adding member '{}' to group '{}': {}", memberName, groupName, e.getMessage(), e);
             Map<String, Object> result = new HashMap<>();
@@ -333,30 +278,13 @@ public class GroupService {
     /**
      * Remove a member from a group using DCTM REST API
      */
-    @SuppressWarnings("unchecked")
     public Map<String, Object> removeMember(String groupName, String memberName, String memberType) {
         log.info("Removing {} '{}' from group '{}'", memberType, memberName, groupName);
 
         try {
-            // Build the correct endpoint URL based on member type
-            String url;
-            if ("user".equalsIgnoreCase(memberType)) {
-                // DELETE /repositories/{repo}/groups/{groupName}/users/{userName}
-                url = dctmConfig.getUrl() + "/repositories/" + dctmConfig.getRepository()
-                        + "/groups/" + groupName + "/users/" + memberName;
-            } else {
-                // DELETE /repositories/{repo}/groups/{groupName}/groups/{memberName}
-                url = dctmConfig.getUrl() + "/repositories/" + dctmConfig.getRepository()
-                        + "/groups/" + groupName + "/groups/" + memberName;
-            }
-
-            // Remove the member using the dedicated REST endpoint
-            restClient.delete()
-                    .uri(url)
-                    .header("Authorization", getAuthHeader())
-                    .header("Accept", "application/vnd.emc.documentum+json")
-                    .retrieve()
-                    .toBodilessEntity();
+            // DELETE /repositories/{repo}/groups/{groupName}/users|groups/{memberName}
+            dctmGateway.removeGroupMember(groupName, memberType, memberName);
+            queryResultCache.invalidate();
 
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
@@ -364,6 +292,8 @@ public class GroupService {
 
             return result;
 
+        } catch (DctmUnavailableException | DctmSessionExpiredException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error removing member '{}' from group '{}': {}", memberName, groupName, e.getMessage(), e);
             Map<String, Object> result = new HashMap<>();
@@ -394,21 +324,10 @@ public class GroupService {
                 + escapedQuery + "%' ORDER BY group_name";
         }
 
-        String baseUrl = dctmConfig.getUrl() + "/repositories/" + dctmConfig.getRepository();
-
-        // Build URL using RestClient URI template to avoid encoding issues
-        // The RestClient will handle proper encoding
-        String url = baseUrl + "?dql={dql}&items-per-page=20&page=1&inline=true";
-
         log.info("Searching for {} with DQL: {}", type, dqlQuery);
 
         try {
-            Map<String, Object> response = restClient.get()
-                    .uri(url, dqlQuery)  // Use URI template with variable
-                    .header("Authorization", getAuthHeader())
-                    .header("Accept", "application/vnd.emc.documentum+json")
-                    .retrieve()
-                    .body(Map.class);
+            Map<String, Object> response = dctmGateway.query(dqlQuery, 20, 1);
 
             List<Map<String, String>> results = new ArrayList<>();
             List<Map<String, Object>> entries = (List<Map<String, Object>>) response.get("entries");
@@ -450,6 +369,8 @@ public class GroupService {
             log.info("Found {} {}s matching '{}'", results.size(), type, query);
             return result;
 
+        } catch (DctmUnavailableException | DctmSessionExpiredException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error searching for {} with query '{}': {}", type, query, e.getMessage(), e);
             Map<String, Object> result = new HashMap<>();
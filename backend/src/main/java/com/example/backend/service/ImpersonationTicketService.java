@@ -0,0 +1,230 @@
+package com.example.backend.service;
+
+import com.example.backend.config.AppConfig;
+import com.example.backend.gateway.DctmGateway;
+import com.example.backend.gateway.DctmRepositories;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Generates login tickets for support-team impersonation via the custom
+ * generateUserLoginTicket server method, caching one ticket per user and repository.
+ * Cached tickets expire shortly before the ticket itself does, concurrent requests
+ * for the same user share a single method execution, and the cache is LRU-bounded.
+ * A ticket whose generation was under way when the user's cache entry was invalidated is
+ * handed to the requests waiting for it but not cached, and later requests start a new one.
+ */
+@Service
+@Slf4j
+public class ImpersonationTicketService {
+
+    private final DctmGateway dctmGateway;
+    private final DctmRepositories repositories;
+    private final AppConfig.ImpersonationConfig impersonationConfig;
+
+    private final ReentrantLock cacheLock = new ReentrantLock();
+    private final Map<String, CachedTicket> tickets;
+    private final Map<String, Generation> inFlight = new ConcurrentHashMap<>();
+
+    public ImpersonationTicketService(DctmGateway dctmGateway, DctmRepositories repositories, AppConfig appConfig) {
+        this.dctmGateway = dctmGateway;
+        this.repositories = repositories;
+        this.impersonationConfig = appConfig.getImpersonation();
+
+        int maxEntries = impersonationConfig.getMaxCachedTickets();
+        this.tickets = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedTicket> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Get a login ticket for the given user, reusing a cached ticket while it is still valid
+     *
+     * @return result map with success flag and either the ticket or an error message
+     */
+    public Map<String, Object> getLoginTicket(String targetUser) {
+        String key = key(targetUser);
+        CachedTicket cached = getCached(key);
+        if (cached != null) {
+            log.info("Reusing cached login ticket for user: {}", targetUser);
+            return cached.toResult(targetUser);
+        }
+
+        Generation mine = new Generation();
+        Generation existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            // Another request is already generating a ticket for this user, share its result
+            try {
+                return new HashMap<>(existing.result.join());
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException
+                        ? (RuntimeException) e.getCause()
+                        : new RuntimeException(e.getCause());
+            }
+        }
+
+        try {
+            Map<String, Object> result = generateLoginTicket(key, mine, targetUser);
+            mine.result.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Drop the cached ticket of a user, e.g. after the user's ticket was revoked
+     */
+    public void invalidate(String username) {
+        cacheLock.lock();
+        try {
+            String key = key(username);
+            tickets.remove(key);
+            Generation running = inFlight.remove(key);
+            if (running != null) {
+                running.invalidated = true;
+            }
+        } finally {
+            cacheLock.unlock();
+        }
+        log.info("Invalidated cached login ticket for user: {}", username);
+    }
+
+    public void invalidateAll() {
+        cacheLock.lock();
+        try {
+            tickets.clear();
+            for (Iterator<Generation> running = inFlight.values().iterator(); running.hasNext(); ) {
+                running.next().invalidated = true;
+                running.remove();
+            }
+        } finally {
+            cacheLock.unlock();
+        }
+        log.info("Invalidated all cached login tickets");
+    }
+
+    /**
+     * Tickets are only valid in the repository that issued them
+     */
+    private String key(String username) {
+        return repositories.current().name() + '\n' + username;
+    }
+
+    private CachedTicket getCached(String key) {
+        cacheLock.lock();
+        try {
+            CachedTicket cached = tickets.get(key);
+            if (cached != null && Instant.now().isAfter(cached.reuseUntil())) {
+                tickets.remove(key);
+                return null;
+            }
+            return cached;
+        } finally {
+            cacheLock.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> generateLoginTicket(String key, Generation generation, String targetUser) {
+        Map<String, Object> result = new HashMap<>();
+
+        // Call custom Documentum method: generateUserLoginTicket
+        // This method must be created by Documentum Administrator
+        String methodDql = "EXECUTE generateUserLoginTicket WITH user_name='" +
+                          targetUser.replace("'", "''") + "'";
+
+        Map<String, Object> response = dctmGateway.execute(methodDql);
+
+        if (response != null && response.containsKey("entries")) {
+            List<Map<String, Object>> entries = (List<Map<String, Object>>) response.get("entries");
+
+            if (!entries.isEmpty()) {
+                Map<String, Object> entry = entries.get(0);
+                Map<String, Object> content = (Map<String, Object>) entry.get("content");
+
+                if (content != null && content.containsKey("properties")) {
+                    Map<String, Object> props = (Map<String, Object>) content.get("properties");
+
+                    // The method returns the ticket as the result
+                    String loginTicket = (String) props.get("result");
+
+                    if (loginTicket != null && !loginTicket.isEmpty() &&
+                        !loginTicket.startsWith("ERROR:")) {
+                        Instant issuedAt = Instant.now();
+                        CachedTicket ticket = new CachedTicket(loginTicket,
+                                issuedAt.plusSeconds(impersonationConfig.getTicketLifetimeSeconds()),
+                                issuedAt.plusSeconds(impersonationConfig.getTicketLifetimeSeconds()
+                                        - impersonationConfig.getExpirySafetyMarginSeconds()));
+                        cacheLock.lock();
+                        try {
+                            if (!generation.invalidated) {
+                                tickets.put(key, ticket);
+                            }
+                        } finally {
+                            cacheLock.unlock();
+                        }
+                        log.info("Successfully generated login ticket for user: {}", targetUser);
+                        return ticket.toResult(targetUser);
+                    } else {
+                        result.put("success", false);
+                        result.put("error", loginTicket != null ? loginTicket : "Failed to generate login ticket");
+                    }
+                } else {
+                    result.put("success", false);
+                    result.put("error", "No result returned from method");
+                }
+            } else {
+                result.put("success", false);
+                result.put("error", "Method execution returned no results");
+            }
+        } else {
+            result.put("success", false);
+            result.put("error", "Custom method 'generateUserLoginTicket' not found. Please contact Documentum Administrator to create this method.");
+        }
+        return result;
+    }
+
+    /**
+     * One execution of generateUserLoginTicket, shared by the requests for the same user
+     */
+    private static final class Generation {
+
+        private final CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+
+        // Set under cacheLock when the user's ticket is invalidated while this generation runs
+        private boolean invalidated;
+    }
+
+    private record CachedTicket(String ticket, Instant expiresAt, Instant reuseUntil) {
+
+        Map<String, Object> toResult(String username) {
+            long minutesLeft = Math.max(0, expiresAt.getEpochSecond() - Instant.now().getEpochSecond()) / 60;
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", true);
+            result.put("username", username);
+            result.put("loginTicket", ticket);
+            result.put("message", "Login ticket generated successfully (valid for " + minutesLeft + " minutes)");
+            result.put("expiresIn", minutesLeft + " minutes");
+            result.put("expiresAt", expiresAt.toString());
+            return result;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.backend.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps one Documentum login ticket fresh for a set of credentials.
+ * Readers never block: they get the current ticket (or null while none is valid), and a refresh
+ * is started in the background once the ticket enters its renewal window. Refreshes are
+ * single-flight, so concurrent readers never stampede the login-tickets endpoint.
+ */
+@Slf4j
+public class LoginTicketManager {
+
+    // Decoded DM_TICKET payloads carry "expire_time INT S 0\n<epoch seconds>"
+    private static final Pattern TICKET_EXPIRE_TIME = Pattern.compile("expire_time INT S 0\\s+(\\d+)");
+    private static final Duration FAILURE_BACKOFF = Duration.ofSeconds(5);
+
+    private final String name;
+    private final Supplier<LoginTicket> issuer;
+    private final Duration renewBefore;
+    private final ExecutorService refreshExecutor;
+
+    private final AtomicReference<LoginTicket> current = new AtomicReference<>();
+    private final AtomicReference<CompletableFuture<LoginTicket>> refreshing = new AtomicReference<>();
+    private volatile Instant retryAfter = Instant.MIN;
+
+    /**
+     * @param name        used in log messages and thread names
+     * @param issuer      obtains a new ticket from the repository (called on a background thread)
+     * @param renewBefore how long before expiry a replacement ticket is requested
+     */
+    public LoginTicketManager(String name, Supplier<LoginTicket> issuer, Duration renewBefore) {
+        this.name = name;
+        this.issuer = issuer;
+        this.renewBefore = renewBefore;
+        this.refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "login-ticket-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Current valid ticket, or null if none is available yet. Never blocks; starts a
+     * background refresh when the ticket is missing or due for renewal.
+     */
+    public String currentTicket() {
+        LoginTicket ticket = currentValid();
+        return ticket != null ? ticket.ticket() : null;
+    }
+
+    /**
+     * Precomputed "DmTicket ..." Authorization header for the current ticket, or null.
+     * Same non-blocking behaviour as {@link #currentTicket()}.
+     */
+    public String currentAuthHeader() {
+        LoginTicket ticket = currentValid();
+        return ticket != null ? ticket.authHeader() : null;
+    }
+
+    private LoginTicket currentValid() {
+        LoginTicket ticket = current.get();
+        Instant now = Instant.now();
+        if (ticket == null || !now.isBefore(ticket.renewAt(renewBefore))) {
+            refreshAsync();
+        }
+        return ticket != null && now.isBefore(ticket.expiresAt()) ? ticket : null;
+    }
+
+    /**
+     * Whether the given Authorization header carries the ticket currently held by this manager
+     */
+    public boolean issued(String authHeader) {
+        LoginTicket ticket = current.get();
+        return ticket != null && ticket.authHeader().equals(authHeader);
+    }
+
+    /**
+     * Start a refresh when the ticket is missing or due, e.g. from a background renewal schedule
+     */
+    public void renewIfDue() {
+        LoginTicket ticket = current.get();
+        if (ticket == null || !Instant.now().isBefore(ticket.renewAt(renewBefore))) {
+            refreshAsync();
+        }
+    }
+
+    /**
+     * Refresh the ticket, joining a refresh that is already running
+     */
+    public CompletableFuture<LoginTicket> refreshAsync() {
+        while (true) {
+            CompletableFuture<LoginTicket> running = refreshing.get();
+            if (running != null) {
+                return running;
+            }
+            if (Instant.now().isBefore(retryAfter)) {
+                return CompletableFuture.failedFuture(
+                        new IllegalStateException("Login ticket refresh for " + name + " is backing off"));
+            }
+            CompletableFuture<LoginTicket> mine = new CompletableFuture<>();
+            if (refreshing.compareAndSet(null, mine)) {
+                refreshExecutor.execute(() -> refresh(mine));
+                return mine;
+            }
+        }
+    }
+
+    private void refresh(CompletableFuture<LoginTicket> mine) {
+        LoginTicket ticket = null;
+        Exception failure = null;
+        try {
+            ticket = issuer.get();
+            current.set(ticket);
+        } catch (Exception e) {
+            retryAfter = Instant.now().plus(FAILURE_BACKOFF);
+            failure = e;
+        } finally {
+            // Cleared before the outcome is published, so callers reacting to it never rejoin this refresh
+            refreshing.compareAndSet(mine, null);
+        }
+        if (failure != null) {
+            log.error("Failed to obtain {} login ticket: {}", name, failure.getMessage());
+            mine.completeExceptionally(failure);
+        } else {
+            log.info("Obtained {} login ticket (expires at {})", name, ticket.expiresAt());
+            mine.complete(ticket);
+        }
+    }
+
+    /**
+     * Discard the given ticket (e.g. after the server rejected it), or any ticket if null
+     */
+    public void invalidate(String ticket) {
+        current.updateAndGet(existing ->
+                existing != null && (ticket == null || existing.ticket().equals(ticket)) ? null : existing);
+        retryAfter = Instant.MIN;
+    }
+
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * Build a ticket from a login-tickets response. The expiry is taken from the ticket itself
+     * or the response when present, otherwise the default lifetime is assumed.
+     */
+    @SuppressWarnings("unchecked")
+    public static LoginTicket fromResponse(Map<String, Object> response, Duration defaultLifetime) {
+        Object id = response.get("id") != null ? response.get("id") : response.get("ticket");
+        if (!(id instanceof String) || ((String) id).isEmpty()) {
+            throw new IllegalStateException("Login ticket response did not contain a ticket");
+        }
+        String ticket = (String) id;
+        Instant issuedAt = Instant.now();
+
+        Instant expiresAt = expiryFromTicket(ticket);
+        if (expiresAt == null) {
+            Object props = response.get("properties");
+            expiresAt = expiryFromFields(props instanceof Map ? (Map<String, Object>) props : response);
+        }
+        if (expiresAt == null || !expiresAt.isAfter(issuedAt)) {
+            expiresAt = issuedAt.plus(defaultLifetime);
+        }
+        return LoginTicket.of(ticket, issuedAt, expiresAt);
+    }
+
+    private static Instant expiryFromTicket(String ticket) {
+        String payload = ticket.startsWith("DM_TICKET=") ? ticket.substring("DM_TICKET=".length()) : ticket;
+        try {
+            String decoded = new String(Base64.getMimeDecoder().decode(payload), StandardCharsets.ISO_8859_1);
+            Matcher matcher = TICKET_EXPIRE_TIME.matcher(decoded);
+            return matcher.find() ? Instant.ofEpochSecond(Long.parseLong(matcher.group(1))) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Instant expiryFromFields(Map<String, Object> fields) {
+        for (String key : new String[] { "expiration", "expires", "expire-time", "expire_time" }) {
+            Object value = fields.get(key);
+            if (value != null) {
+                try {
+                    return Instant.parse(value.toString());
+                } catch (Exception e) {
+                    // Not an ISO timestamp, try the next field
+                }
+            }
+        }
+        Object timeout = fields.get("timeout");
+        if (timeout instanceof Number) {
+            return Instant.now().plusSeconds(((Number) timeout).longValue());
+        }
+        return null;
+    }
+
+    public record LoginTicket(String ticket, String authHeader, Instant issuedAt, Instant expiresAt) {
+
+        public static LoginTicket of(String ticket, Instant issuedAt, Instant expiresAt) {
+            return new LoginTicket(ticket, "DmTicket " + ticket, issuedAt, expiresAt);
+        }
+
+        /**
+         * Renew ahead of expiry, but never in the first half of a short-lived ticket's lifetime
+         */
+        Instant renewAt(Duration renewBefore) {
+            Duration halfLife = Duration.between(issuedAt, expiresAt).dividedBy(2);
+            return expiresAt.minus(renewBefore.compareTo(halfLife) < 0 ? renewBefore : halfLife);
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.example.backend.service;
+
+import com.example.backend.config.AppConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control for ad-hoc queries from the query console, so one heavy user cannot take the
+ * console's dctm-rest slots away from the other users.
+ * <ul>
+ * <li>Each user has a token bucket: a query takes a token, tokens refill at
+ * app.query.user-rate-per-minute up to app.query.user-burst, and a query without a token is
+ * refused at once. A bucket that has refilled is dropped, as a new one would be the same, so
+ * only users who queried recently hold one.</li>
+ * <li>At most app.query.max-concurrent-pages result pages of ad-hoc queries are in flight over all
+ * users. A page that finds no free slot queues; slots are handed out round-robin over the users
+ * with queued pages, so a user with many pages waiting gets no more turns than one with a single
+ * page. A page still queued after app.query.queue-timeout-ms fails its query, and with
+ * app.query.max-queued-pages waiting, further queries are refused without queueing.</li>
+ * </ul>
+ * Refusals are {@link QueryRejectedException}s carrying when to retry.
+ */
+@Component
+@Slf4j
+public class QueryAdmission {
+
+    // Queries run without a session use the configured account and share its bucket
+    private static final String SERVICE_ACCOUNT = "";
+
+    private final double tokensPerMs;
+    private final int burst;
+    private final int maxConcurrentPages;
+    private final long queueTimeoutMs;
+    private final int maxQueuedPages;
+    private final MeterRegistry meterRegistry;
+    private final Timer admittedWait;
+    private final Timer timedOutWait;
+
+    private final ReentrantLock bucketLock = new ReentrantLock();
+    // Access-ordered, so the buckets idle longest, which are the first to refill, come first
+    private final Map<String, Bucket> buckets = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // Users with queued pages, in the order their next turn comes up
+    private final Map<String, ArrayDeque<Waiter>> queues = new LinkedHashMap<>();
+    private int inFlight;
+    private int queued;
+
+    public QueryAdmission(AppConfig appConfig, MeterRegistry meterRegistry) {
+        AppConfig.QueryConfig config = appConfig.getQuery();
+        this.tokensPerMs = config.getUserRatePerMinute() / 60_000.0;
+        this.burst = Math.max(1, config.getUserBurst());
+        this.maxConcurrentPages = config.getMaxConcurrentPages();
+        this.queueTimeoutMs = config.getQueueTimeoutMs();
+        this.maxQueuedPages = config.getMaxQueuedPages();
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("dctm.query.admission.queued", this, QueryAdmission::queued)
+                .description("Ad-hoc query pages waiting for a slot")
+                .register(meterRegistry);
+        Gauge.builder("dctm.query.admission.in_flight", this, QueryAdmission::inFlight)
+                .description("Ad-hoc query pages being fetched")
+                .register(meterRegistry);
+        Gauge.builder("dctm.query.admission.buckets", this, QueryAdmission::bucketCount)
+                .description("Users holding a partly used query rate bucket")
+                .register(meterRegistry);
+        this.admittedWait = waitTimer("admitted");
+        this.timedOutWait = waitTimer("timeout");
+    }
+
+    /**
+     * Take a token from the current user's bucket for a new query.
+     *
+     * @throws QueryRejectedException when the user has no token left
+     */
+    public void admit() {
+        if (tokensPerMs <= 0) {
+            return;
+        }
+        String user = currentUser();
+        long retryAfterMillis;
+        bucketLock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            evictRefilled(now);
+            retryAfterMillis = buckets.computeIfAbsent(user, u -> new Bucket(burst, now)).take(tokensPerMs, burst, now);
+        } finally {
+            bucketLock.unlock();
+        }
+        if (retryAfterMillis > 0) {
+            throw reject("rate_limited", "Query rate limit reached, retry in "
+                    + TimeUnit.MILLISECONDS.toSeconds(retryAfterMillis + 999) + "s", retryAfterMillis);
+        }
+    }
+
+    /**
+     * Take a slot for fetching one result page, queueing for up to the queue timeout.
+     *
+     * @throws QueryRejectedException when the queue is full or no slot freed up in time
+     */
+    public Slot acquirePage() {
+        if (maxConcurrentPages <= 0) {
+            return Slot.NONE;
+        }
+        long start = System.nanoTime();
+        Waiter waiter;
+        lock.lock();
+        try {
+            if (inFlight < maxConcurrentPages && queued == 0) {
+                inFlight++;
+                admittedWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return new Slot(this);
+            }
+            if (queued >= maxQueuedPages) {
+                throw reject("queue_full", "Too many queries are waiting, retry in "
+                        + TimeUnit.MILLISECONDS.toSeconds(queueTimeoutMs + 999) + "s", queueTimeoutMs);
+            }
+            waiter = new Waiter(lock.newCondition());
+            queues.computeIfAbsent(currentUser(), u -> new ArrayDeque<>()).add(waiter);
+            queued++;
+
+            long remaining = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs);
+            boolean interrupted = false;
+            while (!waiter.granted && remaining > 0 && !interrupted) {
+                try {
+                    remaining = waiter.turn.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (!waiter.granted) {
+                withdraw(waiter);
+                timedOutWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                throw reject("queue_timeout", "No query slot freed up within " + queueTimeoutMs + "ms",
+                        queueTimeoutMs);
+            }
+        } finally {
+            lock.unlock();
+        }
+        admittedWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return new Slot(this);
+    }
+
+    /**
+     * Take a slot only if one is free and nobody is queued, for pages that are merely fetched
+     * ahead; null otherwise
+     */
+    public Slot tryAcquirePage() {
+        if (maxConcurrentPages <= 0) {
+            return Slot.NONE;
+        }
+        lock.lock();
+        try {
+            if (inFlight < maxConcurrentPages && queued == 0) {
+                inFlight++;
+                return new Slot(this);
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hand a freed slot to the next user's oldest queued page, or return it to the pool
+     */
+    private void release() {
+        lock.lock();
+        try {
+            Iterator<Map.Entry<String, ArrayDeque<Waiter>>> users = queues.entrySet().iterator();
+            if (!users.hasNext()) {
+                inFlight--;
+                return;
+            }
+            Map.Entry<String, ArrayDeque<Waiter>> next = users.next();
+            users.remove();
+            Waiter waiter = next.getValue().poll();
+            if (!next.getValue().isEmpty()) {
+                // Back of the line until every other waiting user had a turn
+                queues.put(next.getKey(), next.getValue());
+            }
+            queued--;
+            waiter.granted = true;
+            waiter.turn.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop the buckets that have refilled since their last query, least recently used first
+     */
+    private void evictRefilled(long now) {
+        Iterator<Bucket> idle = buckets.values().iterator();
+        while (idle.hasNext() && idle.next().refilled(tokensPerMs, burst, now)) {
+            idle.remove();
+        }
+    }
+
+    private void withdraw(Waiter waiter) {
+        Iterator<ArrayDeque<Waiter>> users = queues.values().iterator();
+        while (users.hasNext()) {
+            ArrayDeque<Waiter> waiting = users.next();
+            if (waiting.remove(waiter)) {
+                if (waiting.isEmpty()) {
+                    users.remove();
+                }
+                queued--;
+                return;
+            }
+        }
+    }
+
+    private QueryRejectedException reject(String reason, String message, long retryAfterMillis) {
+        meterRegistry.counter("dctm.query.admission.rejected", "reason", reason).increment();
+        log.warn("Refused ad-hoc query of {} ({}): {}", displayUser(currentUser()), reason, message);
+        return new QueryRejectedException(reason, message, retryAfterMillis);
+    }
+
+    private Timer waitTimer(String outcome) {
+        return Timer.builder("dctm.query.admission.wait")
+                .description("Time ad-hoc query pages waited for a slot")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private int queued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int bucketCount() {
+        bucketLock.lock();
+        try {
+            return buckets.size();
+        } finally {
+            bucketLock.unlock();
+        }
+    }
+
+    private int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String currentUser() {
+        DctmSession session = SessionContext.current();
+        return session != null ? session.getUsername() : SERVICE_ACCOUNT;
+    }
+
+    private static String displayUser(String user) {
+        return user.isEmpty() ? "the service account" : user;
+    }
+
+    /**
+     * A page slot; release it once the page has been received or has failed
+     */
+    public static final class Slot implements AutoCloseable {
+
+        private static final Slot NONE = new Slot(null);
+
+        private final QueryAdmission admission;
+        // Released from whichever thread completes the page, possibly racing a close()
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Slot(QueryAdmission admission) {
+            this.admission = admission;
+        }
+
+        public void release() {
+            if (admission == null || !released.compareAndSet(false, true)) {
+                return;
+            }
+            admission.release();
+        }
+
+        @Override
+        public void close() {
+            release();
+        }
+    }
+
+    private static final class Waiter {
+
+        private final Condition turn;
+        private boolean granted;
+
+        private Waiter(Condition turn) {
+            this.turn = turn;
+        }
+    }
+
+    private static final class Bucket {
+
+        private double tokens;
+        private long refilledAt;
+
+        private Bucket(int tokens, long now) {
+            this.tokens = tokens;
+            this.refilledAt = now;
+        }
+
+        /**
+         * Whether the bucket is back at the burst, i.e. no different from a new one
+         */
+        private boolean refilled(double tokensPerMs, int burst, long now) {
+            return tokens + (now - refilledAt) * tokensPerMs >= burst;
+        }
+
+        /**
+         * Take a token; returns 0 when one was taken, otherwise the milliseconds until one is available
+         */
+        private long take(double tokensPerMs, int burst, long now) {
+            tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerMs);
+            refilledAt = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / tokensPerMs);
+        }
+    }
+}
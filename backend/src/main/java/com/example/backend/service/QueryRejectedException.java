@@ -0,0 +1,28 @@
+package com.example.backend.service;
+
+/**
+ * An ad-hoc query was refused by {@link QueryAdmission} before it (or one of its pages) reached
+ * dctm-rest. Reported as 429 with the time to wait before retrying.
+ */
+public class QueryRejectedException extends RuntimeException {
+
+    private final String reason;
+    private final long retryAfterMillis;
+
+    public QueryRejectedException(String reason, String message, long retryAfterMillis) {
+        super(message);
+        this.reason = reason;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * rate_limited, queue_full or queue_timeout
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.backend.service;
+
+import com.example.backend.cluster.ClusterNode;
+import com.example.backend.cluster.ClusterRegion;
+import com.example.backend.config.AppConfig;
+import com.example.backend.gateway.DctmRepositories;
+import com.example.backend.gateway.DctmRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Results of ad-hoc SELECT queries, reused when the same user runs the same query with the same
+ * limit again within app.query.result-cache-ttl-ms (off by default). Results are kept per
+ * repository and per user, since what a query returns depends on the user's permissions, and
+ * are shared with the other backend nodes when clustering is enabled. A modifying statement run
+ * through the console or a group membership change drops the repository's results on every node;
+ * anything else changed in the repository shows up once the results expire.
+ */
+@Component
+@Slf4j
+public class QueryResultCache {
+
+    private final long ttlMs;
+    private final DctmRepositories repositories;
+    private final Map<String, Store> stores = new HashMap<>();
+
+    public QueryResultCache(AppConfig appConfig, DctmRepositories repositories, ClusterNode clusterNode,
+                            MeterRegistry meterRegistry) {
+        this.ttlMs = appConfig.getQuery().getResultCacheTtlMs();
+        this.repositories = repositories;
+        for (String repository : repositories.names()) {
+            Store store = new Store(appConfig.getQuery().getResultCacheMaxEntries());
+            store.cluster = clusterNode.region("queries", repository, store);
+            stores.put(repository, store);
+            Gauge.builder("dctm.query.results.cached", store, Store::size)
+                    .description("Cached ad-hoc query results")
+                    .tag("repository", repository)
+                    .register(meterRegistry);
+        }
+    }
+
+    public boolean isEnabled() {
+        return ttlMs > 0;
+    }
+
+    /**
+     * Cached result of a query for the current user, or null
+     */
+    public Map<String, Object> get(String dql, int limit) {
+        if (!isEnabled()) {
+            return null;
+        }
+        DctmRepository repository = repositories.current();
+        Store store = stores.get(repository.name());
+        String key = key(repository, dql, limit);
+        Entry entry = store.lookup(key);
+        if (entry == null) {
+            Entry copy = store.cluster.fetch(key, Entry.class);
+            if (copy != null && copy.expiresAt() > System.currentTimeMillis()) {
+                store.put(key, copy);
+                entry = copy;
+            }
+        }
+        return entry != null ? new HashMap<>(entry.result()) : null;
+    }
+
+    public void put(String dql, int limit, Map<String, Object> result) {
+        if (!isEnabled()) {
+            return;
+        }
+        DctmRepository repository = repositories.current();
+        stores.get(repository.name()).put(key(repository, dql, limit),
+                new Entry(System.currentTimeMillis() + ttlMs, new HashMap<>(result)));
+    }
+
+    /**
+     * Drop every cached result of the current repository, on all nodes
+     */
+    public void invalidate() {
+        if (!isEnabled()) {
+            return;
+        }
+        Store store = stores.get(repositories.current().name());
+        store.evictAll();
+        store.cluster.invalidateAll();
+        log.debug("Invalidated cached query results of {}", repositories.current().name());
+    }
+
+    private static String key(DctmRepository repository, String dql, int limit) {
+        DctmSession session = SessionContext.current();
+        String user = session != null ? session.getUsername() : repository.config().getUsername();
+        return user + '\n' + limit + '\n' + dql;
+    }
+
+    /**
+     * Results of one repository, LRU-bounded
+     */
+    private static final class Store implements ClusterRegion.Local {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, Entry> entries;
+        private ClusterRegion cluster;
+
+        private Store(int maxEntries) {
+            this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, QueryResultCache.Entry> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+
+        @Override
+        public Entry lookup(String key) {
+            lock.lock();
+            try {
+                Entry entry = entries.get(key);
+                if (entry != null && entry.expiresAt() <= System.currentTimeMillis()) {
+                    entries.remove(key);
+                    return null;
+                }
+                return entry;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void evict(String key) {
+            lock.lock();
+            try {
+                entries.remove(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void evictAll() {
+            lock.lock();
+            try {
+                entries.clear();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void put(String key, Entry entry) {
+            lock.lock();
+            try {
+                entries.put(key, entry);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int size() {
+            lock.lock();
+            try {
+                return entries.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private record Entry(long expiresAt, Map<String, Object> result) {
+    }
+}
@@ -1,44 +1,54 @@
 package com.example.backend.service;
 
-import com.example.backend.config.DctmConfig;
+import com.example.backend.config.AppConfig;
+import com.example.backend.gateway.DctmAsyncGateway;
+import com.example.backend.gateway.DctmGateway;
+import com.example.backend.gateway.DctmSessionExpiredException;
+import com.example.backend.gateway.DctmUnavailableException;
+import com.example.backend.gateway.DqlPageSizer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClient;
 
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @Slf4j
 public class QueryService {
 
-    private final DctmConfig dctmConfig;
-    private final RestClient restClient;
-
-    public QueryService(DctmConfig dctmConfig, RestClient.Builder restClientBuilder) {
-        this.dctmConfig = dctmConfig;
-        this.restClient = restClientBuilder.build();
-    }
-
-    private String getAuthHeader() {
-        String username = dctmConfig.getUsername();
-        String password = dctmConfig.getPassword();
-        return "Basic " + Base64.getEncoder().encodeToString(
-                (username + ":" + password).getBytes(StandardCharsets.UTF_8));
+    private final DctmGateway dctmGateway;
+    private final DctmAsyncGateway dctmAsyncGateway;
+    private final QueryResultCache resultCache;
+    private final QueryAdmission admission;
+    private final DqlPageSizer pageSizer;
+    private final int pagePrefetch;
+
+    public QueryService(DctmGateway dctmGateway, DctmAsyncGateway dctmAsyncGateway, QueryResultCache resultCache,
+                        QueryAdmission admission, DqlPageSizer pageSizer, AppConfig appConfig) {
+        this.dctmGateway = dctmGateway;
+        this.dctmAsyncGateway = dctmAsyncGateway;
+        this.resultCache = resultCache;
+        this.admission = admission;
+        this.pageSizer = pageSizer;
+        this.pagePrefetch = Math.max(1, appConfig.getQuery().getPagePrefetch());
     }
 
     /**
      * Execute a DQL query and return results.
      * Automatically adds r_object_id and r_object_type to the SELECT if not present.
      * Uses DQL ENABLE(RETURN_TOP n) hint to limit results at database level.
+     * SELECT results may be served from the {@link QueryResultCache}; any other statement
+     * invalidates it. Queries that reach the repository go through {@link QueryAdmission} and
+     * are fetched in pages sized by the {@link DqlPageSizer}.
      *
      * @param dqlQuery The DQL query to execute
      * @param limit Maximum number of results to return (uses DQL hint)
+     * @throws QueryRejectedException when the user's rate limit is reached or no page slot frees up
+     * @throws DctmUnavailableException when console calls are refused by their circuit breaker or bulkhead
      */
     @SuppressWarnings("unchecked")
     public Map<String, Object> executeQuery(String dqlQuery, int limit) {
@@ -59,36 +69,59 @@ public class QueryService {
         // Add DQL ENABLE(RETURN_TOP n) hint to limit results at database level
         modifiedQuery = addReturnTopHint(modifiedQuery, effectiveLimit);
 
-        // Build URL
-        String baseUrl = dctmConfig.getUrl() + "/repositories/" + dctmConfig.getRepository();
+        boolean select = modifiedQuery.regionMatches(true, 0, "SELECT", 0, 6);
+        if (select) {
+            Map<String, Object> cached = resultCache.get(modifiedQuery, effectiveLimit);
+            if (cached != null) {
+                log.info("Serving cached result of DQL query with limit {}: {}", effectiveLimit, modifiedQuery);
+                return cached;
+            }
+        }
 
+        admission.admit();
         log.info("Executing DQL query with limit {}: {}", effectiveLimit, modifiedQuery);
 
         try {
             List<Map<String, Object>> allRows = new ArrayList<>();
             List<String> columns = new ArrayList<>();
-            int page = 1;
-            int itemsPerPage = Math.min(100, effectiveLimit); // Fetch in batches
-            boolean hasMore = true;
+            int itemsPerPage = pageSizer.pageSize(modifiedQuery, effectiveLimit);
+
+            // The first page tells whether there are more; later pages are fetched a window at a time
+            Map<String, Object> response;
+            try (QueryAdmission.Slot slot = admission.acquirePage()) {
+                response = dctmGateway.consoleQuery(modifiedQuery, itemsPerPage, 1);
+            }
+            allRows.addAll(rowsOf(response, columns));
+            boolean hasMore = hasNext(response);
+            if (hasMore && !allRows.isEmpty() && allRows.size() < itemsPerPage) {
+                // dctm-rest capped the page size; later pages are numbered by its size
+                pageSizer.checkServerLimit(itemsPerPage, allRows.size(), true);
+                itemsPerPage = allRows.size();
+            }
             int maxPages = (int) Math.ceil((double) effectiveLimit / itemsPerPage);
+            int page = 2;
 
             while (hasMore && page <= maxPages && allRows.size() < effectiveLimit) {
-                Map<String, Object> response = restClient.get()
-                        .uri(baseUrl + "?dql={dql}&items-per-page={itemsPerPage}&page={page}&inline=true",
-                                modifiedQuery, itemsPerPage, page)
-                        .header("Authorization", getAuthHeader())
-                        .header("Accept", "application/vnd.emc.documentum+json")
-                        .retrieve()
-                        .body(Map.class);
-
-                Map<String, Object> pageResult = transformPageResponse(response, columns);
-                List<Map<String, Object>> pageRows = (List<Map<String, Object>>) pageResult.get("rows");
-                allRows.addAll(pageRows);
-
-                // Check if there's a next page
-                List<Map<String, Object>> links = (List<Map<String, Object>>) response.get("links");
-                hasMore = links != null && links.stream().anyMatch(link -> "next".equals(link.get("rel")));
-                page++;
+                int window = Math.min(pagePrefetch, maxPages - page + 1);
+                List<CompletableFuture<Map<String, Object>>> pages = new ArrayList<>(window);
+                // The next page waits for a slot; pages beyond it are only fetched ahead on free ones
+                QueryAdmission.Slot slot = admission.acquirePage();
+                for (int i = 0; i < window && slot != null; i++) {
+                    pages.add(queryPage(modifiedQuery, itemsPerPage, page + i, slot));
+                    slot = i + 1 < window ? admission.tryAcquirePage() : null;
+                }
+
+                // Consume in page order; pages past the last one are discarded
+                for (CompletableFuture<Map<String, Object>> next : pages) {
+                    if (!hasMore || allRows.size() >= effectiveLimit) {
+                        next.cancel(false);
+                        continue;
+                    }
+                    response = DctmAsyncGateway.join(next);
+                    allRows.addAll(rowsOf(response, columns));
+                    hasMore = hasNext(response);
+                    page++;
+                }
             }
 
             // Ensure we don't exceed the limit
@@ -101,8 +134,13 @@ public class QueryService {
             result.put("columns", columns);
             result.put("totalCount", allRows.size());
             result.put("limit", effectiveLimit);
+            if (select) {
+                resultCache.put(modifiedQuery, effectiveLimit, result);
+            }
             return result;
 
+        } catch (QueryRejectedException | DctmUnavailableException | DctmSessionExpiredException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error executing DQL query", e);
             Map<String, Object> errorResult = new HashMap<>();
@@ -110,6 +148,11 @@ public class QueryService {
             errorResult.put("columns", new ArrayList<>());
             errorResult.put("error", "Query failed: " + e.getMessage());
             return errorResult;
+        } finally {
+            if (!select) {
+                // Even a failed statement may have changed something
+                resultCache.invalidate();
+            }
         }
     }
 
@@ -125,7 +168,7 @@ public class QueryService {
      * Skips modification for aggregate queries (count, sum, avg, etc.) and SELECT
      * *.
      */
-    private String ensureRequiredColumns(String query) {
+    String ensureRequiredColumns(String query) {
         String upperQuery = query.toUpperCase();
 
         // Check if it's a SELECT query
@@ -206,7 +249,7 @@ public class QueryService {
      * @param limit The maximum number of rows to return
      * @return Query with RETURN_TOP hint
      */
-    private String addReturnTopHint(String query, int limit) {
+    String addReturnTopHint(String query, int limit) {
         String trimmedQuery = query.trim();
         String upperQuery = trimmedQuery.toUpperCase();
 
@@ -225,11 +268,39 @@ public class QueryService {
         return trimmedQuery + " ENABLE(RETURN_TOP " + limit + ")";
     }
 
+    /**
+     * Request a page through the non-blocking client, holding the admission slot until it arrives.
+     * The slot is released by the returned future itself, so discarding (cancelling) it releases
+     * the slot too.
+     */
+    private CompletableFuture<Map<String, Object>> queryPage(String dql, int itemsPerPage, int page,
+                                                             QueryAdmission.Slot slot) {
+        try {
+            CompletableFuture<Map<String, Object>> request = dctmAsyncGateway.consoleQuery(dql, itemsPerPage, page);
+            request.whenComplete((response, failure) -> slot.release());
+            return request;
+        } catch (RuntimeException e) {
+            slot.release();
+            throw e;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> rowsOf(Map<String, Object> response, List<String> columns) {
+        return (List<Map<String, Object>>) transformPageResponse(response, columns).get("rows");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean hasNext(Map<String, Object> response) {
+        List<Map<String, Object>> links = response != null ? (List<Map<String, Object>>) response.get("links") : null;
+        return links != null && links.stream().anyMatch(link -> "next".equals(link.get("rel")));
+    }
+
     /**
      * Transform a single page response and populate columns if empty.
      */
     @SuppressWarnings("unchecked")
-    private Map<String, Object> transformPageResponse(Map<String, Object> response, List<String> columns) {
+    Map<String, Object> transformPageResponse(Map<String, Object> response, List<String> columns) {
         Map<String, Object> result = new HashMap<>();
 
         if (response == null) {
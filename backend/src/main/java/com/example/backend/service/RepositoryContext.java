@@ -0,0 +1,79 @@
+package com.example.backend.service;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Holds the repository the request being processed on the current thread asked for.
+ * Bound by the repository filter for requests that name one, and by background tasks that work
+ * through the repositories in turn; a logged-in session's repository takes precedence over it.
+ */
+public final class RepositoryContext {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private RepositoryContext() {
+    }
+
+    /**
+     * Repository asked for on the current thread, or null for the default
+     */
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    public static void bind(String repository) {
+        CURRENT.set(repository);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Run a task with the given repository bound, restoring the previous one afterwards
+     */
+    public static void runIn(String repository, Runnable task) {
+        String previous = CURRENT.get();
+        CURRENT.set(repository);
+        try {
+            task.run();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * Wrap a task so it runs against the caller's repository
+     */
+    public static Runnable wrap(Runnable task) {
+        String repository = CURRENT.get();
+        if (repository == null) {
+            return task;
+        }
+        return () -> runIn(repository, task);
+    }
+
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        String repository = CURRENT.get();
+        if (repository == null) {
+            return task;
+        }
+        return () -> {
+            String previous = CURRENT.get();
+            CURRENT.set(repository);
+            try {
+                return task.call();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    private static void restore(String previous) {
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.backend.service;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Holds the session of the request being processed on the current thread.
+ * Bound by the session filter for the duration of a request; work handed to other
+ * threads must be wrapped so it runs as the same user.
+ */
+public final class SessionContext {
+
+    private static final ThreadLocal<DctmSession> CURRENT = new ThreadLocal<>();
+
+    private SessionContext() {
+    }
+
+    /**
+     * Session of the current request, or null when the request runs as the configured account
+     */
+    public static DctmSession current() {
+        return CURRENT.get();
+    }
+
+    public static void bind(DctmSession session) {
+        CURRENT.set(session);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Wrap a task so it runs with the caller's session bound
+     */
+    public static Runnable wrap(Runnable task) {
+        DctmSession session = CURRENT.get();
+        if (session == null) {
+            return task;
+        }
+        return () -> {
+            DctmSession previous = CURRENT.get();
+            CURRENT.set(session);
+            try {
+                task.run();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        DctmSession session = CURRENT.get();
+        if (session == null) {
+            return task;
+        }
+        return () -> {
+            DctmSession previous = CURRENT.get();
+            CURRENT.set(session);
+            try {
+                return task.call();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    private static void restore(DctmSession previous) {
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+}
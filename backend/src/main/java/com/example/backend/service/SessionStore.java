@@ -0,0 +1,220 @@
+package com.example.backend.service;
+
+import com.example.backend.config.AppConfig;
+import com.example.backend.config.DctmConfig;
+import com.example.backend.gateway.DctmThreads;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Server-side sessions created at login, each bound to the user's Documentum login ticket.
+ * Sessions end after an absolute TTL or when idle for too long; tickets of live sessions are
+ * renewed in the background ahead of expiry using the ticket itself. The number of sessions
+ * is bounded: when full, expired sessions are swept and then the least recently used is evicted,
+ * one login at a time.
+ */
+@Service
+@Slf4j
+public class SessionStore {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final DctmAuthService dctmAuthService;
+    private final AppConfig.SessionConfig sessionConfig;
+    private final Duration renewBefore;
+    private final ExecutorService renewExecutor;
+
+    private final Map<String, DctmSession> sessions = new ConcurrentHashMap<>();
+    private final ReentrantLock createLock = new ReentrantLock();
+    private final Counter createdCounter;
+    private final Counter evictedCounter;
+    private final Counter renewFailureCounter;
+
+    public SessionStore(DctmAuthService dctmAuthService, DctmConfig dctmConfig, AppConfig appConfig,
+                        MeterRegistry meterRegistry, DctmThreads dctmThreads) {
+        this.dctmAuthService = dctmAuthService;
+        this.sessionConfig = appConfig.getSession();
+        this.renewBefore = dctmConfig.getTicketRenewBefore();
+
+        this.renewExecutor = Executors.newFixedThreadPool(Math.max(1, sessionConfig.getRenewConcurrency()),
+                dctmThreads.factory("session-ticket-renew-"));
+
+        this.createdCounter = meterRegistry.counter("app.sessions.created");
+        this.evictedCounter = meterRegistry.counter("app.sessions.evicted");
+        this.renewFailureCounter = meterRegistry.counter("app.sessions.ticket.renew.failures");
+        Gauge.builder("app.sessions.active", sessions, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Create a session for a user that has just authenticated
+     *
+     * @param ticket login ticket issued to the user at login
+     */
+    public DctmSession create(String username, String repository, LoginTicketManager.LoginTicket ticket) {
+        Instant now = Instant.now();
+        DctmSession session = new DctmSession(newToken(), username, repository, ticket, now,
+                now.plus(Duration.ofMinutes(sessionConfig.getTtlMinutes())));
+
+        // Other threads only ever remove sessions, so checking the limit and inserting under one
+        // lock keeps concurrent logins from overshooting it
+        createLock.lock();
+        try {
+            if (sessions.size() >= sessionConfig.getMaxSessions()) {
+                sweep();
+                evictLeastRecentlyUsed(sessions.size() - sessionConfig.getMaxSessions() + 1);
+            }
+            sessions.put(session.getId(), session);
+        } finally {
+            createLock.unlock();
+        }
+        createdCounter.increment();
+        log.info("Created session for user '{}' on repository '{}' ({} active)", username, repository, sessions.size());
+        return session;
+    }
+
+    /**
+     * Look up a live session and mark it as used
+     *
+     * @return the session, or null if the token is unknown, expired or idle for too long
+     */
+    public DctmSession get(String token) {
+        if (token == null) {
+            return null;
+        }
+        DctmSession session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (!isLive(session, now)) {
+            remove(session, "expired");
+            return null;
+        }
+        session.touch(now);
+        return session;
+    }
+
+    /**
+     * End a session, e.g. on logout
+     */
+    public boolean invalidate(String token) {
+        DctmSession session = token != null ? sessions.remove(token) : null;
+        if (session != null) {
+            log.info("Ended session of user '{}'", session.getUsername());
+        }
+        return session != null;
+    }
+
+    /**
+     * End the session holding the given ticket, after the repository rejected it (e.g. restarted)
+     *
+     * @return the ended session, or null if no session holds that ticket
+     */
+    public DctmSession endRejected(String authHeader) {
+        for (DctmSession session : sessions.values()) {
+            if (session.getAuthHeader().equals(authHeader) && sessions.remove(session.getId(), session)) {
+                evictedCounter.increment();
+                log.warn("Ended session of user '{}', its login ticket was rejected by repository {}",
+                        session.getUsername(), session.getRepository());
+                return session;
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Drop expired and idle sessions and renew the tickets of live sessions that are due
+     */
+    @Scheduled(fixedDelayString = "${app.session.sweep-interval-ms:30000}")
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        Instant nowInstant = Instant.ofEpochMilli(now);
+        List<DctmSession> due = new ArrayList<>();
+
+        for (DctmSession session : sessions.values()) {
+            if (!isLive(session, now)) {
+                remove(session, "expired");
+            } else if (!nowInstant.isBefore(session.getTicket().renewAt(renewBefore))
+                    && session.getTicket().expiresAt().isBefore(session.getExpiresAt())) {
+                due.add(session);
+            }
+        }
+
+        for (DctmSession session : due) {
+            renewExecutor.execute(() -> renew(session));
+        }
+    }
+
+    private void renew(DctmSession session) {
+        if (!sessions.containsKey(session.getId())) {
+            return;
+        }
+        try {
+            session.setTicket(dctmAuthService.requestLoginTicket(session.getRepository(), session.getAuthHeader()));
+        } catch (Exception e) {
+            renewFailureCounter.increment();
+            // The old ticket stays in use until it expires; the next sweep tries again
+            log.warn("Failed to renew login ticket of user '{}': {}", session.getUsername(), e.getMessage());
+        }
+    }
+
+    private boolean isLive(DctmSession session, long now) {
+        return now < session.getExpiresAt().toEpochMilli()
+                && now < session.getTicket().expiresAt().toEpochMilli()
+                && now - session.getLastAccessMillis() < Duration.ofMinutes(sessionConfig.getIdleTimeoutMinutes()).toMillis();
+    }
+
+    private void evictLeastRecentlyUsed(int count) {
+        for (int i = 0; i < count; i++) {
+            DctmSession oldest = null;
+            for (DctmSession session : sessions.values()) {
+                if (oldest == null || session.getLastAccessMillis() < oldest.getLastAccessMillis()) {
+                    oldest = session;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            remove(oldest, "evicted (session limit reached)");
+        }
+    }
+
+    private void remove(DctmSession session, String reason) {
+        if (sessions.remove(session.getId(), session)) {
+            evictedCounter.increment();
+            log.debug("Session of user '{}' {}", session.getUsername(), reason);
+        }
+    }
+
+    private static String newToken() {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renewExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,341 @@
+package com.example.backend.service;
+
+import com.example.backend.cluster.ClusterNode;
+import com.example.backend.cluster.ClusterRegion;
+import com.example.backend.config.AppConfig;
+import com.example.backend.gateway.DctmGateway;
+import com.example.backend.gateway.DctmRepositories;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory snapshot of active dm_user rows, used for the impersonation dropdown.
+ * The snapshot is built in full on startup, patched with r_modify_date deltas on every
+ * refresh and rebuilt periodically to drop users that were deleted from the repository.
+ * Each configured repository has its own snapshot. With clustering enabled a node that needs a
+ * full load takes over a peer's recent snapshot instead and only queries the delta since.
+ */
+@Service
+@Slf4j
+public class UserDirectoryService {
+
+    private static final String USER_COLUMNS = "user_name, user_address, user_privileges, user_state, r_modify_date";
+    private static final DateTimeFormatter DQL_DATE = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss");
+    private static final String SNAPSHOT_KEY = "snapshot";
+
+    private final DctmGateway dctmGateway;
+    private final DctmRepositories repositories;
+    private final AppConfig.DirectoryConfig directoryConfig;
+
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    public UserDirectoryService(DctmGateway dctmGateway, DctmRepositories repositories, AppConfig appConfig,
+                                ClusterNode clusterNode) {
+        this.dctmGateway = dctmGateway;
+        this.repositories = repositories;
+        this.directoryConfig = appConfig.getDirectory();
+        for (String repository : repositories.names()) {
+            Snapshot snapshot = new Snapshot();
+            snapshot.cluster = clusterNode.region("directory", repository, snapshot);
+            snapshots.put(repository, snapshot);
+        }
+    }
+
+    /**
+     * Search active users in the snapshot by user name or email address.
+     *
+     * @param query optional case-insensitive substring filter
+     * @param page  1-based page number
+     * @param size  page size, or null for app.directory.search-page-size; capped at
+     *              app.directory.max-search-page-size, so no search returns the whole directory
+     */
+    public Map<String, Object> searchUsers(String query, int page, Integer size) {
+        Snapshot snapshot = snapshot(repositories.current().name());
+        if (snapshot.lastFullLoad == 0) {
+            refresh(snapshot);
+            if (snapshot.lastFullLoad == 0) {
+                throw new RuntimeException("User directory is not available: " + snapshot.lastError);
+            }
+        }
+
+        List<Map<String, Object>> users = snapshot.sortedUsers;
+        List<Map<String, Object>> matches = users;
+        if (query != null && !query.isBlank()) {
+            String needle = query.trim().toLowerCase(Locale.ROOT);
+            matches = new ArrayList<>();
+            for (Map<String, Object> user : users) {
+                if (contains(user.get("username"), needle) || contains(user.get("email"), needle)) {
+                    matches.add(user);
+                }
+            }
+        }
+
+        int pageSize = size != null && size > 0
+                ? Math.min(size, directoryConfig.getMaxSearchPageSize())
+                : directoryConfig.getSearchPageSize();
+        int from = (int) Math.min((long) Math.max(page - 1, 0) * pageSize, matches.size());
+        int to = Math.min(from + pageSize, matches.size());
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("users", matches.subList(from, to));
+        result.put("count", to - from);
+        result.put("total", matches.size());
+        result.put("page", page);
+        result.put("size", pageSize);
+        result.put("hasNext", to < matches.size());
+        result.put("refreshedAt", snapshot.lastRefresh);
+        return result;
+    }
+
+    /**
+     * Refresh the snapshot of every repository in turn
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.directory.refresh-interval-ms:60000}")
+    public void refresh() {
+        for (String repository : repositories.names()) {
+            RepositoryContext.runIn(repository, () -> refresh(snapshot(repository)));
+        }
+    }
+
+    private Snapshot snapshot(String repository) {
+        return snapshots.get(repository);
+    }
+
+    /**
+     * Rebuild the snapshot when due, otherwise apply the users modified since the last refresh.
+     * Runs against the repository bound to the current thread, which must be the snapshot's own.
+     */
+    private void refresh(Snapshot snapshot) {
+        if (!snapshot.refreshLock.tryLock()) {
+            // Another thread is refreshing; callers waiting for the first load block until it is done
+            if (snapshot.lastFullLoad == 0) {
+                snapshot.refreshLock.lock();
+                snapshot.refreshLock.unlock();
+            }
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            if (snapshot.lastFullLoad == 0 || now - snapshot.lastFullLoad >= directoryConfig.getFullRebuildIntervalMs()) {
+                if (!adoptPeerSnapshot(snapshot, now)) {
+                    fullLoad(snapshot);
+                    snapshot.lastFullLoad = now;
+                }
+            } else {
+                applyDelta(snapshot);
+            }
+            snapshot.lastRefresh = now;
+            snapshot.lastError = null;
+        } catch (Exception e) {
+            snapshot.lastError = e.getMessage();
+            log.error("Failed to refresh user directory snapshot of {}: {}",
+                    repositories.current().name(), e.getMessage());
+        } finally {
+            snapshot.refreshLock.unlock();
+        }
+    }
+
+    private void fullLoad(Snapshot snapshot) {
+        Map<String, Map<String, Object>> loaded = new HashMap<>();
+        OffsetDateTime maxModified = null;
+
+        String dql = "SELECT " + USER_COLUMNS + " FROM dm_user WHERE user_state = 0 ORDER BY user_name";
+        int page = 1;
+        boolean hasMore = true;
+        while (hasMore) {
+            Map<String, Object> response = fetchPage(dql, page++);
+            for (Map<String, Object> props : rows(response)) {
+                loaded.put((String) props.get("user_name"), toUser(props));
+                maxModified = later(maxModified, props.get("r_modify_date"));
+            }
+            hasMore = hasNext(response);
+        }
+
+        snapshot.usersByName.keySet().retainAll(loaded.keySet());
+        snapshot.usersByName.putAll(loaded);
+        snapshot.watermark = maxModified;
+        snapshot.publish();
+        log.info("Loaded user directory snapshot of {} with {} active users",
+                repositories.current().name(), loaded.size());
+    }
+
+    /**
+     * Take over a peer's snapshot when it was loaded in full more recently than this one and is
+     * not due for a rebuild itself, then catch up with the users modified since its watermark
+     */
+    private boolean adoptPeerSnapshot(Snapshot snapshot, long now) {
+        SharedSnapshot shared = snapshot.cluster.fetch(SNAPSHOT_KEY, SharedSnapshot.class);
+        if (shared == null || shared.watermark() == null || shared.users() == null
+                || shared.fullLoadAt() <= snapshot.lastFullLoad
+                || now - shared.fullLoadAt() >= directoryConfig.getFullRebuildIntervalMs()) {
+            return false;
+        }
+        Map<String, Map<String, Object>> adopted = new HashMap<>();
+        for (Map<String, Object> user : shared.users()) {
+            adopted.put((String) user.get("username"), Map.copyOf(user));
+        }
+        snapshot.usersByName.keySet().retainAll(adopted.keySet());
+        snapshot.usersByName.putAll(adopted);
+        snapshot.watermark = OffsetDateTime.parse(shared.watermark());
+        snapshot.lastFullLoad = shared.fullLoadAt();
+        applyDelta(snapshot);
+        log.info("Took over the user directory snapshot of {} with {} active users from a peer",
+                repositories.current().name(), adopted.size());
+        return true;
+    }
+
+    private void applyDelta(Snapshot snapshot) {
+        OffsetDateTime watermark = snapshot.watermark;
+        if (watermark == null) {
+            fullLoad(snapshot);
+            return;
+        }
+
+        // Overlap the previous watermark so clock skew or equal timestamps never lose a change
+        OffsetDateTime since = watermark.minusSeconds(directoryConfig.getDeltaOverlapSeconds());
+        String dql = "SELECT " + USER_COLUMNS + " FROM dm_user WHERE r_modify_date >= DATE('"
+                + since.format(DQL_DATE) + "', 'yyyy/mm/dd hh:mi:ss')";
+
+        int changed = 0;
+        OffsetDateTime maxModified = watermark;
+        int page = 1;
+        boolean hasMore = true;
+        while (hasMore) {
+            Map<String, Object> response = fetchPage(dql, page++);
+            for (Map<String, Object> props : rows(response)) {
+                String userName = (String) props.get("user_name");
+                Object state = props.get("user_state");
+                if (state instanceof Number && ((Number) state).intValue() == 0) {
+                    changed += snapshot.usersByName.put(userName, toUser(props)) == null ? 1 : 0;
+                } else {
+                    changed += snapshot.usersByName.remove(userName) != null ? 1 : 0;
+                }
+                maxModified = later(maxModified, props.get("r_modify_date"));
+            }
+            hasMore = hasNext(response);
+        }
+
+        snapshot.watermark = maxModified;
+        snapshot.publish();
+        if (changed > 0) {
+            log.info("Applied user directory delta of {}: {} users added or removed",
+                    repositories.current().name(), changed);
+        }
+    }
+
+    private Map<String, Object> fetchPage(String dql, int page) {
+        return dctmGateway.query(dql, directoryConfig.getPageSize(), page);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> rows(Map<String, Object> response) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        if (response == null || !(response.get("entries") instanceof List)) {
+            return rows;
+        }
+        for (Map<String, Object> entry : (List<Map<String, Object>>) response.get("entries")) {
+            Map<String, Object> content = (Map<String, Object>) entry.get("content");
+            if (content != null && content.get("properties") instanceof Map) {
+                rows.add((Map<String, Object>) content.get("properties"));
+            }
+        }
+        return rows;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean hasNext(Map<String, Object> response) {
+        List<Map<String, Object>> links = response != null ? (List<Map<String, Object>>) response.get("links") : null;
+        return links != null && links.stream().anyMatch(link -> "next".equals(link.get("rel")));
+    }
+
+    private static Map<String, Object> toUser(Map<String, Object> props) {
+        Map<String, Object> user = new HashMap<>();
+        user.put("username", props.get("user_name"));
+        user.put("email", props.get("user_address"));
+        Object privileges = props.get("user_privileges");
+        user.put("isSuperuser", privileges instanceof Number && ((Number) privileges).intValue() == 16);
+        return Map.copyOf(withoutNulls(user));
+    }
+
+    private static Map<String, Object> withoutNulls(Map<String, Object> map) {
+        map.values().removeIf(value -> value == null);
+        return map;
+    }
+
+    private static boolean contains(Object value, String needle) {
+        return value != null && value.toString().toLowerCase(Locale.ROOT).contains(needle);
+    }
+
+    private static OffsetDateTime later(OffsetDateTime current, Object modifyDate) {
+        if (modifyDate == null) {
+            return current;
+        }
+        try {
+            OffsetDateTime parsed = OffsetDateTime.parse(modifyDate.toString());
+            return current == null || parsed.isAfter(current) ? parsed : current;
+        } catch (DateTimeParseException e) {
+            return current;
+        }
+    }
+
+    /**
+     * Active users of one repository and the state of their refresh
+     */
+    private static final class Snapshot implements ClusterRegion.Local {
+
+        private final ReentrantLock refreshLock = new ReentrantLock();
+        private final Map<String, Map<String, Object>> usersByName = new ConcurrentHashMap<>();
+        private volatile List<Map<String, Object>> sortedUsers = List.of();
+        private volatile OffsetDateTime watermark;
+        private volatile long lastFullLoad;
+        private volatile long lastRefresh;
+        private volatile String lastError;
+        private ClusterRegion cluster;
+
+        @Override
+        public Object lookup(String key) {
+            OffsetDateTime currentWatermark = watermark;
+            if (!SNAPSHOT_KEY.equals(key) || lastFullLoad == 0 || currentWatermark == null) {
+                return null;
+            }
+            return new SharedSnapshot(sortedUsers, currentWatermark.toString(), lastFullLoad);
+        }
+
+        /**
+         * Snapshots are kept current by delta refreshes, peers never invalidate them
+         */
+        @Override
+        public void evict(String key) {
+        }
+
+        @Override
+        public void evictAll() {
+        }
+
+        private void publish() {
+            List<Map<String, Object>> sorted = new ArrayList<>(usersByName.values());
+            sorted.sort(Comparator.comparing(user -> String.valueOf(user.get("username")),
+                    String.CASE_INSENSITIVE_ORDER));
+            sortedUsers = List.copyOf(sorted);
+        }
+    }
+
+    /**
+     * A snapshot as copied between nodes
+     */
+    private record SharedSnapshot(List<Map<String, Object>> users, String watermark, long fullLoadAt) {
+    }
+}
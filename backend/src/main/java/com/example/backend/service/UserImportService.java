@@ -0,0 +1,334 @@
+package com.example.backend.service;
+
+import com.example.backend.config.AppConfig;
+import com.example.backend.gateway.DctmThreads;
+import com.example.backend.gateway.RequestProfile;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * Bulk import of cms_user_profile changes (e.g. the quarterly HR spreadsheets).
+ * Rows are streamed from CSV or JSON, validated against {@link UserService#ALLOWED_PROFILE_PROPERTIES},
+ * patched with bounded concurrency, and dm_user status changes are handed to the
+ * {@link DmUserStatusSyncQueue} in one go, which applies them with a few set-based UPDATE statements.
+ */
+@Service
+@Slf4j
+public class UserImportService {
+
+    private static final String ID_COLUMN = "r_object_id";
+    private static final Pattern OBJECT_ID = Pattern.compile("[0-9a-fA-F]{16}");
+
+    private final UserService userService;
+    private final DmUserStatusSyncQueue statusSyncQueue;
+    private final AppConfig appConfig;
+    private final ObjectMapper objectMapper;
+    private final DctmThreads dctmThreads;
+
+    public UserImportService(UserService userService, DmUserStatusSyncQueue statusSyncQueue,
+                             AppConfig appConfig, ObjectMapper objectMapper, DctmThreads dctmThreads) {
+        this.userService = userService;
+        this.statusSyncQueue = statusSyncQueue;
+        this.appConfig = appConfig;
+        this.objectMapper = objectMapper;
+        this.dctmThreads = dctmThreads;
+    }
+
+    /**
+     * Import profile changes and return a per-row result report.
+     * Each row must contain r_object_id plus any of the allowed profile properties. Input that
+     * cannot be read past some row ends the import there, reported as error; the rows read
+     * before it are still patched, and the status changes of every patched row are queued.
+     *
+     * @param input       CSV (header row + one row per profile) or a JSON array of objects
+     * @param contentType request content type, used to pick the parser
+     */
+    public Map<String, Object> importProfiles(InputStream input, String contentType) {
+        int concurrency = Math.max(1, appConfig.getUsers().getImportConcurrency());
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, dctmThreads.factory("user-import-"));
+        // Bound queued patches so the input is consumed at the pace the repository accepts them
+        Semaphore inFlight = new Semaphore(concurrency * 2);
+
+        List<Map<String, Object>> rowResults = new ArrayList<>();
+        List<Patch> patches = new ArrayList<>();
+        Map<String, Integer> firstRowById = new HashMap<>();
+        Map<String, Boolean> activeByProfileId = new LinkedHashMap<>();
+        String inputError = null;
+
+        try {
+            BiConsumer<Integer, Map<String, Object>> rowHandler = (rowNumber, row) -> {
+                Map<String, Object> rowResult = new LinkedHashMap<>();
+                rowResult.put("row", rowNumber);
+                rowResult.put(ID_COLUMN, row != null ? row.get(ID_COLUMN) : null);
+                rowResults.add(rowResult);
+
+                String error = row != null ? validate(row) : "Row is not a JSON object";
+                if (error == null) {
+                    Integer firstRow = firstRowById.putIfAbsent((String) row.get(ID_COLUMN), rowNumber);
+                    if (firstRow != null) {
+                        error = "Duplicate r_object_id (first seen in row " + firstRow + ")";
+                    }
+                }
+                if (error != null) {
+                    rowResult.put("status", "invalid");
+                    rowResult.put("message", error);
+                    return;
+                }
+
+                String objectId = (String) row.get(ID_COLUMN);
+                Map<String, Object> props = new HashMap<>(row);
+                props.remove(ID_COLUMN);
+                Boolean active = null;
+                if (props.containsKey("is_active")) {
+                    active = UserService.parseActive(props.get("is_active"));
+                    props.put("is_active", active);
+                }
+
+                // Completed with the error message of a failed patch, null once it is applied
+                CompletableFuture<String> outcome = new CompletableFuture<>();
+                patches.add(new Patch(rowResult, active, outcome));
+                inFlight.acquireUninterruptibly();
+                executor.execute(SessionContext.wrap(RepositoryContext.wrap(RequestProfile.wrap(() -> {
+                    try {
+                        userService.patchUserProfile(objectId, props);
+                        outcome.complete(null);
+                    } catch (Exception e) {
+                        outcome.complete(e.getMessage() != null ? e.getMessage() : e.toString());
+                    } finally {
+                        inFlight.release();
+                    }
+                }))));
+            };
+
+            if (contentType != null && contentType.toLowerCase().contains("csv")) {
+                readCsv(input, rowHandler);
+            } else {
+                readJson(input, rowHandler);
+            }
+        } catch (IOException e) {
+            inputError = "Import stopped after " + rowResults.size() + " rows: " + e.getMessage();
+            log.warn("User profile import stopped: {}", e.getMessage());
+        } finally {
+            boolean interrupted = false;
+            for (Patch patch : patches) {
+                String error;
+                try {
+                    error = interrupted ? "Import interrupted" : patch.outcome().get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    error = "Import interrupted";
+                } catch (ExecutionException e) {
+                    error = e.getCause().getMessage();
+                }
+                patch.rowResult().put("status", error == null ? "updated" : "failed");
+                if (error != null) {
+                    patch.rowResult().put("message", error);
+                } else if (patch.active() != null) {
+                    activeByProfileId.put((String) patch.rowResult().get(ID_COLUMN), patch.active());
+                }
+            }
+            executor.shutdownNow();
+            // Queue the dm_user.user_state sync for the profiles that were actually updated
+            statusSyncQueue.enqueueAll(activeByProfileId);
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+                inputError = "Import interrupted";
+            }
+        }
+
+        Map<String, Object> statusSync = new HashMap<>();
+        statusSync.put("queued", activeByProfileId.size());
+        statusSync.put("pending", statusSyncQueue.pendingCount());
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("total", rowResults.size());
+        result.put("updated", countStatus(rowResults, "updated"));
+        result.put("invalid", countStatus(rowResults, "invalid"));
+        result.put("failed", countStatus(rowResults, "failed"));
+        result.put("rows", rowResults);
+        result.put("statusSync", statusSync);
+        if (inputError != null) {
+            result.put("error", inputError);
+        }
+
+        log.info("User profile import finished: {} rows, {} updated, {} invalid, {} failed",
+                rowResults.size(), result.get("updated"), result.get("invalid"), result.get("failed"));
+        return result;
+    }
+
+    private String validate(Map<String, Object> row) {
+        Object objectId = row.get(ID_COLUMN);
+        if (!(objectId instanceof String) || !OBJECT_ID.matcher((String) objectId).matches()) {
+            return "Missing or invalid r_object_id";
+        }
+
+        List<String> unknown = new ArrayList<>();
+        for (String key : row.keySet()) {
+            if (!ID_COLUMN.equals(key) && !UserService.ALLOWED_PROFILE_PROPERTIES.contains(key)) {
+                unknown.add(key);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            return "Properties not allowed: " + String.join(", ", unknown);
+        }
+        if (row.size() == 1) {
+            return "No properties to update";
+        }
+
+        Object active = row.get("is_active");
+        if (active != null && !(active instanceof Boolean)
+                && !"true".equalsIgnoreCase(active.toString().trim())
+                && !"false".equalsIgnoreCase(active.toString().trim())) {
+            return "is_active must be true or false";
+        }
+        return null;
+    }
+
+    private static long countStatus(List<Map<String, Object>> rowResults, String status) {
+        return rowResults.stream().filter(row -> status.equals(row.get("status"))).count();
+    }
+
+    /**
+     * Stream a JSON array of row objects; an element that is not an object is passed on as a null row
+     */
+    @SuppressWarnings("unchecked")
+    private void readJson(InputStream input, BiConsumer<Integer, Map<String, Object>> rowHandler) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array of profile rows");
+            }
+            int rowNumber = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new IOException("Unexpected end of the JSON array");
+                }
+                if (token == JsonToken.START_OBJECT) {
+                    rowHandler.accept(++rowNumber, objectMapper.readValue(parser, Map.class));
+                } else {
+                    parser.skipChildren();
+                    rowHandler.accept(++rowNumber, null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stream CSV rows. The first record holds the column names; empty cells are left unchanged.
+     * Quoted cells may contain commas, doubled quotes and line breaks. Rows are numbered by the
+     * line they start on.
+     */
+    private void readCsv(InputStream input, BiConsumer<Integer, Map<String, Object>> rowHandler) throws IOException {
+        CsvReader reader = new CsvReader(new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)));
+        List<String> columns = reader.next();
+        if (columns == null) {
+            return;
+        }
+        if (!columns.isEmpty() && columns.get(0).startsWith("\uFEFF")) {
+            columns.set(0, columns.get(0).substring(1)); // Excel writes a BOM
+        }
+
+        List<String> values;
+        while ((values = reader.next()) != null) {
+            if (values.size() == 1 && values.get(0).isBlank()) {
+                continue;
+            }
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 0; i < columns.size() && i < values.size(); i++) {
+                if (!values.get(i).isEmpty()) {
+                    row.put(columns.get(i).trim(), values.get(i));
+                }
+            }
+            rowHandler.accept(reader.recordLine(), row);
+        }
+    }
+
+    /**
+     * Reads RFC 4180 records one at a time; cells are trimmed
+     */
+    private static final class CsvReader {
+
+        private final BufferedReader reader;
+        private int line = 1;
+        private int recordLine;
+
+        CsvReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        int recordLine() {
+            return recordLine;
+        }
+
+        /**
+         * Cells of the next record, or null at the end of the input
+         */
+        List<String> next() throws IOException {
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            recordLine = line;
+            List<String> values = new ArrayList<>();
+            StringBuilder current = new StringBuilder();
+            boolean quoted = false;
+            for (; c != -1; c = reader.read()) {
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        if (reader.read() == '"') {
+                            current.append('"');
+                        } else {
+                            reader.reset();
+                            quoted = false;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            line++;
+                        }
+                        current.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    values.add(current.toString().trim());
+                    current.setLength(0);
+                } else if (c == '\n') {
+                    line++;
+                    break;
+                } else if (c != '\r') {
+                    current.append((char) c);
+                }
+            }
+            if (quoted) {
+                throw new IOException("Unterminated quoted cell in the row starting on line " + recordLine);
+            }
+            values.add(current.toString().trim());
+            return values;
+        }
+    }
+
+    private record Patch(Map<String, Object> rowResult, Boolean active, CompletableFuture<String> outcome) {
+    }
+}
@@ -1,41 +1,31 @@
 package com.example.backend.service;
 
-import com.example.backend.config.DctmConfig;
+import com.example.backend.config.AppConfig;
+import com.example.backend.gateway.DctmAsyncGateway;
+import com.example.backend.gateway.DctmGateway;
+import com.example.backend.gateway.DctmSessionExpiredException;
+import com.example.backend.gateway.DctmUnavailableException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClient;
 
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @Slf4j
 public class WorkflowService {
 
-    private final DctmConfig dctmConfig;
-    private final DctmAuthService authService;
-    private final RestClient restClient;
+    private final DctmGateway dctmGateway;
+    private final DctmAsyncGateway dctmAsyncGateway;
+    private final int detailConcurrency;
 
-    public WorkflowService(DctmConfig dctmConfig,
-                          DctmAuthService authService,
-                          RestClient.Builder restClientBuilder) {
-        this.dctmConfig = dctmConfig;
-        this.authService = authService;
-        this.restClient = restClientBuilder.build();
-    }
-
-    // Use this for regular read operations
-    private String getAuthHeader() {
-        return authService.getUserAuthHeader();
-    }
-
-    // Use this for privileged write operations
-    private String getServiceAuthHeader() {
-        return authService.getServiceAuthHeader();
+    public WorkflowService(DctmGateway dctmGateway, DctmAsyncGateway dctmAsyncGateway, AppConfig appConfig) {
+        this.dctmGateway = dctmGateway;
+        this.dctmAsyncGateway = dctmAsyncGateway;
+        this.detailConcurrency = Math.max(1, appConfig.getWorkflow().getDetailConcurrency());
     }
 
     @org.springframework.beans.factory.annotation.Value("${app.workflow.processes}")
@@ -59,30 +49,19 @@ public class WorkflowService {
     // Use DQL to fetch running workflows with task details
     // Use standard REST API to fetch workflows
     public Map<String, Object> getRunningWorkflows(String processName, int page, int itemsPerPage) {
-        String url = dctmConfig.getUrl() + "/repositories/" + dctmConfig.getRepository() + "/workflows";
-
         // Build query params
         // Filter by process_id (the r_object_id of the workflow template)
         // Note: REST API filter doesn't support AND for multiple conditions easily
         // The 'processName' parameter should be the process template ID (e.g.,
         // 4b02cba08000624a)
 
-        String filterQuery = "process_id='" + processName + "'";
-
-        // Build URL manually to avoid over-encoding of the filter parameter
-        // The filter expression like process_id='xxx' should NOT have = encoded
-        String fullUrl = url + "?filter=" + filterQuery +
-                "&items-per-page=" + itemsPerPage +
-                "&page=" + page +
-                "&inline=true";
+        // Sent as an encoded query parameter; dctm-rest decodes it back to process_id='xxx'
+        String filter = "process_id='" + processName.replace("'", "''") + "'";
 
         try {
-            return restClient.get()
-                    .uri(fullUrl)
-                    .header("Authorization", getAuthHeader())
-                    .header("Accept", "application/vnd.emc.documentum+json")
-                    .retrieve()
-                    .body(Map.class);
+            return dctmGateway.listWorkflows(filter, page, itemsPerPage);
+        } catch (DctmUnavailableException | DctmSessionExpiredException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error fetching workflows", e);
             throw new RuntimeException("Failed to fetch running workflows: " + e.getMessage());
@@ -96,29 +75,18 @@ public class WorkflowService {
     public Map<String, Object> getWorkflowsForCase(String caseId) {
         Map<String, Object> result = new HashMap<>();
         List<Map<String, Object>> workflows = new ArrayList<>();
-        List<String> debugLogs = new ArrayList<>();
-
-        debugLogs.add("Starting workflow search for Case ID: " + caseId);
 
         try {
             // Step 1: Get chronicle ID for the case
             String chronId = "";
             try {
-                String caseUrl = dctmConfig.getUrl() + "/repositories/" + dctmConfig.getRepository() +
-                        "/objects/" + caseId;
-                Map<String, Object> caseProps = restClient.get()
-                        .uri(caseUrl)
-                        .header("Authorization", getAuthHeader())
-                        .header("Accept", "application/vnd.emc.documentum+json")
-                        .retrieve()
-                        .body(Map.class);
+                Map<String, Object> caseProps = dctmGateway.getObject(caseId);
                 if (caseProps != null && caseProps.containsKey("properties")) {
                     Map<String, Object> props = (Map<String, Object>) caseProps.get("properties");
                     chronId = (String) props.get("i_chronicle_id");
-                    debugLogs.add("Found Chronicle ID: " + chronId);
                 }
             } catch (Exception e) {
-                debugLogs.add("Could not fetch chronicle ID: " + e.getMessage());
+                log.debug("Could not fetch chronicle ID of case {}: {}", caseId, e.getMessage());
             }
 
             // Step 2: Build DQL to find workflow packages
@@ -130,23 +98,12 @@ public class WorkflowService {
                 packageDql.append(" OR ANY r_component_chron_id = '").append(chronId).append("'");
             }
 
-            String baseUrl = dctmConfig.getUrl() + "/repositories/" + dctmConfig.getRepository();
-
-            debugLogs.add("Package DQL: " + packageDql.toString());
-
-            Map<String, Object> packageResponse = restClient.get()
-                    .uri(baseUrl + "?dql={dql}&inline=true&items-per-page={itemsPerPage}",
-                            packageDql.toString(), 100)
-                    .header("Authorization", getAuthHeader())
-                    .header("Accept", "application/vnd.emc.documentum+json")
-                    .retrieve()
-                    .body(Map.class);
+            Map<String, Object> packageResponse = dctmGateway.query(packageDql.toString(), 100);
 
             // Step 3: Extract workflow IDs
             List<String> workflowIds = new ArrayList<>();
             if (packageResponse != null && packageResponse.containsKey("entries")) {
                 List<Map<String, Object>> entries = (List<Map<String, Object>>) packageResponse.get("entries");
-                debugLogs.add("Found " + entries.size() + " package entries.");
 
                 for (Map<String, Object> entry : entries) {
                     Map<String, Object> content = (Map<String, Object>) entry.get("content");
@@ -155,129 +112,130 @@ public class WorkflowService {
                         String wfId = (String) props.get("r_workflow_id");
                         if (wfId != null && !workflowIds.contains(wfId) && !wfId.equals("0000000000000000")) {
                             workflowIds.add(wfId);
-                            debugLogs.add("Added Workflow ID: " + wfId);
                         }
                     }
                 }
-            } else {
-                debugLogs.add("No package entries found.");
             }
 
             log.info("Found {} unique workflow IDs for case {}", workflowIds.size(), caseId);
 
-            // Step 4: Fetch details for each workflow
-            for (String workflowId : workflowIds) {
+            // Step 4: Fetch workflow details, up to app.workflow.detail-concurrency at a time so a case
+            // with many workflows doesn't take every query slot; each piece falls back on its own
+            List<CompletableFuture<Map<String, Object>>> details = new ArrayList<>();
+            for (int i = 0; i < workflowIds.size(); i++) {
+                if (i >= detailConcurrency) {
+                    awaitQuietly(details.get(i - detailConcurrency));
+                }
+                details.add(fetchWorkflowDetails(workflowIds.get(i)));
+            }
+            for (int i = 0; i < details.size(); i++) {
                 try {
-                    Map<String, Object> workflowDetails = new HashMap<>();
-                    workflowDetails.put("r_object_id", workflowId);
-
-                    // Fetch workflow object properties
-                    try {
-                        String workflowUrl = dctmConfig.getUrl() + "/repositories/" + dctmConfig.getRepository() +
-                                "/objects/" + workflowId;
-
-                        Map<String, Object> wfResponse = restClient.get()
-                                .uri(workflowUrl)
-                                .header("Authorization", getAuthHeader())
-                                .header("Accept", "application/vnd.emc.documentum+json")
-                                .retrieve()
-                                .body(Map.class);
-
-                        if (wfResponse != null && wfResponse.containsKey("properties")) {
-                            workflowDetails.putAll((Map<String, Object>) wfResponse.get("properties"));
-                        }
-                    } catch (Exception e) {
-                        debugLogs.add("Error fetching workflow object " + workflowId + ": " + e.getMessage());
-                        workflowDetails.put("process_name", "Unknown (ID: " + workflowId + ")");
-                        workflowDetails.put("r_runtime_state", "unknown");
-                    }
-
-                    // Fetch work items (activity history)
-                    try {
-                        String tasksDql = "SELECT r_object_id, r_act_seqno, r_runtime_state, r_performer_name, r_creation_date, r_act_def_id, a_wq_name "
-                                +
-                                "FROM dmi_workitem WHERE r_workflow_id = '" + workflowId
-                                + "' ORDER BY r_act_seqno ASC, r_creation_date ASC";
-
-                        Map<String, Object> tasksResponse = restClient.get()
-                                .uri(baseUrl + "?dql={dql}&inline=true&items-per-page={itemsPerPage}",
-                                        tasksDql, 100)
-                                .header("Authorization", getAuthHeader())
-                                .header("Accept", "application/vnd.emc.documentum+json")
-                                .retrieve()
-                                .body(Map.class);
-
-                        List<Map<String, Object>> tasks = new ArrayList<>();
-                        if (tasksResponse != null && tasksResponse.containsKey("entries")) {
-                            List<Map<String, Object>> taskEntries = (List<Map<String, Object>>) tasksResponse
-                                    .get("entries");
-                            for (Map<String, Object> taskEntry : taskEntries) {
-                                Map<String, Object> taskContent = (Map<String, Object>) taskEntry.get("content");
-                                if (taskContent != null && taskContent.containsKey("properties")) {
-                                    tasks.add((Map<String, Object>) taskContent.get("properties"));
-                                }
-                            }
-                        }
-                        workflowDetails.put("workItems", tasks);
-                    } catch (Exception e) {
-                        debugLogs.add("Error fetching work items for " + workflowId + ": " + e.getMessage());
-                        workflowDetails.put("workItems", new ArrayList<>());
-                    }
-
-                    // Fetch queue items (current inbox status)
-                    try {
-                        String queueDql = "SELECT r_object_id, name, task_state, sent_by, date_sent, item_id, router_id "
-                                +
-                                "FROM dmi_queue_item WHERE router_id = '" + workflowId + "'";
-
-                        Map<String, Object> queueResponse = restClient.get()
-                                .uri(baseUrl + "?dql={dql}&inline=true&items-per-page={itemsPerPage}",
-                                        queueDql, 100)
-                                .header("Authorization", getAuthHeader())
-                                .header("Accept", "application/vnd.emc.documentum+json")
-                                .retrieve()
-                                .body(Map.class);
-
-                        List<Map<String, Object>> queueItems = new ArrayList<>();
-                        if (queueResponse != null && queueResponse.containsKey("entries")) {
-                            List<Map<String, Object>> qEntries = (List<Map<String, Object>>) queueResponse
-                                    .get("entries");
-                            for (Map<String, Object> qEntry : qEntries) {
-                                Map<String, Object> qContent = (Map<String, Object>) qEntry.get("content");
-                                if (qContent != null && qContent.containsKey("properties")) {
-                                    queueItems.add((Map<String, Object>) qContent.get("properties"));
-                                }
-                            }
-                        }
-                        workflowDetails.put("queueItems", queueItems);
-                    } catch (Exception e) {
-                        debugLogs.add("Error fetching queue items for " + workflowId + ": " + e.getMessage());
-                        workflowDetails.put("queueItems", new ArrayList<>());
-                    }
-
-                    workflows.add(workflowDetails);
+                    workflows.add(DctmAsyncGateway.join(details.get(i)));
+                } catch (DctmUnavailableException | DctmSessionExpiredException e) {
+                    throw e;
                 } catch (Exception e) {
-                    debugLogs.add("Critical error processing workflow " + workflowId + ": " + e.getMessage());
+                    log.warn("Error processing workflow {}: {}", workflowIds.get(i), e.getMessage());
                 }
             }
 
             result.put("workflows", workflows);
             result.put("count", workflows.size());
-            result.put("debug", debugLogs);
             log.info("Successfully fetched {} workflow details for case {}", workflows.size(), caseId);
 
+        } catch (DctmUnavailableException | DctmSessionExpiredException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error fetching workflows for case {}: {}", caseId, e.getMessage());
             result.put("workflows", workflows);
             result.put("count", 0);
             result.put("error", "Failed to fetch workflow information: " + e.getMessage());
-            debugLogs.add("Exception: " + e.getMessage());
-            result.put("debug", debugLogs);
         }
 
         return result;
     }
 
+    /**
+     * Wait for a fetch to finish; its outcome is read later
+     */
+    private static void awaitQuietly(CompletableFuture<?> future) {
+        try {
+            future.join();
+        } catch (RuntimeException e) {
+            // Reported when the result is collected
+        }
+    }
+
+    /**
+     * Fetch a workflow object, its work items (activity history) and queue items (current inbox
+     * status) concurrently. Calls refused by dctm-rest's circuit breaker or bulkhead fail the fetch
+     * rather than leaving placeholders.
+     */
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<Map<String, Object>> fetchWorkflowDetails(String workflowId) {
+        String tasksDql = "SELECT r_object_id, r_act_seqno, r_runtime_state, r_performer_name, r_creation_date, r_act_def_id, a_wq_name "
+                +
+                "FROM dmi_workitem WHERE r_workflow_id = '" + workflowId
+                + "' ORDER BY r_act_seqno ASC, r_creation_date ASC";
+        String queueDql = "SELECT r_object_id, name, task_state, sent_by, date_sent, item_id, router_id "
+                +
+                "FROM dmi_queue_item WHERE router_id = '" + workflowId + "'";
+
+        CompletableFuture<Map<String, Object>> wfObject = dctmAsyncGateway.getObject(workflowId);
+        CompletableFuture<Map<String, Object>> tasks = dctmAsyncGateway.query(tasksDql, 100, 1);
+        CompletableFuture<Map<String, Object>> queue = dctmAsyncGateway.query(queueDql, 100, 1);
+
+        return CompletableFuture.allOf(wfObject, tasks, queue).handle((ignored, error) -> {
+            Map<String, Object> workflowDetails = new HashMap<>();
+            workflowDetails.put("r_object_id", workflowId);
+
+            try {
+                Map<String, Object> wfResponse = DctmAsyncGateway.join(wfObject);
+                if (wfResponse != null && wfResponse.containsKey("properties")) {
+                    workflowDetails.putAll((Map<String, Object>) wfResponse.get("properties"));
+                }
+            } catch (DctmUnavailableException | DctmSessionExpiredException e) {
+                throw e;
+            } catch (Exception e) {
+                log.debug("Error fetching workflow object {}: {}", workflowId, e.getMessage());
+                workflowDetails.put("process_name", "Unknown (ID: " + workflowId + ")");
+                workflowDetails.put("r_runtime_state", "unknown");
+            }
+
+            try {
+                workflowDetails.put("workItems", rowProperties(DctmAsyncGateway.join(tasks)));
+            } catch (DctmUnavailableException | DctmSessionExpiredException e) {
+                throw e;
+            } catch (Exception e) {
+                log.debug("Error fetching work items for {}: {}", workflowId, e.getMessage());
+                workflowDetails.put("workItems", new ArrayList<>());
+            }
+
+            try {
+                workflowDetails.put("queueItems", rowProperties(DctmAsyncGateway.join(queue)));
+            } catch (DctmUnavailableException | DctmSessionExpiredException e) {
+                throw e;
+            } catch (Exception e) {
+                log.debug("Error fetching queue items for {}: {}", workflowId, e.getMessage());
+                workflowDetails.put("queueItems", new ArrayList<>());
+            }
+            return workflowDetails;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> rowProperties(Map<String, Object> response) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        if (response != null && response.containsKey("entries")) {
+            for (Map<String, Object> entry : (List<Map<String, Object>>) response.get("entries")) {
+                Map<String, Object> content = (Map<String, Object>) entry.get("content");
+                if (content != null && content.containsKey("properties")) {
+                    rows.add((Map<String, Object>) content.get("properties"));
+                }
+            }
+        }
+        return rows;
+    }
+
     /**
      * Restart a workflow (privileged operation)
      * Uses service account with elevated permissions
@@ -288,16 +246,9 @@ public class WorkflowService {
         Map<String, Object> result = new HashMap<>();
 
         try {
-            String url = dctmConfig.getUrl() + "/repositories/" + dctmConfig.getRepository() +
-                        "/workflows/" + workflowId + "/restart";
-
             // Use service account for privileged operation
-            Map<String, Object> response = restClient.post()
-                    .uri(url)
-                    .header("Authorization", getServiceAuthHeader())
-                    .header("Accept", "application/vnd.emc.documentum+json")
-                    .retrieve()
-                    .body(Map.class);
+            Map<String, Object> response = dctmGateway.workflowAction(workflowId, "restart",
+                    DctmGateway.Auth.SERVICE);
 
             result.put("success", true);
             result.put("workflowId", workflowId);
@@ -306,6 +257,8 @@ public class WorkflowService {
 
             log.info("Successfully restarted workflow: {}", workflowId);
 
+        } catch (DctmUnavailableException | DctmSessionExpiredException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error restarting workflow {}: {}", workflowId, e.getMessage());
             result.put("success", false);
@@ -325,16 +278,9 @@ public class WorkflowService {
         Map<String, Object> result = new HashMap<>();
 
         try {
-            String url = dctmConfig.getUrl() + "/repositories/" + dctmConfig.getRepository() +
-                        "/workflows/" + workflowId + "/activities/" + activityId + "/retry";
-
             // Use service account for privileged operation
-            Map<String, Object> response = restClient.post()
-                    .uri(url)
-                    .header("Authorization", getServiceAuthHeader())
-                    .header("Accept", "application/vnd.emc.documentum+json")
-                    .retrieve()
-                    .body(Map.class);
+            Map<String, Object> response = dctmGateway.workflowAction(workflowId,
+                    "activities/" + activityId + "/retry", DctmGateway.Auth.SERVICE);
 
             result.put("success", true);
             result.put("workflowId", workflowId);
@@ -344,6 +290,8 @@ public class WorkflowService {
 
             log.info("Successfully initiated retry for activity {} in workflow {}", activityId, workflowId);
 
+        } catch (DctmUnavailableException | DctmSessionExpiredException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error retrying activity {} in workflow {}: {}", activityId, workflowId, e.getMessage());
             result.put("success", false);
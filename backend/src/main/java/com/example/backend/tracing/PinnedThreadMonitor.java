@@ -0,0 +1,142 @@
+package com.example.backend.tracing;
+
+import com.example.backend.config.AppConfig;
+import com.example.backend.gateway.DctmThreads;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reports virtual threads that pin their carrier thread (blocking inside a synchronized block
+ * or native frame), which silently turns virtual-thread mode back into a bounded thread pool.
+ * Listens to the JFR jdk.VirtualThreadPinned event while the application runs with virtual
+ * threads; pinnings are counted (jvm.threads.virtual.pinned), logged once per call site and
+ * listed per call site at /actuator/pinnedthreads.
+ */
+@Component
+@Slf4j
+public class PinnedThreadMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int STACK_DEPTH = 12;
+    private static final int MAX_SITES = 100;
+
+    private final DctmThreads dctmThreads;
+    private final AppConfig.TracingConfig tracingConfig;
+    private final Timer pinnedTimer;
+    private final Map<String, Site> sites = new ConcurrentHashMap<>();
+    private RecordingStream recording;
+
+    public PinnedThreadMonitor(DctmThreads dctmThreads, AppConfig appConfig, MeterRegistry meterRegistry) {
+        this.dctmThreads = dctmThreads;
+        this.tracingConfig = appConfig.getTracing();
+        this.pinnedTimer = Timer.builder("jvm.threads.virtual.pinned")
+                .description("Virtual threads that blocked while pinned to their carrier")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!dctmThreads.isVirtual()) {
+            return;
+        }
+        try {
+            recording = new RecordingStream();
+            recording.enable(PINNED_EVENT)
+                    .withThreshold(Duration.ofMillis(tracingConfig.getPinnedThresholdMs()))
+                    .withStackTrace();
+            recording.onEvent(PINNED_EVENT, this::onPinned);
+            recording.startAsync();
+            log.info("Monitoring virtual thread pinning longer than {} ms", tracingConfig.getPinnedThresholdMs());
+        } catch (Exception e) {
+            log.warn("Virtual thread pinning cannot be monitored: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedTimer.record(event.getDuration());
+        List<String> frames = frames(event.getStackTrace());
+        String key = String.join("\n", frames);
+        if (sites.size() >= MAX_SITES && !sites.containsKey(key)) {
+            key = "(other call sites)";
+        }
+        Site site = sites.computeIfAbsent(key, k -> new Site(frames));
+        if (site.count.incrementAndGet() == 1) {
+            log.warn("Virtual thread {} pinned its carrier for {} ms at:\n\t{}", event.getThread() != null
+                    ? event.getThread().getJavaName() : "?", event.getDuration().toMillis(), String.join("\n\t", frames));
+        }
+        site.totalNanos.addAndGet(event.getDuration().toNanos());
+        site.maxNanos.accumulateAndGet(event.getDuration().toNanos(), Math::max);
+    }
+
+    /**
+     * Pinning call sites, most frequent first
+     */
+    public List<Map<String, Object>> sites() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        sites.values().stream()
+                .sorted(Comparator.comparingLong((Site site) -> site.count.get()).reversed())
+                .forEach(site -> {
+                    Map<String, Object> entry = new LinkedHashMap<>();
+                    entry.put("count", site.count.get());
+                    entry.put("totalMs", site.totalNanos.get() / 1_000_000);
+                    entry.put("maxMs", site.maxNanos.get() / 1_000_000);
+                    entry.put("stack", site.frames);
+                    result.add(entry);
+                });
+        return result;
+    }
+
+    public boolean isActive() {
+        return recording != null;
+    }
+
+    private static List<String> frames(RecordedStackTrace stackTrace) {
+        List<String> frames = new ArrayList<>();
+        if (stackTrace == null) {
+            return frames;
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            if (frames.size() == STACK_DEPTH) {
+                break;
+            }
+            frames.add(frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                    + ":" + frame.getLineNumber());
+        }
+        return frames;
+    }
+
+    private static final class Site {
+        private final List<String> frames;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private Site(List<String> frames) {
+            this.frames = frames;
+        }
+    }
+}
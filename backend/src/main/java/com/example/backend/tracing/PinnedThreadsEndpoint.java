@@ -0,0 +1,32 @@
+package com.example.backend.tracing;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * /actuator/pinnedthreads lists the call sites where virtual threads pinned their carrier
+ */
+@Component
+@Endpoint(id = "pinnedthreads")
+public class PinnedThreadsEndpoint {
+
+    private final PinnedThreadMonitor pinnedThreadMonitor;
+
+    public PinnedThreadsEndpoint(PinnedThreadMonitor pinnedThreadMonitor) {
+        this.pinnedThreadMonitor = pinnedThreadMonitor;
+    }
+
+    @ReadOperation
+    public Map<String, Object> pinnedThreads() {
+        List<Map<String, Object>> sites = pinnedThreadMonitor.sites();
+        Map<String, Object> result = new HashMap<>();
+        result.put("monitoring", pinnedThreadMonitor.isActive());
+        result.put("sites", sites);
+        return result;
+    }
+}
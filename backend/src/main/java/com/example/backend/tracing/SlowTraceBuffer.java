@@ -0,0 +1,158 @@
+package com.example.backend.tracing;
+
+import com.example.backend.config.AppConfig;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory span exporter that keeps the most recent slow traces.
+ * Spans are grouped per trace until the local root span (the controller request, or a
+ * scheduled task) ends; traces whose root took at least the configured threshold are kept
+ * in a ring buffer, all others are dropped. Both buffers are bounded.
+ */
+@Component
+public class SlowTraceBuffer implements SpanExporter {
+
+    private final AppConfig.TracingConfig tracingConfig;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, List<SpanData>> pending = new LinkedHashMap<>();
+    private final Deque<Trace> slowTraces = new ArrayDeque<>();
+
+    public SlowTraceBuffer(AppConfig appConfig) {
+        this.tracingConfig = appConfig.getTracing();
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> spans) {
+        lock.lock();
+        try {
+            for (SpanData span : spans) {
+                List<SpanData> trace = pending.computeIfAbsent(span.getTraceId(), id -> new ArrayList<>());
+                trace.add(span);
+                if (isLocalRoot(span)) {
+                    pending.remove(span.getTraceId());
+                    if (durationMillis(span) >= tracingConfig.getSlowThresholdMs()) {
+                        slowTraces.addFirst(new Trace(span, trace));
+                        while (slowTraces.size() > tracingConfig.getMaxSlowTraces()) {
+                            slowTraces.removeLast();
+                        }
+                    }
+                }
+            }
+            // Children of traces whose root never arrives (e.g. sampled out) must not pile up
+            while (pending.size() > tracingConfig.getMaxPendingTraces()) {
+                pending.remove(pending.keySet().iterator().next());
+            }
+        } finally {
+            lock.unlock();
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    /**
+     * Recent slow traces, newest first
+     */
+    public List<Map<String, Object>> summaries() {
+        List<Map<String, Object>> summaries = new ArrayList<>();
+        for (Trace trace : snapshot()) {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("traceId", trace.root().getTraceId());
+            summary.put("name", trace.root().getName());
+            summary.put("start", Instant.ofEpochMilli(TimeUnit.NANOSECONDS.toMillis(trace.root().getStartEpochNanos())).toString());
+            summary.put("durationMs", durationMillis(trace.root()));
+            summary.put("spans", trace.spans().size());
+            summary.put("dctmCalls", trace.spans().stream().filter(span -> span.getName().startsWith("dctm ")).count());
+            summaries.add(summary);
+        }
+        return summaries;
+    }
+
+    /**
+     * Spans of one kept trace as a tree, or null if the trace is not (or no longer) in the buffer
+     */
+    public Map<String, Object> trace(String traceId) {
+        for (Trace trace : snapshot()) {
+            if (trace.root().getTraceId().equals(traceId)) {
+                Map<String, List<SpanData>> childrenByParent = new HashMap<>();
+                for (SpanData span : trace.spans()) {
+                    childrenByParent.computeIfAbsent(span.getParentSpanId(), id -> new ArrayList<>()).add(span);
+                }
+                return toNode(trace.root(), trace.root().getStartEpochNanos(), childrenByParent);
+            }
+        }
+        return null;
+    }
+
+    private List<Trace> snapshot() {
+        lock.lock();
+        try {
+            return new ArrayList<>(slowTraces);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Map<String, Object> toNode(SpanData span, long traceStart, Map<String, List<SpanData>> childrenByParent) {
+        Map<String, Object> node = new LinkedHashMap<>();
+        node.put("name", span.getName());
+        node.put("startMs", millis(span.getStartEpochNanos() - traceStart));
+        node.put("durationMs", durationMillis(span));
+        node.put("status", span.getStatus().getStatusCode().name());
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        span.getAttributes().forEach((AttributeKey<?> key, Object value) -> attributes.put(key.getKey(), value));
+        node.put("attributes", attributes);
+
+        List<SpanData> children = new ArrayList<>(childrenByParent.getOrDefault(span.getSpanId(), List.of()));
+        children.sort(Comparator.comparingLong(SpanData::getStartEpochNanos));
+        List<Map<String, Object>> childNodes = new ArrayList<>();
+        for (SpanData child : children) {
+            childNodes.add(toNode(child, traceStart, childrenByParent));
+        }
+        if (!childNodes.isEmpty()) {
+            node.put("children", childNodes);
+        }
+        return node;
+    }
+
+    private static boolean isLocalRoot(SpanData span) {
+        return !span.getParentSpanContext().isValid() || span.getParentSpanContext().isRemote();
+    }
+
+    private static double durationMillis(SpanData span) {
+        return millis(span.getEndEpochNanos() - span.getStartEpochNanos());
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 100_000.0) / 10.0;
+    }
+
+    private record Trace(SpanData root, List<SpanData> spans) {
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.backend.tracing;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * /actuator/slowtraces lists recent slow traces; /actuator/slowtraces/{traceId} shows the
+ * span tree of one of them (controller request, dctm-rest calls and their attributes).
+ */
+@Component
+@Endpoint(id = "slowtraces")
+public class SlowTracesEndpoint {
+
+    private final SlowTraceBuffer slowTraceBuffer;
+
+    public SlowTracesEndpoint(SlowTraceBuffer slowTraceBuffer) {
+        this.slowTraceBuffer = slowTraceBuffer;
+    }
+
+    @ReadOperation
+    public Map<String, Object> slowTraces() {
+        List<Map<String, Object>> traces = slowTraceBuffer.summaries();
+        Map<String, Object> result = new HashMap<>();
+        result.put("traces", traces);
+        result.put("count", traces.size());
+        return result;
+    }
+
+    @ReadOperation
+    public Map<String, Object> slowTrace(@Selector String traceId) {
+        return slowTraceBuffer.trace(traceId);
+    }
+}
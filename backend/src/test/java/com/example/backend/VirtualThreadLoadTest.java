@@ -0,0 +1,100 @@
+package com.example.backend;
+
+import com.example.backend.fake.FakeDctmServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * With virtual threads, requests blocked on a slow dctm-rest must not be capped by the Tomcat
+ * worker count: of 200 concurrent queries against a repository answering in one second, far
+ * more than the 16 Tomcat workers have to be in flight upstream at the same time. Platform
+ * threads would cap this at 16.
+ */
+@EnabledForJreRange(min = JRE.JAVA_21)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.threads.virtual.enabled=true",
+        "server.tomcat.threads.max=" + VirtualThreadLoadTest.TOMCAT_THREADS,
+        "dctm.rest.auth-mode=BASIC",
+        "app.resilience.max-concurrent.console=1000",
+        "app.query.user-rate-per-minute=0",
+        "app.query.max-concurrent-pages=0",
+        "app.directory.refresh-interval-ms=600000"
+})
+class VirtualThreadLoadTest {
+
+    static final int TOMCAT_THREADS = 16;
+    private static final int REQUESTS = 200;
+    private static final long LATENCY_MS = 1000;
+
+    private static final FakeDctmServer repository = new FakeDctmServer()
+            .latency(FakeDctmServer.Route.DQL, Duration.ofMillis(LATENCY_MS))
+            .start();
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void repositoryUrl(DynamicPropertyRegistry registry) {
+        registry.add("dctm.rest.url", repository::url);
+    }
+
+    @AfterAll
+    static void stopRepository() {
+        repository.close();
+    }
+
+    @Test
+    void concurrentRequestsScalePastTomcatWorkers() {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newCachedThreadPool())
+                .build();
+        // Warm up so class loading and JIT don't dominate the measured round
+        send(client, TOMCAT_THREADS, "warmup");
+        repository.resetStats();
+
+        long start = System.nanoTime();
+        List<CompletableFuture<HttpResponse<String>>> responses = send(client, REQUESTS, "load");
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals(200, response.join().statusCode());
+            assertTrue(!response.join().body().contains("\"error\""), response.join().body());
+        }
+        assertTrue(repository.peakInFlight() >= TOMCAT_THREADS * 3,
+                "Peak upstream concurrency was only " + repository.peakInFlight() + " (" + elapsedMs + " ms)");
+    }
+
+    private List<CompletableFuture<HttpResponse<String>>> send(HttpClient client, int count, String name) {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String body = "{\"dql\":\"SELECT r_object_id FROM dm_document WHERE object_name = '" + name + i + "'\"}";
+            responses.add(client.sendAsync(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/query/execute"))
+                    .header("Content-Type", "application/json")
+                    .timeout(Duration.ofSeconds(30))
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build(), HttpResponse.BodyHandlers.ofString()));
+        }
+        CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new)).join();
+        return responses;
+    }
+}
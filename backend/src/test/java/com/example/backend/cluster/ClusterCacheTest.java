@@ -0,0 +1,153 @@
+package com.example.backend.cluster;
+
+import com.example.backend.BackendApplication;
+import com.example.backend.fake.FakeDctmServer;
+import com.example.backend.service.GroupService;
+import com.example.backend.service.QueryService;
+import com.example.backend.service.UserDirectoryService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two backend nodes in one JVM, clustered over static peers on localhost against one fake
+ * dctm-rest: the second node warms up from the first and invalidations travel both ways.
+ * Nodes in separate JVMs talk the same protocol over the same ports.
+ */
+class ClusterCacheTest {
+
+    private static final FakeDctmServer dctm = new FakeDctmServer().maxItemsPerPage(50).start();
+    private static final String SECRET = "test-secret";
+    private static int portA;
+    private static int portB;
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void startFirstNode() throws IOException {
+        portA = freePort();
+        portB = freePort();
+        nodeA = start(portA);
+        // The first node has its directory before the second one joins
+        nodeA.getBean(UserDirectoryService.class).searchUsers(null, 1, 1);
+    }
+
+    @AfterAll
+    static void stop() {
+        if (nodeB != null) {
+            nodeB.close();
+        }
+        nodeA.close();
+        dctm.close();
+    }
+
+    @Test
+    void joiningNodeWarmsUpFromItsPeer() throws Exception {
+        long dqlBefore = dctm.requests(FakeDctmServer.Route.DQL);
+        nodeB = start(portB);
+
+        Map<String, Object> onA = nodeA.getBean(UserDirectoryService.class).searchUsers(null, 1, null);
+        Map<String, Object> onB = nodeB.getBean(UserDirectoryService.class).searchUsers(null, 1, null);
+
+        assertEquals(onA.get("total"), onB.get("total"));
+        assertTrue(count(nodeB, "cluster.fetches", "directory", "result", "hit") >= 1);
+        // Only the delta query since the peer's watermark, not the pages of a full load
+        assertTrue(dctm.requests(FakeDctmServer.Route.DQL) - dqlBefore <= 2);
+
+        String groupName = (String) dctm.dataset().rows("dm_group").get(1).get("group_name");
+        nodeA.getBean(GroupService.class).getGroupMembers(groupName);
+        nodeB.getBean(GroupService.class).getGroupMembers(groupName);
+        assertTrue(count(nodeB, "cluster.fetches", "responses", "result", "hit") >= 1);
+
+        nodeB.getBean(GroupService.class).addMember(groupName, "user0042", "user", null);
+        awaitCount(nodeA, "cluster.invalidations", "responses", "direction", "received");
+        @SuppressWarnings("unchecked")
+        List<Map<String, String>> members = (List<Map<String, String>>)
+                nodeA.getBean(GroupService.class).getGroupMembers(groupName).get("users");
+        assertTrue(members.stream().anyMatch(member -> "user0042".equals(member.get("name"))));
+
+        String dql = "SELECT user_name FROM dm_user WHERE user_state = 0";
+        nodeA.getBean(QueryService.class).executeQuery(dql, 20);
+        long queriesBefore = dctm.requests(FakeDctmServer.Route.DQL);
+        Map<String, Object> cached = nodeB.getBean(QueryService.class).executeQuery(dql, 20);
+        assertEquals(20, cached.get("totalCount"));
+        assertEquals(queriesBefore, dctm.requests(FakeDctmServer.Route.DQL));
+    }
+
+    @Test
+    void unsignedPeerRequestsAreRefused() throws Exception {
+        HttpResponse<String> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + portA + "/cluster/ping")).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(403, response.statusCode());
+    }
+
+    @Test
+    void clusterStateIsOnlyServedOnTheManagementPort() throws Exception {
+        assertEquals(404, get(nodeA, "local.server.port", "/actuator/cluster").statusCode());
+        HttpResponse<String> response = get(nodeA, "local.management.port", "/actuator/cluster");
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("127.0.0.1:" + portB), response.body());
+    }
+
+    private static ConfigurableApplicationContext start(int clusterPort) {
+        return new SpringApplicationBuilder(BackendApplication.class).run(
+                "--server.port=0",
+                "--management.server.port=0",
+                "--dctm.rest.url=" + dctm.url(),
+                "--app.directory.page-size=10",
+                "--app.query.result-cache-ttl-ms=60000",
+                "--app.cluster.enabled=true",
+                "--app.cluster.bind-address=127.0.0.1",
+                "--app.cluster.advertise-address=127.0.0.1",
+                "--app.cluster.port=" + clusterPort,
+                "--app.cluster.peers=127.0.0.1:" + portA + ",127.0.0.1:" + portB,
+                "--app.cluster.heartbeat-interval-ms=200",
+                "--app.cluster.fetch-timeout-ms=1000",
+                "--app.cluster.secret=" + SECRET);
+    }
+
+    private static double count(ConfigurableApplicationContext node, String name, String region, String tag, String value) {
+        Counter counter = node.getBean(MeterRegistry.class).find(name).tags("region", region, tag, value).counter();
+        return counter != null ? counter.count() : 0;
+    }
+
+    private static void awaitCount(ConfigurableApplicationContext node, String name, String region, String tag,
+                                   String value) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (count(node, name, region, tag, value) < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(count(node, name, region, tag, value) >= 1, name + " " + region + " " + value);
+    }
+
+    private static HttpResponse<String> get(ConfigurableApplicationContext node, String portProperty, String path)
+            throws Exception {
+        String url = "http://localhost:" + node.getEnvironment().getProperty(portProperty) + path;
+        return HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create(url)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.example.backend.fake;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Generated repository content for {@link FakeDctmServer}: case folders with their workflows
+ * (packages, work items, queue items), dm_user rows with matching cms_user_profile objects and
+ * groups. Rows are keyed by lower-case attribute names, repeating attributes are lists and dates
+ * are ISO-8601 strings as dctm-rest returns them. The same seed always generates the same objects,
+ * with dates relative to the time of generation.
+ * <p>
+ * Rows are never modified in place: updates replace the row, so readers can serialize a row
+ * while another request changes the object.
+ */
+public final class FakeDataset {
+
+    /**
+     * Process templates; the first one is the default of app.workflow.processes
+     */
+    public static final List<String> PROCESS_IDS = List.of("4b02cba08000624a", "4b02cba08000624b", "4b02cba08000624c");
+
+    private static final String DOCBASE_ID = "02cba0";
+    private static final DateTimeFormatter DCTM_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSxxx");
+    private static final String[] DEPARTMENTS = { "Finance", "Legal", "Operations", "Audit", "Credit", "IT" };
+    private static final String[] OFFICES = { "HO", "RO" };
+    private static final String[] ACTIVITIES = { "Initiate", "Review", "Approve", "Dispatch", "Close" };
+
+    private final Map<String, List<Map<String, Object>>> tables = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Object>> objectsById = new ConcurrentHashMap<>();
+    private final Map<String, String> groupIdsByName = new ConcurrentHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicLong nextId = new AtomicLong(0x80000000L);
+    private final Random random;
+    private final OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC).withNano(0);
+
+    private FakeDataset(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * A small repository, enough for functional tests and quick benchmarks
+     */
+    public static FakeDataset small() {
+        return generate(200, 100, 20, 42L);
+    }
+
+    /**
+     * Generate a repository. Roughly two thirds of the cases have one or two workflows.
+     */
+    public static FakeDataset generate(int cases, int users, int groups, long seed) {
+        FakeDataset dataset = new FakeDataset(seed);
+        List<String> userNames = dataset.generateUsers(users);
+        dataset.generateGroups(groups, userNames);
+        dataset.generateCases(cases, userNames);
+        return dataset;
+    }
+
+    /**
+     * Rows of a type, in generation order
+     */
+    public List<Map<String, Object>> rows(String type) {
+        return Collections.unmodifiableList(tables.getOrDefault(type, List.of()));
+    }
+
+    public Map<String, Object> object(String objectId) {
+        return objectsById.get(objectId);
+    }
+
+    public Map<String, Object> group(String groupName) {
+        String id = groupIdsByName.get(groupName);
+        return id != null ? objectsById.get(id) : null;
+    }
+
+    /**
+     * Set attributes of an object, bumping i_vstamp and r_modify_date like the repository does
+     *
+     * @return the updated row, or null if there is no such object
+     */
+    public Map<String, Object> update(String objectId, Map<String, Object> properties) {
+        writeLock.lock();
+        try {
+            Map<String, Object> current = objectsById.get(objectId);
+            if (current == null) {
+                return null;
+            }
+            Map<String, Object> updated = new LinkedHashMap<>(current);
+            properties.forEach((name, value) -> updated.put(name.toLowerCase(), value));
+            updated.put("i_vstamp", ((Number) current.get("i_vstamp")).intValue() + 1);
+            updated.put("r_modify_date", date(OffsetDateTime.now(ZoneOffset.UTC)));
+            replace(current, updated);
+            return updated;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Start further workflows on a case folder
+     */
+    public void addWorkflows(String caseId, int count) {
+        writeLock.lock();
+        try {
+            Map<String, Object> caseFolder = objectsById.get(caseId);
+            List<String> userNames = rows("dm_user").stream().map(user -> (String) user.get("user_name")).toList();
+            for (int i = 0; i < count; i++) {
+                generateWorkflow(caseFolder, userNames);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Add a user (users_names) or group (groups_names) member
+     *
+     * @return false if there is no such group
+     */
+    public boolean addMember(String groupName, String memberAttribute, String memberName) {
+        return changeMembers(groupName, memberAttribute, members -> {
+            if (!members.contains(memberName)) {
+                members.add(memberName);
+            }
+        });
+    }
+
+    /**
+     * Remove a user (users_names) or group (groups_names) member
+     *
+     * @return false if there is no such group
+     */
+    public boolean removeMember(String groupName, String memberAttribute, String memberName) {
+        return changeMembers(groupName, memberAttribute, members -> members.remove(memberName));
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean changeMembers(String groupName, String memberAttribute,
+                                  Consumer<List<Object>> change) {
+        writeLock.lock();
+        try {
+            Map<String, Object> group = group(groupName);
+            if (group == null) {
+                return false;
+            }
+            List<Object> members = new ArrayList<>((List<Object>) group.getOrDefault(memberAttribute, List.of()));
+            change.accept(members);
+            update((String) group.get("r_object_id"), Map.of(memberAttribute, List.copyOf(members)));
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void replace(Map<String, Object> current, Map<String, Object> updated) {
+        List<Map<String, Object>> table = tables.get((String) current.get("r_object_type"));
+        int index = table.indexOf(current);
+        if (index >= 0) {
+            table.set(index, updated);
+        }
+        objectsById.put((String) updated.get("r_object_id"), updated);
+    }
+
+    // ---- Generation ----
+
+    private List<String> generateUsers(int count) {
+        List<String> userNames = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            String userName = i == 1 ? "dmadmin" : String.format("user%04d", i);
+            userNames.add(userName);
+            boolean active = i == 1 || random.nextInt(20) > 0;
+            String department = pick(DEPARTMENTS);
+
+            Map<String, Object> user = row("dm_user", "11");
+            user.put("user_name", userName);
+            user.put("user_login_name", userName);
+            user.put("user_os_name", userName);
+            user.put("user_address", userName + "@example.org");
+            user.put("user_privileges", i == 1 ? 16 : 0);
+            user.put("user_state", active ? 0 : 1);
+            add(user);
+
+            Map<String, Object> profile = row("cms_user_profile", "09");
+            profile.put("object_name", "User " + i);
+            profile.put("uin", String.format("UIN%06d", i));
+            profile.put("department_name", department);
+            profile.put("user_grade", "G" + (1 + random.nextInt(6)));
+            profile.put("designation", random.nextBoolean() ? "Manager" : "Officer");
+            profile.put("user_email_address", userName + "@example.org");
+            profile.put("user_login_name", userName);
+            profile.put("primary_mobile_number", String.format("98%08d", random.nextInt(100_000_000)));
+            profile.put("location", department + " Office");
+            profile.put("office_type", pick(OFFICES));
+            profile.put("is_active", active);
+            profile.put("hindi_user_name", "");
+            profile.put("hindi_designation", "");
+            profile.put("user_role", i == 1 ? "admin" : "user");
+            add(profile);
+        }
+        return userNames;
+    }
+
+    private void generateGroups(int count, List<String> userNames) {
+        List<String> groupNames = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            String groupName = String.format("grp_%s_%02d", pick(DEPARTMENTS).toLowerCase(), i);
+            List<String> users = new ArrayList<>();
+            for (int m = 5 + random.nextInt(16); m > 0; m--) {
+                String userName = userNames.get(random.nextInt(userNames.size()));
+                if (!users.contains(userName)) {
+                    users.add(userName);
+                }
+            }
+            List<String> subgroups = new ArrayList<>();
+            if (!groupNames.isEmpty() && random.nextInt(4) == 0) {
+                subgroups.add(groupNames.get(random.nextInt(groupNames.size())));
+            }
+            groupNames.add(groupName);
+
+            Map<String, Object> group = row("dm_group", "12");
+            group.put("group_name", groupName);
+            group.put("description", "Members of " + groupName);
+            group.put("owner_name", "dmadmin");
+            group.put("users_names", List.copyOf(users));
+            group.put("groups_names", List.copyOf(subgroups));
+            add(group);
+            groupIdsByName.put(groupName, (String) group.get("r_object_id"));
+        }
+    }
+
+    private void generateCases(int count, List<String> userNames) {
+        for (int i = 1; i <= count; i++) {
+            Map<String, Object> caseFolder = row("cms_case_folder", "0b");
+            String department = pick(DEPARTMENTS);
+            caseFolder.put("object_name", String.format("CASE/%d/%05d", now.getYear(), i));
+            caseFolder.put("subject", "Case subject " + i);
+            caseFolder.put("ho_ro", pick(OFFICES));
+            caseFolder.put("description", "Generated case " + i);
+            caseFolder.put("department_name", department);
+            caseFolder.put("functions", List.of(department));
+            add(caseFolder);
+
+            int workflows = random.nextInt(3);
+            for (int w = 0; w < workflows; w++) {
+                generateWorkflow(caseFolder, userNames);
+            }
+        }
+    }
+
+    private void generateWorkflow(Map<String, Object> caseFolder, List<String> userNames) {
+        String processId = PROCESS_IDS.get(random.nextInt(PROCESS_IDS.size()));
+        String supervisor = userNames.get(random.nextInt(userNames.size()));
+        int activities = 1 + random.nextInt(ACTIVITIES.length);
+        boolean finished = activities == ACTIVITIES.length && random.nextBoolean();
+
+        Map<String, Object> workflow = row("dm_workflow", "4d");
+        String workflowId = (String) workflow.get("r_object_id");
+        workflow.put("object_name", "Approval of " + caseFolder.get("object_name"));
+        workflow.put("process_id", processId);
+        workflow.put("process_name", "Case approval " + (PROCESS_IDS.indexOf(processId) + 1));
+        workflow.put("r_runtime_state", finished ? 2 : 1);
+        workflow.put("supervisor_name", supervisor);
+        workflow.put("r_start_date", workflow.get("r_creation_date"));
+        add(workflow);
+
+        Map<String, Object> pkg = row("dmi_package", "49");
+        pkg.put("r_workflow_id", workflowId);
+        pkg.put("r_package_name", "Case");
+        pkg.put("r_component_id", List.of(caseFolder.get("r_object_id")));
+        pkg.put("r_component_chron_id", List.of(caseFolder.get("i_chronicle_id")));
+        add(pkg);
+
+        for (int seq = 0; seq < activities; seq++) {
+            boolean current = seq == activities - 1 && !finished;
+            String performer = userNames.get(random.nextInt(userNames.size()));
+
+            Map<String, Object> workitem = row("dmi_workitem", "4a");
+            workitem.put("r_workflow_id", workflowId);
+            workitem.put("r_act_seqno", seq);
+            workitem.put("r_runtime_state", current ? 1 : 2);
+            workitem.put("r_performer_name", performer);
+            workitem.put("r_act_def_id", "4c" + DOCBASE_ID + String.format("%08x", 0x100 + seq));
+            workitem.put("a_wq_name", "");
+            add(workitem);
+
+            if (current) {
+                Map<String, Object> queueItem = row("dmi_queue_item", "1b");
+                queueItem.put("name", performer);
+                queueItem.put("task_state", random.nextBoolean() ? "acquired" : "dormant");
+                queueItem.put("sent_by", supervisor);
+                queueItem.put("date_sent", workitem.get("r_creation_date"));
+                queueItem.put("item_id", workitem.get("r_object_id"));
+                queueItem.put("router_id", workflowId);
+                add(queueItem);
+            }
+        }
+    }
+
+    private Map<String, Object> row(String type, String tag) {
+        String id = tag + DOCBASE_ID + String.format("%08x", nextId.incrementAndGet());
+        String created = date(now.minusMinutes(random.nextInt(365 * 24 * 60)));
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("r_object_id", id);
+        row.put("r_object_type", type);
+        row.put("i_chronicle_id", id);
+        row.put("i_vstamp", 0);
+        row.put("r_creation_date", created);
+        row.put("r_modify_date", created);
+        return row;
+    }
+
+    private void add(Map<String, Object> row) {
+        tables.computeIfAbsent((String) row.get("r_object_type"), type -> new CopyOnWriteArrayList<>()).add(row);
+        objectsById.put((String) row.get("r_object_id"), row);
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    static String date(OffsetDateTime dateTime) {
+        return DCTM_DATE.format(dateTime);
+    }
+}
@@ -0,0 +1,635 @@
+package com.example.backend.fake;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Embeddable stand-in for dctm-rest, serving a {@link FakeDataset} in the JSON shapes the
+ * backend parses: DQL feeds ({@code /repositories/{repo}?dql=...}), objects, groups and their
+ * members, the workflows collection and actions, login tickets, the current user and the
+ * generateUserLoginTicket method ({@code EXECUTE generateUserLoginTicket WITH user_name='...'}).
+ * Latency (per route), jitter, injected errors and the maximum page size can be changed while
+ * the server runs, and request counts and peak concurrency are recorded, so performance features
+ * can be exercised and measured without a repository:
+ * <pre>
+ * FakeDctmServer dctm = new FakeDctmServer().latency(Duration.ofMillis(80)).jitter(Duration.ofMillis(40)).start();
+ * registry.add("dctm.rest.url", dctm::url);
+ * </pre>
+ * Objects and groups carry an ETag derived from i_vstamp and answer a matching If-None-Match with
+ * 304. Any credentials are accepted, except login tickets invalidated with {@link #expireTickets()}.
+ * The server can also run on its own, see {@link #main(String[])}.
+ */
+public class FakeDctmServer implements AutoCloseable {
+
+    /**
+     * Request classes latency can be configured for and requests are counted by
+     */
+    public enum Route {
+        DQL, OBJECTS, GROUPS, WORKFLOWS, LOGIN_TICKETS, CURRENT_USER
+    }
+
+    private static final String DCTM_JSON = "application/vnd.emc.documentum+json";
+    private static final String CONTEXT = "/dctm-rest";
+
+    private final FakeDataset dataset;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<Route, Duration> latency = new ConcurrentHashMap<>();
+    private volatile Duration jitter = Duration.ZERO;
+    private volatile double errorRate;
+    private volatile int errorStatus = 503;
+    private final AtomicInteger failNext = new AtomicInteger();
+    private volatile int maxItemsPerPage = 1000;
+    private volatile Duration ticketLifetime = Duration.ofHours(1);
+    private volatile int port;
+
+    private final Set<String> validTickets = ConcurrentHashMap.newKeySet();
+    private final AtomicLong ticketSequence = new AtomicLong();
+    private final Map<Route, AtomicLong> requests = new EnumMap<>(Route.class);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public FakeDctmServer() {
+        this(FakeDataset.small());
+    }
+
+    public FakeDctmServer(FakeDataset dataset) {
+        this.dataset = dataset;
+        for (Route route : Route.values()) {
+            latency.put(route, Duration.ZERO);
+            requests.put(route, new AtomicLong());
+        }
+    }
+
+    // ---- Configuration, effective immediately ----
+
+    /**
+     * Base latency of every route
+     */
+    public FakeDctmServer latency(Duration base) {
+        for (Route route : Route.values()) {
+            latency.put(route, base);
+        }
+        return this;
+    }
+
+    public FakeDctmServer latency(Route route, Duration base) {
+        latency.put(route, base);
+        return this;
+    }
+
+    /**
+     * Uniformly distributed extra latency, from zero up to the given maximum
+     */
+    public FakeDctmServer jitter(Duration maxJitter) {
+        this.jitter = maxJitter;
+        return this;
+    }
+
+    /**
+     * Fraction of requests (0..1) answered with the error status instead of a result
+     */
+    public FakeDctmServer errorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    /**
+     * Status of injected errors, 503 by default
+     */
+    public FakeDctmServer errorStatus(int errorStatus) {
+        this.errorStatus = errorStatus;
+        return this;
+    }
+
+    /**
+     * Answer the next requests with the error status, regardless of the error rate
+     */
+    public FakeDctmServer failNext(int count) {
+        failNext.set(count);
+        return this;
+    }
+
+    /**
+     * Largest items-per-page honoured for DQL feeds and collections
+     */
+    public FakeDctmServer maxItemsPerPage(int maxItemsPerPage) {
+        this.maxItemsPerPage = maxItemsPerPage;
+        return this;
+    }
+
+    public FakeDctmServer ticketLifetime(Duration ticketLifetime) {
+        this.ticketLifetime = ticketLifetime;
+        return this;
+    }
+
+    /**
+     * Port to listen on; 0 (the default) picks a free one
+     */
+    public FakeDctmServer port(int port) {
+        this.port = port;
+        return this;
+    }
+
+    /**
+     * Reject all login tickets issued so far with 401, as after a repository restart
+     */
+    public void expireTickets() {
+        validTickets.clear();
+    }
+
+    // ---- Lifecycle ----
+
+    public FakeDctmServer start() {
+        try {
+            AtomicInteger threadCount = new AtomicInteger();
+            executor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "fake-dctm-rest-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            server = HttpServer.create(new InetSocketAddress("localhost", port), 1000);
+            server.setExecutor(executor);
+            server.createContext(CONTEXT, this::handle);
+            server.start();
+            return this;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not start fake dctm-rest server", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Base URL to configure as dctm.rest.url
+     */
+    public String url() {
+        return "http://localhost:" + server.getAddress().getPort() + CONTEXT;
+    }
+
+    public FakeDataset dataset() {
+        return dataset;
+    }
+
+    // ---- Statistics ----
+
+    public long requests(Route route) {
+        return requests.get(route).get();
+    }
+
+    public long requests() {
+        return requests.values().stream().mapToLong(AtomicLong::get).sum();
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Most requests processed at the same time since start or the last {@link #resetStats()}
+     */
+    public int peakInFlight() {
+        return peakInFlight.get();
+    }
+
+    public void resetStats() {
+        requests.values().forEach(count -> count.set(0));
+        peakInFlight.set(inFlight.get());
+    }
+
+    // ---- Request handling ----
+
+    private void handle(HttpExchange exchange) throws IOException {
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            String path = exchange.getRequestURI().getRawPath().substring(CONTEXT.length());
+            Map<String, String> query = queryParameters(exchange.getRequestURI().getRawQuery());
+            List<String> segments = segments(path);
+            Route route = route(segments, query);
+            if (route == null) {
+                sendError(exchange, 404, "E_RESOURCE_NOT_FOUND", "No resource at " + path);
+                return;
+            }
+            requests.get(route).incrementAndGet();
+            simulateLatency(route);
+
+            if (injectFailure()) {
+                sendError(exchange, errorStatus, "E_FAKE_INJECTED_FAILURE", "Injected failure");
+                return;
+            }
+            if (!authorized(exchange)) {
+                sendError(exchange, 401, "E_UNAUTHORIZED", "Invalid or expired credentials");
+                return;
+            }
+            dispatch(exchange, route, segments, query);
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, "E_INPUT_ILLEGAL_ARGUMENT", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    // Paths below the context: /repositories/{repo}[/objects|groups|workflows|login-tickets|currentuser/...]
+    private Route route(List<String> segments, Map<String, String> query) {
+        if (segments.size() < 2 || !segments.get(0).equals("repositories")) {
+            return null;
+        }
+        if (segments.size() == 2) {
+            return query.containsKey("dql") ? Route.DQL : null;
+        }
+        switch (segments.get(2)) {
+            case "objects":
+                return Route.OBJECTS;
+            case "groups":
+                return Route.GROUPS;
+            case "workflows":
+                return Route.WORKFLOWS;
+            case "login-tickets":
+                return Route.LOGIN_TICKETS;
+            case "currentuser":
+                return Route.CURRENT_USER;
+            default:
+                return null;
+        }
+    }
+
+    private void dispatch(HttpExchange exchange, Route route, List<String> segments, Map<String, String> query)
+            throws IOException {
+        String method = exchange.getRequestMethod();
+        String repositoryUrl = CONTEXT + "/repositories/" + segments.get(1);
+        switch (route) {
+            case DQL:
+                sendFeed(exchange, repositoryUrl, query, dql(query.get("dql")));
+                break;
+            case OBJECTS:
+                handleObject(exchange, repositoryUrl, segments, method);
+                break;
+            case GROUPS:
+                handleGroup(exchange, repositoryUrl, segments, method, query);
+                break;
+            case WORKFLOWS:
+                handleWorkflow(exchange, repositoryUrl, segments, method, query);
+                break;
+            case LOGIN_TICKETS:
+                send(exchange, 201, loginTicket());
+                break;
+            case CURRENT_USER:
+                send(exchange, 200, currentUser(exchange));
+                break;
+        }
+    }
+
+    private List<Map<String, Object>> dql(String statement) {
+        FakeDql.Execute execute = FakeDql.parseExecute(statement);
+        if (execute != null) {
+            if (!execute.method().equals("generateuserloginticket") || !execute.argument().equals("user_name")) {
+                throw new IllegalArgumentException("Unknown method: " + execute.method());
+            }
+            return List.of(Map.of("result", ticket(String.valueOf(execute.value()))));
+        }
+        FakeDql.Update update = FakeDql.parseUpdate(statement);
+        if (update != null) {
+            List<String> objectIds = dataset.rows(update.type()).stream()
+                    .filter(update.where())
+                    .map(row -> (String) row.get("r_object_id"))
+                    .collect(Collectors.toList());
+            objectIds.forEach(objectId -> dataset.update(objectId, Map.of(update.attribute(), update.value())));
+            return List.of(Map.of("objects_updated", objectIds.size()));
+        }
+        FakeDql dql = FakeDql.parse(statement);
+        List<Map<String, Object>> rows = dataset.rows(dql.type).stream()
+                .filter(dql.where)
+                .collect(Collectors.toCollection(ArrayList::new));
+        if (dql.count) {
+            return List.of(Map.of("count", rows.size()));
+        }
+        if (dql.order != null) {
+            rows.sort(dql.order);
+        }
+        return rows.stream().limit(dql.returnTop).map(dql::project).collect(Collectors.toList());
+    }
+
+    private void handleObject(HttpExchange exchange, String repositoryUrl, List<String> segments, String method)
+            throws IOException {
+        String objectId = segments.size() == 4 ? segments.get(3) : null;
+        Map<String, Object> object = objectId != null ? dataset.object(objectId) : null;
+        if (object == null) {
+            sendError(exchange, 404, "E_RESOURCE_NOT_FOUND", "Object " + objectId + " does not exist");
+            return;
+        }
+        if ("POST".equals(method)) {
+            Object properties = readBody(exchange).get("properties");
+            object = dataset.update(objectId, properties instanceof Map ? asMap(properties) : Map.of());
+            send(exchange, 200, resource("object", repositoryUrl + "/objects/" + objectId, object));
+            return;
+        }
+        sendResource(exchange, "object", repositoryUrl + "/objects/" + objectId, object);
+    }
+
+    private void handleGroup(HttpExchange exchange, String repositoryUrl, List<String> segments, String method,
+                             Map<String, String> query) throws IOException {
+        if (segments.size() == 3) {
+            sendCollection(exchange, repositoryUrl + "/groups", "dm_group", query);
+            return;
+        }
+        String groupName = segments.get(3);
+        Map<String, Object> group = dataset.group(groupName);
+        if (group == null) {
+            sendError(exchange, 404, "E_RESOURCE_NOT_FOUND", "Group " + groupName + " does not exist");
+            return;
+        }
+        if (segments.size() == 4) {
+            sendResource(exchange, "group", repositoryUrl + "/groups/" + groupName, group);
+            return;
+        }
+
+        // Membership: POST .../{users|groups} with an href to the member, DELETE .../{users|groups}/{member}
+        String attribute = "users".equals(segments.get(4)) ? "users_names" : "groups_names";
+        if ("POST".equals(method)) {
+            String href = String.valueOf(readBody(exchange).get("href"));
+            dataset.addMember(groupName, attribute, href.substring(href.lastIndexOf('/') + 1));
+            send(exchange, 201, null);
+        } else if ("DELETE".equals(method) && segments.size() == 6) {
+            dataset.removeMember(groupName, attribute, segments.get(5));
+            send(exchange, 204, null);
+        } else {
+            sendError(exchange, 405, "E_METHOD_NOT_ALLOWED", method + " is not supported here");
+        }
+    }
+
+    private void handleWorkflow(HttpExchange exchange, String repositoryUrl, List<String> segments, String method,
+                                Map<String, String> query) throws IOException {
+        if (segments.size() == 3) {
+            sendCollection(exchange, repositoryUrl + "/workflows", "dm_workflow", query);
+            return;
+        }
+        Map<String, Object> workflow = dataset.object(segments.get(3));
+        if (workflow == null || !"dm_workflow".equals(workflow.get("r_object_type"))) {
+            sendError(exchange, 404, "E_RESOURCE_NOT_FOUND", "Workflow " + segments.get(3) + " does not exist");
+        } else if ("POST".equals(method) && segments.size() > 4) {
+            // Actions (restart, activity retry) are accepted and leave the workflow as it is
+            send(exchange, 200, resource("workflow", repositoryUrl + "/workflows/" + segments.get(3), workflow));
+        } else {
+            sendResource(exchange, "workflow", repositoryUrl + "/workflows/" + segments.get(3), workflow);
+        }
+    }
+
+    private void sendCollection(HttpExchange exchange, String url, String type, Map<String, String> query)
+            throws IOException {
+        Predicate<Map<String, Object>> filter = query.containsKey("filter")
+                ? FakeDql.filter(query.get("filter")) : row -> true;
+        List<Map<String, Object>> rows = dataset.rows(type).stream().filter(filter).collect(Collectors.toList());
+        sendFeed(exchange, url, query, rows);
+    }
+
+    /**
+     * One page of rows as a feed with inline content, linking to the next page when there is one
+     */
+    private void sendFeed(HttpExchange exchange, String url, Map<String, String> query,
+                          List<Map<String, Object>> rows) throws IOException {
+        int itemsPerPage = Math.min(Integer.parseInt(query.getOrDefault("items-per-page", "100")), maxItemsPerPage);
+        int page = Integer.parseInt(query.getOrDefault("page", "1"));
+        int from = Math.min((page - 1) * itemsPerPage, rows.size());
+        int to = Math.min(from + itemsPerPage, rows.size());
+
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (Map<String, Object> row : rows.subList(from, to)) {
+            Object id = row.get("r_object_id");
+            Map<String, Object> content = new LinkedHashMap<>();
+            content.put("properties", row);
+            if (id != null) {
+                content.put("links", List.of(link("self", url + "/" + id)));
+            }
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("id", url + "/" + (id != null ? id : from + entries.size()));
+            entry.put("title", id != null ? id : "");
+            entry.put("content", content);
+            entries.add(entry);
+        }
+
+        List<Map<String, Object>> links = new ArrayList<>();
+        links.add(link("self", url));
+        if (to < rows.size()) {
+            links.add(link("next", url + "?page=" + (page + 1)));
+        }
+        Map<String, Object> feed = new LinkedHashMap<>();
+        feed.put("id", url);
+        feed.put("title", "Results");
+        feed.put("updated", Instant.now().toString());
+        feed.put("page", page);
+        feed.put("items-per-page", itemsPerPage);
+        feed.put("links", links);
+        feed.put("entries", entries);
+        send(exchange, 200, feed);
+    }
+
+    private void sendResource(HttpExchange exchange, String name, String url, Map<String, Object> row)
+            throws IOException {
+        String etag = "\"" + row.get("r_object_id") + "-" + row.get("i_vstamp") + "\"";
+        exchange.getResponseHeaders().set("ETag", etag);
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            send(exchange, 304, null);
+            return;
+        }
+        send(exchange, 200, resource(name, url, row));
+    }
+
+    private Map<String, Object> resource(String name, String url, Map<String, Object> row) {
+        List<Map<String, Object>> links = new ArrayList<>();
+        links.add(link("self", url));
+        links.add(link("edit", url));
+        if ("group".equals(name)) {
+            links.add(link("users", url + "/users"));
+            links.add(link("groups", url + "/groups"));
+        }
+        Map<String, Object> resource = new LinkedHashMap<>();
+        resource.put("name", name);
+        resource.put("type", row.get("r_object_type"));
+        resource.put("properties", row);
+        resource.put("links", links);
+        return resource;
+    }
+
+    private Map<String, Object> loginTicket() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("id", ticket("fake"));
+        return response;
+    }
+
+    private String ticket(String userName) {
+        long expires = Instant.now().plus(ticketLifetime).getEpochSecond();
+        String payload = "user_name STRING S 0\n" + userName + "\nexpire_time INT S 0\n" + expires
+                + "\nticket_id INT S 0\n" + ticketSequence.incrementAndGet() + "\n";
+        String ticket = "DM_TICKET=" + Base64.getEncoder().encodeToString(payload.getBytes(StandardCharsets.ISO_8859_1));
+        validTickets.add(ticket);
+        return ticket;
+    }
+
+    private Map<String, Object> currentUser(HttpExchange exchange) {
+        String userName = "dmadmin";
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization != null && authorization.startsWith("Basic ")) {
+            String credentials = new String(Base64.getDecoder().decode(authorization.substring(6)), StandardCharsets.UTF_8);
+            userName = credentials.substring(0, Math.max(credentials.indexOf(':'), 0));
+        }
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("user_name", userName);
+        properties.put("user_login_name", userName);
+        properties.put("user_address", userName + "@example.org");
+        Map<String, Object> user = new LinkedHashMap<>();
+        user.put("name", "user");
+        user.put("properties", properties);
+        return user;
+    }
+
+    private boolean authorized(HttpExchange exchange) {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null) {
+            return false;
+        }
+        return !authorization.startsWith("DmTicket ") || validTickets.contains(authorization.substring(9));
+    }
+
+    private void simulateLatency(Route route) throws InterruptedException {
+        long millis = latency.get(route).toMillis();
+        long maxJitter = jitter.toMillis();
+        if (maxJitter > 0) {
+            millis += ThreadLocalRandom.current().nextLong(maxJitter + 1);
+        }
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    private boolean injectFailure() {
+        if (failNext.getAndUpdate(remaining -> Math.max(remaining - 1, 0)) > 0) {
+            return true;
+        }
+        return errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+    }
+
+    private void sendError(HttpExchange exchange, int status, String code, String message) throws IOException {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("status", status);
+        error.put("code", code);
+        error.put("message", message);
+        error.put("details", message);
+        send(exchange, status, error);
+    }
+
+    private void send(HttpExchange exchange, int status, Object body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", DCTM_JSON);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        return body.length > 0 ? asMap(objectMapper.readValue(body, Map.class)) : new HashMap<>();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object value) {
+        return (Map<String, Object>) value;
+    }
+
+    private static Map<String, Object> link(String rel, String href) {
+        Map<String, Object> link = new LinkedHashMap<>();
+        link.put("rel", rel);
+        link.put("href", href);
+        return link;
+    }
+
+    private static List<String> segments(String path) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(URLDecoder.decode(segment, StandardCharsets.UTF_8));
+            }
+        }
+        return segments;
+    }
+
+    private static Map<String, String> queryParameters(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    /**
+     * Run the server on its own, e.g. to point a locally started backend at it:
+     * {@code --port=18080 --latency-ms=50 --jitter-ms=25 --error-rate=0.01 --cases=5000 --users=2000 --groups=200}
+     */
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "true");
+        }
+        FakeDataset dataset = FakeDataset.generate(
+                Integer.parseInt(options.getOrDefault("cases", "2000")),
+                Integer.parseInt(options.getOrDefault("users", "1000")),
+                Integer.parseInt(options.getOrDefault("groups", "100")),
+                Long.parseLong(options.getOrDefault("seed", "42")));
+        FakeDctmServer server = new FakeDctmServer(dataset)
+                .port(Integer.parseInt(options.getOrDefault("port", "18080")))
+                .latency(Duration.ofMillis(Long.parseLong(options.getOrDefault("latency-ms", "0"))))
+                .jitter(Duration.ofMillis(Long.parseLong(options.getOrDefault("jitter-ms", "0"))))
+                .errorRate(Double.parseDouble(options.getOrDefault("error-rate", "0")))
+                .start();
+        System.out.println("Fake dctm-rest listening on " + server.url());
+        Thread.currentThread().join();
+    }
+}
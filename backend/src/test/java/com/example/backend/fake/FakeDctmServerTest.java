@@ -0,0 +1,152 @@
+package com.example.backend.fake;
+
+import com.example.backend.service.CaseService;
+import com.example.backend.service.GroupService;
+import com.example.backend.service.QueryService;
+import com.example.backend.service.UserDirectoryService;
+import com.example.backend.service.UserService;
+import com.example.backend.service.WorkflowService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The services parse what the fake dctm-rest serves: DQL feeds across pages, conditional
+ * object and group reads, membership changes, workflow fan-out and injected failures.
+ */
+@SpringBootTest(properties = {
+        "app.directory.refresh-interval-ms=600000",
+        "app.resilience.serve-stale-on-failure=false"
+})
+class FakeDctmServerTest {
+
+    private static final FakeDctmServer dctm = new FakeDctmServer().maxItemsPerPage(40).start();
+
+    @Autowired
+    private CaseService caseService;
+
+    @Autowired
+    private WorkflowService workflowService;
+
+    @Autowired
+    private GroupService groupService;
+
+    @Autowired
+    private QueryService queryService;
+
+    @Autowired
+    private UserDirectoryService userDirectoryService;
+
+    @Autowired
+    private UserService userService;
+
+    @DynamicPropertySource
+    static void repositoryUrl(DynamicPropertyRegistry registry) {
+        registry.add("dctm.rest.url", dctm::url);
+    }
+
+    @AfterEach
+    void resetFailures() {
+        dctm.errorRate(0).failNext(0);
+    }
+
+    @AfterAll
+    static void stop() {
+        dctm.close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void casesAreSearchedByNumber() {
+        Map<String, Object> result = caseService.searchCases("/0001", 1, 20);
+
+        List<Map<String, Object>> cases = (List<Map<String, Object>>) result.get("cases");
+        assertFalse(cases.isEmpty());
+        assertTrue(cases.stream().allMatch(c -> c.get("object_name").toString().contains("/0001")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void clientPagesLargerThanTheServerLimitAreJoinedFromSmallerPages() {
+        Map<String, Object> first = userService.searchUserProfiles(null, 1, 90);
+        Map<String, Object> second = userService.searchUserProfiles(null, 2, 90);
+
+        List<Map<String, Object>> users = new ArrayList<>((List<Map<String, Object>>) first.get("users"));
+        assertEquals(90, users.size());
+        assertEquals(true, first.get("hasNext"));
+        users.addAll((List<Map<String, Object>>) second.get("users"));
+        assertEquals(false, second.get("hasNext"));
+        assertEquals(dctm.dataset().rows("cms_user_profile").size(), users.stream().map(u -> u.get("uin")).distinct().count());
+    }
+
+    @Test
+    void queryResultsAreCollectedAcrossPages() {
+        Map<String, Object> result = queryService.executeQuery("SELECT user_name FROM dm_user", 1000);
+
+        assertEquals(dctm.dataset().rows("dm_user").size(), result.get("totalCount"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void workflowsOfACaseAreFetchedWithTheirWorkItems() {
+        Map<String, Object> pkg = dctm.dataset().rows("dmi_package").get(0);
+        String caseId = ((List<String>) pkg.get("r_component_id")).get(0);
+        long expected = dctm.dataset().rows("dmi_package").stream()
+                .filter(row -> ((List<String>) row.get("r_component_id")).contains(caseId))
+                .count();
+
+        Map<String, Object> result = workflowService.getWorkflowsForCase(caseId);
+
+        assertEquals((int) expected, result.get("count"));
+        for (Map<String, Object> workflow : (List<Map<String, Object>>) result.get("workflows")) {
+            assertNotNull(workflow.get("process_id"));
+            assertFalse(((List<?>) workflow.get("workItems")).isEmpty());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void membershipChangesAreVisibleThroughTheConditionalCache() {
+        String groupName = (String) dctm.dataset().rows("dm_group").get(0).get("group_name");
+        groupService.getGroupMembers(groupName);
+
+        groupService.addMember(groupName, "user0099", "user", null);
+        Map<String, Object> members = groupService.getGroupMembers(groupName);
+
+        assertTrue(((List<Map<String, String>>) members.get("users")).stream()
+                .anyMatch(user -> "user0099".equals(user.get("name"))));
+    }
+
+    @Test
+    void activeUsersAreLoadedIntoTheDirectory() {
+        long active = dctm.dataset().rows("dm_user").stream()
+                .filter(user -> Integer.valueOf(0).equals(user.get("user_state")))
+                .count();
+
+        Map<String, Object> result = userDirectoryService.searchUsers(null, 1, null);
+
+        assertEquals((int) active, result.get("total"));
+    }
+
+    @Test
+    void injectedFailuresSurfaceAsQueryErrors() {
+        dctm.errorRate(1.0);
+
+        Map<String, Object> result = queryService.executeQuery("SELECT group_name FROM dm_group", 10);
+
+        assertTrue(result.get("error").toString().contains("503"), String.valueOf(result.get("error")));
+    }
+}
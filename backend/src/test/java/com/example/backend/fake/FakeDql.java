@@ -0,0 +1,348 @@
+package com.example.backend.fake;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The subset of DQL the backend sends, evaluated against in-memory rows: a select list (or *),
+ * one type, a WHERE clause of AND / OR / NOT, comparisons, [NOT] LIKE, [NOT] IN, IS [NOT] NULL,
+ * ANY on repeating attributes and DATE(...) literals, ORDER BY and ENABLE(RETURN_TOP n); and
+ * UPDATE type OBJECTS SET attribute = literal WHERE ... with the same qualifications.
+ * Anything else is rejected like the repository rejects invalid DQL.
+ */
+final class FakeDql {
+
+    private static final Pattern STATEMENT = Pattern.compile(
+            "^\\s*SELECT\\s+(.+?)\\s+FROM\\s+(\\w+)(?:\\s+WHERE\\s+(.+?))?(?:\\s+ORDER\\s+BY\\s+(.+?))?"
+                    + "(?:\\s+ENABLE\\s*\\(\\s*RETURN_TOP\\s+(\\d+)\\s*\\))?\\s*$",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern UPDATE = Pattern.compile(
+            "^\\s*UPDATE\\s+(\\w+)\\s+OBJECTS\\s+SET\\s+(\\w+)\\s*=\\s*(.+?)\\s+WHERE\\s+(.+?)\\s*$",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern EXECUTE = Pattern.compile(
+            "^\\s*EXECUTE\\s+(\\w+)\\s+WITH\\s+(\\w+)\\s*=\\s*(.+?)\\s*$",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    final List<String> columns;
+    final String type;
+    final Predicate<Map<String, Object>> where;
+    final Comparator<Map<String, Object>> order;
+    final int returnTop;
+    final boolean count;
+
+    private FakeDql(List<String> columns, String type, Predicate<Map<String, Object>> where,
+                    Comparator<Map<String, Object>> order, int returnTop, boolean count) {
+        this.columns = columns;
+        this.type = type;
+        this.where = where;
+        this.order = order;
+        this.returnTop = returnTop;
+        this.count = count;
+    }
+
+    static FakeDql parse(String dql) {
+        Matcher matcher = STATEMENT.matcher(dql);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Unsupported DQL: " + dql);
+        }
+        String select = matcher.group(1).trim();
+        boolean count = select.equalsIgnoreCase("COUNT(*)");
+        List<String> columns = new ArrayList<>();
+        if (!select.equals("*") && !count) {
+            for (String column : select.replaceFirst("(?i)^DISTINCT\\s+", "").split(",")) {
+                columns.add(column.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        Predicate<Map<String, Object>> where = matcher.group(3) != null ? filter(matcher.group(3)) : row -> true;
+        Comparator<Map<String, Object>> order = matcher.group(4) != null ? order(matcher.group(4)) : null;
+        int returnTop = matcher.group(5) != null ? Integer.parseInt(matcher.group(5)) : Integer.MAX_VALUE;
+        return new FakeDql(columns, matcher.group(2).toLowerCase(Locale.ROOT), where, order, returnTop, count);
+    }
+
+    /**
+     * An UPDATE ... OBJECTS statement, or null if the statement is not one
+     */
+    static Update parseUpdate(String dql) {
+        Matcher matcher = UPDATE.matcher(dql);
+        if (!matcher.matches()) {
+            return null;
+        }
+        Parser parser = new Parser(tokenize(matcher.group(3)));
+        Object value = parser.literal();
+        if (!parser.atEnd()) {
+            throw new IllegalArgumentException("Unexpected '" + parser.peek() + "' in: " + dql);
+        }
+        return new Update(matcher.group(1).toLowerCase(Locale.ROOT), matcher.group(2).toLowerCase(Locale.ROOT),
+                value, filter(matcher.group(4)));
+    }
+
+    record Update(String type, String attribute, Object value, Predicate<Map<String, Object>> where) {
+    }
+
+    /**
+     * An EXECUTE method WITH argument = literal statement, or null if the statement is not one
+     */
+    static Execute parseExecute(String dql) {
+        Matcher matcher = EXECUTE.matcher(dql);
+        if (!matcher.matches()) {
+            return null;
+        }
+        Parser parser = new Parser(tokenize(matcher.group(3)));
+        Object value = parser.literal();
+        if (!parser.atEnd()) {
+            throw new IllegalArgumentException("Unexpected '" + parser.peek() + "' in: " + dql);
+        }
+        return new Execute(matcher.group(1).toLowerCase(Locale.ROOT), matcher.group(2).toLowerCase(Locale.ROOT), value);
+    }
+
+    record Execute(String method, String argument, Object value) {
+    }
+
+    /**
+     * Evaluate a qualification on its own, as in DQL WHERE clauses and REST collection filters
+     */
+    static Predicate<Map<String, Object>> filter(String qualification) {
+        Parser parser = new Parser(tokenize(qualification));
+        Predicate<Map<String, Object>> predicate = parser.expression();
+        if (!parser.atEnd()) {
+            throw new IllegalArgumentException("Unexpected '" + parser.peek() + "' in: " + qualification);
+        }
+        return predicate;
+    }
+
+    /**
+     * Selected columns of a row, in select-list order
+     */
+    Map<String, Object> project(Map<String, Object> row) {
+        if (columns.isEmpty()) {
+            return row;
+        }
+        Map<String, Object> projected = new LinkedHashMap<>();
+        for (String column : columns) {
+            projected.put(column, row.get(column));
+        }
+        return projected;
+    }
+
+    private static Comparator<Map<String, Object>> order(String orderBy) {
+        Comparator<Map<String, Object>> comparator = null;
+        for (String part : orderBy.split(",")) {
+            String[] words = part.trim().split("\\s+");
+            String column = words[0].toLowerCase(Locale.ROOT);
+            Comparator<Map<String, Object>> next = (a, b) -> compare(a.get(column), b.get(column));
+            if (words.length > 1 && words[1].equalsIgnoreCase("DESC")) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator;
+    }
+
+    static int compare(Object a, Object b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        if (a instanceof Number && b instanceof Number) {
+            return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+        }
+        if (a instanceof Boolean && b instanceof Boolean) {
+            return ((Boolean) a).compareTo((Boolean) b);
+        }
+        return a.toString().compareTo(b.toString());
+    }
+
+    // ---- WHERE clause ----
+
+    private static final Pattern TOKEN = Pattern.compile(
+            "\\s*(?:('(?:[^']|'')*')|(-?\\d+(?:\\.\\d+)?)|([A-Za-z_][\\w.]*)|(!=|<>|>=|<=|[=<>(),*]))");
+
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        Matcher matcher = TOKEN.matcher(text);
+        int position = 0;
+        while (position < text.length()) {
+            if (text.substring(position).isBlank()) {
+                break;
+            }
+            if (!matcher.find(position) || matcher.start() != position) {
+                throw new IllegalArgumentException("Cannot parse DQL near: " + text.substring(position));
+            }
+            tokens.add(matcher.group().trim());
+            position = matcher.end();
+        }
+        return tokens;
+    }
+
+    private static final class Parser {
+
+        private final List<String> tokens;
+        private int next;
+
+        Parser(List<String> tokens) {
+            this.tokens = tokens;
+        }
+
+        boolean atEnd() {
+            return next >= tokens.size();
+        }
+
+        String peek() {
+            return atEnd() ? "" : tokens.get(next);
+        }
+
+        private boolean accept(String keyword) {
+            if (peek().equalsIgnoreCase(keyword)) {
+                next++;
+                return true;
+            }
+            return false;
+        }
+
+        private String take() {
+            if (atEnd()) {
+                throw new IllegalArgumentException("Unexpected end of DQL qualification");
+            }
+            return tokens.get(next++);
+        }
+
+        private void expect(String token) {
+            if (!accept(token)) {
+                throw new IllegalArgumentException("Expected '" + token + "' but found '" + peek() + "'");
+            }
+        }
+
+        Predicate<Map<String, Object>> expression() {
+            Predicate<Map<String, Object>> predicate = term();
+            while (accept("OR")) {
+                predicate = predicate.or(term());
+            }
+            return predicate;
+        }
+
+        private Predicate<Map<String, Object>> term() {
+            Predicate<Map<String, Object>> predicate = factor();
+            while (accept("AND")) {
+                predicate = predicate.and(factor());
+            }
+            return predicate;
+        }
+
+        private Predicate<Map<String, Object>> factor() {
+            if (accept("NOT")) {
+                return factor().negate();
+            }
+            if (accept("(")) {
+                Predicate<Map<String, Object>> predicate = expression();
+                expect(")");
+                return predicate;
+            }
+            return comparison();
+        }
+
+        private Predicate<Map<String, Object>> comparison() {
+            accept("ANY");
+            String column = take().toLowerCase(Locale.ROOT);
+
+            if (accept("IS")) {
+                boolean negated = accept("NOT");
+                expect("NULL");
+                return row -> (row.get(column) == null) != negated;
+            }
+            boolean negated = accept("NOT");
+            if (accept("LIKE")) {
+                Pattern pattern = likePattern((String) literal());
+                Predicate<Map<String, Object>> like = row -> anyValue(row.get(column),
+                        value -> pattern.matcher(value.toString()).matches());
+                return negated ? like.negate() : like;
+            }
+            if (accept("IN")) {
+                expect("(");
+                List<Object> values = new ArrayList<>();
+                do {
+                    values.add(literal());
+                } while (accept(","));
+                expect(")");
+                Predicate<Map<String, Object>> in = row -> anyValue(row.get(column),
+                        value -> values.stream().anyMatch(candidate -> compare(value, candidate) == 0));
+                return negated ? in.negate() : in;
+            }
+            if (negated) {
+                throw new IllegalArgumentException("Expected LIKE or IN after NOT");
+            }
+
+            String operator = take();
+            Object literal = literal();
+            return row -> anyValue(row.get(column), value -> {
+                int result = compare(value, literal);
+                switch (operator) {
+                    case "=":
+                        return result == 0;
+                    case "!=":
+                    case "<>":
+                        return result != 0;
+                    case ">":
+                        return result > 0;
+                    case ">=":
+                        return result >= 0;
+                    case "<":
+                        return result < 0;
+                    case "<=":
+                        return result <= 0;
+                    default:
+                        throw new IllegalArgumentException("Unsupported operator " + operator);
+                }
+            });
+        }
+
+        /**
+         * String, number, TRUE/FALSE or DATE('...'[, 'format']). Dates are compared as the
+         * ISO-8601 text the dataset stores them in.
+         */
+        private Object literal() {
+            String token = take();
+            if (token.startsWith("'")) {
+                return token.substring(1, token.length() - 1).replace("''", "'");
+            }
+            if (token.equalsIgnoreCase("TRUE") || token.equalsIgnoreCase("FALSE")) {
+                return Boolean.parseBoolean(token);
+            }
+            if (token.equalsIgnoreCase("DATE")) {
+                expect("(");
+                String date = (String) literal();
+                if (accept(",")) {
+                    literal();
+                }
+                expect(")");
+                return date.replace('/', '-').replace(' ', 'T');
+            }
+            try {
+                return token.contains(".") ? Double.parseDouble(token) : Long.parseLong(token);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Unsupported DQL literal: " + token);
+            }
+        }
+
+        private static Pattern likePattern(String like) {
+            StringBuilder regex = new StringBuilder();
+            for (char c : like.toCharArray()) {
+                regex.append(c == '%' ? ".*" : c == '_' ? "." : Pattern.quote(String.valueOf(c)));
+            }
+            return Pattern.compile(regex.toString(), Pattern.DOTALL);
+        }
+
+        // Repeating attributes match when any of their values does
+        private static boolean anyValue(Object value, Predicate<Object> test) {
+            if (value instanceof List) {
+                return ((List<?>) value).stream().anyMatch(item -> item != null && test.test(item));
+            }
+            return value != null && test.test(value);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.backend.gateway;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    private static final long OPEN_MS = 100;
+
+    @Test
+    void staysClosedUntilTheMinimumNumberOfCalls() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 4, 50, OPEN_MS);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertTrue(breaker.retryAfterMillis() > 0 && breaker.retryAfterMillis() <= OPEN_MS);
+    }
+
+    @Test
+    void opensOnlyWhenTheFailureRateReachesTheThreshold() {
+        CircuitBreaker breaker = new CircuitBreaker(4, 4, 50, OPEN_MS);
+        call(breaker, false);
+        call(breaker, false);
+        call(breaker, false);
+        call(breaker, true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        // The window slides: the oldest success drops out, 2 of the last 4 calls failed
+        call(breaker, true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void successfulProbeClosesTheBreaker() throws InterruptedException {
+        CircuitBreaker breaker = opened();
+        Thread.sleep(OPEN_MS);
+
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertEquals(0, breaker.retryAfterMillis());
+        // Only one probe at a time
+        assertFalse(breaker.tryAcquire());
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        // The closed breaker starts from an empty window
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void failedProbeOpensTheBreakerAgain() throws InterruptedException {
+        CircuitBreaker breaker = opened();
+        Thread.sleep(OPEN_MS);
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void cancelledProbeLetsTheNextCallProbe() throws InterruptedException {
+        CircuitBreaker breaker = opened();
+        Thread.sleep(OPEN_MS);
+
+        assertTrue(breaker.tryAcquire());
+        breaker.cancel();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    private static CircuitBreaker opened() {
+        CircuitBreaker breaker = new CircuitBreaker(2, 2, 50, OPEN_MS);
+        call(breaker, true);
+        call(breaker, true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        return breaker;
+    }
+
+    private static void call(CircuitBreaker breaker, boolean failure) {
+        assertTrue(breaker.tryAcquire());
+        if (failure) {
+            breaker.onFailure();
+        } else {
+            breaker.onSuccess();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.backend.gateway;
+
+import com.example.backend.cluster.ClusterNode;
+import com.example.backend.config.AppConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConditionalResponseCacheTest {
+
+    private static final String URL = "http://dctm/repositories/test/objects/0900000180000001";
+    private static final String ALICE = "alice";
+    private static final String BOB = "bob";
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void notModifiedServesTheCachedCopy() {
+        ConditionalResponseCache cache = cache(10);
+        Map<String, Object> fresh = cache.revalidate(URL, ALICE).complete(200, "\"v1\"", null, json("first"), this::parse);
+
+        ConditionalResponseCache.Revalidation revalidation = cache.revalidate(URL, ALICE);
+        assertEquals(Map.of(HttpHeaders.IF_NONE_MATCH, "\"v1\""), revalidation.headers());
+        assertSame(fresh, revalidation.complete(304, "\"v1\"", null, null, failingParser()));
+    }
+
+    @Test
+    void notModifiedAfterInvalidationServesTheRevalidatedCopy() {
+        ConditionalResponseCache cache = cache(10);
+        cache.revalidate(URL, ALICE).complete(200, "\"v1\"", null, json("first"), this::parse);
+
+        ConditionalResponseCache.Revalidation revalidation = cache.revalidate(URL, ALICE);
+        cache.invalidate(URL);
+
+        assertEquals("first", revalidation.complete(304, "\"v1\"", null, null, failingParser()).get("name"));
+        // A copy confirmed by a read that raced the invalidation is served, not cached again
+        assertTrue(cache.revalidate(URL, ALICE).headers().isEmpty());
+    }
+
+    @Test
+    void notModifiedAfterEvictionServesTheRevalidatedCopy() {
+        ConditionalResponseCache cache = cache(1);
+        cache.revalidate(URL, ALICE).complete(200, null, "Mon, 01 Jun 2026 10:00:00 GMT", json("first"), this::parse);
+
+        ConditionalResponseCache.Revalidation revalidation = cache.revalidate(URL, ALICE);
+        cache.revalidate(URL + "2", ALICE).complete(200, "\"w1\"", null, json("other"), this::parse);
+        assertEquals(1, cache.size());
+
+        assertEquals("first", revalidation.complete(304, null, null, null, failingParser()).get("name"));
+    }
+
+    @Test
+    void notModifiedWithoutValidatorsIsRefused() {
+        ConditionalResponseCache.Revalidation revalidation = cache(10).revalidate(URL, ALICE);
+
+        assertThrows(IllegalStateException.class,
+                () -> revalidation.complete(304, null, null, null, failingParser()));
+    }
+
+    @Test
+    void freshBodiesAreReadOnly() {
+        ConditionalResponseCache cache = cache(10);
+        Map<String, Object> cached = cache.revalidate(URL, ALICE).complete(200, "\"v1\"", null, json("first"), this::parse);
+        Map<String, Object> uncached = cache.revalidate(URL + "2", ALICE).complete(200, null, null, json("other"), this::parse);
+
+        assertThrows(UnsupportedOperationException.class, () -> cached.put("name", "changed"));
+        assertThrows(UnsupportedOperationException.class, () -> uncached.put("name", "changed"));
+        assertEquals("first", cache.stale(URL, ALICE).get("name"));
+    }
+
+    @Test
+    void staleCopiesAreOnlyServedToPrincipalsTheRepositoryServedThemTo() {
+        ConditionalResponseCache cache = cache(10);
+        cache.revalidate(URL, ALICE).complete(200, "\"v1\"", null, json("first"), this::parse);
+
+        assertEquals("first", cache.stale(URL, ALICE).get("name"));
+        assertNull(cache.stale(URL, BOB));
+        assertNull(cache.stale(URL, ""));
+
+        // Once the repository confirms the copy to another principal, it may have it too
+        cache.revalidate(URL, BOB).complete(304, "\"v1\"", null, null, failingParser());
+        assertEquals("first", cache.stale(URL, BOB).get("name"));
+
+        // A new version is only known to be visible to the principal that read it
+        cache.revalidate(URL, ALICE).complete(200, "\"v2\"", null, json("second"), this::parse);
+        assertEquals("second", cache.stale(URL, ALICE).get("name"));
+        assertNull(cache.stale(URL, BOB));
+    }
+
+    private static ConditionalResponseCache cache(int maxEntries) {
+        AppConfig appConfig = new AppConfig();
+        appConfig.getCache().setMaxEntries(maxEntries);
+        ClusterNode clusterNode = new ClusterNode(appConfig, objectMapper, new SimpleMeterRegistry());
+        return new ConditionalResponseCache(appConfig.getCache(), clusterNode, "test");
+    }
+
+    private static byte[] json(String name) {
+        return ("{\"name\":\"" + name + "\",\"properties\":{\"i_vstamp\":1}}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> parse(byte[] body) {
+        try {
+            return objectMapper.readValue(body, Map.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Function<byte[], Map<String, Object>> failingParser() {
+        return body -> {
+            throw new AssertionError("a 304 has no body to parse");
+        };
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.backend.gateway;
+
+import com.example.backend.config.AppConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HedgerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AppConfig.HedgingConfig config = new AppConfig.HedgingConfig();
+    private Hedger hedger;
+
+    HedgerTest() {
+        config.setEnabled(true);
+        config.setInitialDelayMs(50);
+        config.setMaxThreads(4);
+    }
+
+    @AfterEach
+    void shutdown() {
+        if (hedger != null) {
+            hedger.shutdown();
+        }
+    }
+
+    @Test
+    void fastReadIsNotHedged() {
+        AtomicInteger attempts = new AtomicInteger();
+        assertEquals(1, (int) hedger().execute(DctmOperation.OBJECT_GET, attempts::incrementAndGet));
+        assertEquals(1, attempts.get());
+        assertEquals(0, meterRegistry.find("dctm.gateway.hedges").counters().size());
+    }
+
+    @Test
+    void hedgeAnsweringFirstWins() {
+        String result = hedger().execute(DctmOperation.OBJECT_GET, attempts(
+                () -> sleepThen(2000, "primary"),
+                () -> "hedge"));
+
+        assertEquals("hedge", result);
+        assertEquals(1, count("sent"));
+        assertEquals(1, count("won"));
+    }
+
+    @Test
+    void primaryAnsweringFirstWinsOverTheHedge() {
+        String result = hedger().execute(DctmOperation.OBJECT_GET, attempts(
+                () -> sleepThen(150, "primary"),
+                () -> sleepThen(2000, "hedge")));
+
+        assertEquals("primary", result);
+        assertEquals(1, count("sent"));
+        assertEquals(1, count("lost"));
+    }
+
+    @Test
+    void bothAttemptsFailingThrowsThePrimarysError() {
+        DctmException primaryError = new DctmException(DctmOperation.OBJECT_GET, 503, null, "primary", null);
+        DctmException hedgeError = new DctmException(DctmOperation.OBJECT_GET, 503, null, "hedge", null);
+
+        DctmException thrown = assertThrows(DctmException.class, () -> hedger().execute(DctmOperation.OBJECT_GET, attempts(
+                () -> {
+                    sleepThen(150, null);
+                    throw primaryError;
+                },
+                () -> {
+                    throw hedgeError;
+                })));
+
+        assertSame(primaryError, thrown);
+        assertEquals(1, count("failed"));
+    }
+
+    @Test
+    void hedgesBeyondTheBudgetAreSkipped() {
+        // No budget is earned, so only the hedges saved up at start (10) are sent
+        config.setBudgetPercent(0);
+        Hedger hedger = hedger();
+        for (int i = 0; i < 11; i++) {
+            hedger.execute(DctmOperation.DQL_PAGE, () -> sleepThen(80, "page"));
+        }
+
+        assertEquals(10, count("sent"));
+        assertEquals(1, count("skipped"));
+    }
+
+    @Test
+    void onlyConfiguredReadsAreHedged() {
+        Hedger hedger = hedger();
+        assertEquals("group", hedger.execute(DctmOperation.GROUP_GET, () -> sleepThen(150, "group")));
+        config.setEnabled(false);
+        assertEquals("page", hedger.execute(DctmOperation.OBJECT_GET, () -> sleepThen(150, "page")));
+        assertEquals(0, meterRegistry.find("dctm.gateway.hedges").counters().size());
+
+        assertThrows(IllegalArgumentException.class, () -> new Hedger(config, meterRegistry, Tracer.NOOP,
+                Executors.defaultThreadFactory(), EnumSet.of(DctmOperation.OBJECT_UPDATE)));
+    }
+
+    private Hedger hedger() {
+        hedger = new Hedger(config, meterRegistry, Tracer.NOOP, Executors.defaultThreadFactory(),
+                EnumSet.of(DctmOperation.DQL_PAGE, DctmOperation.OBJECT_GET));
+        return hedger;
+    }
+
+    /**
+     * The first call made runs the primary attempt, every later one the hedge
+     */
+    private static <T> Supplier<T> attempts(Supplier<T> primary, Supplier<T> hedge) {
+        AtomicInteger calls = new AtomicInteger();
+        return () -> calls.getAndIncrement() == 0 ? primary.get() : hedge.get();
+    }
+
+    private static <T> T sleepThen(long millis, T result) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return result;
+    }
+
+    private double count(String result) {
+        Counter counter = meterRegistry.find("dctm.gateway.hedges").tag("result", result).counter();
+        return counter != null ? counter.count() : 0;
+    }
+}
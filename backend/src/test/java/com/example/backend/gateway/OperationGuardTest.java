@@ -0,0 +1,95 @@
+package com.example.backend.gateway;
+
+import com.example.backend.config.AppConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OperationGuardTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void fullBulkheadRefusesOnlyItsOwnClass() {
+        OperationGuard guard = guard(Map.of(OperationClass.CONSOLE, 2));
+        OperationGuard.Permit first = guard.acquire(DctmOperation.CONSOLE_PAGE);
+        guard.acquire(DctmOperation.CONSOLE_PAGE);
+
+        DctmUnavailableException refused = assertThrows(DctmUnavailableException.class,
+                () -> guard.acquire(DctmOperation.CONSOLE_PAGE));
+        assertEquals("bulkhead_full", refused.getErrorCode());
+        assertEquals(503, refused.getStatus());
+        assertEquals(1, meterRegistry.get("dctm.gateway.rejected")
+                .tags("class", "console", "reason", "bulkhead_full").counter().count());
+
+        // Case search shares no slots with the console
+        guard.acquire(DctmOperation.DQL_PAGE).release(false);
+
+        first.release(false);
+        guard.acquire(DctmOperation.CONSOLE_PAGE).release(false);
+    }
+
+    @Test
+    void releasingTwiceFreesOneSlot() {
+        OperationGuard guard = guard(Map.of(OperationClass.USER, 1));
+        OperationGuard.Permit permit = guard.acquire(DctmOperation.OBJECT_UPDATE);
+        permit.release(false);
+        permit.release(false);
+
+        guard.acquire(DctmOperation.OBJECT_UPDATE);
+        assertThrows(DctmUnavailableException.class, () -> guard.acquire(DctmOperation.OBJECT_UPDATE));
+    }
+
+    @Test
+    void failingCallsOpenTheBreakerOfTheirClassOnly() {
+        OperationGuard guard = guard(Map.of());
+        for (int i = 0; i < 2; i++) {
+            guard.acquire(DctmOperation.GROUP_GET).release(true);
+        }
+
+        DctmUnavailableException refused = assertThrows(DctmUnavailableException.class,
+                () -> guard.acquire(DctmOperation.MEMBERSHIP_ADD));
+        assertEquals("circuit_open", refused.getErrorCode());
+        assertTrue(refused.getRetryAfterMillis() > 0 && refused.getRetryAfterMillis() <= 60000);
+
+        guard.acquire(DctmOperation.WORKFLOW_LIST).release(false);
+    }
+
+    @Test
+    void successfulProbeLetsTheClassBackIn() throws InterruptedException {
+        AppConfig.ResilienceConfig config = config();
+        config.setOpenDurationMs(50);
+        OperationGuard guard = new OperationGuard("test", config, Map.of(), meterRegistry);
+        for (int i = 0; i < 2; i++) {
+            guard.acquire(DctmOperation.LOGIN_TICKET).release(true);
+        }
+        assertThrows(DctmUnavailableException.class, () -> guard.acquire(DctmOperation.CURRENT_USER));
+        Thread.sleep(50);
+
+        OperationGuard.Permit probe = guard.acquire(DctmOperation.LOGIN_TICKET);
+        assertEquals("circuit_open", assertThrows(DctmUnavailableException.class,
+                () -> guard.acquire(DctmOperation.CURRENT_USER)).getErrorCode());
+        probe.release(false);
+
+        guard.acquire(DctmOperation.CURRENT_USER).release(false);
+        guard.acquire(DctmOperation.LOGIN_TICKET).release(false);
+    }
+
+    private OperationGuard guard(Map<OperationClass, Integer> maxConcurrent) {
+        return new OperationGuard("test", config(), maxConcurrent, meterRegistry);
+    }
+
+    private static AppConfig.ResilienceConfig config() {
+        AppConfig.ResilienceConfig config = new AppConfig.ResilienceConfig();
+        config.setBulkheadWaitMs(10);
+        config.setWindowSize(2);
+        config.setMinimumCalls(2);
+        config.setOpenDurationMs(60000);
+        return config;
+    }
+}
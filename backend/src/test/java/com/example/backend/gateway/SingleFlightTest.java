@@ -0,0 +1,111 @@
+package com.example.backend.gateway;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SingleFlight singleFlight = new SingleFlight(meterRegistry);
+
+    @Test
+    void concurrentCallersShareTheLeadersResult() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        Object result = new Object();
+
+        List<CompletableFuture<Object>> callers = start(() -> singleFlight.execute(DctmOperation.OBJECT_GET, "key", "tag",
+                () -> {
+                    calls.incrementAndGet();
+                    await(release);
+                    return result;
+                }));
+        awaitJoined(CALLERS - 1);
+        release.countDown();
+
+        for (CompletableFuture<Object> caller : callers) {
+            assertSame(result, caller.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1, count("leader"));
+        assertEquals(0, singleFlight.size());
+    }
+
+    @Test
+    void failureReachesEveryWaitingCaller() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<CompletableFuture<Object>> callers = start(() -> singleFlight.execute(DctmOperation.OBJECT_GET, "key", "tag",
+                () -> {
+                    await(release);
+                    throw new DctmException(DctmOperation.OBJECT_GET, 503, null, "unavailable", null);
+                }));
+        awaitJoined(CALLERS - 1);
+        release.countDown();
+
+        for (CompletableFuture<Object> caller : callers) {
+            CompletionException failure = assertThrows(CompletionException.class, caller::join);
+            assertTrue(failure.getCause() instanceof DctmException, String.valueOf(failure.getCause()));
+        }
+        assertEquals(0, singleFlight.size());
+    }
+
+    @Test
+    void completedCallsAreNotReused() {
+        AtomicInteger calls = new AtomicInteger();
+        singleFlight.execute(DctmOperation.OBJECT_GET, "key", "tag", calls::incrementAndGet);
+        assertEquals(2, (int) singleFlight.execute(DctmOperation.OBJECT_GET, "key", "tag", calls::incrementAndGet));
+        // Different keys never share a call
+        assertEquals(3, (int) singleFlight.execute(DctmOperation.OBJECT_GET, "other", "tag", calls::incrementAndGet));
+        assertEquals(0, count("joined"));
+    }
+
+    private List<CompletableFuture<Object>> start(Supplier<Object> caller) {
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        List<CompletableFuture<Object>> callers = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            callers.add(CompletableFuture.supplyAsync(caller, executor));
+        }
+        executor.shutdown();
+        return callers;
+    }
+
+    private void awaitJoined(int joined) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (count("joined") < joined) {
+            assertTrue(System.nanoTime() < deadline, "Only " + count("joined") + " callers joined");
+            Thread.sleep(5);
+        }
+    }
+
+    private double count(String role) {
+        return meterRegistry.find("dctm.gateway.coalesced").tag("role", role).counters().stream()
+                .mapToDouble(counter -> counter.count()).sum();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.backend.service;
+
+import com.example.backend.BackendApplication;
+import com.example.backend.fake.FakeDctmServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The write-behind dm_user status sync against two repositories, each served by its own fake
+ * dctm-rest with the same generated objects
+ */
+class DmUserStatusSyncQueueTest {
+
+    private static final FakeDctmServer dctm = new FakeDctmServer().start();
+    private static final FakeDctmServer otherDctm = new FakeDctmServer().start();
+    private static Path journal;
+    private static Path deadLetters;
+    private static ConfigurableApplicationContext context;
+
+    @BeforeAll
+    static void start() throws IOException {
+        Path directory = Files.createTempDirectory("status-sync");
+        journal = directory.resolve("dm-user-status-sync.journal");
+        deadLetters = directory.resolve("dm-user-status-sync.dead-letter");
+        context = startContext();
+    }
+
+    @AfterAll
+    static void stop() {
+        context.close();
+        dctm.close();
+        otherDctm.close();
+    }
+
+    @Test
+    void pendingChangesAreReplayedIntoTheirRepositoryAfterARestart() throws IOException {
+        Map<String, Object> profile = otherDctm.dataset().rows("cms_user_profile").get(5);
+        String profileId = (String) profile.get("r_object_id");
+        String userName = (String) profile.get("user_login_name");
+        int userState = userState(otherDctm, userName);
+
+        RepositoryContext.runIn("OTHER", () ->
+                context.getBean(DmUserStatusSyncQueue.class).enqueue(profileId, userState != 0));
+        assertTrue(Files.readString(journal).contains(profileId + "\t" + (userState != 0 ? "1" : "0")));
+        assertTrue(Files.readString(journal).contains("\tOTHER"));
+
+        context.close();
+        context = startContext();
+        context.getBean(DmUserStatusSyncQueue.class).flush();
+
+        assertEquals(1 - userState, userState(otherDctm, userName));
+        assertEquals(userState, userState(dctm, userName));
+        assertEquals(0, context.getBean(DmUserStatusSyncQueue.class).pendingCount());
+    }
+
+    @Test
+    void profilesWithoutALoginNameAreSkippedNotCountedAsSynced() {
+        DmUserStatusSyncQueue queue = context.getBean(DmUserStatusSyncQueue.class);
+        Map<String, Object> profile = dctm.dataset().rows("cms_user_profile").get(3);
+        boolean active = !Boolean.TRUE.equals(profile.get("is_active"));
+        double synced = count("dctm.user.status.sync.synced");
+        double skipped = count("dctm.user.status.sync.skipped");
+
+        Map<String, Boolean> changes = new LinkedHashMap<>();
+        changes.put((String) profile.get("r_object_id"), active);
+        changes.put("0900000000000bad", false);
+        queue.enqueueAll(changes);
+        queue.flush();
+
+        assertEquals(active ? 0 : 1, userState(dctm, (String) profile.get("user_login_name")));
+        assertEquals(0, queue.pendingCount());
+        assertEquals(1, count("dctm.user.status.sync.synced") - synced);
+        assertEquals(1, count("dctm.user.status.sync.skipped") - skipped);
+    }
+
+    @Test
+    void statusIsQueuedOnlyOnceTheProfileIsUpdated() {
+        DmUserStatusSyncQueue queue = context.getBean(DmUserStatusSyncQueue.class);
+        UserService userService = context.getBean(UserService.class);
+
+        assertThrows(RuntimeException.class,
+                () -> userService.updateUserProfile("0900000000000bad", Map.of("is_active", false)));
+        assertEquals(0, queue.pendingCount());
+    }
+
+    @Test
+    void changesThatKeepFailingAreMovedToTheDeadLetterLog() throws Exception {
+        DmUserStatusSyncQueue queue = context.getBean(DmUserStatusSyncQueue.class);
+        Map<String, Object> profile = dctm.dataset().rows("cms_user_profile").get(7);
+        String profileId = (String) profile.get("r_object_id");
+        int userState = userState(dctm, (String) profile.get("user_login_name"));
+
+        queue.enqueue(profileId, userState != 0);
+        dctm.errorRate(1);
+        try {
+            queue.flush();
+            assertEquals(1, queue.pendingCount());
+            Thread.sleep(20); // Past the retry backoff
+            queue.flush();
+        } finally {
+            dctm.errorRate(0);
+        }
+
+        assertEquals(0, queue.pendingCount());
+        assertFalse(Files.readString(journal).contains(profileId));
+        assertTrue(Files.readString(deadLetters).contains(profileId + "\t" + (userState != 0 ? "1" : "0")));
+        assertEquals(1, count("dctm.user.status.sync.dead_lettered"));
+        assertEquals(userState, userState(dctm, (String) profile.get("user_login_name")));
+    }
+
+    private static ConfigurableApplicationContext startContext() {
+        return new SpringApplicationBuilder(BackendApplication.class).run(
+                "--server.port=0",
+                "--management.server.port=0",
+                "--dctm.rest.url=" + dctm.url(),
+                "--dctm.rest.repository=MAIN",
+                "--dctm.rest.repositories[0].name=MAIN",
+                "--dctm.rest.repositories[1].name=OTHER",
+                "--dctm.rest.repositories[1].url=" + otherDctm.url(),
+                "--app.directory.refresh-interval-ms=600000",
+                "--app.users.status-sync.journal-path=" + journal,
+                "--app.users.status-sync.dead-letter-path=" + deadLetters,
+                "--app.users.status-sync.initial-backoff-ms=10",
+                "--app.users.status-sync.max-attempts=2",
+                // Flushed by the tests only, apart from the first run at startup
+                "--app.users.status-sync.flush-interval-ms=600000");
+    }
+
+    private static int userState(FakeDctmServer dctm, String userName) {
+        return dctm.dataset().rows("dm_user").stream()
+                .filter(user -> userName.equals(user.get("user_name")))
+                .map(user -> ((Number) user.get("user_state")).intValue())
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static double count(String name) {
+        return context.getBean(MeterRegistry.class).counter(name).count();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.backend.service;
+
+import com.example.backend.BackendApplication;
+import com.example.backend.fake.FakeDctmServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Group searches: the name filter reaches dctm-rest as one encoded query parameter, whatever the
+ * admin types
+ */
+class GroupServiceTest {
+
+    private static final FakeDctmServer dctm = new FakeDctmServer().start();
+    private static ConfigurableApplicationContext context;
+
+    @BeforeAll
+    static void start() {
+        context = new SpringApplicationBuilder(BackendApplication.class).run(
+                "--server.port=0",
+                "--management.server.port=0",
+                "--dctm.rest.url=" + dctm.url(),
+                "--app.directory.refresh-interval-ms=600000");
+    }
+
+    @AfterAll
+    static void stop() {
+        context.close();
+        dctm.close();
+    }
+
+    @Test
+    void searchesMatchGroupNamesByPrefix() {
+        String groupName = (String) dctm.dataset().rows("dm_group").get(0).get("group_name");
+        String prefix = groupName.substring(0, groupName.lastIndexOf('_') + 1);
+        long expected = dctm.dataset().rows("dm_group").stream()
+                .filter(group -> group.get("group_name").toString().startsWith(prefix))
+                .count();
+
+        List<Map<String, Object>> groups = groups(context.getBean(GroupService.class).searchGroups(prefix, 1, 100));
+
+        assertEquals(expected, groups.size());
+        assertTrue(groups.stream().allMatch(group -> group.get("group_name").toString().startsWith(prefix)));
+    }
+
+    @Test
+    void quotesAndQueryCharactersInTheNameStayInTheFilter() {
+        GroupService groupService = context.getBean(GroupService.class);
+
+        // Joined into the query string, '&' would end the filter and add a page parameter
+        assertTrue(groups(groupService.searchGroups("grp&page=2", 1, 100)).isEmpty());
+        assertTrue(groups(groupService.searchGroups("o'brien {team} 100%", 1, 100)).isEmpty());
+        assertFalse(groups(groupService.searchGroups("grp", 1, 100)).isEmpty());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> groups(Map<String, Object> result) {
+        return (List<Map<String, Object>>) result.get("groups");
+    }
+}
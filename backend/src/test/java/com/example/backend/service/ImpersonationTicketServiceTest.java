@@ -0,0 +1,73 @@
+package com.example.backend.service;
+
+import com.example.backend.BackendApplication;
+import com.example.backend.fake.FakeDctmServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImpersonationTicketServiceTest {
+
+    private static final FakeDctmServer dctm = new FakeDctmServer().start();
+    private static ConfigurableApplicationContext context;
+
+    @BeforeAll
+    static void start() {
+        context = new SpringApplicationBuilder(BackendApplication.class).run(
+                "--server.port=0",
+                "--management.server.port=0",
+                "--dctm.rest.url=" + dctm.url(),
+                "--app.directory.refresh-interval-ms=600000");
+    }
+
+    @AfterAll
+    static void stop() {
+        context.close();
+        dctm.close();
+    }
+
+    @Test
+    void cachedTicketIsReused() {
+        ImpersonationTicketService service = context.getBean(ImpersonationTicketService.class);
+        Object first = ticket(service.getLoginTicket("reused"));
+
+        assertEquals(first, ticket(service.getLoginTicket("reused")));
+        service.invalidate("reused");
+        assertNotEquals(first, ticket(service.getLoginTicket("reused")));
+    }
+
+    @Test
+    void ticketGeneratedAcrossAnInvalidationIsNotCached() throws InterruptedException {
+        ImpersonationTicketService service = context.getBean(ImpersonationTicketService.class);
+        dctm.latency(FakeDctmServer.Route.DQL, Duration.ofMillis(500));
+        try {
+            CompletableFuture<Map<String, Object>> before = CompletableFuture.supplyAsync(() -> service.getLoginTicket("revoked"));
+            Thread.sleep(200);
+            service.invalidate("revoked");
+            // Started after the invalidation, so it must not join the generation already under way
+            CompletableFuture<Map<String, Object>> after = CompletableFuture.supplyAsync(() -> service.getLoginTicket("revoked"));
+
+            Object stale = ticket(before.join());
+            Object fresh = ticket(after.join());
+            assertNotEquals(stale, fresh);
+            assertEquals(fresh, ticket(service.getLoginTicket("revoked")));
+        } finally {
+            dctm.latency(FakeDctmServer.Route.DQL, Duration.ZERO);
+        }
+    }
+
+    private static Object ticket(Map<String, Object> result) {
+        assertTrue(Boolean.TRUE.equals(result.get("success")), String.valueOf(result));
+        return result.get("loginTicket");
+    }
+}
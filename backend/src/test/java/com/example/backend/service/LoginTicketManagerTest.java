@@ -0,0 +1,158 @@
+package com.example.backend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoginTicketManagerTest {
+
+    private final AtomicInteger issued = new AtomicInteger();
+    private LoginTicketManager manager;
+
+    @AfterEach
+    void shutdown() {
+        if (manager != null) {
+            manager.shutdown();
+        }
+    }
+
+    @Test
+    void concurrentReadersShareOneRefresh() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        manager = new LoginTicketManager("test", () -> {
+            await(release);
+            return ticket(Duration.ofHours(1));
+        }, Duration.ofMinutes(5));
+
+        // No ticket yet: readers don't wait for it, they all join the refresh they started
+        assertNull(manager.currentTicket());
+        CompletableFuture<LoginTicketManager.LoginTicket> refresh = manager.refreshAsync();
+        for (int i = 0; i < 10; i++) {
+            assertNull(manager.currentAuthHeader());
+            assertSame(refresh, manager.refreshAsync());
+        }
+        release.countDown();
+
+        LoginTicketManager.LoginTicket ticket = refresh.join();
+        assertEquals(1, issued.get());
+        assertEquals(ticket.ticket(), manager.currentTicket());
+        assertEquals("DmTicket " + ticket.ticket(), manager.currentAuthHeader());
+        assertTrue(manager.issued(ticket.authHeader()));
+        // Not due for renewal, so reading it starts no further refresh
+        manager.currentTicket();
+        assertEquals(1, issued.get());
+    }
+
+    @Test
+    void ticketDueForRenewalIsServedWhileItIsReplaced() {
+        Instant now = Instant.now();
+        // Renewing a minute early, a 30 second ticket is due halfway through its lifetime
+        LoginTicketManager.LoginTicket due = LoginTicketManager.LoginTicket.of("due", now.minusSeconds(20), now.plusSeconds(10));
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        manager = new LoginTicketManager("test", () -> {
+            if (calls.getAndIncrement() == 0) {
+                return due;
+            }
+            await(release);
+            return ticket(Duration.ofHours(1));
+        }, Duration.ofMinutes(1));
+        manager.refreshAsync().join();
+
+        assertEquals("due", manager.currentTicket());
+        CompletableFuture<LoginTicketManager.LoginTicket> renewal = manager.refreshAsync();
+        assertEquals("due", manager.currentTicket());
+        release.countDown();
+
+        assertEquals(renewal.join().ticket(), manager.currentTicket());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void failedRefreshBacksOffUntilInvalidated() {
+        AtomicInteger attempts = new AtomicInteger();
+        manager = new LoginTicketManager("test", () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("repository unavailable");
+            }
+            return ticket(Duration.ofHours(1));
+        }, Duration.ofMinutes(5));
+
+        CompletionException failure = assertThrows(CompletionException.class, () -> manager.refreshAsync().join());
+        assertEquals("repository unavailable", failure.getCause().getMessage());
+
+        // Within the backoff no further login-tickets call is made
+        assertNull(manager.currentTicket());
+        assertThrows(CompletionException.class, () -> manager.refreshAsync().join());
+        assertEquals(1, attempts.get());
+
+        manager.invalidate(null);
+        assertTrue(manager.refreshAsync().join().ticket().startsWith("DM_TICKET="));
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    void invalidateOnlyDropsTheRejectedTicket() {
+        manager = new LoginTicketManager("test", () -> ticket(Duration.ofHours(1)), Duration.ofMinutes(5));
+        LoginTicketManager.LoginTicket ticket = manager.refreshAsync().join();
+
+        manager.invalidate("DM_TICKET=other");
+        assertEquals(ticket.ticket(), manager.currentTicket());
+        manager.invalidate(ticket.ticket());
+        assertFalse(manager.issued(ticket.authHeader()));
+    }
+
+    @Test
+    void expiryIsReadFromTheTicketThenTheResponse() {
+        Instant expires = Instant.now().plusSeconds(1800);
+        LoginTicketManager.LoginTicket fromTicket = LoginTicketManager.fromResponse(
+                Map.of("id", encode(expires.getEpochSecond())), Duration.ofMinutes(5));
+        assertEquals(expires.getEpochSecond(), fromTicket.expiresAt().getEpochSecond());
+
+        LoginTicketManager.LoginTicket fromFields = LoginTicketManager.fromResponse(
+                Map.of("ticket", "opaque", "properties", Map.of("expiration", expires.toString())), Duration.ofMinutes(5));
+        assertEquals(expires, fromFields.expiresAt());
+
+        LoginTicketManager.LoginTicket fallback = LoginTicketManager.fromResponse(Map.of("id", "opaque"), Duration.ofMinutes(5));
+        assertEquals(Duration.ofMinutes(5), Duration.between(fallback.issuedAt(), fallback.expiresAt()));
+
+        assertThrows(IllegalStateException.class, () -> LoginTicketManager.fromResponse(Map.of(), Duration.ofMinutes(5)));
+    }
+
+    private LoginTicketManager.LoginTicket ticket(Duration lifetime) {
+        Instant now = Instant.now();
+        String ticket = encode(now.plus(lifetime).getEpochSecond()) + issued.incrementAndGet();
+        return LoginTicketManager.LoginTicket.of(ticket, now, now.plus(lifetime));
+    }
+
+    private static String encode(long expireTime) {
+        String payload = "user_name STRING S 0\ntest\nexpire_time INT S 0\n" + expireTime + "\n";
+        return "DM_TICKET=" + Base64.getEncoder().encodeToString(payload.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.backend.service;
+
+import com.example.backend.config.AppConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueryAdmissionTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void userBeyondTheBurstIsRefusedWithRetryAfter() {
+        QueryAdmission admission = admission(6, 2, 0, 0);
+
+        asUser("alice", admission::admit);
+        asUser("alice", admission::admit);
+        QueryRejectedException refused = assertThrows(QueryRejectedException.class, () -> asUser("alice", admission::admit));
+        asUser("bob", admission::admit);
+
+        assertEquals("rate_limited", refused.getReason());
+        // 6 per minute: the next token is at most 10s away
+        assertTrue(refused.getRetryAfterMillis() > 0 && refused.getRetryAfterMillis() <= 10_000);
+    }
+
+    @Test
+    void refilledBucketsAreDropped() throws InterruptedException {
+        // A token every 100ms
+        QueryAdmission admission = admission(600, 2, 0, 0);
+        for (int i = 0; i < 50; i++) {
+            asUser("user" + i, admission::admit);
+        }
+        asUser("alice", admission::admit);
+        asUser("alice", admission::admit);
+
+        Thread.sleep(150);
+        asUser("bob", admission::admit);
+
+        // The one-off users have refilled and are gone; Alice's bucket is still short of the burst
+        assertEquals(2, meterRegistry.get("dctm.query.admission.buckets").gauge().value());
+        QueryRejectedException refused = assertThrows(QueryRejectedException.class, () -> {
+            asUser("alice", admission::admit);
+            asUser("alice", admission::admit);
+        });
+        assertEquals("rate_limited", refused.getReason());
+    }
+
+    @Test
+    void freedSlotsGoRoundRobinOverWaitingUsers() throws Exception {
+        QueryAdmission admission = admission(0, 1, 1, 5000);
+        QueryAdmission.Slot held = admission.acquirePage();
+        assertNull(admission.tryAcquirePage());
+
+        BlockingQueue<String> admitted = new LinkedBlockingQueue<>();
+        List<Thread> waiters = new ArrayList<>();
+        // Alice queues three pages before Bob queues one
+        for (String user : List.of("alice", "alice", "alice", "bob")) {
+            Thread waiter = new Thread(() -> asUser(user, () -> {
+                QueryAdmission.Slot slot = admission.acquirePage();
+                admitted.add(user);
+                sleep(20);
+                slot.release();
+            }));
+            waiter.start();
+            waiters.add(waiter);
+            awaitQueued(waiters.size());
+        }
+        held.release();
+        for (Thread waiter : waiters) {
+            waiter.join();
+        }
+
+        assertEquals(List.of("alice", "bob", "alice", "alice"), new ArrayList<>(admitted));
+        assertNotNull(admission.tryAcquirePage());
+    }
+
+    @Test
+    void pageStillQueuedAfterTheTimeoutFailsItsQuery() {
+        QueryAdmission admission = admission(0, 1, 1, 50);
+        admission.acquirePage();
+
+        QueryRejectedException refused = assertThrows(QueryRejectedException.class, admission::acquirePage);
+
+        assertEquals("queue_timeout", refused.getReason());
+        assertEquals(0, meterRegistry.get("dctm.query.admission.queued").gauge().value());
+        assertEquals(1, meterRegistry.get("dctm.query.admission.wait").tag("outcome", "timeout").timer().count());
+    }
+
+    private QueryAdmission admission(int ratePerMinute, int burst, int maxConcurrentPages, long queueTimeoutMs) {
+        AppConfig appConfig = new AppConfig();
+        appConfig.getQuery().setUserRatePerMinute(ratePerMinute);
+        appConfig.getQuery().setUserBurst(burst);
+        appConfig.getQuery().setMaxConcurrentPages(maxConcurrentPages);
+        appConfig.getQuery().setQueueTimeoutMs(queueTimeoutMs);
+        return new QueryAdmission(appConfig, meterRegistry);
+    }
+
+    private void awaitQueued(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("dctm.query.admission.queued").gauge().value() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static void asUser(String username, Runnable action) {
+        SessionContext.bind(new DctmSession(username, username, "repo", null, Instant.now(), Instant.now().plusSeconds(60)));
+        try {
+            action.run();
+        } finally {
+            SessionContext.clear();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
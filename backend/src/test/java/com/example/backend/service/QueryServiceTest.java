@@ -0,0 +1,120 @@
+package com.example.backend.service;
+
+import com.example.backend.BackendApplication;
+import com.example.backend.fake.FakeDctmServer;
+import com.example.backend.gateway.DctmUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueryServiceTest {
+
+    private static final long OPEN_MS = 1000;
+    private static final FakeDctmServer dctm = new FakeDctmServer().start();
+    private static ConfigurableApplicationContext context;
+
+    @BeforeAll
+    static void start() {
+        context = new SpringApplicationBuilder(BackendApplication.class).run(
+                "--server.port=0",
+                "--management.server.port=0",
+                "--dctm.rest.url=" + dctm.url(),
+                "--app.directory.refresh-interval-ms=600000",
+                "--app.paging.adaptive=false",
+                "--app.paging.initial-page-size=7",
+                "--app.query.page-prefetch=4",
+                "--app.query.user-rate-per-minute=0",
+                "--app.resilience.minimum-calls=3",
+                "--app.resilience.open-duration-ms=" + OPEN_MS);
+    }
+
+    @AfterAll
+    static void stop() {
+        context.close();
+        dctm.close();
+    }
+
+    @Test
+    void pagesFetchedPastTheEndOfTheResultGiveBackTheirSlots() throws InterruptedException {
+        int users = dctm.dataset().rows("dm_user").size();
+
+        // Pages of 7 rows end inside a prefetch window of 4, so the rest of the window is discarded
+        Map<String, Object> result = context.getBean(QueryService.class)
+                .executeQuery("SELECT user_name FROM dm_user", 1000);
+
+        assertEquals(users, result.get("totalCount"));
+        // Console pages run under their own operation class, apart from search DQL and object reads
+        Timer pages = context.getBean(MeterRegistry.class).find("dctm.gateway.requests")
+                .tag("operation", "console.page").timer();
+        assertTrue(pages != null && pages.count() > 0);
+        awaitZero("dctm.query.admission.in_flight");
+        assertEquals(0, gauge("dctm.query.admission.queued"));
+    }
+
+    @Test
+    void consoleQueriesRefusedByAnOpenBreakerAnswer503WithRetryAfter() throws Exception {
+        QueryService queryService = context.getBean(QueryService.class);
+        dctm.errorRate(1);
+        try {
+            // Failing calls fill the breaker's window until it opens and the service passes the refusal on
+            assertThrows(DctmUnavailableException.class, () -> {
+                for (int i = 0; i <= 20; i++) {
+                    queryService.executeQuery("SELECT user_name FROM dm_user", 10);
+                }
+            });
+            dctm.errorRate(0);
+            HttpResponse<String> response = post("/api/query/execute", "{\"dql\":\"SELECT user_name FROM dm_user\"}");
+
+            assertEquals(503, response.statusCode());
+            long retryAfter = Long.parseLong(response.headers().firstValue("Retry-After").orElseThrow());
+            assertTrue(retryAfter >= 1 && retryAfter <= OPEN_MS / 1000, response.body());
+            assertTrue(response.body().contains("circuit_open"), response.body());
+            // Case search runs under the query class, which the console's breaker leaves alone
+            HttpResponse<String> cases = post("/api/cases/search", null);
+            assertEquals(200, cases.statusCode());
+            assertTrue(!cases.body().contains("\"error\""), cases.body());
+        } finally {
+            dctm.errorRate(0);
+            // Let a probe close the breaker again for the other tests
+            Thread.sleep(OPEN_MS);
+            queryService.executeQuery("SELECT user_name FROM dm_user", 10);
+        }
+    }
+
+    private static HttpResponse<String> post(String path, String json) throws Exception {
+        String url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + path;
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url));
+        if (json != null) {
+            request.header("Content-Type", "application/json").POST(HttpRequest.BodyPublishers.ofString(json));
+        }
+        return HttpClient.newHttpClient().send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static void awaitZero(String gauge) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (gauge(gauge) != 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, gauge(gauge), gauge);
+    }
+
+    private static double gauge(String name) {
+        Gauge gauge = context.getBean(MeterRegistry.class).find(name).gauge();
+        return gauge != null ? gauge.value() : -1;
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.backend.service;
+
+import com.example.backend.BackendApplication;
+import com.example.backend.fake.FakeDctmServer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Server-side sessions: the session limit, expiry with the login ticket, logout, and sessions
+ * whose ticket the repository stops accepting
+ */
+class SessionStoreTest {
+
+    private static final int MAX_SESSIONS = 3;
+    private static final FakeDctmServer dctm = new FakeDctmServer().start();
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static ConfigurableApplicationContext context;
+
+    @BeforeAll
+    static void start() {
+        context = new SpringApplicationBuilder(BackendApplication.class).run(
+                "--server.port=0",
+                "--management.server.port=0",
+                "--dctm.rest.url=" + dctm.url(),
+                "--app.directory.refresh-interval-ms=600000",
+                "--app.session.max-sessions=" + MAX_SESSIONS,
+                "--app.session.sweep-interval-ms=600000");
+    }
+
+    @AfterAll
+    static void stop() {
+        context.close();
+        dctm.close();
+    }
+
+    @Test
+    void theLeastRecentlyUsedSessionIsEvictedAtTheLimit() throws InterruptedException {
+        SessionStore store = context.getBean(SessionStore.class);
+        DctmSession first = create(store, "first", Duration.ofHours(1));
+        DctmSession second = create(store, "second", Duration.ofHours(1));
+        DctmSession third = create(store, "third", Duration.ofHours(1));
+        assertSame(first, store.get(first.getId()));
+
+        DctmSession fourth = create(store, "fourth", Duration.ofHours(1));
+
+        assertEquals(MAX_SESSIONS, store.size());
+        assertNull(store.get(second.getId()));
+        assertSame(first, store.get(first.getId()));
+        assertSame(third, store.get(third.getId()));
+        assertSame(fourth, store.get(fourth.getId()));
+    }
+
+    @Test
+    void sessionsEndWhenTheirTicketExpires() throws InterruptedException {
+        SessionStore store = context.getBean(SessionStore.class);
+        DctmSession session = create(store, "short", Duration.ofMillis(300));
+        assertSame(session, store.get(session.getId()));
+
+        Thread.sleep(400);
+
+        assertNull(store.get(session.getId()));
+    }
+
+    @Test
+    void logoutEndsTheSession() throws Exception {
+        String token = login("logout.user");
+        assertEquals(200, getMembers(token).statusCode());
+
+        HttpResponse<String> logout = send(request("/api/auth/logout", token)
+                .POST(HttpRequest.BodyPublishers.noBody()));
+        assertTrue(logout.body().contains("\"success\":true"), logout.body());
+
+        HttpResponse<String> after = getMembers(token);
+        assertEquals(401, after.statusCode());
+        assertTrue(after.body().contains("\"sessionExpired\":true"), after.body());
+    }
+
+    @Test
+    void aRejectedSessionTicketEndsTheSession() throws Exception {
+        String token = login("restart.user");
+        assertEquals(200, getMembers(token).statusCode());
+
+        // As after a repository restart; the configured accounts log in again, the session cannot
+        dctm.expireTickets();
+        HttpResponse<String> rejected = getMembers(token);
+
+        assertEquals(401, rejected.statusCode());
+        assertTrue(rejected.body().contains("\"sessionExpired\":true"), rejected.body());
+        assertNull(context.getBean(SessionStore.class).get(token));
+        // Requests without a session keep working
+        assertEquals(200, getMembers(null).statusCode());
+    }
+
+    private static DctmSession create(SessionStore store, String username, Duration ticketLifetime)
+            throws InterruptedException {
+        // Distinct last-access times, so the least recently used session is well defined
+        Thread.sleep(5);
+        Instant now = Instant.now();
+        return store.create(username, "NABARDUAT",
+                LoginTicketManager.LoginTicket.of("DM_TICKET=" + username, now, now.plus(ticketLifetime)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String login(String username) throws Exception {
+        HttpResponse<String> response = send(request("/api/auth/login", null)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"username\":\"" + username + "\",\"password\":\"secret\"}")));
+        assertEquals(200, response.statusCode(), response.body());
+        String token = (String) objectMapper.readValue(response.body(), Map.class).get("sessionToken");
+        assertNotNull(token);
+        return token;
+    }
+
+    private static HttpResponse<String> getMembers(String token) throws Exception {
+        String group = (String) dctm.dataset().rows("dm_group").get(0).get("group_name");
+        return send(request("/api/groups/" + group + "/members", token).GET());
+    }
+
+    private static HttpRequest.Builder request(String path, String token) {
+        String url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + path;
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url));
+        if (token != null) {
+            request.header("X-Session-Token", token);
+        }
+        return request;
+    }
+
+    private static HttpResponse<String> send(HttpRequest.Builder request) throws Exception {
+        return HttpClient.newHttpClient().send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.backend.service;
+
+import com.example.backend.BackendApplication;
+import com.example.backend.fake.FakeDctmServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The dm_user snapshot behind the impersonation dropdown: paged searches and the r_modify_date
+ * delta refresh between full loads
+ */
+class UserDirectoryServiceTest {
+
+    private static final FakeDctmServer dctm = new FakeDctmServer().start();
+    private static ConfigurableApplicationContext context;
+
+    @BeforeAll
+    static void start() {
+        context = new SpringApplicationBuilder(BackendApplication.class).run(
+                "--server.port=0",
+                "--management.server.port=0",
+                "--dctm.rest.url=" + dctm.url(),
+                // Refreshed by the tests only, apart from the first run at startup
+                "--app.directory.refresh-interval-ms=600000",
+                // A full load takes several DQL pages, a delta of a few users one
+                "--app.directory.page-size=10",
+                "--app.directory.search-page-size=5",
+                "--app.directory.max-search-page-size=8");
+    }
+
+    @AfterAll
+    static void stop() {
+        context.close();
+        dctm.close();
+    }
+
+    @Test
+    void searchesArePagedEvenWithoutAPageSize() {
+        UserDirectoryService directory = context.getBean(UserDirectoryService.class);
+
+        Map<String, Object> defaultPage = directory.searchUsers(null, 1, null);
+        assertEquals(5, users(defaultPage).size());
+        assertEquals(true, defaultPage.get("hasNext"));
+        assertTrue((int) defaultPage.get("total") > 8);
+
+        assertEquals(8, users(directory.searchUsers(null, 2, 1000)).size());
+        List<Map<String, Object>> matches = users(directory.searchUsers("USER004", 1, 3));
+        assertEquals(3, matches.size());
+        assertTrue(matches.stream().allMatch(user -> user.get("username").toString().startsWith("user004")));
+    }
+
+    @Test
+    void deltaRefreshAppliesUsersModifiedSinceTheLastRefresh() {
+        UserDirectoryService directory = context.getBean(UserDirectoryService.class);
+        directory.searchUsers(null, 1, null);
+        List<Map<String, Object>> users = dctm.dataset().rows("dm_user");
+        Map<String, Object> deactivated = users.stream()
+                .filter(user -> Integer.valueOf(0).equals(user.get("user_state")))
+                .filter(user -> !"dmadmin".equals(user.get("user_name")))
+                .findFirst().orElseThrow();
+        Map<String, Object> activated = users.stream()
+                .filter(user -> !Integer.valueOf(0).equals(user.get("user_state")))
+                .findFirst().orElseThrow();
+        int total = (int) directory.searchUsers(null, 1, null).get("total");
+
+        // Bumps r_modify_date past the snapshot's watermark, like the repository does
+        dctm.dataset().update((String) deactivated.get("r_object_id"), Map.of("user_state", 1));
+        dctm.dataset().update((String) activated.get("r_object_id"), Map.of("user_state", 0));
+        long dqlBefore = dctm.requests(FakeDctmServer.Route.DQL);
+        directory.refresh();
+
+        assertEquals(1, dctm.requests(FakeDctmServer.Route.DQL) - dqlBefore);
+        assertEquals(total, directory.searchUsers(null, 1, null).get("total"));
+        assertFalse(found(directory, (String) deactivated.get("user_name")));
+        assertTrue(found(directory, (String) activated.get("user_name")));
+    }
+
+    private static boolean found(UserDirectoryService directory, String userName) {
+        return users(directory.searchUsers(userName, 1, null)).stream()
+                .anyMatch(user -> userName.equals(user.get("username")));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> users(Map<String, Object> result) {
+        return (List<Map<String, Object>>) result.get("users");
+    }
+}
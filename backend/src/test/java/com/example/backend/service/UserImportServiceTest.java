@@ -0,0 +1,114 @@
+package com.example.backend.service;
+
+import com.example.backend.BackendApplication;
+import com.example.backend.fake.FakeDctmServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserImportServiceTest {
+
+    private static final FakeDctmServer dctm = new FakeDctmServer().start();
+    private static ConfigurableApplicationContext context;
+
+    @BeforeAll
+    static void start() throws IOException {
+        context = new SpringApplicationBuilder(BackendApplication.class).run(
+                "--server.port=0",
+                "--management.server.port=0",
+                "--dctm.rest.url=" + dctm.url(),
+                "--app.directory.refresh-interval-ms=600000",
+                "--app.users.status-sync.flush-interval-ms=600000",
+                "--app.users.status-sync.journal-path="
+                        + Files.createTempDirectory("user-import").resolve("dm-user-status-sync.journal"));
+    }
+
+    @AfterAll
+    static void stop() {
+        context.close();
+        dctm.close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void quotedCsvCellsMayHoldCommasQuotesAndLineBreaks() {
+        String first = profileId(10);
+        String second = profileId(11);
+        String csv = "\uFEFFr_object_id,location,designation\r\n"
+                + first + ",\"Mumbai, \"\"HO\"\"\",Officer\r\n"
+                + "\r\n"
+                + second + ",\"Block A\nFloor 2\",Manager\r\n";
+
+        Map<String, Object> result = importProfiles(csv, "text/csv");
+
+        assertEquals(2, result.get("total"));
+        assertEquals(2L, result.get("updated"));
+        assertEquals("Mumbai, \"HO\"", dctm.dataset().object(first).get("location"));
+        assertEquals("Block A\nFloor 2", dctm.dataset().object(second).get("location"));
+        List<Map<String, Object>> rows = (List<Map<String, Object>>) result.get("rows");
+        assertEquals(List.of(2, 4), rows.stream().map(row -> row.get("row")).toList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void jsonElementThatIsNotAnObjectIsRejectedOnItsOwn() {
+        String json = "[{\"r_object_id\":\"" + profileId(12) + "\",\"uin\":\"UIN-A\"},"
+                + "42,"
+                + "{\"r_object_id\":\"" + profileId(13) + "\",\"uin\":\"UIN-B\"}]";
+
+        Map<String, Object> result = importProfiles(json, "application/json");
+
+        assertNull(result.get("error"));
+        assertEquals(3, result.get("total"));
+        assertEquals(2L, result.get("updated"));
+        Map<String, Object> rejected = ((List<Map<String, Object>>) result.get("rows")).get(1);
+        assertEquals("invalid", rejected.get("status"));
+        assertEquals("UIN-B", dctm.dataset().object(profileId(13)).get("uin"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void statusChangesOfPatchedRowsAreQueuedWhenOtherRowsOrTheInputFail() {
+        String active = profileId(14);
+        String missing = "0902cba0ffffffff";
+        // The input breaks off after the third row
+        String json = "[{\"r_object_id\":\"" + active + "\",\"is_active\":false},"
+                + "{\"r_object_id\":\"" + missing + "\",\"is_active\":false},"
+                + "{\"r_object_id\":\"" + profileId(15) + "\",\"location\":\"Pune\"},"
+                + "{\"r_object_id\":";
+
+        Map<String, Object> result = importProfiles(json, "application/json");
+
+        assertTrue(String.valueOf(result.get("error")).startsWith("Import stopped after 3 rows"), String.valueOf(result));
+        assertEquals(2L, result.get("updated"));
+        assertEquals(1L, result.get("failed"));
+        Map<String, Object> failed = ((List<Map<String, Object>>) result.get("rows")).get(1);
+        assertEquals(missing, failed.get("r_object_id"));
+        assertEquals("failed", failed.get("status"));
+        assertEquals(1, ((Map<String, Object>) result.get("statusSync")).get("queued"));
+        assertEquals(false, dctm.dataset().object(active).get("is_active"));
+        assertEquals("Pune", dctm.dataset().object(profileId(15)).get("location"));
+    }
+
+    private static Map<String, Object> importProfiles(String body, String contentType) {
+        return context.getBean(UserImportService.class)
+                .importProfiles(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), contentType);
+    }
+
+    private static String profileId(int index) {
+        return (String) dctm.dataset().rows("cms_user_profile").get(index).get("r_object_id");
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.backend.service;
+
+import com.example.backend.BackendApplication;
+import com.example.backend.fake.FakeDctmServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class WorkflowServiceTest {
+
+    private static final int QUERY_SLOTS = 6;
+    // Slower than app.resilience.bulkhead-wait-ms, so a call finding no free slot is refused
+    private static final FakeDctmServer dctm = new FakeDctmServer().latency(Duration.ofMillis(300)).start();
+    private static ConfigurableApplicationContext context;
+
+    @BeforeAll
+    static void start() {
+        context = new SpringApplicationBuilder(BackendApplication.class).run(
+                "--server.port=0",
+                "--management.server.port=0",
+                "--dctm.rest.url=" + dctm.url(),
+                "--app.directory.refresh-interval-ms=600000",
+                "--app.resilience.max-concurrent.query=" + QUERY_SLOTS,
+                "--app.workflow.detail-concurrency=2");
+    }
+
+    @AfterAll
+    static void stop() {
+        context.close();
+        dctm.close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void caseWithMoreWorkflowsThanQuerySlotsGetsAllTheirDetails() {
+        String caseId = (String) dctm.dataset().rows("cms_case_folder").get(0).get("r_object_id");
+        dctm.dataset().addWorkflows(caseId, QUERY_SLOTS * 2);
+
+        Map<String, Object> result = context.getBean(WorkflowService.class).getWorkflowsForCase(caseId);
+
+        assertNull(result.get("error"));
+        List<Map<String, Object>> workflows = (List<Map<String, Object>>) result.get("workflows");
+        assertFalse(workflows.size() < QUERY_SLOTS * 2, "Only " + workflows.size() + " workflows");
+        for (Map<String, Object> workflow : workflows) {
+            assertFalse(String.valueOf(workflow.get("process_name")).startsWith("Unknown"), String.valueOf(workflow));
+            assertFalse(((List<?>) workflow.get("workItems")).isEmpty(), String.valueOf(workflow));
+        }
+        assertNull(context.getBean(MeterRegistry.class).find("dctm.gateway.rejected").counter());
+        assertEquals(QUERY_SLOTS, (int) context.getBean(MeterRegistry.class)
+                .get("dctm.gateway.bulkhead.available").tag("class", "query").gauge().value());
+    }
+}
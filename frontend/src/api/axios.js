@@ -7,4 +7,27 @@ const api = axios.create({
   },
 });
 
+// Send the server-side session token issued at login with every request
+api.interceptors.request.use((config) => {
+  const sessionToken = localStorage.getItem("sessionToken");
+  if (sessionToken) {
+    config.headers["X-Session-Token"] = sessionToken;
+  }
+  return config;
+});
+
+// The session expired or was evicted on the server: log in again
+api.interceptors.response.use(
+  (response) => response,
+  (error) => {
+    if (error.response && error.response.status === 401 && error.response.data &&
+        error.response.data.sessionExpired) {
+      localStorage.removeItem("sessionToken");
+      localStorage.removeItem("user");
+      window.location.assign("/login");
+    }
+    return Promise.reject(error);
+  }
+);
+
 export default api;
@@ -1,8 +1,11 @@
 import React, { useState, useRef, useEffect } from 'react';
-import { User, LogOut, ChevronDown, Check, Key, Copy, Loader2 } from 'lucide-react';
+import { User, LogOut, ChevronDown, Check, Key, Copy, Loader2, Search } from 'lucide-react';
 import { useNavigate } from 'react-router-dom';
 import axios from '../../api/axios';
 
+// Users shown per search; the directory holds every active user, so it is never loaded in full
+const USER_SEARCH_SIZE = 20;
+
 const Topbar = () => {
     const navigate = useNavigate();
     const [isProfileOpen, setIsProfileOpen] = useState(false);
@@ -14,6 +17,8 @@ const Topbar = () => {
     // Login ticket state
     const [currentUser, setCurrentUser] = useState(null);
     const [users, setUsers] = useState([]);
+    const [userQuery, setUserQuery] = useState('');
+    const [hasMoreUsers, setHasMoreUsers] = useState(false);
     const [selectedUser, setSelectedUser] = useState('');
     const [loadingUsers, setLoadingUsers] = useState(false);
     const [loginTicket, setLoginTicket] = useState(null);
@@ -51,16 +56,15 @@ const Topbar = () => {
         }
     };
 
-    const fetchUsers = async () => {
+    const fetchUsers = async (query) => {
         setLoadingUsers(true);
         try {
-            const response = await axios.get('/auth/users');
+            const response = await axios.get('/auth/users', {
+                params: { query: query || undefined, size: USER_SEARCH_SIZE }
+            });
             if (response.data.success) {
                 setUsers(response.data.users || []);
-                // Set current user as default selection
-                if (response.data.users.length > 0 && currentUser) {
-                    setSelectedUser(currentUser.username);
-                }
+                setHasMoreUsers(Boolean(response.data.hasNext));
             }
         } catch (error) {
             console.error('Error fetching users:', error);
@@ -69,6 +73,20 @@ const Topbar = () => {
         }
     };
 
+    // Type-ahead: search the directory once typing pauses while the dropdown is open
+    useEffect(() => {
+        if (!isTicketOpen) return;
+        const timer = setTimeout(() => fetchUsers(userQuery.trim()), 300);
+        return () => clearTimeout(timer);
+    }, [userQuery, isTicketOpen]);
+
+    const selectUser = (username) => {
+        setSelectedUser(username);
+        setUserQuery(username);
+        setLoginTicket(null); // Clear previous ticket
+        setTicketError(null);
+    };
+
     const fetchLoginTicket = async () => {
         if (!selectedUser) {
             setTicketError('Please select a user');
@@ -101,7 +119,13 @@ const Topbar = () => {
         }
     };
 
-    const handleLogout = () => {
+    const handleLogout = async () => {
+        try {
+            await axios.post('/auth/logout');
+        } catch (err) {
+            console.error('Failed to end server session', err);
+        }
+        localStorage.removeItem('sessionToken');
         localStorage.removeItem('user');
         navigate('/login');
     };
@@ -120,10 +144,12 @@ const Topbar = () => {
                 <div className="relative" ref={ticketDropdownRef}>
                     <button
                         onClick={() => {
-                            setIsTicketOpen(!isTicketOpen);
-                            if (!isTicketOpen && users.length === 0) {
-                                fetchUsers();
+                            if (!isTicketOpen && !selectedUser && currentUser) {
+                                // Start from the current user
+                                setSelectedUser(currentUser.username);
+                                setUserQuery(currentUser.username || '');
                             }
+                            setIsTicketOpen(!isTicketOpen);
                         }}
                         className="flex items-center gap-2 px-3 py-2 rounded-lg hover:bg-slate-50 transition-colors border border-transparent hover:border-slate-200 text-slate-600 hover:text-[#0A66C2]"
                         title="Get Login Ticket for Support"
@@ -152,28 +178,44 @@ const Topbar = () => {
                                     <label className="text-xs font-semibold text-slate-400 uppercase tracking-wider">
                                         Select User to Impersonate
                                     </label>
-                                    {loadingUsers ? (
-                                        <div className="mt-1 px-3 py-2 bg-slate-50 rounded-lg text-slate-500 text-sm flex items-center gap-2">
-                                            <Loader2 size={14} className="animate-spin" />
-                                            Loading users...
-                                        </div>
-                                    ) : (
-                                        <select
-                                            value={selectedUser}
+                                    <div className="relative mt-1">
+                                        <Search size={14} className="absolute left-3 top-1/2 -translate-y-1/2 text-slate-400" />
+                                        <input
+                                            type="text"
+                                            value={userQuery}
                                             onChange={(e) => {
-                                                setSelectedUser(e.target.value);
+                                                setUserQuery(e.target.value);
+                                                setSelectedUser('');
                                                 setLoginTicket(null); // Clear previous ticket
                                                 setTicketError(null);
                                             }}
-                                            className="mt-1 w-full px-3 py-2 border border-slate-200 rounded-lg text-sm focus:outline-none focus:ring-2 focus:ring-blue-500/20 focus:border-[#0A66C2] bg-white"
-                                        >
-                                            <option value="">Select a user...</option>
+                                            placeholder="Search by user name or email..."
+                                            className="w-full pl-9 pr-9 py-2 border border-slate-200 rounded-lg text-sm focus:outline-none focus:ring-2 focus:ring-blue-500/20 focus:border-[#0A66C2] bg-white"
+                                        />
+                                        {loadingUsers && (
+                                            <Loader2 size={14} className="absolute right-3 top-1/2 -translate-y-1/2 animate-spin text-slate-400" />
+                                        )}
+                                    </div>
+                                    {!selectedUser && (
+                                        <div className="mt-1 max-h-48 overflow-y-auto border border-slate-200 rounded-lg divide-y divide-slate-100">
+                                            {users.length === 0 && !loadingUsers && (
+                                                <div className="px-3 py-2 text-slate-500 text-xs">No matching users</div>
+                                            )}
                                             {users.map((user) => (
-                                                <option key={user.username} value={user.username}>
+                                                <button
+                                                    key={user.username}
+                                                    onClick={() => selectUser(user.username)}
+                                                    className="w-full text-left px-3 py-2 hover:bg-slate-50 text-sm text-slate-700"
+                                                >
                                                     {user.username} {user.email ? `(${user.email})` : ''} {user.isSuperuser ? '- SUPERUSER' : ''}
-                                                </option>
+                                                </button>
                                             ))}
-                                        </select>
+                                            {hasMoreUsers && (
+                                                <div className="px-3 py-2 text-slate-400 text-xs italic">
+                                                    More users match, keep typing to narrow the list
+                                                </div>
+                                            )}
+                                        </div>
                                     )}
                                     <p className="text-xs text-slate-500 mt-1 italic">
                                         ⚠️ Support team only: Generate ticket to troubleshoot user issues
@@ -28,6 +28,9 @@ const LoginPage = () => {
             const response = await api.post('/auth/login', formData);
             if (response.data.authenticated) {
                 localStorage.setItem('user', JSON.stringify(response.data.userDetails));
+                if (response.data.sessionToken) {
+                    localStorage.setItem('sessionToken', response.data.sessionToken);
+                }
                 navigate('/dashboard');
             } else {
                 setError(response.data.message || 'Authentication failed');
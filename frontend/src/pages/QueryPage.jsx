@@ -65,7 +65,7 @@ const QueryPage = () => {
             }
         } catch (err) {
             console.error("Error executing query", err);
-            setError(err.response?.data?.message || err.message || 'Query execution failed');
+            setError(err.response?.data?.error || err.response?.data?.message || err.message || 'Query execution failed');
             setAllRows([]);
             setColumns([]);
         } finally {